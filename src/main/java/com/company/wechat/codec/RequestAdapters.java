@@ -0,0 +1,266 @@
+package com.company.wechat.codec;
+
+import com.company.wechat.model.dto.BatchMessageRequest;
+import com.company.wechat.model.dto.BatchSendRequest;
+import com.company.wechat.model.dto.GroupMsgResultRequest;
+import com.company.wechat.model.dto.PersonalizedMsgTemplateRequest;
+import com.company.wechat.model.dto.WelcomeMessageRequest;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.List;
+
+import static com.company.wechat.codec.JsonCodecs.writeSingleField;
+import static com.company.wechat.codec.JsonCodecs.writeString;
+import static com.company.wechat.codec.JsonCodecs.writeStrings;
+
+/**
+ * 企业微信请求DTO的手写TypeAdapter（只序列化）
+ * 字段名和顺序与原来基于@SerializedName的反射序列化一致
+ *
+ * @author Company
+ */
+final class RequestAdapters {
+
+    private RequestAdapters() {
+    }
+
+    /**
+     * 只用于序列化的TypeAdapter
+     */
+    abstract static class WriteOnlyAdapter<T> extends TypeAdapter<T> {
+
+        @Override
+        public final void write(JsonWriter out, T value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeFields(out, value);
+            out.endObject();
+        }
+
+        abstract void writeFields(JsonWriter out, T value) throws IOException;
+
+        @Override
+        public final T read(JsonReader in) {
+            throw new UnsupportedOperationException("请求对象只用于序列化");
+        }
+    }
+
+    /**
+     * 群发消息模板请求（单个客户的个性化链接）
+     */
+    static final class PersonalizedMsgTemplateAdapter extends WriteOnlyAdapter<PersonalizedMsgTemplateRequest> {
+
+        @Override
+        void writeFields(JsonWriter out, PersonalizedMsgTemplateRequest value) throws IOException {
+            writeString(out, "chat_type", value.getChatType());
+            writeStrings(out, "external_userid", value.getExternalUserid());
+            writeString(out, "sender", value.getSender());
+            if (value.getText() != null) {
+                writeSingleField(out, "text", "content", value.getText().getContent());
+            }
+            List<PersonalizedMsgTemplateRequest.Attachment> attachments = value.getAttachments();
+            if (attachments != null) {
+                out.name("attachments").beginArray();
+                for (PersonalizedMsgTemplateRequest.Attachment attachment : attachments) {
+                    if (attachment == null) {
+                        out.nullValue();
+                        continue;
+                    }
+                    out.beginObject();
+                    writeString(out, "msgtype", attachment.getMsgtype());
+                    PersonalizedMsgTemplateRequest.LinkAttachment link = attachment.getLink();
+                    if (link != null) {
+                        out.name("link").beginObject();
+                        writeString(out, "title", link.getTitle());
+                        writeString(out, "picurl", link.getPicUrl());
+                        writeString(out, "desc", link.getDesc());
+                        writeString(out, "url", link.getUrl());
+                        out.endObject();
+                    }
+                    out.endObject();
+                }
+                out.endArray();
+            }
+        }
+    }
+
+    /**
+     * 创建群发任务请求（单个发送人）
+     */
+    static final class BatchSendAdapter extends WriteOnlyAdapter<BatchSendRequest> {
+
+        @Override
+        void writeFields(JsonWriter out, BatchSendRequest value) throws IOException {
+            writeString(out, "chat_type", value.getChatType());
+            if (value.getSender() != null) {
+                writeSingleField(out, "sender", "sender", value.getSender().getSender());
+            }
+            if (value.getExternalContact() != null) {
+                out.name("external_contact").beginObject();
+                writeStrings(out, "tag_list", value.getExternalContact().getTagList());
+                out.endObject();
+            }
+            if (value.getText() != null) {
+                writeSingleField(out, "text", "content", value.getText().getContent());
+            }
+            List<BatchSendRequest.Attachment> attachments = value.getAttachments();
+            if (attachments != null) {
+                out.name("attachments").beginArray();
+                for (BatchSendRequest.Attachment attachment : attachments) {
+                    if (attachment == null) {
+                        out.nullValue();
+                        continue;
+                    }
+                    out.beginObject();
+                    writeString(out, "msgtype", attachment.getMsgType());
+                    BatchSendRequest.Attachment.Link link = attachment.getLink();
+                    if (link != null) {
+                        out.name("link").beginObject();
+                        writeString(out, "title", link.getTitle());
+                        writeString(out, "url", link.getUrl());
+                        writeString(out, "desc", link.getDesc());
+                        writeString(out, "picurl", link.getPicUrl());
+                        out.endObject();
+                    }
+                    out.endObject();
+                }
+                out.endArray();
+            }
+        }
+    }
+
+    /**
+     * 创建群发任务请求（多个发送人）
+     */
+    static final class BatchMessageAdapter extends WriteOnlyAdapter<BatchMessageRequest> {
+
+        @Override
+        void writeFields(JsonWriter out, BatchMessageRequest value) throws IOException {
+            writeString(out, "chat_type", value.getChatType());
+            if (value.getExternalContact() != null) {
+                out.name("external_contact").beginObject();
+                writeStrings(out, "tag_list", value.getExternalContact().getTagList());
+                out.endObject();
+            }
+            if (value.getSender() != null) {
+                out.name("sender").beginObject();
+                writeStrings(out, "sender_list", value.getSender().getSenderList());
+                out.endObject();
+            }
+            if (value.getText() != null) {
+                writeSingleField(out, "text", "content", value.getText().getContent());
+            }
+            List<BatchMessageRequest.Attachment> attachments = value.getAttachments();
+            if (attachments != null) {
+                out.name("attachments").beginArray();
+                for (BatchMessageRequest.Attachment attachment : attachments) {
+                    if (attachment == null) {
+                        out.nullValue();
+                        continue;
+                    }
+                    out.beginObject();
+                    writeString(out, "msgtype", attachment.getMsgType());
+                    BatchMessageRequest.Link link = attachment.getLink();
+                    if (link != null) {
+                        out.name("link").beginObject();
+                        writeString(out, "title", link.getTitle());
+                        writeString(out, "url", link.getUrl());
+                        writeString(out, "picurl", link.getPicUrl());
+                        writeString(out, "desc", link.getDesc());
+                        out.endObject();
+                    }
+                    out.endObject();
+                }
+                out.endArray();
+            }
+        }
+    }
+
+    /**
+     * 查询群发结果请求，limit为0、cursor为空时不写入
+     */
+    static final class GroupMsgResultRequestAdapter extends WriteOnlyAdapter<GroupMsgResultRequest> {
+
+        @Override
+        void writeFields(JsonWriter out, GroupMsgResultRequest value) throws IOException {
+            writeString(out, "msgid", value.getMsgid());
+            if (value.getLimit() > 0) {
+                out.name("limit").value(value.getLimit());
+            }
+            String cursor = value.getCursor();
+            if (cursor != null && !cursor.isEmpty()) {
+                out.name("cursor").value(cursor);
+            }
+        }
+    }
+
+    /**
+     * 发送新客户欢迎语请求
+     */
+    static final class WelcomeMessageAdapter extends WriteOnlyAdapter<WelcomeMessageRequest> {
+
+        @Override
+        void writeFields(JsonWriter out, WelcomeMessageRequest value) throws IOException {
+            writeString(out, "welcome_code", value.getWelcomeCode());
+            if (value.getText() != null) {
+                writeSingleField(out, "text", "content", value.getText().getContent());
+            }
+            List<WelcomeMessageRequest.Attachment> attachments = value.getAttachments();
+            if (attachments != null) {
+                out.name("attachments").beginArray();
+                for (WelcomeMessageRequest.Attachment attachment : attachments) {
+                    if (attachment == null) {
+                        out.nullValue();
+                        continue;
+                    }
+                    out.beginObject();
+                    writeAttachment(out, attachment);
+                    out.endObject();
+                }
+                out.endArray();
+            }
+        }
+
+        private static void writeAttachment(JsonWriter out, WelcomeMessageRequest.Attachment attachment)
+                throws IOException {
+            writeString(out, "msgtype", attachment.getMsgtype());
+            WelcomeMessageRequest.ImageAttachment image = attachment.getImage();
+            if (image != null) {
+                out.name("image").beginObject();
+                writeString(out, "media_id", image.getMediaId());
+                writeString(out, "pic_url", image.getPicUrl());
+                out.endObject();
+            }
+            WelcomeMessageRequest.LinkAttachment link = attachment.getLink();
+            if (link != null) {
+                out.name("link").beginObject();
+                writeString(out, "title", link.getTitle());
+                writeString(out, "picurl", link.getPicurl());
+                writeString(out, "desc", link.getDesc());
+                writeString(out, "url", link.getUrl());
+                out.endObject();
+            }
+            WelcomeMessageRequest.MiniprogramAttachment miniprogram = attachment.getMiniprogram();
+            if (miniprogram != null) {
+                out.name("miniprogram").beginObject();
+                writeString(out, "title", miniprogram.getTitle());
+                writeString(out, "pic_media_id", miniprogram.getPicMediaId());
+                writeString(out, "appid", miniprogram.getAppid());
+                writeString(out, "page", miniprogram.getPage());
+                out.endObject();
+            }
+            if (attachment.getVideo() != null) {
+                writeSingleField(out, "video", "media_id", attachment.getVideo().getMediaId());
+            }
+            if (attachment.getFile() != null) {
+                writeSingleField(out, "file", "media_id", attachment.getFile().getMediaId());
+            }
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.company.wechat.codec;
+
+import com.company.wechat.model.dto.BatchMessageResponse;
+import com.company.wechat.model.dto.ExternalContactListResponse;
+import com.company.wechat.model.dto.GroupMsgResultResponse;
+import com.company.wechat.model.dto.UserSimpleListResponse;
+import com.company.wechat.model.vo.WechatOAuthResponse;
+import com.company.wechat.model.vo.WechatResponse;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.company.wechat.codec.JsonCodecs.beginObject;
+import static com.company.wechat.codec.JsonCodecs.readInt;
+import static com.company.wechat.codec.JsonCodecs.readInteger;
+import static com.company.wechat.codec.JsonCodecs.readInts;
+import static com.company.wechat.codec.JsonCodecs.readLong;
+import static com.company.wechat.codec.JsonCodecs.readString;
+import static com.company.wechat.codec.JsonCodecs.readStrings;
+
+/**
+ * 企业微信响应DTO的手写TypeAdapter（只反序列化）
+ * 按字段名分支直接赋值，未知字段跳过
+ *
+ * @author Company
+ */
+final class ResponseAdapters {
+
+    private ResponseAdapters() {
+    }
+
+    /**
+     * 只用于反序列化的TypeAdapter
+     */
+    abstract static class ReadOnlyAdapter<T> extends TypeAdapter<T> {
+
+        @Override
+        public final T read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            T value = create();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                } else if (!readField(in, name, value)) {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return value;
+        }
+
+        abstract T create();
+
+        /**
+         * 读取一个字段
+         *
+         * @return 是否为已知字段（未知字段由调用方跳过）
+         */
+        abstract boolean readField(JsonReader in, String name, T value) throws IOException;
+
+        @Override
+        public final void write(JsonWriter out, T value) {
+            throw new UnsupportedOperationException("响应对象只用于反序列化");
+        }
+    }
+
+    /**
+     * 创建群发消息模板响应（externalcontact/add_msg_template）
+     */
+    static final class BatchMessageResponseAdapter extends ReadOnlyAdapter<BatchMessageResponse> {
+
+        @Override
+        BatchMessageResponse create() {
+            return new BatchMessageResponse();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, BatchMessageResponse value) throws IOException {
+            switch (name) {
+                case "errcode":
+                    value.setErrCode(readInteger(in));
+                    return true;
+                case "errmsg":
+                    value.setErrMsg(readString(in));
+                    return true;
+                case "fail_list":
+                    value.setFailList(readStrings(in));
+                    return true;
+                case "msgid":
+                    value.setMsgId(readString(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * 获取客户列表响应（externalcontact/list）
+     */
+    static final class ExternalContactListAdapter extends ReadOnlyAdapter<ExternalContactListResponse> {
+
+        @Override
+        ExternalContactListResponse create() {
+            return new ExternalContactListResponse();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, ExternalContactListResponse value) throws IOException {
+            switch (name) {
+                case "errcode":
+                    value.setErrCode(readInteger(in));
+                    return true;
+                case "errmsg":
+                    value.setErrMsg(readString(in));
+                    return true;
+                case "external_userid":
+                    value.setExternalUserid(readStrings(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * 获取群发结果响应（externalcontact/get_groupmsg_result）
+     */
+    static final class GroupMsgResultAdapter extends ReadOnlyAdapter<GroupMsgResultResponse> {
+
+        private final DetailAdapter detailAdapter = new DetailAdapter();
+
+        @Override
+        GroupMsgResultResponse create() {
+            return new GroupMsgResultResponse();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, GroupMsgResultResponse value) throws IOException {
+            switch (name) {
+                case "errcode":
+                    value.setErrcode(readInt(in));
+                    return true;
+                case "errmsg":
+                    value.setErrmsg(readString(in));
+                    return true;
+                case "next_cursor":
+                    value.setNextCursor(readString(in));
+                    return true;
+                case "detail_list":
+                    value.setDetailList(readList(in, detailAdapter));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    static final class DetailAdapter extends ReadOnlyAdapter<GroupMsgResultResponse.Detail> {
+
+        @Override
+        GroupMsgResultResponse.Detail create() {
+            return new GroupMsgResultResponse.Detail();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, GroupMsgResultResponse.Detail value) throws IOException {
+            switch (name) {
+                case "external_userid":
+                    value.setExternalUserid(readString(in));
+                    return true;
+                case "chat_id":
+                    value.setChatId(readString(in));
+                    return true;
+                case "userid":
+                    value.setUserid(readString(in));
+                    return true;
+                case "status":
+                    value.setStatus(readInt(in));
+                    return true;
+                case "send_time":
+                    value.setSendTime(readLong(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * 获取部门成员响应（user/simplelist）
+     */
+    static final class UserSimpleListAdapter extends ReadOnlyAdapter<UserSimpleListResponse> {
+
+        private final UserAdapter userAdapter = new UserAdapter();
+
+        @Override
+        UserSimpleListResponse create() {
+            return new UserSimpleListResponse();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, UserSimpleListResponse value) throws IOException {
+            switch (name) {
+                case "errcode":
+                    value.setErrcode(readInt(in));
+                    return true;
+                case "errmsg":
+                    value.setErrmsg(readString(in));
+                    return true;
+                case "userlist":
+                    value.setUserlist(readList(in, userAdapter));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    static final class UserAdapter extends ReadOnlyAdapter<UserSimpleListResponse.User> {
+
+        @Override
+        UserSimpleListResponse.User create() {
+            return new UserSimpleListResponse.User();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, UserSimpleListResponse.User value) throws IOException {
+            switch (name) {
+                case "userid":
+                    value.setUserid(readString(in));
+                    return true;
+                case "name":
+                    value.setName(readString(in));
+                    return true;
+                case "department":
+                    value.setDepartment(readInts(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * 通用响应（errcode/errmsg，以及gettoken返回的access_token/expires_in）
+     * data字段企业微信不会返回，忽略
+     */
+    @SuppressWarnings("rawtypes")
+    static final class WechatResponseAdapter extends ReadOnlyAdapter<WechatResponse> {
+
+        @Override
+        WechatResponse create() {
+            return new WechatResponse();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, WechatResponse value) throws IOException {
+            switch (name) {
+                case "errcode":
+                    value.setErrCode(readInteger(in));
+                    return true;
+                case "errmsg":
+                    value.setErrMsg(readString(in));
+                    return true;
+                case "access_token":
+                    value.setAccessToken(readString(in));
+                    return true;
+                case "expires_in":
+                    value.setExpiresIn(readInteger(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * 网页授权获取访问用户身份响应（auth/getuserinfo）
+     */
+    static final class WechatOAuthResponseAdapter extends ReadOnlyAdapter<WechatOAuthResponse> {
+
+        @Override
+        WechatOAuthResponse create() {
+            return new WechatOAuthResponse();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, WechatOAuthResponse value) throws IOException {
+            switch (name) {
+                case "errcode":
+                    value.setErrcode(readInteger(in));
+                    return true;
+                case "errmsg":
+                    value.setErrmsg(readString(in));
+                    return true;
+                case "userid":
+                    value.setUserId(readString(in));
+                    return true;
+                case "external_userid":
+                    value.setExternalUserId(readString(in));
+                    return true;
+                case "openid":
+                    value.setOpenId(readString(in));
+                    return true;
+                case "deviceid":
+                    value.setDeviceId(readString(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static <T> List<T> readList(JsonReader in, ReadOnlyAdapter<T> adapter) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_ARRAY) {
+            in.skipValue();
+            return null;
+        }
+        List<T> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(adapter.read(in));
+        }
+        in.endArray();
+        return values;
+    }
+}
@@ -0,0 +1,65 @@
+package com.company.wechat.codec;
+
+import com.company.wechat.model.dto.BatchMessageRequest;
+import com.company.wechat.model.dto.BatchMessageResponse;
+import com.company.wechat.model.dto.BatchSendRequest;
+import com.company.wechat.model.dto.ExternalContactListResponse;
+import com.company.wechat.model.dto.GroupMsgResultRequest;
+import com.company.wechat.model.dto.GroupMsgResultResponse;
+import com.company.wechat.model.dto.PersonalizedMsgTemplateRequest;
+import com.company.wechat.model.dto.UserSimpleListResponse;
+import com.company.wechat.model.dto.WelcomeMessageRequest;
+import com.company.wechat.model.vo.WechatOAuthResponse;
+import com.company.wechat.model.vo.WechatResponse;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * 企业微信请求/响应的JSON编解码
+ * 所有DTO注册了手写的TypeAdapter，不经过反射；未注册的类型（如Map）仍使用Gson默认的反射方式。
+ * Gson实例线程安全，全局共享一个
+ *
+ * @author Company
+ */
+public final class WechatCodec {
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(PersonalizedMsgTemplateRequest.class,
+                    new RequestAdapters.PersonalizedMsgTemplateAdapter())
+            .registerTypeAdapter(BatchSendRequest.class, new RequestAdapters.BatchSendAdapter())
+            .registerTypeAdapter(BatchMessageRequest.class, new RequestAdapters.BatchMessageAdapter())
+            .registerTypeAdapter(WelcomeMessageRequest.class, new RequestAdapters.WelcomeMessageAdapter())
+            .registerTypeAdapter(GroupMsgResultRequest.class, new RequestAdapters.GroupMsgResultRequestAdapter())
+            .registerTypeAdapter(BatchMessageResponse.class, new ResponseAdapters.BatchMessageResponseAdapter())
+            .registerTypeAdapter(ExternalContactListResponse.class, new ResponseAdapters.ExternalContactListAdapter())
+            .registerTypeAdapter(GroupMsgResultResponse.class, new ResponseAdapters.GroupMsgResultAdapter())
+            .registerTypeAdapter(UserSimpleListResponse.class, new ResponseAdapters.UserSimpleListAdapter())
+            .registerTypeAdapter(WechatOAuthResponse.class, new ResponseAdapters.WechatOAuthResponseAdapter())
+            // WechatResponse带泛型参数，按原始类型匹配
+            .registerTypeHierarchyAdapter(WechatResponse.class, new ResponseAdapters.WechatResponseAdapter())
+            .create();
+
+    private WechatCodec() {
+    }
+
+    /**
+     * 共享的Gson实例
+     */
+    public static Gson gson() {
+        return GSON;
+    }
+
+    /**
+     * 序列化请求
+     */
+    public static String toJson(Object request) {
+        return GSON.toJson(request);
+    }
+
+    /**
+     * 解析响应
+     */
+    public static <T> T fromJson(String json, Class<T> type) {
+        return GSON.fromJson(json, type);
+    }
+}
@@ -0,0 +1,39 @@
+package com.company.wechat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Access Token缓存配置
+ * 进程内缓存在Redis之前，Token实际过期后由后台刷新；缓存时间取gettoken返回的expires_in扣除安全余量，
+ * 不超过 wechat.work.token-expire-time。
+ * 不按有效期比例提前刷新：gettoken在Token有效期内返回同一个Token及其剩余有效期，提前刷新拿不到新Token
+ *
+ * @author Company
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "wechat.token")
+public class AccessTokenConfig {
+
+    /**
+     * 缓存时间相对expires_in的安全余量（秒）
+     */
+    private int expirySafetySeconds = 200;
+
+    /**
+     * 后台检查是否需要刷新的间隔（秒），后台刷新失败时按该间隔重试
+     */
+    private int refreshCheckSeconds = 30;
+
+    /**
+     * 多节点刷新租约有效期（秒），同一时间只有持有租约的节点调用gettoken
+     */
+    private int leaseSeconds = 10;
+
+    /**
+     * 未获得租约时等待其他节点写入新Token的最长时间（毫秒）
+     */
+    private long leaseWaitMillis = 3000;
+}
@@ -0,0 +1,52 @@
+package com.company.wechat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 企业微信API自适应速率配置（加性增、乘性减）
+ * 调用成功时速率按固定步长增加，遇到频率限制时按比例降低，各接口独立调整
+ *
+ * @author Company
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "wechat.rate-limit.aimd")
+public class AdaptiveRateConfig {
+
+    /**
+     * 是否开启
+     */
+    private boolean enabled = true;
+
+    /**
+     * 每次增加的速率（次/秒）
+     */
+    private double increaseStep = 1;
+
+    /**
+     * 两次增加之间的最小间隔（毫秒）
+     */
+    private long increaseIntervalMillis = 1000;
+
+    /**
+     * 遇到频率限制时速率乘以的系数
+     */
+    private double decreaseFactor = 0.5;
+
+    /**
+     * 降低速率后的冷却时间（毫秒），期间不再降低也不增加，避免同一波限流响应连续降速
+     */
+    private long decreaseCooldownMillis = 2000;
+
+    /**
+     * 未单独配置接口的速率下限（次/秒）
+     */
+    private double minRate = 1;
+
+    /**
+     * 未单独配置接口的速率上限（次/秒）
+     */
+    private double maxRate = 100;
+}
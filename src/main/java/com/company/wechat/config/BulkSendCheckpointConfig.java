@@ -0,0 +1,43 @@
+package com.company.wechat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 群发任务检查点配置
+ * 企业全员客户群发的目标客户快照、发送游标和每个客户的发送结果写入本地文件，
+ * 应用重启后未完成的任务从最近的检查点继续发送
+ *
+ * @author Company
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "wechat.jobs.checkpoint")
+public class BulkSendCheckpointConfig {
+
+    /**
+     * 是否开启检查点
+     */
+    private boolean enabled = false;
+
+    /**
+     * 检查点文件目录，每个任务一个子目录
+     */
+    private String directory = "data/jobs";
+
+    /**
+     * 每发送多少个客户写一次检查点
+     */
+    private int batchSize = 100;
+
+    /**
+     * 检查点最长间隔（毫秒），发送较慢时按时间写入
+     */
+    private long intervalMillis = 1000;
+
+    /**
+     * 已结束任务的检查点保留时间（小时）
+     */
+    private int retentionHours = 72;
+}
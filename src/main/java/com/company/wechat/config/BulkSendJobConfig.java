@@ -0,0 +1,32 @@
+package com.company.wechat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 后台群发任务配置
+ * 群发任务在有界线程池上执行，同时执行的任务数有上限，超出的任务排队
+ *
+ * @author Company
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "wechat.jobs")
+public class BulkSendJobConfig {
+
+    /**
+     * 同时执行的群发任务数上限
+     */
+    private int maxConcurrent = 2;
+
+    /**
+     * 最多排队等待的任务数，超过时拒绝提交
+     */
+    private int maxQueued = 10;
+
+    /**
+     * 最多保留的任务记录数（超过时清理已结束的任务）
+     */
+    private int maxRetained = 100;
+}
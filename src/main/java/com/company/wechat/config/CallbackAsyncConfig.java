@@ -0,0 +1,51 @@
+package com.company.wechat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 回调异步接收配置
+ * 开启后回调请求在验签、解密后即返回success，事件放入对应处理器的有界线程池处理
+ * （线程数和队列容量见{@link CallbackHandlerConfig}）
+ *
+ * @author Company
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "wechat.callback.async")
+public class CallbackAsyncConfig {
+
+    /**
+     * 是否开启异步接收模式（关闭则在请求线程内同步处理）
+     */
+    private boolean enabled = true;
+
+    /**
+     * 处理器队列已满时的拒绝策略
+     */
+    private RejectionPolicy rejectionPolicy = RejectionPolicy.CALLER_RUNS;
+
+    /**
+     * 应用关闭时等待队列处理完毕的最长时间（秒）
+     */
+    private int shutdownTimeoutSeconds = 10;
+
+    /**
+     * 队列已满时的拒绝策略
+     */
+    public enum RejectionPolicy {
+        /**
+         * 由请求线程直接执行处理器（退化为同步模式，起到背压作用）
+         */
+        CALLER_RUNS,
+        /**
+         * 丢弃新到达的事件
+         */
+        DISCARD,
+        /**
+         * 丢弃队列中最早的事件，接收新事件
+         */
+        DISCARD_OLDEST
+    }
+}
@@ -0,0 +1,20 @@
+package com.company.wechat.config;
+
+import com.company.wechat.util.WechatCryptoEngine;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 回调加解密配置类
+ * 启动时根据企业微信配置构建一次加解密引擎，所有回调共享
+ *
+ * @author Company
+ */
+@Configuration
+public class CallbackCryptoConfig {
+
+    @Bean
+    public WechatCryptoEngine wechatCryptoEngine(WechatWorkConfig config) {
+        return new WechatCryptoEngine(config.getEncodingAesKey(), config.getCorpId());
+    }
+}
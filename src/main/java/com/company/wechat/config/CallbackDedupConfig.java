@@ -0,0 +1,56 @@
+package com.company.wechat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 回调去重配置
+ * 企业微信在响应超时时会重推回调，去重窗口内相同指纹的事件只处理一次
+ *
+ * @author Company
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "wechat.callback.dedup")
+public class CallbackDedupConfig {
+
+    /**
+     * 是否开启回调去重
+     */
+    private boolean enabled = true;
+
+    /**
+     * 去重存储方式
+     */
+    private Mode mode = Mode.MEMORY;
+
+    /**
+     * 去重时间窗口（秒）
+     */
+    private int windowSeconds = 300;
+
+    /**
+     * 内存模式下最多保留的指纹数量
+     */
+    private int maxEntries = 100000;
+
+    /**
+     * Redis模式下的key前缀
+     */
+    private String redisKeyPrefix = "wechat:callback:dedup:";
+
+    /**
+     * 去重存储方式
+     */
+    public enum Mode {
+        /**
+         * 进程内存（单节点）
+         */
+        MEMORY,
+        /**
+         * Redis SETNX（多节点共享，Redis不可用时退化为内存模式）
+         */
+        REDIS
+    }
+}
@@ -0,0 +1,52 @@
+package com.company.wechat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 回调事件处理器线程池配置
+ * 每类事件处理器使用独立的有界线程池，慢处理器不会拖慢其他处理器
+ *
+ * @author Company
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "wechat.callback.handlers")
+public class CallbackHandlerConfig {
+
+    /**
+     * 默认线程数
+     */
+    private int defaultThreads = 2;
+
+    /**
+     * 默认队列容量
+     */
+    private int defaultQueueCapacity = 500;
+
+    /**
+     * 按处理器名称单独配置线程池，如 customer-add
+     */
+    private Map<String, Executor> executors = new HashMap<>();
+
+    /**
+     * 单个处理器的线程池配置
+     */
+    @Data
+    public static class Executor {
+
+        /**
+         * 线程数
+         */
+        private Integer threads;
+
+        /**
+         * 队列容量
+         */
+        private Integer queueCapacity;
+    }
+}
@@ -0,0 +1,52 @@
+package com.company.wechat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 回调事件日志配置
+ * 解密后的回调事件追加写入内存映射的分段文件，用于宕机恢复和修复处理器后重放
+ *
+ * @author Company
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "wechat.callback.journal")
+public class CallbackJournalConfig {
+
+    /**
+     * 是否开启回调事件日志
+     */
+    private boolean enabled = false;
+
+    /**
+     * 日志文件目录
+     */
+    private String directory = "data/journal";
+
+    /**
+     * 单个分段文件大小（MB）
+     */
+    private int segmentSizeMb = 64;
+
+    /**
+     * 批量刷盘间隔（毫秒），期间写入的事件合并为一次fsync
+     */
+    private long flushIntervalMillis = 200;
+
+    /**
+     * 分段文件保留时间（小时）
+     */
+    private int retentionHours = 72;
+
+    /**
+     * 最多保留的分段文件数量
+     */
+    private int maxSegments = 50;
+
+    /**
+     * 默认重放速率（条/秒）
+     */
+    private int replayRatePerSecond = 50;
+}
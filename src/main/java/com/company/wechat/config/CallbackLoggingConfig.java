@@ -0,0 +1,22 @@
+package com.company.wechat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 回调日志配置
+ * 回调量较大时完整打印消息体会产生大量临时字符串，debug日志按比例抽样输出
+ *
+ * @author Company
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "wechat.callback.logging")
+public class CallbackLoggingConfig {
+
+    /**
+     * debug级别下打印完整消息体（加密消息体和解密后的XML）的抽样比例，0~1
+     */
+    private double bodySampleRate = 0.01;
+}
@@ -0,0 +1,32 @@
+package com.company.wechat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 部门客户列表获取配置
+ * 按员工并行调用externalcontact/list，并发数由工作线程数限制，调用频率仍受该接口的限流配置约束
+ *
+ * @author Company
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "wechat.crawl")
+public class CustomerCrawlConfig {
+
+    /**
+     * 是否并行获取，false时在调用线程上逐个员工获取
+     */
+    private boolean parallel = true;
+
+    /**
+     * 工作线程数（同时在途的externalcontact/list调用上限）
+     */
+    private int threads = 8;
+
+    /**
+     * 保留最近多少次获取的进度
+     */
+    private int historySize = 10;
+}
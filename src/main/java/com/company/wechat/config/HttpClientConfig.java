@@ -0,0 +1,84 @@
+package com.company.wechat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 企业微信API HTTP客户端配置
+ * 所有调用都访问 qyapi.weixin.qq.com，单域名并发上限就是实际的吞吐上限
+ *
+ * @author Company
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "wechat.http")
+public class HttpClientConfig {
+
+    /**
+     * 连接池最大空闲连接数
+     */
+    private int maxIdleConnections = 20;
+
+    /**
+     * 空闲连接保活时间（秒）
+     */
+    private int keepAliveSeconds = 300;
+
+    /**
+     * 同时在途的最大请求数
+     */
+    private int maxRequests = 64;
+
+    /**
+     * 单域名同时在途的最大请求数
+     */
+    private int maxRequestsPerHost = 64;
+
+    /**
+     * 是否优先使用HTTP/2（服务端不支持时自动回退HTTP/1.1）
+     */
+    private boolean http2 = true;
+
+    /**
+     * 是否在启动时预热连接
+     */
+    private boolean prewarm = false;
+
+    /**
+     * 预热的连接数
+     */
+    private int prewarmConnections = 4;
+
+    /**
+     * 预热请求的地址，未配置时使用 wechat.work.api-base-url（压测时指向模拟服务，预热的也是它的连接）
+     */
+    private String prewarmUrl;
+
+    /**
+     * 按接口类别的超时配置：token（获取Token）、list（查询类接口）、send（发送类接口），
+     * 未配置的类别使用 default
+     */
+    private Map<String, Timeout> timeouts = new HashMap<>();
+
+    /**
+     * 超时配置（毫秒）
+     */
+    @Data
+    public static class Timeout {
+
+        private Integer connectMillis;
+
+        private Integer readMillis;
+
+        private Integer writeMillis;
+
+        /**
+         * 整个调用（含重定向和重试）的超时，0表示不限制
+         */
+        private Integer callMillis;
+    }
+}
@@ -0,0 +1,89 @@
+package com.company.wechat.config;
+
+import com.company.wechat.util.HttpUtil;
+import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把Spring构建的HTTP客户端注入{@link HttpUtil}
+ *
+ * HttpUtil是静态工具类，调用方不经过Spring注入，只能在启动时显式替换其客户端。
+ * 替换集中在这里完成，而不是作为{@link OkHttpClientConfig#qyapiHttpClient}的副作用：
+ * 使用HttpUtil的Bean（QyApiClient、AccessTokenManager、HttpClientMonitor）通过
+ * {@code @DependsOn("httpUtilInitializer")}保证在替换之后初始化；未启动Spring上下文时
+ * （如单元测试）HttpUtil使用自带的默认客户端
+ *
+ * @author Company
+ */
+@Configuration
+public class HttpUtilInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpUtilInitializer.class);
+
+    @Autowired
+    private HttpClientConfig config;
+
+    @Autowired
+    private WelcomeSchedulerConfig welcomeConfig;
+
+    @Autowired
+    private OkHttpClient qyapiHttpClient;
+
+    @PostConstruct
+    public void init() {
+        // 各类别的客户端由默认客户端派生，共享连接池和Dispatcher，只是超时不同
+        Map<HttpUtil.Profile, OkHttpClient> clients = new EnumMap<>(HttpUtil.Profile.class);
+        clients.put(HttpUtil.Profile.DEFAULT, qyapiHttpClient);
+        for (HttpUtil.Profile profile : HttpUtil.Profile.values()) {
+            if (profile != HttpUtil.Profile.DEFAULT) {
+                HttpClientConfig.Timeout timeout = config.getTimeouts().get(profile.name().toLowerCase());
+                clients.put(profile, withTimeout(qyapiHttpClient, timeout));
+            }
+        }
+        // 单域名并发上限同时约束在途请求数，总上限取二者较小值；欢迎语预留的名额至少给普通请求留一个
+        int maxRequests = Math.min(config.getMaxRequests(), config.getMaxRequestsPerHost());
+        int reserved = Math.max(0, Math.min(welcomeConfig.getReservedInFlight(), maxRequests - 1));
+        if (reserved != welcomeConfig.getReservedInFlight()) {
+            logger.warn("欢迎语预留的HTTP在途名额（wechat.welcome.reserved-in-flight={}）超出在途上限{}，按{}处理",
+                    welcomeConfig.getReservedInFlight(), maxRequests, reserved);
+        }
+        if (welcomeConfig.getSendThreads() > reserved) {
+            logger.warn("欢迎语发送线程数（{}）大于预留的HTTP在途名额（{}），批量任务占满普通名额时"
+                            + "多出的发送线程只能排队等待预留名额，等待时间计入welcome_code的有效期",
+                    welcomeConfig.getSendThreads(), reserved);
+        }
+        HttpUtil.configure(clients, maxRequests, reserved);
+        logger.info("HttpUtil已使用配置的HTTP客户端 - 在途上限: {}, 欢迎语预留: {}", maxRequests, reserved);
+    }
+
+    /**
+     * 派生使用指定超时的客户端，未配置的超时沿用原客户端
+     */
+    static OkHttpClient withTimeout(OkHttpClient client, HttpClientConfig.Timeout timeout) {
+        if (timeout == null) {
+            return client;
+        }
+        OkHttpClient.Builder builder = client.newBuilder();
+        if (timeout.getConnectMillis() != null) {
+            builder.connectTimeout(timeout.getConnectMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (timeout.getReadMillis() != null) {
+            builder.readTimeout(timeout.getReadMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (timeout.getWriteMillis() != null) {
+            builder.writeTimeout(timeout.getWriteMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (timeout.getCallMillis() != null) {
+            builder.callTimeout(timeout.getCallMillis(), TimeUnit.MILLISECONDS);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.company.wechat.config;
+
+import com.company.wechat.util.HttpClientMetrics;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 企业微信API HTTP客户端配置类
+ * 按配置构建连接池、Dispatcher和默认超时；各接口类别的客户端由{@link HttpUtilInitializer}派生后注入HttpUtil
+ *
+ * @author Company
+ */
+@Configuration
+public class OkHttpClientConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(OkHttpClientConfig.class);
+
+    @Bean
+    public HttpClientMetrics httpClientMetrics() {
+        return new HttpClientMetrics();
+    }
+
+    @Bean
+    public OkHttpClient qyapiHttpClient(HttpClientConfig config, HttpClientMetrics metrics) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(config.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(config.getMaxRequestsPerHost());
+
+        OkHttpClient base = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(config.getMaxIdleConnections(),
+                        config.getKeepAliveSeconds(), TimeUnit.SECONDS))
+                .protocols(config.isHttp2()
+                        ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                        : Collections.singletonList(Protocol.HTTP_1_1))
+                .eventListener(metrics)
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .build();
+
+        logger.info("HTTP客户端已配置 - 最大并发: {}, 单域名并发: {}, 空闲连接: {}, HTTP/2: {}",
+                config.getMaxRequests(), config.getMaxRequestsPerHost(),
+                config.getMaxIdleConnections(), config.isHttp2());
+        return HttpUtilInitializer.withTimeout(base, config.getTimeouts().get("default"));
+    }
+}
@@ -0,0 +1,98 @@
+package com.company.wechat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 企业微信API限流配置
+ * 每个接口一个令牌桶，接口名取URL中 /cgi-bin/ 之后的路径，斜杠和下划线替换为短横线，
+ * 如 externalcontact-list、externalcontact-add-msg-template、user-simplelist。
+ * 自适应速率（AIMD）见{@link AdaptiveRateConfig}
+ *
+ * @author Company
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "wechat.rate-limit")
+public class RateLimitConfig {
+
+    /**
+     * 是否开启限流
+     */
+    private boolean enabled = true;
+
+    /**
+     * 令牌桶存储方式
+     */
+    private Mode mode = Mode.LOCAL;
+
+    /**
+     * Redis模式下令牌桶的key前缀
+     */
+    private String redisKeyPrefix = "wechat:ratelimit:";
+
+    /**
+     * 未单独配置的接口的默认速率（次/秒）
+     */
+    private double defaultRate = 20;
+
+    /**
+     * 未单独配置的接口的默认突发容量
+     */
+    private int defaultBurst = 20;
+
+    /**
+     * 被频率限制的请求重新排队的最大次数，超过后返回原响应
+     */
+    private int maxRequeues = 3;
+
+    /**
+     * 按接口单独配置
+     */
+    private Map<String, Bucket> apis = new HashMap<>();
+
+    /**
+     * 单个接口的令牌桶配置
+     */
+    @Data
+    public static class Bucket {
+
+        /**
+         * 速率（次/秒）
+         */
+        private Double rate;
+
+        /**
+         * 突发容量
+         */
+        private Integer burst;
+
+        /**
+         * 自适应调整的速率下限（次/秒）
+         */
+        private Double minRate;
+
+        /**
+         * 自适应调整的速率上限（次/秒）
+         */
+        private Double maxRate;
+    }
+
+    /**
+     * 令牌桶存储方式
+     */
+    public enum Mode {
+        /**
+         * 进程内令牌桶（单节点）
+         */
+        LOCAL,
+        /**
+         * Redis令牌桶（多节点共享配额）
+         */
+        REDIS
+    }
+}
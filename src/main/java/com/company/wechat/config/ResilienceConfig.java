@@ -0,0 +1,65 @@
+package com.company.wechat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 企业微信API容错配置
+ * 临时性失败（网络异常、超时、errcode=-1 系统繁忙）按带抖动的指数退避重试，
+ * 非幂等的POST请求只在连接阶段失败、HTTP 429或errcode=-1时重试；
+ * 同一接口连续失败达到阈值后熔断，熔断期间请求直接失败，批量任务暂停等待
+ *
+ * @author Company
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "wechat.resilience")
+public class ResilienceConfig {
+
+    /**
+     * 单次调用的最大尝试次数（含首次）
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * 退避基础时长（毫秒），第n次重试的退避上限为 base * 2^(n-1)，实际取 [0, 上限) 内的随机值
+     */
+    private long baseDelayMillis = 200;
+
+    /**
+     * 退避上限（毫秒）
+     */
+    private long maxDelayMillis = 5000;
+
+    /**
+     * 可以安全重发的POST接口（限流接口名，如 externalcontact-get-groupmsg-result），
+     * 读超时和5xx时按临时性失败重试；其余POST接口（如创建群发任务、发送欢迎语）重发可能导致重复发送
+     */
+    private List<String> idempotentPostApis = new ArrayList<>(Arrays.asList(
+            "externalcontact-get-groupmsg-result"));
+
+    /**
+     * 是否开启熔断
+     */
+    private boolean breakerEnabled = true;
+
+    /**
+     * 连续失败多少次后熔断
+     */
+    private int failureThreshold = 5;
+
+    /**
+     * 熔断持续时间（毫秒），之后进入半开状态放行请求试探
+     */
+    private long openMillis = 30000;
+
+    /**
+     * 批量任务遇到熔断时最长暂停时间（毫秒）
+     */
+    private long pauseMaxWaitMillis = 300000;
+}
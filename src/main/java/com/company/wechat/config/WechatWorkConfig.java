@@ -40,6 +40,12 @@ public class WechatWorkConfig {
      */
     private String h5BaseUrl;
 
+    /**
+     * 企业微信API地址，各接口URL为该地址加 /cgi-bin/ 路径
+     * 压测时可指向本地模拟服务
+     */
+    private String apiBaseUrl = "https://qyapi.weixin.qq.com";
+
     /**
      * Access Token缓存时间（秒）
      */
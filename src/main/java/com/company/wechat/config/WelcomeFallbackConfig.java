@@ -0,0 +1,47 @@
+package com.company.wechat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 欢迎语补发配置
+ * 欢迎语未能发送的客户按员工归集，合并为一次群发消息模板（add_msg_template）补发H5链接
+ *
+ * @author Company
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "wechat.welcome.fallback")
+public class WelcomeFallbackConfig {
+
+    /**
+     * 是否开启自动补发（关闭则只打印日志提示客服手动发送）
+     */
+    private boolean enabled = true;
+
+    /**
+     * 合并窗口（秒），员工第一位待补发客户进入后等待该时间再统一发送
+     */
+    private int windowSeconds = 60;
+
+    /**
+     * 单次补发的最大客户数，达到后立即发送
+     */
+    private int maxBatchSize = 200;
+
+    /**
+     * 链接标题
+     */
+    private String linkTitle = "完善您的信息";
+
+    /**
+     * 链接描述
+     */
+    private String linkDesc = "点击查看详情";
+
+    /**
+     * 链接封面图片URL
+     */
+    private String linkPicUrl;
+}
@@ -0,0 +1,43 @@
+package com.company.wechat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 欢迎语发送调度配置
+ * welcome_code仅在客户添加后20秒内有效，欢迎语按截止时间优先发送，并使用独立的发送线程和预留的HTTP在途名额；
+ * 限流等待、重试退避和请求超时都不超过截止时间
+ *
+ * @author Company
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "wechat.welcome")
+public class WelcomeSchedulerConfig {
+
+    /**
+     * welcome_code有效期（秒），从事件CreateTime起算
+     */
+    private int codeValiditySeconds = 20;
+
+    /**
+     * 截止时间安全余量（毫秒），预计无法在截止时间前完成的发送直接放弃
+     */
+    private long safetyMarginMillis = 1500;
+
+    /**
+     * 专用发送线程数（欢迎语独占的HTTP并发，不与群发等批量任务共享）
+     */
+    private int sendThreads = 4;
+
+    /**
+     * 预留给欢迎语的HTTP在途名额数，群发等批量请求占不满；释放的名额优先转交给等待中的欢迎语
+     */
+    private int reservedInFlight = 4;
+
+    /**
+     * 待发送队列最大长度
+     */
+    private int maxPending = 1000;
+}
@@ -0,0 +1,133 @@
+package com.company.wechat.controller;
+
+import com.company.wechat.service.ApiCircuitBreaker;
+import com.company.wechat.service.CallbackJournal;
+import com.company.wechat.service.CallbackReplayService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 运维管理控制器
+ * 提供回调事件日志查询和重放、企业微信API熔断状态查询和手动恢复等运维操作
+ *
+ * @author Company
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
+
+    @Autowired
+    private CallbackJournal callbackJournal;
+
+    @Autowired
+    private CallbackReplayService replayService;
+
+    @Autowired
+    private ApiCircuitBreaker circuitBreaker;
+
+    /**
+     * 回调事件日志状态（写入偏移、段数量、刷盘次数等）
+     */
+    @GetMapping("/journal")
+    public Map<String, Object> journalStatus() {
+        return callbackJournal.getStats();
+    }
+
+    /**
+     * 重放回调事件
+     * 按偏移量范围或接收时间范围重放，两者可同时指定
+     *
+     * @param fromOffset 起始偏移（含）
+     * @param toOffset 结束偏移（不含）
+     * @param fromTime 起始接收时间，毫秒时间戳（含）
+     * @param toTime 结束接收时间，毫秒时间戳（不含）
+     * @param rate 重放速率（条/秒），不传使用配置的默认值
+     * @return 重放任务
+     */
+    @PostMapping("/journal/replay")
+    public Map<String, Object> replay(
+            @RequestParam(required = false) Long fromOffset,
+            @RequestParam(required = false) Long toOffset,
+            @RequestParam(required = false) Long fromTime,
+            @RequestParam(required = false) Long toTime,
+            @RequestParam(required = false) Integer rate) {
+
+        logger.info("收到回调重放请求 - 偏移: [{}, {}), 时间: [{}, {}), 速率: {}",
+                fromOffset, toOffset, fromTime, toTime, rate);
+
+        Map<String, Object> result = new HashMap<>();
+        try {
+            CallbackReplayService.ReplayTask task = replayService.submit(fromOffset, toOffset, fromTime, toTime, rate);
+            result.put("success", true);
+            result.put("taskId", task.getId());
+            result.put("message", "重放任务已提交");
+        } catch (IllegalStateException e) {
+            result.put("success", false);
+            result.put("message", e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 查询重放任务进度
+     *
+     * @param taskId 重放任务ID
+     */
+    @GetMapping("/journal/replay/{taskId}")
+    public Map<String, Object> replayStatus(@PathVariable String taskId) {
+        CallbackReplayService.ReplayTask task = replayService.getTask(taskId);
+        if (task == null) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", false);
+            result.put("message", "重放任务不存在");
+            return result;
+        }
+        Map<String, Object> result = task.toMap();
+        result.put("success", true);
+        return result;
+    }
+
+    /**
+     * 取消重放任务
+     *
+     * @param taskId 重放任务ID
+     */
+    @PostMapping("/journal/replay/{taskId}/cancel")
+    public Map<String, Object> cancelReplay(@PathVariable String taskId) {
+        Map<String, Object> result = new HashMap<>();
+        boolean cancelled = replayService.cancel(taskId);
+        result.put("success", cancelled);
+        result.put("message", cancelled ? "已取消" : "重放任务不存在");
+        return result;
+    }
+
+    /**
+     * 企业微信API熔断状态（按接口）
+     */
+    @GetMapping("/circuit-breakers")
+    public Map<String, Object> circuitBreakers() {
+        return circuitBreaker.getStats();
+    }
+
+    /**
+     * 手动关闭熔断
+     *
+     * @param api 接口名，如 externalcontact-add-msg-template；不传时关闭所有接口的熔断
+     */
+    @PostMapping("/circuit-breakers/reset")
+    public Map<String, Object> resetCircuitBreaker(@RequestParam(required = false) String api) {
+        logger.info("收到手动关闭熔断请求 - 接口: {}", api != null ? api : "全部");
+        Map<String, Object> result = new HashMap<>();
+        boolean reset = circuitBreaker.reset(api);
+        result.put("success", reset);
+        result.put("message", reset ? "已关闭熔断" : "接口不存在熔断记录");
+        return result;
+    }
+}
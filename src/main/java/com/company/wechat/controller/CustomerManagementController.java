@@ -1,16 +1,24 @@
 package com.company.wechat.controller;
 
 import com.company.wechat.config.WechatWorkConfig;
+import com.company.wechat.model.dto.GroupMsgResultResponse;
+import com.company.wechat.service.BulkSendJob;
+import com.company.wechat.service.BulkSendJobService;
+import com.company.wechat.service.DuplicateJobException;
 import com.company.wechat.service.ExistingCustomerService;
+import com.company.wechat.util.CompactCustomerDirectory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * 客户管理控制器
@@ -30,6 +38,9 @@ public class CustomerManagementController {
     @Autowired
     private WechatWorkConfig config;
 
+    @Autowired
+    private BulkSendJobService jobService;
+
     /**
      * 批量发送H5链接给所有客户
      * 
@@ -100,10 +111,28 @@ public class CustomerManagementController {
     public Map<String, Object> getGroupMsgResult(@RequestParam String msgid) {
         logger.info("查询群发结果，msgid: {}", msgid);
         
-        Map<String, Object> result = existingCustomerService.getGroupMsgResult(msgid);
+        GroupMsgResultResponse result = existingCustomerService.getGroupMsgResult(msgid);
         
         if (result != null) {
-            return result;
+            // 保持企业微信原始响应的字段名
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("errcode", result.getErrcode());
+            map.put("errmsg", result.getErrmsg());
+            List<Map<String, Object>> detailList = new ArrayList<>();
+            if (result.getDetailList() != null) {
+                for (GroupMsgResultResponse.Detail detail : result.getDetailList()) {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("external_userid", detail.getExternalUserid());
+                    item.put("chat_id", detail.getChatId());
+                    item.put("userid", detail.getUserid());
+                    item.put("status", detail.getStatus());
+                    item.put("send_time", detail.getSendTime());
+                    detailList.add(item);
+                }
+            }
+            map.put("detail_list", detailList);
+            map.put("next_cursor", result.getNextCursor());
+            return map;
         } else {
             Map<String, Object> errorResult = new HashMap<>();
             errorResult.put("success", false);
@@ -143,16 +172,10 @@ public class CustomerManagementController {
     public Map<String, Object> sendPersonalizedLinks(@RequestParam String staffUserId) {
         logger.info("收到逐个发送请求，员工ID: {}", staffUserId);
         
-        // 异步执行，避免阻塞
-        new Thread(() -> {
-            existingCustomerService.sendPersonalizedLinksOneByOne(staffUserId);
-        }).start();
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("success", true);
-        result.put("message", "发送任务已启动，将在后台执行");
-        
-        return result;
+        // 后台任务执行，避免阻塞
+        return submitJob("one-by-one:" + staffUserId, "逐个发送个性化链接，员工: " + staffUserId,
+                job -> existingCustomerService.sendPersonalizedLinksOneByOne(staffUserId, job),
+                "发送任务已启动，将在后台执行");
     }
 
     /**
@@ -214,21 +237,16 @@ public class CustomerManagementController {
         
         logger.info("收到异步个性化H5链接发送请求，员工ID: {}", staffUserId);
         
-        // 异步执行，避免阻塞
-        new Thread(() -> {
-            existingCustomerService.sendPersonalizedH5Links(
-                    staffUserId, 
-                    null, 
-                    linkTitle, 
-                    linkDesc != null ? linkDesc : "点击查看详情",
-                    linkPicUrl);
-        }).start();
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("success", true);
-        result.put("message", "个性化群发任务已启动，将在后台执行");
-        
-        return result;
+        // 后台任务执行，避免阻塞
+        return submitJob("personalized-h5:" + staffUserId, "个性化H5链接群发，员工: " + staffUserId,
+                job -> existingCustomerService.sendPersonalizedH5Links(
+                        staffUserId, 
+                        null, 
+                        linkTitle, 
+                        linkDesc != null ? linkDesc : "点击查看详情",
+                        linkPicUrl,
+                        job),
+                "个性化群发任务已启动，将在后台执行");
     }
 
     /**
@@ -277,24 +295,55 @@ public class CustomerManagementController {
         
         logger.info("收到异步企业全员客户群发请求，部门ID: {}, 标题: {}", departmentId, linkTitle);
         
-        // 异步执行，避免阻塞
+        // 后台任务执行，避免阻塞；同一部门的全员群发同时只能有一个
         final String finalLinkDesc = linkDesc != null ? linkDesc : "点击查看详情";
-        new Thread(() -> {
-            existingCustomerService.sendPersonalizedH5LinksToAllCustomers(
-                    departmentId, 
-                    linkTitle, 
-                    finalLinkDesc,
-                    linkPicUrl);
-        }).start();
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("success", true);
-        result.put("message", "企业全员客户个性化群发任务已启动，将在后台执行");
-        result.put("tip", "任务可能需要较长时间，请查看日志获取进度");
+        Map<String, Object> result = submitJob("all-customers:" + departmentId,
+                "企业全员客户个性化群发，部门: " + departmentId + "，标题: " + linkTitle,
+                job -> existingCustomerService.sendPersonalizedH5LinksToAllCustomers(
+                        departmentId, 
+                        linkTitle, 
+                        finalLinkDesc,
+                        linkPicUrl,
+                        job),
+                "企业全员客户个性化群发任务已启动，将在后台执行");
+        result.put("tip", "任务可能需要较长时间，可通过 /api/customer/jobs/{jobId} 查询进度");
         
         return result;
     }
 
+    /**
+     * 向企业所有员工下的所有客户发送共享H5链接（异步）
+     * 所有客户收到同一个链接，由H5页面的OAuth授权识别客户身份；每个员工只调用一次群发接口，
+     * 发送后可通过 /api/customer/jobs/{jobId}/reach 查询每个客户的送达情况
+     * 
+     * @param departmentId 部门ID（可选，默认为1表示整个企业）
+     * @param linkTitle 链接标题（必填）
+     * @param linkDesc 链接描述（可选）
+     * @param linkPicUrl 链接封面图片URL（可选）
+     * @return 执行结果
+     */
+    @PostMapping("/send-shared-link-async")
+    public Map<String, Object> sendSharedLinkAsync(
+            @RequestParam(required = false, defaultValue = "1") int departmentId,
+            @RequestParam String linkTitle,
+            @RequestParam(required = false) String linkDesc,
+            @RequestParam(required = false) String linkPicUrl) {
+        
+        logger.info("收到异步企业全员客户共享链接群发请求，部门ID: {}, 标题: {}", departmentId, linkTitle);
+        
+        // 与个性化全员群发使用相同的任务键，同一部门同时只能有一个全员群发
+        final String finalLinkDesc = linkDesc != null ? linkDesc : "点击查看详情";
+        return submitJob("all-customers:" + departmentId,
+                "企业全员客户共享链接群发，部门: " + departmentId + "，标题: " + linkTitle,
+                job -> existingCustomerService.sendSharedH5LinkToAllCustomers(
+                        departmentId,
+                        linkTitle,
+                        finalLinkDesc,
+                        linkPicUrl,
+                        job),
+                "企业全员客户共享链接群发任务已启动，将在后台执行");
+    }
+
     /**
      * 获取部门下所有员工列表
      * 
@@ -330,16 +379,140 @@ public class CustomerManagementController {
         
         logger.info("获取企业所有客户，部门ID: {}", departmentId);
         
-        Map<String, String> customerToStaffMap = existingCustomerService.getAllCustomersInDepartment(departmentId);
+        // 客户列表和映射都是紧凑目录的只读视图，序列化时逐条生成，不复制成HashMap
+        CompactCustomerDirectory directory = existingCustomerService.getCustomerDirectory(departmentId);
         
         Map<String, Object> result = new HashMap<>();
         result.put("success", true);
         result.put("departmentId", departmentId);
-        result.put("totalCustomers", customerToStaffMap.size());
-        result.put("customers", customerToStaffMap.keySet());
-        result.put("customerStaffMapping", customerToStaffMap);
+        result.put("totalCustomers", directory.size());
+        result.put("customers", directory.customerIds());
+        result.put("customerStaffMapping", directory.asMap());
         
         return result;
     }
-}
 
+    /**
+     * 群发任务列表（最近提交的在前）
+     */
+    @GetMapping("/jobs")
+    public Map<String, Object> listJobs() {
+        List<Map<String, Object>> jobs = new ArrayList<>();
+        for (BulkSendJob job : jobService.listJobs()) {
+            jobs.add(job.toMap());
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("jobs", jobs);
+        return result;
+    }
+
+    /**
+     * 查询群发任务进度（已发送/失败/未发送数量、发送速率、预计剩余时间）
+     *
+     * @param jobId 任务ID
+     */
+    @GetMapping("/jobs/{jobId}")
+    public Map<String, Object> jobStatus(@PathVariable String jobId) {
+        BulkSendJob job = jobService.getJob(jobId);
+        if (job == null) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", false);
+            result.put("message", "群发任务不存在");
+            return result;
+        }
+        Map<String, Object> result = job.toMap();
+        result.put("success", true);
+        return result;
+    }
+
+    /**
+     * 查询已结束群发任务的送达情况（汇总任务中每条群发消息的get_groupmsg_result）
+     * 员工在企业微信中确认发送前，客户状态为未发送；重启后恢复的任务从检查点接上重启前的群发消息
+     *
+     * @param jobId 任务ID
+     */
+    @GetMapping("/jobs/{jobId}/reach")
+    public Map<String, Object> jobReach(@PathVariable String jobId) {
+        Map<String, Object> result = new HashMap<>();
+        BulkSendJob job = jobService.getJob(jobId);
+        Map<String, Object> jobResult = job != null ? job.getResult() : null;
+        if (jobResult == null || !(jobResult.get("msgidList") instanceof List)) {
+            result.put("success", false);
+            result.put("message", job == null ? "群发任务不存在" : "群发任务未结束或没有群发消息");
+            return result;
+        }
+        List<String> msgids = new ArrayList<>();
+        for (Object msgid : (List<?>) jobResult.get("msgidList")) {
+            msgids.add(String.valueOf(msgid));
+        }
+        result.putAll(existingCustomerService.getGroupMsgReach(msgids));
+        result.put("success", true);
+        result.put("jobId", jobId);
+        return result;
+    }
+
+    /**
+     * 暂停群发任务（当前客户发送完成后暂停）
+     *
+     * @param jobId 任务ID
+     */
+    @PostMapping("/jobs/{jobId}/pause")
+    public Map<String, Object> pauseJob(@PathVariable String jobId) {
+        Map<String, Object> result = new HashMap<>();
+        boolean paused = jobService.pause(jobId);
+        result.put("success", paused);
+        result.put("message", paused ? "已暂停" : "群发任务不存在或已结束");
+        return result;
+    }
+
+    /**
+     * 恢复已暂停的群发任务
+     *
+     * @param jobId 任务ID
+     */
+    @PostMapping("/jobs/{jobId}/resume")
+    public Map<String, Object> resumeJob(@PathVariable String jobId) {
+        Map<String, Object> result = new HashMap<>();
+        boolean resumed = jobService.resume(jobId);
+        result.put("success", resumed);
+        result.put("message", resumed ? "已恢复" : "群发任务不存在或未暂停");
+        return result;
+    }
+
+    /**
+     * 取消群发任务，剩余客户不再发送
+     *
+     * @param jobId 任务ID
+     */
+    @PostMapping("/jobs/{jobId}/cancel")
+    public Map<String, Object> cancelJob(@PathVariable String jobId) {
+        Map<String, Object> result = new HashMap<>();
+        boolean cancelled = jobService.cancel(jobId);
+        result.put("success", cancelled);
+        result.put("message", cancelled ? "已取消" : "群发任务不存在或已结束");
+        return result;
+    }
+
+    /**
+     * 提交后台群发任务
+     */
+    private Map<String, Object> submitJob(String key, String description,
+                                          Function<BulkSendJob, Map<String, Object>> work, String message) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            BulkSendJob job = jobService.submit(key, description, work);
+            result.put("success", true);
+            result.put("jobId", job.getId());
+            result.put("message", message);
+        } catch (DuplicateJobException e) {
+            result.put("success", false);
+            result.put("jobId", e.getExisting().getId());
+            result.put("message", "相同的群发任务正在执行，请勿重复提交");
+        } catch (IllegalStateException e) {
+            result.put("success", false);
+            result.put("message", e.getMessage());
+        }
+        return result;
+    }
+}
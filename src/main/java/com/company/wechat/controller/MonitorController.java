@@ -0,0 +1,134 @@
+package com.company.wechat.controller;
+
+import com.company.wechat.service.AccessTokenManager;
+import com.company.wechat.service.ApiRateLimiter;
+import com.company.wechat.service.CallbackDeduplicator;
+import com.company.wechat.service.CallbackHandlerRegistry;
+import com.company.wechat.service.ExistingCustomerService;
+import com.company.wechat.service.HttpClientMonitor;
+import com.company.wechat.service.QyApiClient;
+import com.company.wechat.service.WelcomeFallbackService;
+import com.company.wechat.service.WelcomeMessageScheduler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 运行指标监控控制器
+ *
+ * @author Company
+ */
+@RestController
+@RequestMapping("/api/monitor")
+public class MonitorController {
+
+    @Autowired
+    private CallbackDeduplicator callbackDeduplicator;
+
+    @Autowired
+    private CallbackHandlerRegistry handlerRegistry;
+
+    @Autowired
+    private WelcomeMessageScheduler welcomeScheduler;
+
+    @Autowired
+    private WelcomeFallbackService fallbackService;
+
+    @Autowired
+    private AccessTokenManager tokenManager;
+
+    @Autowired
+    private QyApiClient apiClient;
+
+    @Autowired
+    private HttpClientMonitor httpClientMonitor;
+
+    @Autowired
+    private ApiRateLimiter rateLimiter;
+
+    @Autowired
+    private ExistingCustomerService existingCustomerService;
+
+    /**
+     * 回调事件队列指标（各处理器队列汇总的深度、丢弃次数、停留时间等）
+     */
+    @GetMapping("/callback-queue")
+    public Map<String, Object> callbackQueue() {
+        return handlerRegistry.getQueueStats();
+    }
+
+    /**
+     * 回调去重指标（命中/未命中次数）
+     */
+    @GetMapping("/callback-dedup")
+    public Map<String, Object> callbackDedup() {
+        return callbackDeduplicator.getStats();
+    }
+
+    /**
+     * 回调事件处理器指标（按事件类型统计吞吐和延迟）
+     */
+    @GetMapping("/callback-handlers")
+    public Map<String, Object> callbackHandlers() {
+        return handlerRegistry.getStats();
+    }
+
+    /**
+     * 欢迎语发送调度指标（准时率、过期放弃次数、调用耗时）
+     */
+    @GetMapping("/welcome")
+    public Map<String, Object> welcome() {
+        return welcomeScheduler.getStats();
+    }
+
+    /**
+     * 欢迎语补发指标（待补发客户、合并批次、节省的调用次数）
+     */
+    @GetMapping("/welcome-fallback")
+    public Map<String, Object> welcomeFallback() {
+        return fallbackService.getStats();
+    }
+
+    /**
+     * Access Token缓存指标（本地命中率、刷新耗时）
+     */
+    @GetMapping("/access-token")
+    public Map<String, Object> accessToken() {
+        return tokenManager.getStats();
+    }
+
+    /**
+     * 企业微信API调用指标（Token失效次数、刷新重试结果、频率限制重新排队次数、临时性失败重试次数）
+     */
+    @GetMapping("/qyapi")
+    public Map<String, Object> qyapi() {
+        return apiClient.getStats();
+    }
+
+    /**
+     * HTTP客户端指标（连接池使用、连接复用率、并发请求数）
+     */
+    @GetMapping("/http-client")
+    public Map<String, Object> httpClient() {
+        return httpClientMonitor.getStats();
+    }
+
+    /**
+     * 企业微信API限流指标（各接口当前速率、触发限流时的速率、等待次数）
+     */
+    @GetMapping("/rate-limit")
+    public Map<String, Object> rateLimit() {
+        return rateLimiter.getStats();
+    }
+
+    /**
+     * 部门客户列表获取进度（已完成/总员工数、已找到的客户数）
+     */
+    @GetMapping("/customer-crawl")
+    public Map<String, Object> customerCrawl() {
+        return existingCustomerService.getCrawlStats();
+    }
+}
@@ -1,11 +1,15 @@
 package com.company.wechat.controller;
 
 import com.company.wechat.service.WechatCallbackService;
+import com.company.wechat.util.CallbackBodyBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
 /**
  * 企业微信回调接口控制器
  * 
@@ -53,11 +57,12 @@ public class WechatCallbackController {
     /**
      * 接收回调消息（POST请求）
      * 企业微信会通过POST请求推送各种事件消息
+     * 请求体按原始字节读入线程复用的缓冲区，定位Encrypt、验签和解密都直接在字节上完成
      * 
      * @param msg_signature 消息签名
      * @param timestamp 时间戳
      * @param nonce 随机数
-     * @param requestBody 加密的消息体（XML格式）
+     * @param request 请求（消息体为加密的XML）
      * @return 响应消息
      */
     @PostMapping(value = "/callback", produces = "text/plain;charset=UTF-8")
@@ -65,12 +70,19 @@ public class WechatCallbackController {
             @RequestParam("msg_signature") String msg_signature,
             @RequestParam("timestamp") String timestamp,
             @RequestParam("nonce") String nonce,
-            @RequestBody String requestBody) {
+            HttpServletRequest request) throws IOException {
         
         logger.info("收到回调消息 - Timestamp: {}, Nonce: {}", timestamp, nonce);
-        logger.debug("消息体: {}", requestBody);
-        
-        return callbackService.handleCallback(msg_signature, timestamp, nonce, requestBody);
+
+        CallbackBodyBuffer body = CallbackBodyBuffer.read(request.getInputStream(), request.getContentLength());
+        try {
+            if (logger.isDebugEnabled() && callbackService.sampleBody()) {
+                logger.debug("消息体: {}", body);
+            }
+            return callbackService.handleCallback(msg_signature, timestamp, nonce, body);
+        } finally {
+            body.release();
+        }
     }
 
     /**
@@ -0,0 +1,37 @@
+package com.company.wechat.handler;
+
+import com.company.wechat.model.dto.CallbackEvent;
+
+/**
+ * 回调事件处理器
+ * 实现类声明为Spring Bean后会自动注册到{@link com.company.wechat.service.CallbackHandlerRegistry}，
+ * 按 (Event, ChangeType) 路由，每个处理器在独立的有界线程池中执行（未开启异步接收时在请求线程内执行）
+ *
+ * @author Company
+ */
+public interface CallbackEventHandler {
+
+    /**
+     * 处理器名称，用于线程命名、指标展示和线程池配置
+     */
+    String name();
+
+    /**
+     * 处理的事件类型（Event）
+     */
+    String event();
+
+    /**
+     * 处理的变更类型（ChangeType），返回null表示处理该事件下的所有变更类型
+     */
+    default String changeType() {
+        return null;
+    }
+
+    /**
+     * 处理事件
+     *
+     * @param event 回调事件
+     */
+    void handle(CallbackEvent event);
+}
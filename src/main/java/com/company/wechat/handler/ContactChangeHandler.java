@@ -0,0 +1,32 @@
+package com.company.wechat.handler;
+
+import com.company.wechat.model.dto.CallbackEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * 通讯录变更事件处理器（成员、部门、标签变更）
+ *
+ * @author Company
+ */
+@Component
+public class ContactChangeHandler implements CallbackEventHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContactChangeHandler.class);
+
+    @Override
+    public String name() {
+        return "contact";
+    }
+
+    @Override
+    public String event() {
+        return "change_contact";
+    }
+
+    @Override
+    public void handle(CallbackEvent event) {
+        logger.info("通讯录变更 - 变更类型: {}, 成员 UserID: {}", event.getChangeType(), event.getUserId());
+    }
+}
@@ -0,0 +1,38 @@
+package com.company.wechat.handler;
+
+import com.company.wechat.model.dto.CallbackEvent;
+import com.company.wechat.service.CustomerEventService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 添加客户事件处理器
+ *
+ * @author Company
+ */
+@Component
+public class CustomerAddHandler implements CallbackEventHandler {
+
+    @Autowired
+    private CustomerEventService customerEventService;
+
+    @Override
+    public String name() {
+        return "customer-add";
+    }
+
+    @Override
+    public String event() {
+        return "change_external_contact";
+    }
+
+    @Override
+    public String changeType() {
+        return "add_external_contact";
+    }
+
+    @Override
+    public void handle(CallbackEvent event) {
+        customerEventService.handleCustomerAddEvent(event);
+    }
+}
@@ -0,0 +1,38 @@
+package com.company.wechat.handler;
+
+import com.company.wechat.model.dto.CallbackEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * 客户删除企业成员事件处理器
+ *
+ * @author Company
+ */
+@Component
+public class CustomerDelFollowHandler implements CallbackEventHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerDelFollowHandler.class);
+
+    @Override
+    public String name() {
+        return "customer-del-follow";
+    }
+
+    @Override
+    public String event() {
+        return "change_external_contact";
+    }
+
+    @Override
+    public String changeType() {
+        return "del_follow_user";
+    }
+
+    @Override
+    public void handle(CallbackEvent event) {
+        logger.info("客户删除了企业成员 - External UserID: {}, 员工 UserID: {}",
+                event.getExternalUserId(), event.getUserId());
+    }
+}
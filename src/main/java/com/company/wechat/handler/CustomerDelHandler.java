@@ -0,0 +1,38 @@
+package com.company.wechat.handler;
+
+import com.company.wechat.model.dto.CallbackEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * 删除客户事件处理器（企业成员删除客户）
+ *
+ * @author Company
+ */
+@Component
+public class CustomerDelHandler implements CallbackEventHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerDelHandler.class);
+
+    @Override
+    public String name() {
+        return "customer-del";
+    }
+
+    @Override
+    public String event() {
+        return "change_external_contact";
+    }
+
+    @Override
+    public String changeType() {
+        return "del_external_contact";
+    }
+
+    @Override
+    public void handle(CallbackEvent event) {
+        logger.info("客户删除事件 - External UserID: {}, 员工 UserID: {}, 来源: {}",
+                event.getExternalUserId(), event.getUserId(), event.getSource());
+    }
+}
@@ -0,0 +1,38 @@
+package com.company.wechat.handler;
+
+import com.company.wechat.model.dto.CallbackEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * 编辑客户事件处理器
+ *
+ * @author Company
+ */
+@Component
+public class CustomerEditHandler implements CallbackEventHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerEditHandler.class);
+
+    @Override
+    public String name() {
+        return "customer-edit";
+    }
+
+    @Override
+    public String event() {
+        return "change_external_contact";
+    }
+
+    @Override
+    public String changeType() {
+        return "edit_external_contact";
+    }
+
+    @Override
+    public void handle(CallbackEvent event) {
+        logger.info("客户信息变更 - External UserID: {}, 员工 UserID: {}",
+                event.getExternalUserId(), event.getUserId());
+    }
+}
@@ -0,0 +1,33 @@
+package com.company.wechat.handler;
+
+import com.company.wechat.model.dto.CallbackEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * 客户群变更事件处理器（create/update/dismiss）
+ *
+ * @author Company
+ */
+@Component
+public class ExternalChatChangeHandler implements CallbackEventHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExternalChatChangeHandler.class);
+
+    @Override
+    public String name() {
+        return "external-chat";
+    }
+
+    @Override
+    public String event() {
+        return "change_external_chat";
+    }
+
+    @Override
+    public void handle(CallbackEvent event) {
+        logger.info("客户群变更 - 变更类型: {}, 群ID: {}, 变更详情: {}",
+                event.getChangeType(), event.getChatId(), event.getUpdateDetail());
+    }
+}
@@ -0,0 +1,33 @@
+package com.company.wechat.handler;
+
+import com.company.wechat.model.dto.CallbackEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * 客户标签变更事件处理器（create/update/delete/shuffle）
+ *
+ * @author Company
+ */
+@Component
+public class ExternalTagChangeHandler implements CallbackEventHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExternalTagChangeHandler.class);
+
+    @Override
+    public String name() {
+        return "external-tag";
+    }
+
+    @Override
+    public String event() {
+        return "change_external_tag";
+    }
+
+    @Override
+    public void handle(CallbackEvent event) {
+        logger.info("客户标签变更 - 变更类型: {}, 标签类型: {}, ID: {}, 规则组: {}",
+                event.getChangeType(), event.getTagType(), event.getTagId(), event.getStrategyId());
+    }
+}
@@ -0,0 +1,108 @@
+package com.company.wechat.model.dto;
+
+import lombok.Data;
+
+/**
+ * 企业微信回调事件
+ * 由{@link com.company.wechat.util.CallbackXmlParser}一次解析得到，包含各类事件处理所需的全部字段
+ *
+ * @author Company
+ */
+@Data
+public class CallbackEvent {
+
+    /**
+     * 企业ID
+     */
+    private String toUserName;
+
+    /**
+     * 消息的发送者
+     */
+    private String fromUserName;
+
+    /**
+     * 消息创建时间（秒）
+     */
+    private Long createTime;
+
+    /**
+     * 消息类型
+     */
+    private String msgType;
+
+    /**
+     * 事件类型
+     */
+    private String event;
+
+    /**
+     * 变更类型
+     */
+    private String changeType;
+
+    /**
+     * 消息ID
+     */
+    private Long msgId;
+
+    /**
+     * 外部联系人ID
+     */
+    private String externalUserId;
+
+    /**
+     * 企业成员UserID
+     */
+    private String userId;
+
+    /**
+     * 欢迎语code（有效期20秒）
+     */
+    private String welcomeCode;
+
+    /**
+     * 添加此用户的「联系我」方式配置的state参数
+     */
+    private String state;
+
+    /**
+     * 删除客户时的删除来源
+     */
+    private String source;
+
+    /**
+     * 客户群ID
+     */
+    private String chatId;
+
+    /**
+     * 客户群变更详情
+     */
+    private String updateDetail;
+
+    /**
+     * 标签或标签组的ID
+     */
+    private String tagId;
+
+    /**
+     * 标签类型：tag-标签，tag_group-标签组
+     */
+    private String tagType;
+
+    /**
+     * 规则组ID
+     */
+    private String strategyId;
+
+    /**
+     * 解密后的原始XML
+     */
+    private String originalXml;
+
+    /**
+     * 是否为从回调日志重放的事件（重放时不再给客户发送消息）
+     */
+    private boolean replayed;
+}
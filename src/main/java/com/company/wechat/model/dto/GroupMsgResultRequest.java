@@ -0,0 +1,34 @@
+package com.company.wechat.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 获取群发成员发送任务结果请求（externalcontact/get_groupmsg_result）
+ * 根据官方文档：https://developer.work.weixin.qq.com/document/path/93338
+ *
+ * @author Company
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupMsgResultRequest {
+
+    /**
+     * 群发消息的id
+     */
+    private String msgid;
+
+    /**
+     * 每页数量，最大1000，为0时使用接口默认值
+     */
+    private int limit;
+
+    /**
+     * 分页游标，为空表示第一页
+     */
+    private String cursor;
+}
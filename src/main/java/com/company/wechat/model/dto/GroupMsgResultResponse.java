@@ -0,0 +1,61 @@
+package com.company.wechat.model.dto;
+
+import com.google.gson.annotations.SerializedName;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 获取群发结果响应（externalcontact/get_groupmsg_result）
+ * 
+ * @author Company
+ */
+@Data
+public class GroupMsgResultResponse {
+    
+    private int errcode;
+    
+    private String errmsg;
+    
+    /**
+     * 群发结果明细
+     */
+    @SerializedName("detail_list")
+    private List<Detail> detailList;
+    
+    /**
+     * 分页游标，为空表示没有更多数据
+     */
+    @SerializedName("next_cursor")
+    private String nextCursor;
+    
+    public boolean isSuccess() {
+        return errcode == 0;
+    }
+    
+    /**
+     * 单个客户的发送结果
+     */
+    @Data
+    public static class Detail {
+        
+        @SerializedName("external_userid")
+        private String externalUserid;
+        
+        @SerializedName("chat_id")
+        private String chatId;
+        
+        private String userid;
+        
+        /**
+         * 发送状态：0-未发送 1-已发送 2-因客户不是好友导致发送失败 3-因客户已经收到其他群发消息导致发送失败
+         */
+        private int status;
+        
+        /**
+         * 发送时间（秒），未发送时为0
+         */
+        @SerializedName("send_time")
+        private long sendTime;
+    }
+}
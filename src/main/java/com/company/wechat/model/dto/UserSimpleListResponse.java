@@ -0,0 +1,43 @@
+package com.company.wechat.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 获取部门成员响应（user/simplelist）
+ * 
+ * @author Company
+ */
+@Data
+public class UserSimpleListResponse {
+    
+    private int errcode;
+    
+    private String errmsg;
+    
+    /**
+     * 成员列表
+     */
+    private List<User> userlist;
+    
+    public boolean isSuccess() {
+        return errcode == 0;
+    }
+    
+    /**
+     * 部门成员
+     */
+    @Data
+    public static class User {
+        
+        private String userid;
+        
+        private String name;
+        
+        /**
+         * 所属部门ID
+         */
+        private int[] department;
+    }
+}
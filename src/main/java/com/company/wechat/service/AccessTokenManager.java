@@ -0,0 +1,445 @@
+package com.company.wechat.service;
+
+import com.company.wechat.codec.WechatCodec;
+import com.company.wechat.config.AccessTokenConfig;
+import com.company.wechat.config.WechatWorkConfig;
+import com.company.wechat.model.vo.WechatResponse;
+import com.company.wechat.util.HttpUtil;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Access Token管理器（两级缓存）
+ *
+ * 1. 进程内缓存Token及其过期时间，命中时不访问Redis
+ * 2. 本地未命中时读取Redis；Redis也没有时调用gettoken，并发的未命中请求共享同一次加载（single-flight）
+ * 3. 多节点之间通过Redis租约（SETNX）保证同一时间只有一个节点调用gettoken，其余节点等待新Token写入Redis
+ * 4. 后台线程在Token实际过期后立即刷新，请求线程基本不会遇到过期。不按有效期比例提前刷新：
+ *    gettoken在Token有效期内返回同一个Token及其剩余有效期，提前刷新拿不到新Token，只会在临近过期时反复调用gettoken；
+ *    取到的仍是当前Token时不再缩短缓存时间，直接缓存到其实际过期时间
+ * 5. Redis不可用时退化为仅进程内缓存
+ *
+ * @author Company
+ */
+@Service
+@DependsOn("httpUtilInitializer")
+public class AccessTokenManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessTokenManager.class);
+
+    private static final String ACCESS_TOKEN_KEY = "wechat:work:access_token";
+    private static final String REFRESH_LEASE_KEY = "wechat:work:access_token:lease";
+    private static final String GET_TOKEN_URL = "/cgi-bin/gettoken?corpid=%s&corpsecret=%s";
+
+    /**
+     * 等待其他节点刷新时的轮询间隔（毫秒）
+     */
+    private static final long LEASE_POLL_MILLIS = 100;
+
+    /**
+     * Token实际过期后再刷新的延迟（毫秒），确保gettoken返回新Token
+     */
+    private static final long ROTATION_DELAY_MILLIS = 1000;
+
+    @Autowired
+    private WechatWorkConfig config;
+
+    @Autowired
+    private AccessTokenConfig tokenConfig;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    private final Gson gson = WechatCodec.gson();
+
+    /**
+     * 租约持有者标识
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile CachedToken cached;
+
+    /**
+     * 正在进行的加载，并发的未命中请求共享同一个结果
+     */
+    private final AtomicReference<CompletableFuture<CachedToken>> inflight = new AtomicReference<>();
+
+    private ScheduledExecutorService refresher;
+
+    private final AtomicLong localHitCount = new AtomicLong();
+    private final AtomicLong localMissCount = new AtomicLong();
+    private final AtomicLong redisHitCount = new AtomicLong();
+    private final AtomicLong sharedLoadCount = new AtomicLong();
+    private final AtomicLong fetchCount = new AtomicLong();
+    private final AtomicLong fetchFailedCount = new AtomicLong();
+    private final AtomicLong backgroundRefreshCount = new AtomicLong();
+    private final AtomicLong unchangedFetchCount = new AtomicLong();
+    private final AtomicLong redisErrorCount = new AtomicLong();
+    private final AtomicLong totalFetchNanos = new AtomicLong();
+    private final AtomicLong maxFetchNanos = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "access-token-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshIfNeeded, tokenConfig.getRefreshCheckSeconds(),
+                tokenConfig.getRefreshCheckSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * 获取Access Token
+     */
+    public String getToken() {
+        CachedToken token = cached;
+        if (token != null && System.currentTimeMillis() < token.expiresAt) {
+            localHitCount.incrementAndGet();
+            return token.value;
+        }
+        localMissCount.incrementAndGet();
+        return loadShared(false).value;
+    }
+
+    /**
+     * 使Token失效（接口返回Token无效时调用）
+     *
+     * @param token 失效的Token，为null时无条件清除
+     */
+    public void invalidate(String token) {
+        CachedToken current = cached;
+        if (current != null && (token == null || token.equals(current.value))) {
+            cached = null;
+        }
+        try {
+            if (token == null || token.equals(redisTemplate.opsForValue().get(ACCESS_TOKEN_KEY))) {
+                redisTemplate.delete(ACCESS_TOKEN_KEY);
+            }
+        } catch (Exception e) {
+            redisErrorCount.incrementAndGet();
+            logger.warn("清除Redis中的Access Token失败: {}", e.getMessage());
+        }
+        logger.info("已清除Access Token缓存");
+    }
+
+    /**
+     * 后台刷新（Token实际过期后）
+     */
+    private void refreshIfNeeded() {
+        CachedToken token = cached;
+        if (token == null || System.currentTimeMillis() < token.refreshAt) {
+            return;
+        }
+        try {
+            loadShared(true);
+            backgroundRefreshCount.incrementAndGet();
+        } catch (Exception e) {
+            logger.warn("后台刷新Access Token失败，将在{}秒后重试: {}", tokenConfig.getRefreshCheckSeconds(), e.getMessage());
+        }
+    }
+
+    /**
+     * 单飞加载：同一时间只有一个线程执行加载，其余线程等待其结果
+     *
+     * @param refresh 是否为后台刷新（跳过仍然有效的Redis缓存）
+     */
+    private CachedToken loadShared(boolean refresh) {
+        while (true) {
+            CompletableFuture<CachedToken> existing = inflight.get();
+            if (existing != null) {
+                sharedLoadCount.incrementAndGet();
+                try {
+                    return existing.join();
+                } catch (CompletionException e) {
+                    throw e.getCause() instanceof RuntimeException
+                            ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+                }
+            }
+            CompletableFuture<CachedToken> future = new CompletableFuture<>();
+            if (!inflight.compareAndSet(null, future)) {
+                continue;
+            }
+            try {
+                CachedToken token = load(refresh);
+                cached = token;
+                scheduleRefresh(token);
+                future.complete(token);
+                return token;
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                throw e;
+            } finally {
+                inflight.compareAndSet(future, null);
+            }
+        }
+    }
+
+    /**
+     * 依次尝试Redis、租约、gettoken
+     */
+    private CachedToken load(boolean refresh) {
+        CachedToken current = cached;
+        CachedToken fromRedis = readRedis();
+        // 后台刷新时只接受其他节点已刷新过的新Token
+        if (fromRedis != null && (!refresh || current == null
+                || (!fromRedis.value.equals(current.value) && fromRedis.expiresAt > current.expiresAt))) {
+            redisHitCount.incrementAndGet();
+            return fromRedis;
+        }
+
+        Boolean lease = tryAcquireLease();
+        if (Boolean.FALSE.equals(lease)) {
+            // 其他节点正在刷新，等待其写入Redis
+            CachedToken refreshed = awaitOtherNode(current);
+            if (refreshed != null) {
+                redisHitCount.incrementAndGet();
+                return refreshed;
+            }
+            logger.warn("等待其他节点刷新Access Token超时，直接调用gettoken");
+        }
+        try {
+            return fetch(current);
+        } finally {
+            if (Boolean.TRUE.equals(lease)) {
+                releaseLease();
+            }
+        }
+    }
+
+    /**
+     * 调用gettoken获取新Token并写入Redis
+     *
+     * @param current 当前缓存的Token，可为null
+     */
+    private CachedToken fetch(CachedToken current) {
+        long start = System.nanoTime();
+        try {
+            String url = config.getApiBaseUrl()
+                    + String.format(GET_TOKEN_URL, config.getCorpId(), config.getAppSecret());
+            String response = HttpUtil.doGet(url, HttpUtil.Profile.TOKEN);
+            WechatResponse<String> result = gson.fromJson(response, new TypeToken<WechatResponse<String>>() {}.getType());
+            if (result == null || !result.isSuccess() || result.getAccessToken() == null) {
+                logger.error("获取Access Token失败: {}", response);
+                throw new RuntimeException("获取Access Token失败: " + (result != null ? result.getErrMsg() : null));
+            }
+
+            int expiresIn = result.getExpiresIn() != null && result.getExpiresIn() > 0
+                    ? result.getExpiresIn() : getExpireSeconds();
+            int expireTime;
+            if (current != null && result.getAccessToken().equals(current.value)) {
+                // Token尚未轮换：gettoken返回的是剩余有效期，缓存到实际过期时间，过期后再刷新
+                unchangedFetchCount.incrementAndGet();
+                expireTime = Math.min(expiresIn, getExpireSeconds());
+                logger.info("gettoken返回的仍是当前Access Token，剩余有效期{}秒，过期后再刷新", expiresIn);
+            } else {
+                expireTime = cacheSeconds(expiresIn);
+            }
+            CachedToken token = newToken(result.getAccessToken(), expireTime, expiresIn);
+            try {
+                redisTemplate.opsForValue().set(ACCESS_TOKEN_KEY, token.value, expireTime, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                redisErrorCount.incrementAndGet();
+                logger.warn("Access Token写入Redis失败，仅使用进程内缓存: {}", e.getMessage());
+            }
+            fetchCount.incrementAndGet();
+            logger.info("获取Access Token成功，已缓存，expires_in: {}秒, 缓存时间: {}秒", result.getExpiresIn(), expireTime);
+            return token;
+        } catch (RuntimeException e) {
+            fetchFailedCount.incrementAndGet();
+            throw e;
+        } catch (Exception e) {
+            fetchFailedCount.incrementAndGet();
+            logger.error("获取Access Token异常", e);
+            throw new RuntimeException("获取Access Token异常", e);
+        } finally {
+            recordFetch(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 读取Redis中的Token及剩余有效期，Redis异常时返回null
+     */
+    private CachedToken readRedis() {
+        try {
+            String value = redisTemplate.opsForValue().get(ACCESS_TOKEN_KEY);
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            Long ttl = redisTemplate.getExpire(ACCESS_TOKEN_KEY, TimeUnit.SECONDS);
+            if (ttl == null || ttl <= 0) {
+                return null;
+            }
+            return newToken(value, ttl.intValue(), ttl.intValue());
+        } catch (Exception e) {
+            redisErrorCount.incrementAndGet();
+            logger.warn("读取Redis中的Access Token失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 尝试获取刷新租约
+     *
+     * @return 是否获得租约，Redis异常时返回null
+     */
+    private Boolean tryAcquireLease() {
+        try {
+            return redisTemplate.opsForValue().setIfAbsent(
+                    REFRESH_LEASE_KEY, nodeId, tokenConfig.getLeaseSeconds(), TimeUnit.SECONDS);
+        } catch (Exception e) {
+            redisErrorCount.incrementAndGet();
+            return null;
+        }
+    }
+
+    private void releaseLease() {
+        try {
+            if (nodeId.equals(redisTemplate.opsForValue().get(REFRESH_LEASE_KEY))) {
+                redisTemplate.delete(REFRESH_LEASE_KEY);
+            }
+        } catch (Exception e) {
+            redisErrorCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 等待其他节点写入与当前Token不同的新Token
+     */
+    private CachedToken awaitOtherNode(CachedToken current) {
+        long deadline = System.currentTimeMillis() + tokenConfig.getLeaseWaitMillis();
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(LEASE_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            CachedToken token = readRedis();
+            if (token != null && (current == null || !token.value.equals(current.value))) {
+                return token;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param ttlSeconds Token的缓存时间
+     * @param expiresInSeconds Token的实际剩余有效期，过期后由后台刷新（Redis中的Token只知道缓存时间）
+     */
+    private CachedToken newToken(String value, int ttlSeconds, int expiresInSeconds) {
+        long now = System.currentTimeMillis();
+        return new CachedToken(value, now + ttlSeconds * 1000L,
+                now + Math.max(ttlSeconds, expiresInSeconds) * 1000L + ROTATION_DELAY_MILLIS);
+    }
+
+    /**
+     * 在Token的刷新时间点安排一次后台刷新（定期检查兜底，刷新失败时由定期检查重试）
+     */
+    private void scheduleRefresh(CachedToken token) {
+        ScheduledExecutorService scheduler = refresher;
+        if (scheduler == null) {
+            return;
+        }
+        try {
+            scheduler.schedule(this::refreshIfNeeded,
+                    Math.max(0, token.refreshAt - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 应用关闭中
+        }
+    }
+
+    /**
+     * 由gettoken返回的expires_in计算新Token的缓存时间
+     * Token有效期内重复调用gettoken会返回同一个Token及其剩余有效期，不能按完整有效期缓存；
+     * 扣除安全余量后不超过 wechat.work.token-expire-time，剩余有效期不足两倍余量时缓存一半
+     */
+    private int cacheSeconds(int expiresIn) {
+        int maxSeconds = getExpireSeconds();
+        int margin = tokenConfig.getExpirySafetySeconds();
+        int ttl = expiresIn > margin * 2 ? expiresIn - margin : Math.max(1, expiresIn / 2);
+        return Math.min(ttl, maxSeconds);
+    }
+
+    private int getExpireSeconds() {
+        return config.getTokenExpireTime() != null ? config.getTokenExpireTime() : 7000;
+    }
+
+    private void recordFetch(long nanos) {
+        totalFetchNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxFetchNanos.get())) {
+            if (maxFetchNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 获取Token缓存指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hits = localHitCount.get();
+        long misses = localMissCount.get();
+        long fetches = fetchCount.get() + fetchFailedCount.get();
+        CachedToken token = cached;
+        stats.put("localHits", hits);
+        stats.put("localMisses", misses);
+        stats.put("hitRatio", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+        stats.put("redisHits", redisHitCount.get());
+        stats.put("sharedLoads", sharedLoadCount.get());
+        stats.put("fetches", fetchCount.get());
+        stats.put("fetchFailed", fetchFailedCount.get());
+        stats.put("backgroundRefreshes", backgroundRefreshCount.get());
+        stats.put("unchangedFetches", unchangedFetchCount.get());
+        stats.put("redisErrors", redisErrorCount.get());
+        stats.put("avgRefreshMillis", fetches > 0 ? totalFetchNanos.get() / fetches / 1_000_000.0 : 0.0);
+        stats.put("maxRefreshMillis", maxFetchNanos.get() / 1_000_000.0);
+        stats.put("expiresInSeconds", token != null ? Math.max(0, (token.expiresAt - System.currentTimeMillis()) / 1000) : 0);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * 进程内缓存的Token
+     */
+    private static final class CachedToken {
+
+        private final String value;
+        private final long expiresAt;
+        private final long refreshAt;
+
+        CachedToken(String value, long expiresAt, long refreshAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.ResilienceConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 企业微信API熔断器（每个接口独立）
+ *
+ * 关闭状态下统计连续的临时性失败，达到阈值后打开；打开期间请求直接失败，
+ * 持续时间结束后进入半开状态，只放行一个试探请求，试探结束前其余请求仍直接失败；
+ * 试探成功则关闭，失败则重新打开。试探请求未报告结果（如进程内异常）时，租约在熔断持续时间后过期。
+ * 业务错误码（如客户不存在）说明上游可用，按成功处理
+ *
+ * @author Company
+ */
+@Service
+public class ApiCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiCircuitBreaker.class);
+
+    @Autowired
+    private ResilienceConfig resilienceConfig;
+
+    /**
+     * 半开状态下试探请求进行中时，其他请求的重试等待时间（毫秒）
+     */
+    private static final long PROBE_WAIT_MILLIS = 200;
+
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * 检查接口是否允许调用
+     * 半开状态下第一个调用者获得试探租约，结束时须通过{@link #onSuccess}/{@link #onFailure}报告结果，
+     * 或通过{@link #releaseProbe}归还
+     *
+     * @param api 接口名
+     * @return 试探租约编号，非试探请求为0
+     * @throws CircuitOpenException 接口处于熔断状态，或半开状态下已有试探请求
+     */
+    public long check(String api) throws CircuitOpenException {
+        if (!resilienceConfig.isBreakerEnabled()) {
+            return 0;
+        }
+        Breaker breaker = breaker(api);
+        long now = System.currentTimeMillis();
+        synchronized (breaker) {
+            long remaining = breaker.remainingOpenMillis(now, resilienceConfig.getOpenMillis());
+            if (remaining > 0) {
+                breaker.rejectedCount.incrementAndGet();
+                throw new CircuitOpenException(api, remaining);
+            }
+            return breaker.open ? breaker.startProbe(now) : 0;
+        }
+    }
+
+    /**
+     * 归还未报告结果的试探租约（如请求因永久性错误或被中断而结束），下一个请求可以重新试探
+     *
+     * @param api 接口名
+     * @param probeId {@link #check}返回的租约编号，为0时忽略
+     */
+    public void releaseProbe(String api, long probeId) {
+        if (probeId == 0) {
+            return;
+        }
+        Breaker breaker = breakers.get(api);
+        if (breaker != null) {
+            breaker.releaseProbe(probeId);
+        }
+    }
+
+    /**
+     * 当前是否处于熔断状态
+     */
+    public boolean isOpen(String api) {
+        return remainingOpenMillis(api) > 0;
+    }
+
+    /**
+     * 距离熔断结束的剩余时间（毫秒），未熔断时为0；半开状态下试探请求进行中时为一个较短的重试等待时间
+     */
+    public long remainingOpenMillis(String api) {
+        if (!resilienceConfig.isBreakerEnabled()) {
+            return 0;
+        }
+        Breaker breaker = breakers.get(api);
+        return breaker == null ? 0
+                : breaker.remainingOpenMillis(System.currentTimeMillis(), resilienceConfig.getOpenMillis());
+    }
+
+    /**
+     * 等待接口熔断结束，用于批量任务暂停
+     *
+     * @param api 接口名
+     * @param maxWaitMillis 最长等待时间（毫秒）
+     * @return 熔断是否已结束
+     */
+    public boolean awaitClosed(String api, long maxWaitMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+        long remaining = remainingOpenMillis(api);
+        if (remaining > 0) {
+            logger.warn("接口 {} 熔断中，批量任务暂停 {} 毫秒", api, remaining);
+        }
+        while (remaining > 0) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(Math.min(remaining, left));
+            remaining = remainingOpenMillis(api);
+        }
+        return true;
+    }
+
+    /**
+     * 记录一次成功调用
+     */
+    public void onSuccess(String api) {
+        Breaker breaker = breakers.get(api);
+        if (breaker != null && breaker.onSuccess()) {
+            logger.info("接口 {} 试探成功，熔断关闭", api);
+        }
+    }
+
+    /**
+     * 记录一次临时性失败
+     *
+     * @return 本次失败后接口是否处于熔断状态
+     */
+    public boolean onFailure(String api) {
+        if (!resilienceConfig.isBreakerEnabled()) {
+            return false;
+        }
+        Breaker breaker = breaker(api);
+        long now = System.currentTimeMillis();
+        if (breaker.onFailure(now, resilienceConfig.getFailureThreshold(), resilienceConfig.getOpenMillis())) {
+            logger.error("接口 {} 连续失败 {} 次，熔断 {} 毫秒", api,
+                    breaker.consecutiveFailures, resilienceConfig.getOpenMillis());
+        }
+        return breaker.remainingOpenMillis(now, resilienceConfig.getOpenMillis()) > 0;
+    }
+
+    /**
+     * 手动关闭熔断
+     *
+     * @param api 接口名，为null时关闭所有接口的熔断
+     * @return 是否存在对应的熔断器
+     */
+    public boolean reset(String api) {
+        if (api == null) {
+            breakers.values().forEach(Breaker::onSuccess);
+            logger.info("已手动关闭所有接口的熔断");
+            return true;
+        }
+        Breaker breaker = breakers.get(api);
+        if (breaker == null) {
+            return false;
+        }
+        breaker.onSuccess();
+        logger.info("已手动关闭接口 {} 的熔断", api);
+        return true;
+    }
+
+    private Breaker breaker(String api) {
+        return breakers.computeIfAbsent(api, key -> new Breaker());
+    }
+
+    /**
+     * 获取各接口熔断状态
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", resilienceConfig.isBreakerEnabled());
+        stats.put("failureThreshold", resilienceConfig.getFailureThreshold());
+        stats.put("openMillis", resilienceConfig.getOpenMillis());
+        long now = System.currentTimeMillis();
+        Map<String, Object> apis = new TreeMap<>();
+        breakers.forEach((api, breaker) -> apis.put(api, breaker.toMap(now, resilienceConfig.getOpenMillis())));
+        stats.put("apis", apis);
+        return stats;
+    }
+
+    /**
+     * 单个接口的熔断状态
+     */
+    private static final class Breaker {
+
+        private int consecutiveFailures;
+        private boolean open;
+        private long openedAt;
+
+        /**
+         * 当前试探租约编号（0表示没有试探请求）及开始时间
+         */
+        private long probeId;
+        private long probeStartedAt;
+        private long lastProbeId;
+
+        private final AtomicLong openCount = new AtomicLong();
+        private final AtomicLong rejectedCount = new AtomicLong();
+
+        /**
+         * @return 剩余熔断时间，已关闭或半开且可以试探时为0
+         */
+        synchronized long remainingOpenMillis(long now, long openMillis) {
+            if (!open) {
+                return 0;
+            }
+            long remaining = openedAt + openMillis - now;
+            if (remaining > 0) {
+                return remaining;
+            }
+            return probeInFlight(now, openMillis) ? PROBE_WAIT_MILLIS : 0;
+        }
+
+        private boolean probeInFlight(long now, long openMillis) {
+            return probeId != 0 && now - probeStartedAt < openMillis;
+        }
+
+        synchronized long startProbe(long now) {
+            probeId = ++lastProbeId;
+            probeStartedAt = now;
+            return probeId;
+        }
+
+        synchronized void releaseProbe(long id) {
+            if (probeId == id) {
+                probeId = 0;
+            }
+        }
+
+        /**
+         * @return 是否由打开（或半开）状态关闭
+         */
+        synchronized boolean onSuccess() {
+            boolean wasOpen = open;
+            open = false;
+            consecutiveFailures = 0;
+            probeId = 0;
+            return wasOpen;
+        }
+
+        /**
+         * @return 是否因本次失败打开了熔断
+         */
+        synchronized boolean onFailure(long now, int threshold, long openMillis) {
+            consecutiveFailures++;
+            boolean halfOpen = open && now >= openedAt + openMillis;
+            if ((!open && consecutiveFailures >= threshold) || halfOpen) {
+                open = true;
+                openedAt = now;
+                probeId = 0;
+                openCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        synchronized Map<String, Object> toMap(long now, long openMillis) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            String state = !open ? "CLOSED" : now >= openedAt + openMillis ? "HALF_OPEN" : "OPEN";
+            map.put("state", state);
+            map.put("probeInFlight", open && probeInFlight(now, openMillis));
+            map.put("consecutiveFailures", consecutiveFailures);
+            map.put("remainingOpenMillis", remainingOpenMillis(now, openMillis));
+            map.put("opens", openCount.get());
+            map.put("rejected", rejectedCount.get());
+            return map;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.AdaptiveRateConfig;
+import com.company.wechat.config.RateLimitConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 企业微信API限流器（每个接口一个令牌桶）
+ *
+ * 获取许可时先预约一个令牌并算出需要等待的时间：同步调用在当前线程上一次性等待该时长，
+ * 异步调用由调度线程在到期后完成Future，等待期间不占用线程。
+ * Redis模式下令牌桶保存在Redis中，由Lua脚本原子地补充和预约，多节点共享同一配额；Redis异常时退化为进程内令牌桶。
+ *
+ * 开启自适应速率后按AIMD调整各接口速率：调用成功时每隔一段时间加一个固定步长，
+ * 遇到频率限制（errcode 45009/45011/45033、HTTP 429/5xx）时乘以衰减系数并清空积攒的令牌，
+ * 速率在上下限之间浮动，通过监控接口可以看到每个接口实际能承受的速率
+ *
+ * @author Company
+ */
+@Service
+public class ApiRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiRateLimiter.class);
+
+    /**
+     * 补充令牌并预约一个，返回需要等待的毫秒数。使用调用方传入的时间，要求各节点时钟同步
+     */
+    private static final String RESERVE_SCRIPT =
+            "local rate = tonumber(ARGV[1]) "
+            + "local burst = tonumber(ARGV[2]) "
+            + "local now = tonumber(ARGV[3]) "
+            + "local data = redis.call('HMGET', KEYS[1], 'tokens', 'ts') "
+            + "local tokens = tonumber(data[1]) "
+            + "local ts = tonumber(data[2]) "
+            + "if tokens == nil then tokens = burst ts = now end "
+            + "if now > ts then tokens = math.min(burst, tokens + (now - ts) * rate / 1000) ts = now end "
+            + "tokens = tokens - 1 "
+            + "local wait = 0 "
+            + "if tokens < 0 then wait = math.ceil(-tokens * 1000 / rate) end "
+            + "redis.call('HMSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(ts)) "
+            + "redis.call('PEXPIRE', KEYS[1], math.ceil(burst * 1000 / rate) + wait + 1000) "
+            + "return wait";
+
+    @Autowired
+    private RateLimitConfig rateLimitConfig;
+
+    @Autowired
+    private AdaptiveRateConfig adaptiveRateConfig;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    private final DefaultRedisScript<Long> reserveScript = new DefaultRedisScript<>(RESERVE_SCRIPT, Long.class);
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private final AtomicLong redisErrorCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "api-rate-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("企业微信API限流{} - 模式: {}, 默认速率: {}/s, 自适应: {}",
+                rateLimitConfig.isEnabled() ? "已开启" : "未开启", rateLimitConfig.getMode(),
+                rateLimitConfig.getDefaultRate(), adaptiveRateConfig.isEnabled());
+    }
+
+    /**
+     * 获取许可（同步），必要时在当前线程上等待
+     *
+     * @param api 接口名
+     */
+    public void acquire(String api) throws InterruptedException {
+        long waitNanos = reserve(api);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * 获取许可（同步），最多等待指定时间
+     * 需要等待的时间超过上限时立即返回，已预约的令牌不归还
+     *
+     * @param api 接口名
+     * @param maxWaitMillis 最长等待时间（毫秒）
+     * @return 是否获得许可
+     */
+    public boolean acquire(String api, long maxWaitMillis) throws InterruptedException {
+        long waitNanos = reserve(api);
+        if (waitNanos > TimeUnit.MILLISECONDS.toNanos(maxWaitMillis)) {
+            return false;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return true;
+    }
+
+    /**
+     * 获取许可（异步），等待期间不占用线程
+     *
+     * @param api 接口名
+     * @return 获得许可时完成的Future
+     */
+    public CompletableFuture<Void> acquireAsync(String api) {
+        long waitNanos = reserve(api);
+        if (waitNanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        scheduler.schedule(() -> future.complete(null), waitNanos, TimeUnit.NANOSECONDS);
+        return future;
+    }
+
+    /**
+     * 预约一个令牌
+     *
+     * @return 需要等待的纳秒数
+     */
+    private long reserve(String api) {
+        if (!rateLimitConfig.isEnabled()) {
+            return 0;
+        }
+        TokenBucket bucket = bucket(api);
+        long waitNanos;
+        if (rateLimitConfig.getMode() == RateLimitConfig.Mode.REDIS) {
+            waitNanos = reserveRedis(api, bucket);
+        } else {
+            waitNanos = bucket.reserve();
+        }
+        bucket.record(waitNanos);
+        return waitNanos;
+    }
+
+    private long reserveRedis(String api, TokenBucket bucket) {
+        try {
+            Long waitMillis = redisTemplate.execute(reserveScript,
+                    Collections.singletonList(rateLimitConfig.getRedisKeyPrefix() + api),
+                    String.valueOf(bucket.getRate()), String.valueOf(bucket.getBurst()),
+                    String.valueOf(System.currentTimeMillis()));
+            return waitMillis != null ? TimeUnit.MILLISECONDS.toNanos(waitMillis) : 0;
+        } catch (Exception e) {
+            if (redisErrorCount.incrementAndGet() % 100 == 1) {
+                logger.warn("Redis限流不可用，使用进程内令牌桶: {}", e.getMessage());
+            }
+            return bucket.reserve();
+        }
+    }
+
+    /**
+     * 调用成功，按加性增调整速率
+     *
+     * @param api 接口名
+     */
+    public void onSuccess(String api) {
+        if (rateLimitConfig.isEnabled() && adaptiveRateConfig.isEnabled()) {
+            bucket(api).increase(adaptiveRateConfig);
+        }
+    }
+
+    /**
+     * 遇到频率限制，按乘性减调整速率
+     *
+     * @param api 接口名
+     */
+    public void onThrottled(String api) {
+        if (!rateLimitConfig.isEnabled()) {
+            return;
+        }
+        TokenBucket bucket = bucket(api);
+        if (adaptiveRateConfig.isEnabled()) {
+            double previous = bucket.getRate();
+            if (bucket.decrease(adaptiveRateConfig)) {
+                logger.warn("接口 {} 触发频率限制，速率由 {}/s 降至 {}/s", api,
+                        String.format("%.1f", previous), String.format("%.1f", bucket.getRate()));
+            }
+        } else {
+            bucket.recordThrottled();
+        }
+    }
+
+    /**
+     * 获取接口的令牌桶，不存在时按配置创建
+     */
+    TokenBucket bucket(String api) {
+        return buckets.computeIfAbsent(api, key -> {
+            RateLimitConfig.Bucket config = rateLimitConfig.getApis().get(key);
+            double rate = config != null && config.getRate() != null
+                    ? config.getRate() : rateLimitConfig.getDefaultRate();
+            int burst = config != null && config.getBurst() != null
+                    ? config.getBurst() : rateLimitConfig.getDefaultBurst();
+            double minRate = config != null && config.getMinRate() != null
+                    ? config.getMinRate() : adaptiveRateConfig.getMinRate();
+            double maxRate = config != null && config.getMaxRate() != null
+                    ? config.getMaxRate() : adaptiveRateConfig.getMaxRate();
+            return new TokenBucket(rate, burst, Math.min(minRate, rate), Math.max(maxRate, rate));
+        });
+    }
+
+    /**
+     * 获取限流指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", rateLimitConfig.isEnabled());
+        stats.put("mode", rateLimitConfig.getMode());
+        stats.put("adaptive", adaptiveRateConfig.isEnabled());
+        stats.put("redisErrors", redisErrorCount.get());
+        Map<String, Object> apis = new TreeMap<>();
+        buckets.forEach((api, bucket) -> apis.put(api, bucket.getStats()));
+        stats.put("apis", apis);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 进程内令牌桶
+     * 允许令牌数为负：每次预约都扣减一个令牌，负数部分按速率折算为等待时间，请求按预约顺序依次放行
+     */
+    static final class TokenBucket {
+
+        private final double initialRate;
+        private final double minRate;
+        private final double maxRate;
+        private volatile double rate;
+        private final int burst;
+        private double tokens;
+        private long lastRefillNanos = System.nanoTime();
+        private long lastIncreaseNanos = lastRefillNanos;
+        private long lastDecreaseNanos;
+        private volatile double lastThrottledRate;
+
+        private final AtomicLong acquiredCount = new AtomicLong();
+        private final AtomicLong waitedCount = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong throttledCount = new AtomicLong();
+        private final AtomicLong increaseCount = new AtomicLong();
+        private final AtomicLong decreaseCount = new AtomicLong();
+
+        TokenBucket(double rate, int burst, double minRate, double maxRate) {
+            this.initialRate = rate;
+            this.rate = rate;
+            this.burst = burst;
+            this.tokens = burst;
+            this.minRate = minRate;
+            this.maxRate = maxRate;
+        }
+
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            refill(now);
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) (-tokens / rate * 1_000_000_000L);
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(burst, tokens + (now - lastRefillNanos) / 1_000_000_000.0 * rate);
+            lastRefillNanos = now;
+        }
+
+        /**
+         * 加性增：距上次增加超过间隔且不在降速冷却期内时，速率增加一个步长
+         */
+        synchronized void increase(AdaptiveRateConfig aimd) {
+            long now = System.nanoTime();
+            if (rate >= maxRate
+                    || now - lastIncreaseNanos < TimeUnit.MILLISECONDS.toNanos(aimd.getIncreaseIntervalMillis())
+                    || now - lastDecreaseNanos < TimeUnit.MILLISECONDS.toNanos(aimd.getDecreaseCooldownMillis())) {
+                return;
+            }
+            refill(now);
+            rate = Math.min(maxRate, rate + aimd.getIncreaseStep());
+            lastIncreaseNanos = now;
+            increaseCount.incrementAndGet();
+        }
+
+        /**
+         * 乘性减：速率乘以衰减系数并清空积攒的令牌，冷却期内的后续限流只计数不再降速
+         *
+         * @return 是否降低了速率
+         */
+        synchronized boolean decrease(AdaptiveRateConfig aimd) {
+            throttledCount.incrementAndGet();
+            long now = System.nanoTime();
+            lastThrottledRate = rate;
+            if (decreaseCount.get() > 0
+                    && now - lastDecreaseNanos < TimeUnit.MILLISECONDS.toNanos(aimd.getDecreaseCooldownMillis())) {
+                return false;
+            }
+            refill(now);
+            rate = Math.max(minRate, rate * aimd.getDecreaseFactor());
+            tokens = Math.min(tokens, 0);
+            lastDecreaseNanos = now;
+            decreaseCount.incrementAndGet();
+            return true;
+        }
+
+        void recordThrottled() {
+            throttledCount.incrementAndGet();
+            lastThrottledRate = rate;
+        }
+
+        void record(long waitNanos) {
+            acquiredCount.incrementAndGet();
+            if (waitNanos > 0) {
+                waitedCount.incrementAndGet();
+                totalWaitNanos.addAndGet(waitNanos);
+            }
+        }
+
+        double getRate() {
+            return rate;
+        }
+
+        int getBurst() {
+            return burst;
+        }
+
+        Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            long acquired = acquiredCount.get();
+            stats.put("rate", rate);
+            stats.put("initialRate", initialRate);
+            stats.put("minRate", minRate);
+            stats.put("maxRate", maxRate);
+            stats.put("burst", burst);
+            stats.put("acquired", acquired);
+            stats.put("waited", waitedCount.get());
+            stats.put("avgWaitMillis", acquired > 0 ? totalWaitNanos.get() / acquired / 1_000_000.0 : 0.0);
+            stats.put("throttled", throttledCount.get());
+            stats.put("lastThrottledRate", lastThrottledRate);
+            stats.put("increases", increaseCount.get());
+            stats.put("decreases", decreaseCount.get());
+            return stats;
+        }
+    }
+}
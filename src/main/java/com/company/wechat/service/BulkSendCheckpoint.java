@@ -0,0 +1,510 @@
+package com.company.wechat.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+
+/**
+ * 群发任务检查点，每个任务一个目录：
+ * <pre>
+ * job.properties  任务ID、任务键、描述、发送参数、目标客户总数、是否已结束
+ * targets         目标客户快照，每行 "external_userid\tuserid"，获取客户列表后一次写入
+ * outcomes        按快照顺序每个已处理的客户一个字节：S 发送成功，F 发送失败
+ * msgids          发送成功返回的群发消息ID，每行一个，用于任务恢复后查询全部客户的送达情况
+ * checkpoint      "游标 快照文件偏移 成功数 失败数 msgids文件长度"，整文件替换写入
+ * </pre>
+ * 发送结果先在内存中累积，每batchSize个客户或intervalMillis毫秒追加到outcomes和msgids并刷盘，再替换checkpoint。
+ * 恢复时按checkpoint中的文件偏移直接定位到快照中的下一个客户，不需要重新读取已处理的部分；
+ * 宕机时最近一批未写入检查点的客户会在恢复后再发送一次。
+ * 加载只读取文件，恢复执行前由{@link #discardUnsaved()}修复宕机留下的多余发送结果
+ *
+ * 只由执行任务的线程使用，不是线程安全的
+ *
+ * @author Company
+ */
+public class BulkSendCheckpoint implements Closeable {
+
+    static final String JOB_FILE = "job.properties";
+    private static final String TARGETS_FILE = "targets";
+    private static final String OUTCOMES_FILE = "outcomes";
+    private static final String MSGIDS_FILE = "msgids";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String PARAM_PREFIX = "param.";
+
+    private static final byte SENT = 'S';
+    private static final byte FAILED = 'F';
+
+    private final File directory;
+    private final Properties jobInfo;
+    private final int batchSize;
+    private final long intervalMillis;
+
+    /**
+     * 已写入检查点的进度
+     */
+    private int cursor;
+    private long offset;
+    private int sent;
+    private int failed;
+    private long msgidsLength;
+
+    /**
+     * 尚未写入检查点的发送结果、群发消息ID，以及其中最后一个客户之后的快照文件偏移
+     */
+    private final ByteArrayOutputStream unsaved = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream unsavedMsgids = new ByteArrayOutputStream();
+    private int unsavedSent;
+    private int unsavedFailed;
+    private long unsavedOffset;
+
+    /**
+     * 最近一次取出的客户之后的快照文件偏移
+     */
+    private long readOffset;
+    private long lastSaveTime = System.currentTimeMillis();
+
+    private TargetIterator targets;
+
+    private BulkSendCheckpoint(File directory, Properties jobInfo, int batchSize, long intervalMillis) {
+        this.directory = directory;
+        this.jobInfo = jobInfo;
+        this.batchSize = Math.max(1, batchSize);
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * 新建任务检查点
+     */
+    static BulkSendCheckpoint create(File directory, BulkSendJob job, Map<String, String> params,
+                                     int batchSize, long intervalMillis) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("无法创建检查点目录: " + directory.getAbsolutePath());
+        }
+        Properties jobInfo = new Properties();
+        jobInfo.setProperty("jobId", job.getId());
+        jobInfo.setProperty("key", job.getKey());
+        jobInfo.setProperty("description", job.getDescription());
+        jobInfo.setProperty("submitTime", String.valueOf(job.getSubmitTime()));
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            if (param.getValue() != null) {
+                jobInfo.setProperty(PARAM_PREFIX + param.getKey(), param.getValue());
+            }
+        }
+        BulkSendCheckpoint checkpoint = new BulkSendCheckpoint(directory, jobInfo, batchSize, intervalMillis);
+        checkpoint.saveJobInfo();
+        return checkpoint;
+    }
+
+    /**
+     * 加载已有的任务检查点
+     */
+    static BulkSendCheckpoint load(File directory, int batchSize, long intervalMillis) throws IOException {
+        Properties jobInfo = new Properties();
+        try (Reader reader = new InputStreamReader(new FileInputStream(new File(directory, JOB_FILE)),
+                StandardCharsets.UTF_8)) {
+            jobInfo.load(reader);
+        }
+        BulkSendCheckpoint checkpoint = new BulkSendCheckpoint(directory, jobInfo, batchSize, intervalMillis);
+        checkpoint.loadProgress();
+        return checkpoint;
+    }
+
+    private void loadProgress() throws IOException {
+        File file = new File(directory, CHECKPOINT_FILE);
+        if (file.exists()) {
+            String[] fields = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim().split(" ");
+            cursor = Integer.parseInt(fields[0]);
+            offset = Long.parseLong(fields[1]);
+            sent = Integer.parseInt(fields[2]);
+            failed = Integer.parseInt(fields[3]);
+            // 早期的检查点没有msgids长度
+            msgidsLength = fields.length > 4 ? Long.parseLong(fields[4]) : 0;
+        }
+        unsavedOffset = offset;
+    }
+
+    /**
+     * 追加发送结果后、替换checkpoint前宕机：丢弃多出的结果，这些客户恢复后重新发送
+     * 在恢复执行任务前调用，之后追加的结果才能与游标对齐
+     */
+    void discardUnsaved() throws IOException {
+        truncate(OUTCOMES_FILE, cursor);
+        truncate(MSGIDS_FILE, msgidsLength);
+    }
+
+    private void truncate(String name, long length) throws IOException {
+        File file = new File(directory, name);
+        if (file.length() > length) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(length);
+            }
+        }
+    }
+
+    public String getJobId() {
+        return jobInfo.getProperty("jobId");
+    }
+
+    public String getKey() {
+        return jobInfo.getProperty("key");
+    }
+
+    public String getDescription() {
+        return jobInfo.getProperty("description");
+    }
+
+    long getSubmitTime() {
+        return Long.parseLong(jobInfo.getProperty("submitTime", "0"));
+    }
+
+    long getFinishTime() {
+        return Long.parseLong(jobInfo.getProperty("finishTime", "0"));
+    }
+
+    /**
+     * 提交任务时的发送参数
+     */
+    public String getParam(String name) {
+        return jobInfo.getProperty(PARAM_PREFIX + name);
+    }
+
+    public boolean isFinished() {
+        return jobInfo.getProperty("finishTime") != null;
+    }
+
+    /**
+     * 是否已保存目标客户快照
+     */
+    public boolean hasTargets() {
+        return jobInfo.getProperty("total") != null;
+    }
+
+    /**
+     * 目标客户总数
+     */
+    public int getTotal() {
+        return Integer.parseInt(jobInfo.getProperty("total", "0"));
+    }
+
+    /**
+     * 已处理（成功或失败）的客户数
+     */
+    public int getCursor() {
+        return cursor + unsaved.size();
+    }
+
+    public int getSent() {
+        return sent + unsavedSent;
+    }
+
+    public int getFailed() {
+        return failed + unsavedFailed;
+    }
+
+    /**
+     * 已写入检查点的群发消息ID（恢复任务时接上重启前的部分）
+     */
+    public List<String> getMsgids() {
+        List<String> msgids = new ArrayList<>();
+        if (msgidsLength == 0) {
+            return msgids;
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(new File(directory, MSGIDS_FILE)))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+            for (long i = 0; i < msgidsLength; i++) {
+                int b = in.read();
+                if (b == -1) {
+                    break;
+                }
+                if (b == '\n') {
+                    msgids.add(new String(line.toByteArray(), StandardCharsets.UTF_8));
+                    line.reset();
+                } else {
+                    line.write(b);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取群发消息ID失败: " + directory.getName(), e);
+        }
+        return msgids;
+    }
+
+    /**
+     * 保存目标客户快照（写入完成后才记录总数，保证有总数时快照完整）
+     *
+     * @param customerToStaffMap 客户external_userid -> 发送员工userid
+     */
+    public void saveTargets(Map<String, String> customerToStaffMap) {
+        File tmp = new File(directory, TARGETS_FILE + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(tmp);
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024)) {
+                for (Map.Entry<String, String> entry : customerToStaffMap.entrySet()) {
+                    writer.write(entry.getKey());
+                    writer.write('\t');
+                    writer.write(entry.getValue());
+                    writer.write('\n');
+                }
+                writer.flush();
+                out.getFD().sync();
+            }
+            Files.move(tmp.toPath(), new File(directory, TARGETS_FILE).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            jobInfo.setProperty("total", String.valueOf(customerToStaffMap.size()));
+            saveJobInfo();
+        } catch (IOException e) {
+            throw new UncheckedIOException("保存目标客户快照失败: " + directory.getName(), e);
+        }
+    }
+
+    /**
+     * 从检查点游标开始遍历目标客户快照
+     *
+     * @return 客户external_userid -> 发送员工userid
+     */
+    public Iterator<Map.Entry<String, String>> targets() {
+        closeTargets();
+        try {
+            targets = new TargetIterator(new File(directory, TARGETS_FILE), offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取目标客户快照失败: " + directory.getName(), e);
+        }
+        return targets;
+    }
+
+    /**
+     * 记录最近一次从 {@link #targets()} 取出的客户的发送结果，达到批量大小或间隔时写入检查点
+     *
+     * @param success 是否发送成功
+     */
+    public void record(boolean success) {
+        record(success, null);
+    }
+
+    /**
+     * 记录最近一次从 {@link #targets()} 取出的客户的发送结果和群发消息ID
+     *
+     * @param success 是否发送成功
+     * @param msgid 群发消息ID，没有时为null
+     */
+    public void record(boolean success, String msgid) {
+        unsaved.write(success ? SENT : FAILED);
+        if (msgid != null) {
+            byte[] bytes = (msgid + "\n").getBytes(StandardCharsets.UTF_8);
+            unsavedMsgids.write(bytes, 0, bytes.length);
+        }
+        unsavedOffset = readOffset;
+        if (success) {
+            unsavedSent++;
+        } else {
+            unsavedFailed++;
+        }
+        if (unsaved.size() >= batchSize || System.currentTimeMillis() - lastSaveTime >= intervalMillis) {
+            save();
+        }
+    }
+
+    /**
+     * 写入检查点：先追加发送结果和群发消息ID并刷盘，再替换checkpoint
+     */
+    public void save() {
+        lastSaveTime = System.currentTimeMillis();
+        if (unsaved.size() == 0) {
+            return;
+        }
+        try {
+            append(OUTCOMES_FILE, unsaved);
+            if (unsavedMsgids.size() > 0) {
+                append(MSGIDS_FILE, unsavedMsgids);
+            }
+            String progress = (cursor + unsaved.size()) + " " + unsavedOffset + " "
+                    + (sent + unsavedSent) + " " + (failed + unsavedFailed) + " "
+                    + (msgidsLength + unsavedMsgids.size());
+            writeAtomically(CHECKPOINT_FILE, progress.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入群发任务检查点失败: " + directory.getName(), e);
+        }
+        cursor += unsaved.size();
+        offset = unsavedOffset;
+        sent += unsavedSent;
+        failed += unsavedFailed;
+        msgidsLength += unsavedMsgids.size();
+        unsaved.reset();
+        unsavedMsgids.reset();
+        unsavedSent = 0;
+        unsavedFailed = 0;
+    }
+
+    private void append(String name, ByteArrayOutputStream content) throws IOException {
+        try (FileChannel channel = FileChannel.open(new File(directory, name).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * 标记任务已结束，重启后不再恢复
+     */
+    public void finish() {
+        save();
+        jobInfo.setProperty("finishTime", String.valueOf(System.currentTimeMillis()));
+        try {
+            saveJobInfo();
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入群发任务检查点失败: " + directory.getName(), e);
+        }
+    }
+
+    /**
+     * 写入未保存的发送结果并关闭快照文件
+     * 线程被中断时FileChannel无法写入，先清除中断状态，写入后再恢复
+     */
+    @Override
+    public void close() {
+        boolean interrupted = Thread.interrupted();
+        try {
+            save();
+        } finally {
+            closeTargets();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    private void closeTargets() {
+        if (targets != null) {
+            targets.close();
+            targets = null;
+        }
+    }
+
+    private void saveJobInfo() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            jobInfo.store(writer, null);
+        }
+        writeAtomically(JOB_FILE, out.toByteArray());
+    }
+
+    /**
+     * 写入临时文件并刷盘后替换目标文件，宕机时只会看到旧文件或新文件
+     */
+    private void writeAtomically(String name, byte[] content) throws IOException {
+        File tmp = new File(directory, name + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(content);
+            out.getFD().sync();
+        }
+        Files.move(tmp.toPath(), new File(directory, name).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 按行读取目标客户快照，记录每个客户之后的文件偏移
+     */
+    private final class TargetIterator implements Iterator<Map.Entry<String, String>> {
+
+        private final InputStream in;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        private long position;
+        private Map.Entry<String, String> next;
+        private long nextEnd;
+        private boolean closed;
+
+        TargetIterator(File file, long offset) throws IOException {
+            FileInputStream fileIn = new FileInputStream(file);
+            fileIn.getChannel().position(offset);
+            this.in = new BufferedInputStream(fileIn, 64 * 1024);
+            this.position = offset;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !closed) {
+                try {
+                    next = readEntry();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("读取目标客户快照失败: " + directory.getName(), e);
+                }
+                if (next == null) {
+                    close();
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, String> entry = next;
+            next = null;
+            readOffset = nextEnd;
+            return entry;
+        }
+
+        private Map.Entry<String, String> readEntry() throws IOException {
+            line.reset();
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                line.write(b);
+            }
+            if (b == -1 && line.size() == 0) {
+                return null;
+            }
+            position += line.size() + (b == '\n' ? 1 : 0);
+            nextEnd = position;
+            String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+            int tab = text.indexOf('\t');
+            if (tab < 0) {
+                throw new IOException("目标客户快照格式错误，偏移: " + (position - line.size() - 1));
+            }
+            return new AbstractMap.SimpleImmutableEntry<>(text.substring(0, tab), text.substring(tab + 1));
+        }
+
+        void close() {
+            if (!closed) {
+                closed = true;
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                    // 只读文件，关闭失败不影响检查点
+                }
+            }
+        }
+    }
+}
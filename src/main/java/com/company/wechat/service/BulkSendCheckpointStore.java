@@ -0,0 +1,141 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.BulkSendCheckpointConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 群发任务检查点存储（本地文件）
+ * 每个任务一个子目录（目录名为任务ID），格式见 {@link BulkSendCheckpoint}；
+ * 启动时清理超过保留时间的已结束任务，未结束的任务由发送方在应用启动后恢复
+ *
+ * @author Company
+ */
+@Service
+public class BulkSendCheckpointStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkSendCheckpointStore.class);
+
+    @Autowired
+    private BulkSendCheckpointConfig checkpointConfig;
+
+    private File directory;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!checkpointConfig.isEnabled()) {
+            return;
+        }
+        File dir = new File(checkpointConfig.getDirectory());
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("无法创建群发任务检查点目录: " + dir.getAbsolutePath());
+        }
+        directory = dir;
+        applyRetention();
+        logger.info("群发任务检查点已开启 - 目录: {}", directory.getAbsolutePath());
+    }
+
+    /**
+     * 是否开启
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * 打开任务的检查点：已有检查点（重启后恢复的任务）时加载，否则新建
+     *
+     * @param job 群发任务
+     * @param params 发送参数，恢复任务时使用
+     * @return 任务检查点，未开启或任务不由任务引擎管理时返回null
+     */
+    public BulkSendCheckpoint open(BulkSendJob job, Map<String, String> params) {
+        if (directory == null || job.getId() == null) {
+            return null;
+        }
+        File jobDirectory = new File(directory, job.getId());
+        try {
+            if (new File(jobDirectory, BulkSendCheckpoint.JOB_FILE).exists()) {
+                BulkSendCheckpoint checkpoint = BulkSendCheckpoint.load(jobDirectory,
+                        checkpointConfig.getBatchSize(), checkpointConfig.getIntervalMillis());
+                checkpoint.discardUnsaved();
+                return checkpoint;
+            }
+            return BulkSendCheckpoint.create(jobDirectory, job, params, checkpointConfig.getBatchSize(),
+                    checkpointConfig.getIntervalMillis());
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开群发任务检查点失败: " + job.getId(), e);
+        }
+    }
+
+    /**
+     * 未结束的任务检查点，按提交时间排序（只读，恢复执行时再通过{@link #open}打开）
+     */
+    public List<BulkSendCheckpoint> listUnfinished() {
+        List<BulkSendCheckpoint> unfinished = new ArrayList<>();
+        for (BulkSendCheckpoint checkpoint : listAll()) {
+            if (!checkpoint.isFinished()) {
+                unfinished.add(checkpoint);
+            }
+        }
+        unfinished.sort(Comparator.comparingLong(BulkSendCheckpoint::getSubmitTime));
+        return unfinished;
+    }
+
+    private List<BulkSendCheckpoint> listAll() {
+        List<BulkSendCheckpoint> checkpoints = new ArrayList<>();
+        if (directory == null) {
+            return checkpoints;
+        }
+        File[] jobDirectories = directory.listFiles(File::isDirectory);
+        if (jobDirectories == null) {
+            return checkpoints;
+        }
+        for (File jobDirectory : jobDirectories) {
+            if (!new File(jobDirectory, BulkSendCheckpoint.JOB_FILE).exists()) {
+                logger.warn("忽略不完整的群发任务检查点: {}", jobDirectory.getName());
+                continue;
+            }
+            try {
+                checkpoints.add(BulkSendCheckpoint.load(jobDirectory, checkpointConfig.getBatchSize(),
+                        checkpointConfig.getIntervalMillis()));
+            } catch (IOException | RuntimeException e) {
+                logger.error("读取群发任务检查点失败: {}", jobDirectory.getName(), e);
+            }
+        }
+        return checkpoints;
+    }
+
+    /**
+     * 清理超过保留时间的已结束任务
+     */
+    private void applyRetention() {
+        long expireBefore = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(checkpointConfig.getRetentionHours());
+        for (BulkSendCheckpoint checkpoint : listAll()) {
+            if (checkpoint.isFinished() && checkpoint.getFinishTime() < expireBefore) {
+                File jobDirectory = checkpoint.getDirectory();
+                File[] files = jobDirectory.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+                if (jobDirectory.delete()) {
+                    logger.info("清理过期的群发任务检查点: {}", jobDirectory.getName());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.company.wechat.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台群发任务
+ * 发送循环在每个客户之前调用 {@link #awaitRunnable()}：暂停时阻塞，取消后返回false，
+ * 并通过 {@link #sent()}/{@link #failed()}/{@link #pending()} 更新进度
+ *
+ * @author Company
+ */
+public class BulkSendJob {
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String PAUSED = "PAUSED";
+    public static final String CANCELLED = "CANCELLED";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private final String id;
+    private final String key;
+    private final String description;
+    private final long submitTime = System.currentTimeMillis();
+
+    private volatile String status = PENDING;
+    private volatile String phase;
+    private volatile boolean pauseRequested;
+    private volatile boolean cancelled;
+    private volatile boolean shutdown;
+    private volatile long startTime;
+    private volatile long finishTime;
+    private volatile String error;
+    private volatile Map<String, Object> result;
+
+    /**
+     * 累计暂停时长（毫秒）和当前暂停的开始时间，用于计算发送速率
+     */
+    private long pausedMillis;
+    private long pausedSince;
+
+    private volatile int total = -1;
+    private volatile int restored;
+    private final AtomicInteger sent = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    BulkSendJob(String id, String key, String description) {
+        this.id = id;
+        this.key = key;
+        this.description = description;
+    }
+
+    /**
+     * 不由任务引擎管理的任务（同步调用时使用），不会被暂停或取消
+     */
+    public static BulkSendJob untracked() {
+        return new BulkSendJob(null, null, null);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    String getDescription() {
+        return description;
+    }
+
+    public long getSubmitTime() {
+        return submitTime;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * 任务结束后的发送结果统计，未结束或失败时为null
+     */
+    public Map<String, Object> getResult() {
+        return result;
+    }
+
+    public boolean isActive() {
+        return PENDING.equals(status) || RUNNING.equals(status) || PAUSED.equals(status);
+    }
+
+    /**
+     * 当前阶段（如获取客户列表、发送）
+     */
+    public void setPhase(String phase) {
+        this.phase = phase;
+    }
+
+    /**
+     * 需要发送的客户总数
+     */
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    /**
+     * 恢复检查点中的进度（重启后继续执行的任务）
+     */
+    public void restore(int sent, int failed) {
+        this.sent.set(sent);
+        this.failed.set(failed);
+        this.restored = sent + failed;
+    }
+
+    public void sent() {
+        sent.incrementAndGet();
+    }
+
+    /**
+     * 一次调用发送给多个客户
+     */
+    public void sent(int count) {
+        sent.addAndGet(count);
+    }
+
+    public void failed() {
+        failed.incrementAndGet();
+    }
+
+    public void failed(int count) {
+        failed.addAndGet(count);
+    }
+
+    /**
+     * 因接口熔断或任务取消未发送
+     */
+    public void pending() {
+        pending.incrementAndGet();
+    }
+
+    public void pending(int count) {
+        pending.addAndGet(count);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 是否因应用关闭而停止（任务未结束，有检查点时重启后继续执行）
+     */
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * 等待任务可以继续执行：暂停时阻塞直到恢复或取消
+     *
+     * @return 是否继续执行（已取消或等待被中断时返回false）
+     */
+    public synchronized boolean awaitRunnable() {
+        while (pauseRequested && !cancelled) {
+            if (RUNNING.equals(status)) {
+                status = PAUSED;
+                pausedSince = System.currentTimeMillis();
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        if (PAUSED.equals(status)) {
+            status = RUNNING;
+            pausedMillis += System.currentTimeMillis() - pausedSince;
+        }
+        return !cancelled;
+    }
+
+    synchronized boolean pause() {
+        if (!isActive() || cancelled) {
+            return false;
+        }
+        pauseRequested = true;
+        return true;
+    }
+
+    synchronized boolean resume() {
+        if (!pauseRequested || cancelled) {
+            return false;
+        }
+        pauseRequested = false;
+        notifyAll();
+        return true;
+    }
+
+    synchronized boolean cancel() {
+        if (!isActive()) {
+            return false;
+        }
+        cancelled = true;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * 应用关闭时停止任务
+     */
+    synchronized void shutdown() {
+        if (isActive()) {
+            shutdown = true;
+            cancelled = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * 开始执行
+     *
+     * @return false表示排队期间已取消
+     */
+    synchronized boolean start() {
+        if (cancelled) {
+            status = CANCELLED;
+            finishTime = System.currentTimeMillis();
+            return false;
+        }
+        status = RUNNING;
+        startTime = System.currentTimeMillis();
+        return true;
+    }
+
+    synchronized void finish(Map<String, Object> result, String error) {
+        this.result = result;
+        this.error = error;
+        this.status = error != null ? FAILED : cancelled ? CANCELLED : COMPLETED;
+        this.finishTime = System.currentTimeMillis();
+        notifyAll();
+    }
+
+    /**
+     * 发送速率（个/秒），不含暂停时间和恢复前已处理的客户
+     */
+    private synchronized double rate() {
+        if (startTime == 0) {
+            return 0;
+        }
+        long end = finishTime > 0 ? finishTime : System.currentTimeMillis();
+        long paused = pausedMillis + (PAUSED.equals(status) ? end - pausedSince : 0);
+        long activeMillis = end - startTime - paused;
+        return activeMillis > 0 ? (sent.get() + failed.get() - restored) * 1000.0 / activeMillis : 0;
+    }
+
+    /**
+     * 转换为接口返回的Map
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("jobId", id);
+        map.put("status", status);
+        map.put("description", description);
+        if (phase != null) {
+            map.put("phase", phase);
+        }
+        map.put("submitTime", submitTime);
+        if (startTime > 0) {
+            map.put("startTime", startTime);
+        }
+        if (finishTime > 0) {
+            map.put("finishTime", finishTime);
+        }
+        int processed = sent.get() + failed.get();
+        map.put("total", total);
+        map.put("sent", sent.get());
+        map.put("failed", failed.get());
+        map.put("pending", pending.get());
+        double rate = rate();
+        map.put("ratePerSecond", Math.round(rate * 100) / 100.0);
+        if (total >= 0 && RUNNING.equals(status) && rate > 0) {
+            int remaining = Math.max(0, total - processed - pending.get());
+            map.put("etaSeconds", Math.round(remaining / rate));
+        }
+        if (error != null) {
+            map.put("error", error);
+        }
+        if (result != null && result.get("message") != null) {
+            map.put("message", result.get("message"));
+        }
+        return map;
+    }
+}
@@ -0,0 +1,188 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.BulkSendJobConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 后台群发任务引擎
+ * 群发任务在有界线程池上执行（同时执行的任务数不超过配置的上限，超出的排队），每个任务有ID，
+ * 可查询进度、暂停/恢复和取消。相同的任务（任务键相同）正在执行或排队时拒绝重复提交，
+ * 避免多人同时操作时对企业微信API造成成倍的压力
+ *
+ * @author Company
+ */
+@Service
+public class BulkSendJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkSendJobService.class);
+
+    private static final int SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    @Autowired
+    private BulkSendJobConfig jobConfig;
+
+    private ExecutorService jobExecutor;
+
+    private final Map<String, BulkSendJob> jobs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(1, jobConfig.getMaxConcurrent());
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        jobExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "bulk-send-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * 提交群发任务
+     *
+     * @param key 任务键，相同键的任务同时只能有一个在执行或排队
+     * @param description 任务描述
+     * @param work 任务内容，返回发送结果统计
+     * @return 任务
+     * @throws DuplicateJobException 相同的任务正在执行或排队
+     * @throws IllegalStateException 排队的任务过多
+     */
+    public BulkSendJob submit(String key, String description, Function<BulkSendJob, Map<String, Object>> work) {
+        return submit(UUID.randomUUID().toString().replace("-", ""), key, description, work);
+    }
+
+    /**
+     * 使用指定的任务ID提交群发任务（重启后恢复有检查点的任务，任务ID保持不变）
+     *
+     * @param id 任务ID，其余参数同上
+     */
+    public synchronized BulkSendJob submit(String id, String key, String description,
+                                           Function<BulkSendJob, Map<String, Object>> work) {
+        int queued = 0;
+        for (BulkSendJob job : jobs.values()) {
+            if (job.isActive() && key.equals(job.getKey())) {
+                throw new DuplicateJobException(job);
+            }
+            if (BulkSendJob.PENDING.equals(job.getStatus())) {
+                queued++;
+            }
+        }
+        if (queued >= jobConfig.getMaxQueued()) {
+            throw new IllegalStateException("排队的群发任务过多（" + queued + "个），请稍后再试");
+        }
+        evictFinishedJobs();
+
+        BulkSendJob job = new BulkSendJob(id, key, description);
+        jobs.put(job.getId(), job);
+        jobExecutor.execute(() -> run(job, work));
+        logger.info("提交群发任务 - ID: {}, {}", job.getId(), description);
+        return job;
+    }
+
+    private void run(BulkSendJob job, Function<BulkSendJob, Map<String, Object>> work) {
+        if (!job.start()) {
+            logger.info("群发任务在排队期间已取消 - ID: {}", job.getId());
+            return;
+        }
+        logger.info("开始执行群发任务 - ID: {}", job.getId());
+        try {
+            job.finish(work.apply(job), null);
+        } catch (RuntimeException e) {
+            logger.error("群发任务失败 - ID: {}", job.getId(), e);
+            job.finish(null, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+        logger.info("群发任务结束 - ID: {}, 状态: {}", job.getId(), job.getStatus());
+    }
+
+    public BulkSendJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * 所有任务，最近提交的在前
+     */
+    public List<BulkSendJob> listJobs() {
+        List<BulkSendJob> list = new ArrayList<>(jobs.values());
+        list.sort(Comparator.comparingLong(BulkSendJob::getSubmitTime).reversed());
+        return list;
+    }
+
+    public boolean pause(String id) {
+        BulkSendJob job = jobs.get(id);
+        boolean paused = job != null && job.pause();
+        if (paused) {
+            logger.info("暂停群发任务 - ID: {}", id);
+        }
+        return paused;
+    }
+
+    public boolean resume(String id) {
+        BulkSendJob job = jobs.get(id);
+        boolean resumed = job != null && job.resume();
+        if (resumed) {
+            logger.info("恢复群发任务 - ID: {}", id);
+        }
+        return resumed;
+    }
+
+    public boolean cancel(String id) {
+        BulkSendJob job = jobs.get(id);
+        boolean cancelled = job != null && job.cancel();
+        if (cancelled) {
+            logger.info("取消群发任务 - ID: {}", id);
+        }
+        return cancelled;
+    }
+
+    /**
+     * 任务记录过多时清理已结束的任务
+     */
+    private void evictFinishedJobs() {
+        if (jobs.size() < jobConfig.getMaxRetained()) {
+            return;
+        }
+        List<String> finished = new ArrayList<>();
+        for (BulkSendJob job : jobs.values()) {
+            if (!job.isActive()) {
+                finished.add(job.getId());
+            }
+        }
+        finished.forEach(jobs::remove);
+    }
+
+    /**
+     * 停止所有任务：执行中的任务发送完当前客户后停止并写入最后的检查点，超时后再中断
+     */
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(BulkSendJob::shutdown);
+        jobExecutor.shutdown();
+        try {
+            if (!jobExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("群发任务未在{}秒内停止，中断执行", SHUTDOWN_TIMEOUT_SECONDS);
+                jobExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            jobExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
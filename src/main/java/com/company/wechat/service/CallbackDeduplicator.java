@@ -0,0 +1,186 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.CallbackDedupConfig;
+import com.company.wechat.model.dto.CallbackEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 回调事件去重服务
+ * 以事件指纹（ToUserName + Event + ChangeType + ExternalUserID + UserID + CreateTime等）识别重推的回调，
+ * 支持进程内有界时间窗口和Redis SETNX两种模式
+ *
+ * @author Company
+ */
+@Service
+public class CallbackDeduplicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallbackDeduplicator.class);
+
+    @Autowired
+    private CallbackDedupConfig dedupConfig;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    /**
+     * 按插入顺序保存指纹及首次出现时间，队首即最早的指纹
+     */
+    private final LinkedHashMap<String, Long> seen = new LinkedHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong redisErrorCount = new AtomicLong();
+
+    /**
+     * 判断事件是否为重复推送，首次出现的事件会被记录
+     *
+     * @param event 回调事件
+     * @return true表示窗口内已处理过相同事件
+     */
+    public boolean isDuplicate(CallbackEvent event) {
+        if (!dedupConfig.isEnabled()) {
+            return false;
+        }
+
+        String fingerprint = fingerprint(event);
+        boolean duplicate;
+        if (dedupConfig.getMode() == CallbackDedupConfig.Mode.REDIS) {
+            duplicate = checkRedis(fingerprint);
+        } else {
+            duplicate = checkMemory(fingerprint);
+        }
+
+        if (duplicate) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return duplicate;
+    }
+
+    /**
+     * 撤销事件的去重记录
+     * 事件被判定为首次出现但未能交给处理线程（如队列已满被丢弃）时调用，
+     * 使企业微信重推的同一事件能够再次被处理
+     *
+     * @param event 回调事件
+     */
+    public void release(CallbackEvent event) {
+        if (!dedupConfig.isEnabled()) {
+            return;
+        }
+
+        String fingerprint = fingerprint(event);
+        if (dedupConfig.getMode() == CallbackDedupConfig.Mode.REDIS) {
+            try {
+                redisTemplate.delete(dedupConfig.getRedisKeyPrefix() + fingerprint);
+            } catch (Exception e) {
+                redisErrorCount.incrementAndGet();
+                logger.warn("Redis撤销去重记录失败: {}", e.getMessage());
+            }
+        }
+        // Redis异常时指纹可能记录在内存中，一并移除
+        synchronized (this) {
+            seen.remove(fingerprint);
+        }
+    }
+
+    /**
+     * 生成事件指纹
+     */
+    public static String fingerprint(CallbackEvent event) {
+        StringBuilder sb = new StringBuilder(128);
+        append(sb, event.getToUserName());
+        append(sb, event.getEvent());
+        append(sb, event.getChangeType());
+        append(sb, event.getExternalUserId());
+        append(sb, event.getUserId());
+        append(sb, event.getCreateTime());
+        // 标签、客户群事件没有客户ID，需要额外区分
+        append(sb, event.getTagId());
+        append(sb, event.getChatId());
+        append(sb, event.getMsgId());
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, Object value) {
+        if (sb.length() > 0) {
+            sb.append('|');
+        }
+        if (value != null) {
+            sb.append(value);
+        }
+    }
+
+    /**
+     * Redis SETNX去重，Redis异常时退化为内存去重
+     */
+    private boolean checkRedis(String fingerprint) {
+        try {
+            Boolean firstSeen = redisTemplate.opsForValue().setIfAbsent(
+                    dedupConfig.getRedisKeyPrefix() + fingerprint, "1",
+                    dedupConfig.getWindowSeconds(), TimeUnit.SECONDS);
+            if (firstSeen != null) {
+                return !firstSeen;
+            }
+        } catch (Exception e) {
+            redisErrorCount.incrementAndGet();
+            logger.warn("Redis去重失败，退化为内存去重: {}", e.getMessage());
+        }
+        return checkMemory(fingerprint);
+    }
+
+    /**
+     * 内存时间窗口去重
+     */
+    private synchronized boolean checkMemory(String fingerprint) {
+        long now = System.currentTimeMillis();
+        long expireBefore = now - TimeUnit.SECONDS.toMillis(dedupConfig.getWindowSeconds());
+
+        // 淘汰过期或超出容量的指纹
+        Iterator<Map.Entry<String, Long>> it = seen.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (eldest.getValue() >= expireBefore && seen.size() < dedupConfig.getMaxEntries()) {
+                break;
+            }
+            it.remove();
+        }
+
+        if (seen.containsKey(fingerprint)) {
+            return true;
+        }
+        seen.put(fingerprint, now);
+        return false;
+    }
+
+    /**
+     * 获取去重指标
+     */
+    public Map<String, Object> getStats() {
+        long hits = hitCount.get();
+        long misses = missCount.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", dedupConfig.isEnabled());
+        stats.put("mode", dedupConfig.getMode());
+        stats.put("windowSeconds", dedupConfig.getWindowSeconds());
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRatio", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+        stats.put("redisErrors", redisErrorCount.get());
+        synchronized (this) {
+            stats.put("memoryEntries", seen.size());
+        }
+        return stats;
+    }
+}
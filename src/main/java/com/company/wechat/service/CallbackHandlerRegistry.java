@@ -0,0 +1,404 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.CallbackAsyncConfig;
+import com.company.wechat.config.CallbackHandlerConfig;
+import com.company.wechat.handler.CallbackEventHandler;
+import com.company.wechat.model.dto.CallbackEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 回调事件处理器注册中心
+ * 按 (Event, ChangeType) 路由事件，每个处理器有独立的有界线程池和指标，
+ * 例如发送欢迎语这类慢处理器不会占满其他处理器的线程。
+ * 处理器线程池是回调事件唯一的队列：请求线程验签、解密后直接放入对应处理器的队列并返回，
+ * 队列已满时按{@link CallbackAsyncConfig#getRejectionPolicy()}处理；未开启异步接收时在请求线程内直接执行处理器。
+ * 事件被丢弃或处理器执行异常时调用分发方传入的回调（撤销去重记录），企业微信重推时仍会处理
+ *
+ * @author Company
+ */
+@Service
+public class CallbackHandlerRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallbackHandlerRegistry.class);
+
+    /**
+     * 匹配所有变更类型的通配符
+     */
+    private static final String ANY_CHANGE_TYPE = "*";
+
+    @Autowired
+    private CallbackHandlerConfig handlerConfig;
+
+    @Autowired
+    private CallbackAsyncConfig asyncConfig;
+
+    @Autowired(required = false)
+    private List<CallbackEventHandler> handlers = Collections.emptyList();
+
+    private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+
+    private final AtomicLong unhandledCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!asyncConfig.isEnabled()) {
+            logger.info("回调异步接收模式未开启，事件将在请求线程内同步处理");
+        }
+        for (CallbackEventHandler handler : handlers) {
+            register(handler);
+        }
+    }
+
+    /**
+     * 注册事件处理器
+     *
+     * @param handler 事件处理器
+     */
+    public void register(CallbackEventHandler handler) {
+        String key = routeKey(handler.event(), handler.changeType() != null ? handler.changeType() : ANY_CHANGE_TYPE);
+
+        CallbackHandlerConfig.Executor settings = handlerConfig.getExecutors().get(handler.name());
+        int threads = settings != null && settings.getThreads() != null
+                ? settings.getThreads() : handlerConfig.getDefaultThreads();
+        int queueCapacity = settings != null && settings.getQueueCapacity() != null
+                ? settings.getQueueCapacity() : handlerConfig.getDefaultQueueCapacity();
+
+        Registration registration = new Registration(handler, asyncConfig.isEnabled(), threads, queueCapacity,
+                asyncConfig.getRejectionPolicy());
+        Registration previous = registrations.put(key, registration);
+        if (previous != null) {
+            logger.warn("事件处理器被覆盖 - 路由: {}, 原处理器: {}", key, previous.handler.name());
+            if (previous.executor != null) {
+                previous.executor.shutdown();
+            }
+        }
+        if (registration.executor != null) {
+            logger.info("注册事件处理器 - 路由: {}, 处理器: {}, 线程数: {}, 队列容量: {}, 拒绝策略: {}",
+                    key, handler.name(), threads, queueCapacity, asyncConfig.getRejectionPolicy());
+        } else {
+            logger.info("注册事件处理器 - 路由: {}, 处理器: {}（同步执行）", key, handler.name());
+        }
+    }
+
+    /**
+     * 分发事件到对应处理器的线程池
+     * 先按 Event + ChangeType 精确匹配，再按 Event 通配匹配
+     *
+     * @param event 回调事件
+     * @return 是否找到处理器
+     */
+    public boolean dispatch(CallbackEvent event) {
+        return dispatch(event, null);
+    }
+
+    /**
+     * 分发事件到对应处理器的线程池
+     *
+     * @param event 回调事件
+     * @param onDiscard 事件因队列已满或线程池关闭被丢弃、或处理器执行异常时调用，可为null
+     * @return 是否找到处理器
+     */
+    public boolean dispatch(CallbackEvent event, Runnable onDiscard) {
+        Registration registration = registrations.get(routeKey(event.getEvent(), event.getChangeType()));
+        if (registration == null) {
+            registration = registrations.get(routeKey(event.getEvent(), ANY_CHANGE_TYPE));
+        }
+        if (registration == null) {
+            unhandledCount.incrementAndGet();
+            logger.debug("未注册处理器的事件 - 事件: {}, 变更类型: {}", event.getEvent(), event.getChangeType());
+            return false;
+        }
+        registration.submit(event, onDiscard);
+        return true;
+    }
+
+    private static String routeKey(String event, String changeType) {
+        return event + ":" + changeType;
+    }
+
+    /**
+     * 获取各处理器的吞吐和延迟指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        List<Map<String, Object>> handlerStats = new ArrayList<>();
+        for (Map.Entry<String, Registration> entry : registrations.entrySet()) {
+            Map<String, Object> item = entry.getValue().getStats();
+            item.put("route", entry.getKey());
+            handlerStats.add(item);
+        }
+        stats.put("handlers", handlerStats);
+        stats.put("unhandled", unhandledCount.get());
+        return stats;
+    }
+
+    /**
+     * 汇总所有处理器队列的指标（队列深度、丢弃次数、停留时间等）
+     */
+    public Map<String, Object> getQueueStats() {
+        int queueDepth = 0;
+        int activeThreads = 0;
+        long submitted = 0;
+        long completed = 0;
+        long failed = 0;
+        long discarded = 0;
+        long callerRuns = 0;
+        long totalWaitNanos = 0;
+        long maxWaitNanos = 0;
+        for (Registration registration : registrations.values()) {
+            if (registration.executor != null) {
+                queueDepth += registration.executor.getQueue().size();
+                activeThreads += registration.executor.getActiveCount();
+            }
+            submitted += registration.submitted.get();
+            completed += registration.completed.get();
+            failed += registration.failed.get();
+            discarded += registration.discarded.get();
+            callerRuns += registration.callerRuns.get();
+            totalWaitNanos += registration.totalWaitNanos.get();
+            maxWaitNanos = Math.max(maxWaitNanos, registration.maxWaitNanos.get());
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("async", asyncConfig.isEnabled());
+        stats.put("rejectionPolicy", asyncConfig.getRejectionPolicy());
+        stats.put("queueDepth", queueDepth);
+        stats.put("activeThreads", activeThreads);
+        stats.put("submitted", submitted);
+        stats.put("completed", completed);
+        stats.put("failed", failed);
+        stats.put("discarded", discarded);
+        stats.put("callerRuns", callerRuns);
+        long done = completed + failed;
+        stats.put("avgDwellMillis", done > 0 ? totalWaitNanos / done / 1_000_000.0 : 0.0);
+        stats.put("maxDwellMillis", maxWaitNanos / 1_000_000.0);
+        stats.put("unhandled", unhandledCount.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Registration registration : registrations.values()) {
+            if (registration.executor != null) {
+                logger.info("正在关闭事件处理器线程池 - 处理器: {}, 剩余待处理事件: {}",
+                        registration.handler.name(), registration.executor.getQueue().size());
+                registration.executor.shutdown();
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(asyncConfig.getShutdownTimeoutSeconds());
+        for (Registration registration : registrations.values()) {
+            if (registration.executor == null) {
+                continue;
+            }
+            try {
+                if (!registration.executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    logger.warn("事件处理器线程池未能在{}秒内处理完毕，强制关闭 - 处理器: {}",
+                            asyncConfig.getShutdownTimeoutSeconds(), registration.handler.name());
+                    registration.discardQueued();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                registration.discardQueued();
+            }
+        }
+    }
+
+    /**
+     * 处理器注册信息：处理器、专属线程池和指标
+     */
+    private static class Registration {
+
+        private final CallbackEventHandler handler;
+        private final ThreadPoolExecutor executor;
+        private final long createdAt = System.currentTimeMillis();
+
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong discarded = new AtomicLong();
+        private final AtomicLong callerRuns = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong totalHandleNanos = new AtomicLong();
+        private final AtomicLong maxHandleNanos = new AtomicLong();
+
+        /**
+         * @param async 是否使用线程池，否则在分发线程上直接执行
+         */
+        Registration(CallbackEventHandler handler, boolean async, int threads, int queueCapacity,
+                     CallbackAsyncConfig.RejectionPolicy policy) {
+            this.handler = handler;
+            if (!async) {
+                this.executor = null;
+                return;
+            }
+            AtomicInteger threadNumber = new AtomicInteger(1);
+            this.executor = new ThreadPoolExecutor(
+                    threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    r -> new Thread(r, "handler-" + handler.name() + "-" + threadNumber.getAndIncrement()),
+                    new PolicyRejectionHandler(policy));
+        }
+
+        void submit(CallbackEvent event, Runnable onDiscard) {
+            submitted.incrementAndGet();
+            HandlerTask task = new HandlerTask(event, onDiscard);
+            if (executor == null) {
+                task.run();
+                return;
+            }
+            executor.execute(task);
+        }
+
+        /**
+         * 强制关闭线程池，队列中未执行的事件按丢弃处理
+         */
+        void discardQueued() {
+            for (Runnable r : executor.shutdownNow()) {
+                ((HandlerTask) r).discarded("线程池已关闭");
+            }
+        }
+
+        private static void recordMax(AtomicLong max, long value) {
+            long current;
+            while (value > (current = max.get())) {
+                if (max.compareAndSet(current, value)) {
+                    break;
+                }
+            }
+        }
+
+        Map<String, Object> getStats() {
+            long done = completed.get() + failed.get();
+            double uptimeSeconds = Math.max(1, System.currentTimeMillis() - createdAt) / 1000.0;
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("handler", handler.name());
+            stats.put("threads", executor != null ? executor.getMaximumPoolSize() : 0);
+            stats.put("queueDepth", executor != null ? executor.getQueue().size() : 0);
+            stats.put("activeThreads", executor != null ? executor.getActiveCount() : 0);
+            stats.put("submitted", submitted.get());
+            stats.put("completed", completed.get());
+            stats.put("failed", failed.get());
+            stats.put("discarded", discarded.get());
+            stats.put("callerRuns", callerRuns.get());
+            stats.put("throughputPerSecond", done / uptimeSeconds);
+            stats.put("avgWaitMillis", done > 0 ? totalWaitNanos.get() / done / 1_000_000.0 : 0.0);
+            stats.put("maxWaitMillis", maxWaitNanos.get() / 1_000_000.0);
+            stats.put("avgHandleMillis", done > 0 ? totalHandleNanos.get() / done / 1_000_000.0 : 0.0);
+            stats.put("maxHandleMillis", maxHandleNanos.get() / 1_000_000.0);
+            return stats;
+        }
+
+        /**
+         * 带入队时间的处理任务
+         */
+        private class HandlerTask implements Runnable {
+
+            private final CallbackEvent event;
+            private final Runnable onDiscard;
+            private final long enqueueNanos = System.nanoTime();
+
+            HandlerTask(CallbackEvent event, Runnable onDiscard) {
+                this.event = event;
+                this.onDiscard = onDiscard;
+            }
+
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                long waitNanos = start - enqueueNanos;
+                totalWaitNanos.addAndGet(waitNanos);
+                recordMax(maxWaitNanos, waitNanos);
+                try {
+                    handler.handle(event);
+                    completed.incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    logger.error("事件处理器执行异常 - 处理器: {}", handler.name(), e);
+                    release();
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    totalHandleNanos.addAndGet(elapsed);
+                    recordMax(maxHandleNanos, elapsed);
+                }
+            }
+
+            /**
+             * 事件未执行即被丢弃
+             */
+            void discarded(String reason) {
+                discarded.incrementAndGet();
+                logger.warn("丢弃回调事件（{}） - 处理器: {}, 事件: {}, 变更类型: {}", reason, handler.name(),
+                        event.getEvent(), event.getChangeType());
+                release();
+            }
+
+            private void release() {
+                if (onDiscard == null) {
+                    return;
+                }
+                try {
+                    onDiscard.run();
+                } catch (Exception e) {
+                    logger.error("处理被丢弃的回调事件异常 - 处理器: {}", handler.name(), e);
+                }
+            }
+        }
+
+        /**
+         * 按配置的拒绝策略处理队列已满的情况
+         */
+        private class PolicyRejectionHandler implements RejectedExecutionHandler {
+
+            private final CallbackAsyncConfig.RejectionPolicy policy;
+
+            PolicyRejectionHandler(CallbackAsyncConfig.RejectionPolicy policy) {
+                this.policy = policy;
+            }
+
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor pool) {
+                if (pool.isShutdown()) {
+                    ((HandlerTask) r).discarded("线程池已关闭");
+                    return;
+                }
+                switch (policy) {
+                    case DISCARD:
+                        ((HandlerTask) r).discarded("队列已满，丢弃新事件");
+                        break;
+                    case DISCARD_OLDEST:
+                        Runnable oldest = pool.getQueue().poll();
+                        if (oldest != null) {
+                            ((HandlerTask) oldest).discarded("队列已满，丢弃最早的事件");
+                        }
+                        pool.execute(r);
+                        break;
+                    case CALLER_RUNS:
+                    default:
+                        // 由分发线程（请求线程）直接执行，对上游形成背压
+                        callerRuns.incrementAndGet();
+                        r.run();
+                        break;
+                }
+            }
+        }
+    }
+}
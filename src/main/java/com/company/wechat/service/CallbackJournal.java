@@ -0,0 +1,414 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.CallbackJournalConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * 回调事件日志（追加写、内存映射分段文件）
+ *
+ * 记录格式：[4字节负载长度][4字节CRC32][8字节接收时间毫秒][负载UTF-8字节]，长度为0表示段内数据结束。
+ * 偏移量为全局逻辑偏移：分段文件名即该段的起始偏移，记录偏移 = 段起始偏移 + 段内位置。
+ *
+ * 写入只是一次内存拷贝，由后台线程按固定间隔批量force()刷盘，可以放在回调请求线程上执行；
+ * 段写满后滚动到新文件，并按保留时间和数量清理旧段
+ *
+ * @author Company
+ */
+@Service
+public class CallbackJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallbackJournal.class);
+
+    private static final int HEADER_LENGTH = 16;
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    @Autowired
+    private CallbackJournalConfig journalConfig;
+
+    private File directory;
+    private long segmentSize;
+
+    /**
+     * 当前写入段及其映射
+     */
+    private long activeBaseOffset;
+    private FileChannel activeChannel;
+    private MappedByteBuffer activeBuffer;
+    private volatile boolean dirty;
+
+    private ScheduledExecutorService flusher;
+
+    private final AtomicLong appendedCount = new AtomicLong();
+    private final AtomicLong appendedBytes = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong rollCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!journalConfig.isEnabled()) {
+            return;
+        }
+        directory = new File(journalConfig.getDirectory());
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("无法创建回调日志目录: " + directory.getAbsolutePath());
+        }
+        segmentSize = journalConfig.getSegmentSizeMb() * 1024L * 1024L;
+
+        // 恢复最后一个段的写入位置，没有则从0开始
+        List<Long> segments = listSegments();
+        if (segments.isEmpty()) {
+            openSegment(0L, 0);
+        } else {
+            long lastBase = segments.get(segments.size() - 1);
+            openSegment(lastBase, -1);
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "callback-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, journalConfig.getFlushIntervalMillis(),
+                journalConfig.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+
+        logger.info("回调事件日志已开启 - 目录: {}, 当前写入偏移: {}",
+                directory.getAbsolutePath(), getWriteOffset());
+    }
+
+    /**
+     * 是否开启
+     */
+    public boolean isEnabled() {
+        return activeBuffer != null;
+    }
+
+    /**
+     * 追加一条回调事件
+     *
+     * @param xml 解密后的回调XML
+     * @return 记录的全局偏移量，未开启或写入失败返回-1
+     */
+    public long append(String xml) {
+        if (activeBuffer == null) {
+            return -1;
+        }
+        byte[] payload = xml.getBytes(StandardCharsets.UTF_8);
+        int recordLength = HEADER_LENGTH + payload.length;
+        if (recordLength + 4 > segmentSize) {
+            failedCount.incrementAndGet();
+            logger.warn("回调事件过大，无法写入日志: {}字节", payload.length);
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        int checksum = (int) crc.getValue();
+        long timestamp = System.currentTimeMillis();
+
+        synchronized (this) {
+            try {
+                // 预留4字节给段结束标记
+                if (activeBuffer.remaining() < recordLength + 4) {
+                    roll();
+                }
+                long offset = activeBaseOffset + activeBuffer.position();
+                activeBuffer.putInt(payload.length);
+                activeBuffer.putInt(checksum);
+                activeBuffer.putLong(timestamp);
+                activeBuffer.put(payload);
+                dirty = true;
+                appendedCount.incrementAndGet();
+                appendedBytes.addAndGet(recordLength);
+                return offset;
+            } catch (IOException e) {
+                failedCount.incrementAndGet();
+                logger.error("写入回调事件日志失败", e);
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * 按偏移量和时间范围读取日志记录
+     *
+     * @param fromOffset 起始偏移（含），为null表示从最早的记录开始
+     * @param toOffset 结束偏移（不含），为null表示读到末尾
+     * @param fromTime 起始接收时间毫秒（含），可为null
+     * @param toTime 结束接收时间毫秒（不含），可为null
+     * @param visitor 记录访问器，返回false时停止读取
+     */
+    public void read(Long fromOffset, Long toOffset, Long fromTime, Long toTime, RecordVisitor visitor) throws IOException {
+        if (activeBuffer == null) {
+            return;
+        }
+        // 在锁内同时取写入位置和段列表，保证两者一致（滚动和清理都在锁内进行）
+        long writeOffset;
+        List<Long> segments;
+        synchronized (this) {
+            writeOffset = getWriteOffset();
+            segments = listSegments();
+        }
+        long end = toOffset != null ? Math.min(toOffset, writeOffset) : writeOffset;
+        long start = fromOffset != null ? fromOffset : 0L;
+
+        for (int i = 0; i < segments.size(); i++) {
+            long base = segments.get(i);
+            long next = i + 1 < segments.size() ? segments.get(i + 1) : writeOffset;
+            if (next <= start || base >= end) {
+                continue;
+            }
+            if (!readSegment(base, Math.min(next, end) - base, start, fromTime, toTime, visitor)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 读取单个段
+     *
+     * @return 是否继续读取下一个段
+     */
+    private boolean readSegment(long base, long limit, long start, Long fromTime, Long toTime,
+                                RecordVisitor visitor) throws IOException {
+        RandomAccessFile file;
+        try {
+            file = new RandomAccessFile(segmentFile(base), "r");
+        } catch (FileNotFoundException e) {
+            // 读取期间该段已被保留策略清理
+            logger.warn("回调日志段已被清理，跳过 - 起始偏移: {}", base);
+            return true;
+        }
+        // 关闭通道时同时关闭文件
+        try (FileChannel channel = file.getChannel()) {
+            long size = Math.min(limit, channel.size());
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            while (buffer.remaining() >= HEADER_LENGTH) {
+                int position = buffer.position();
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining() - 12) {
+                    break;
+                }
+                int checksum = buffer.getInt();
+                long timestamp = buffer.getLong();
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+
+                long offset = base + position;
+                if (offset < start || (fromTime != null && timestamp < fromTime)
+                        || (toTime != null && timestamp >= toTime)) {
+                    continue;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    logger.warn("回调日志记录校验失败，跳过 - 偏移: {}", offset);
+                    continue;
+                }
+                if (!visitor.visit(offset, timestamp, new String(payload, StandardCharsets.UTF_8))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 当前写入位置的全局偏移量
+     */
+    public synchronized long getWriteOffset() {
+        return activeBuffer != null ? activeBaseOffset + activeBuffer.position() : 0L;
+    }
+
+    /**
+     * 批量刷盘
+     */
+    public void flush() {
+        MappedByteBuffer buffer;
+        synchronized (this) {
+            if (!dirty || activeBuffer == null) {
+                return;
+            }
+            dirty = false;
+            buffer = activeBuffer;
+        }
+        try {
+            buffer.force();
+            flushCount.incrementAndGet();
+        } catch (Exception e) {
+            dirty = true;
+            logger.error("回调事件日志刷盘失败", e);
+        }
+    }
+
+    /**
+     * 滚动到新的段文件
+     */
+    private void roll() throws IOException {
+        long nextBase = activeBaseOffset + activeBuffer.position();
+        // 写入段结束标记后刷盘并关闭当前段
+        activeBuffer.putInt(0);
+        activeBuffer.force();
+        activeChannel.close();
+
+        openSegment(nextBase, 0);
+        rollCount.incrementAndGet();
+        applyRetention();
+    }
+
+    /**
+     * 打开段文件并映射到内存
+     *
+     * @param base 段起始偏移
+     * @param position 写入位置，-1表示扫描已有记录确定写入位置
+     */
+    private void openSegment(long base, int position) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(segmentFile(base), "rw");
+        activeChannel = file.getChannel();
+        activeBuffer = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        activeBaseOffset = base;
+        activeBuffer.position(position >= 0 ? position : recoverPosition(activeBuffer));
+    }
+
+    /**
+     * 扫描段内已有记录，返回最后一条完整记录之后的位置
+     */
+    private int recoverPosition(MappedByteBuffer buffer) {
+        int position = 0;
+        while (position + HEADER_LENGTH <= buffer.capacity() - 4) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_LENGTH + length > buffer.capacity() - 4) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            for (int i = 0; i < length; i++) {
+                payload[i] = buffer.get(position + HEADER_LENGTH + i);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                // 宕机时写了一半的记录
+                break;
+            }
+            position += HEADER_LENGTH + length;
+        }
+        // 清除残留的半条记录，避免读取时误判
+        if (position + 4 <= buffer.capacity()) {
+            buffer.putInt(position, 0);
+        }
+        return position;
+    }
+
+    /**
+     * 按保留时间和数量清理旧段（不会删除当前写入段）
+     */
+    private void applyRetention() {
+        List<Long> segments = listSegments();
+        long expireBefore = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(journalConfig.getRetentionHours());
+        int removable = segments.size() - 1;
+        for (int i = 0; i < removable; i++) {
+            File file = segmentFile(segments.get(i));
+            boolean tooMany = segments.size() - i > journalConfig.getMaxSegments();
+            if (tooMany || file.lastModified() < expireBefore) {
+                if (file.delete()) {
+                    logger.info("清理过期的回调日志段: {}", file.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * 按起始偏移升序列出所有段
+     */
+    private List<Long> listSegments() {
+        List<Long> bases = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                try {
+                    bases.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.warn("忽略无法识别的日志文件: {}", name);
+                }
+            }
+        }
+        bases.sort(Long::compare);
+        return bases;
+    }
+
+    private File segmentFile(long base) {
+        return new File(directory, String.format("%020d%s", base, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * 获取日志指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("writeOffset", getWriteOffset());
+        stats.put("segments", isEnabled() ? listSegments().size() : 0);
+        stats.put("appended", appendedCount.get());
+        stats.put("appendedBytes", appendedBytes.get());
+        stats.put("flushes", flushCount.get());
+        stats.put("rolls", rollCount.get());
+        stats.put("failed", failedCount.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        synchronized (this) {
+            if (activeBuffer == null) {
+                return;
+            }
+            try {
+                activeBuffer.force();
+                activeChannel.close();
+            } catch (IOException e) {
+                logger.error("关闭回调事件日志失败", e);
+            }
+        }
+    }
+
+    /**
+     * 日志记录访问器
+     */
+    public interface RecordVisitor {
+
+        /**
+         * 访问一条记录
+         *
+         * @param offset 全局偏移
+         * @param timestamp 接收时间毫秒
+         * @param xml 回调XML
+         * @return 是否继续读取
+         */
+        boolean visit(long offset, long timestamp, String xml);
+    }
+}
@@ -0,0 +1,229 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.CallbackJournalConfig;
+import com.company.wechat.model.dto.CallbackEvent;
+import com.company.wechat.util.CallbackXmlParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 回调事件重放服务
+ * 从回调日志中按偏移量或时间范围读取事件，按限定速率重新交给事件处理器，
+ * 用于宕机后补处理或修复处理器缺陷后重跑。重放不经过去重；
+ * 重放的事件带有{@link CallbackEvent#isReplayed()}标记，处理器据此跳过给客户发送消息（欢迎语早已失效）
+ *
+ * @author Company
+ */
+@Service
+public class CallbackReplayService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallbackReplayService.class);
+
+    /**
+     * 最多保留的重放任务记录数
+     */
+    private static final int MAX_TASKS = 100;
+
+    @Autowired
+    private CallbackJournal journal;
+
+    @Autowired
+    private CallbackJournalConfig journalConfig;
+
+    @Autowired
+    private CallbackHandlerRegistry handlerRegistry;
+
+    private final ExecutorService replayExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "callback-replay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, ReplayTask> tasks = new ConcurrentHashMap<>();
+
+    /**
+     * 提交重放任务（重放任务串行执行）
+     *
+     * @param fromOffset 起始偏移（含），可为null
+     * @param toOffset 结束偏移（不含），可为null
+     * @param fromTime 起始接收时间毫秒（含），可为null
+     * @param toTime 结束接收时间毫秒（不含），可为null
+     * @param ratePerSecond 重放速率（条/秒），为空时使用配置的默认值
+     * @return 重放任务
+     */
+    public ReplayTask submit(Long fromOffset, Long toOffset, Long fromTime, Long toTime, Integer ratePerSecond) {
+        if (!journal.isEnabled()) {
+            throw new IllegalStateException("回调事件日志未开启");
+        }
+        int rate = ratePerSecond != null && ratePerSecond > 0 ? ratePerSecond : journalConfig.getReplayRatePerSecond();
+        ReplayTask task = new ReplayTask(UUID.randomUUID().toString().replace("-", ""),
+                fromOffset, toOffset, fromTime, toTime, rate);
+        evictFinishedTasks();
+        tasks.put(task.id, task);
+        replayExecutor.execute(() -> run(task));
+        logger.info("提交回调重放任务 - ID: {}, 偏移: [{}, {}), 时间: [{}, {}), 速率: {}/s",
+                task.id, fromOffset, toOffset, fromTime, toTime, rate);
+        return task;
+    }
+
+    /**
+     * 查询重放任务
+     */
+    public ReplayTask getTask(String id) {
+        return tasks.get(id);
+    }
+
+    /**
+     * 取消重放任务
+     */
+    public boolean cancel(String id) {
+        ReplayTask task = tasks.get(id);
+        if (task == null) {
+            return false;
+        }
+        task.cancelled = true;
+        return true;
+    }
+
+    /**
+     * 执行重放
+     */
+    private void run(ReplayTask task) {
+        task.status = task.cancelled ? "CANCELLED" : "RUNNING";
+        if (task.cancelled) {
+            return;
+        }
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / task.ratePerSecond;
+        long[] nextDue = {System.nanoTime()};
+        try {
+            journal.read(task.fromOffset, task.toOffset, task.fromTime, task.toTime, (offset, timestamp, xml) -> {
+                if (task.cancelled) {
+                    return false;
+                }
+                // 按固定间隔匀速重放，避免瞬间压垮企业微信API
+                long wait = nextDue[0] - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                nextDue[0] = Math.max(nextDue[0], System.nanoTime() - intervalNanos) + intervalNanos;
+
+                task.lastOffset = offset;
+                try {
+                    CallbackEvent event = CallbackXmlParser.parse(xml);
+                    event.setReplayed(true);
+                    if ("event".equals(event.getMsgType()) && handlerRegistry.dispatch(event)) {
+                        task.replayed.incrementAndGet();
+                    } else {
+                        task.skipped.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    task.failed.incrementAndGet();
+                    logger.warn("重放回调事件失败 - 偏移: {}", offset, e);
+                }
+                return true;
+            });
+            task.status = task.cancelled ? "CANCELLED" : "COMPLETED";
+        } catch (Exception e) {
+            task.status = "FAILED";
+            task.error = e.getMessage();
+            logger.error("回调重放任务失败 - ID: {}", task.id, e);
+        }
+        logger.info("回调重放任务结束 - ID: {}, 状态: {}, 重放: {}, 跳过: {}, 失败: {}",
+                task.id, task.status, task.replayed.get(), task.skipped.get(), task.failed.get());
+    }
+
+    /**
+     * 任务记录过多时清理已结束的任务
+     */
+    private void evictFinishedTasks() {
+        if (tasks.size() < MAX_TASKS) {
+            return;
+        }
+        List<String> finished = new ArrayList<>();
+        for (ReplayTask task : tasks.values()) {
+            if (!"PENDING".equals(task.status) && !"RUNNING".equals(task.status)) {
+                finished.add(task.id);
+            }
+        }
+        finished.forEach(tasks::remove);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        tasks.values().forEach(task -> task.cancelled = true);
+        replayExecutor.shutdownNow();
+    }
+
+    /**
+     * 重放任务
+     */
+    public static class ReplayTask {
+
+        private final String id;
+        private final Long fromOffset;
+        private final Long toOffset;
+        private final Long fromTime;
+        private final Long toTime;
+        private final int ratePerSecond;
+        private final long submitTime = System.currentTimeMillis();
+
+        private volatile String status = "PENDING";
+        private volatile boolean cancelled;
+        private volatile long lastOffset = -1;
+        private volatile String error;
+        private final AtomicLong replayed = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        ReplayTask(String id, Long fromOffset, Long toOffset, Long fromTime, Long toTime, int ratePerSecond) {
+            this.id = id;
+            this.fromOffset = fromOffset;
+            this.toOffset = toOffset;
+            this.fromTime = fromTime;
+            this.toTime = toTime;
+            this.ratePerSecond = ratePerSecond;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * 转换为接口返回的Map
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("taskId", id);
+            map.put("status", status);
+            map.put("fromOffset", fromOffset);
+            map.put("toOffset", toOffset);
+            map.put("fromTime", fromTime);
+            map.put("toTime", toTime);
+            map.put("ratePerSecond", ratePerSecond);
+            map.put("submitTime", submitTime);
+            map.put("lastOffset", lastOffset);
+            map.put("replayed", replayed.get());
+            map.put("skipped", skipped.get());
+            map.put("failed", failed.get());
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.company.wechat.service;
+
+import java.io.IOException;
+
+/**
+ * 接口处于熔断状态时抛出的异常
+ *
+ * @author Company
+ */
+public class CircuitOpenException extends IOException {
+
+    private final String api;
+
+    public CircuitOpenException(String api, long remainingMillis) {
+        super("接口 " + api + " 已熔断，" + remainingMillis + "毫秒后恢复试探");
+        this.api = api;
+    }
+
+    /**
+     * 熔断的接口名
+     */
+    public String getApi() {
+        return api;
+    }
+}
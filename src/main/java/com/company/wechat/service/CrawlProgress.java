@@ -0,0 +1,136 @@
+package com.company.wechat.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 部门客户列表获取进度
+ * 由工作线程并发更新，可在获取过程中随时读取
+ *
+ * @author Company
+ */
+public class CrawlProgress {
+
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong();
+
+    private final long id = ID_SEQUENCE.incrementAndGet();
+    private final int departmentId;
+    private final int staffTotal;
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicInteger staffDone = new AtomicInteger();
+    private final AtomicInteger staffFailed = new AtomicInteger();
+    private final AtomicInteger staffSkipped = new AtomicInteger();
+    private final AtomicInteger staffWithCustomers = new AtomicInteger();
+    private final AtomicInteger customersFound = new AtomicInteger();
+    private volatile int uniqueCustomers = -1;
+    private volatile long finishTime;
+
+    public CrawlProgress(int departmentId, int staffTotal) {
+        this.departmentId = departmentId;
+        this.staffTotal = staffTotal;
+    }
+
+    /**
+     * 一个员工的客户列表获取完成
+     *
+     * @param count 客户数量，-1表示获取失败
+     */
+    void staffDone(int count) {
+        if (count < 0) {
+            staffFailed.incrementAndGet();
+        } else if (count > 0) {
+            staffWithCustomers.incrementAndGet();
+        }
+        staffDone.incrementAndGet();
+    }
+
+    /**
+     * 接口持续熔断，员工未获取
+     */
+    void staffSkipped() {
+        staffSkipped.incrementAndGet();
+        staffDone.incrementAndGet();
+    }
+
+    /**
+     * 获取到一个客户（多个员工共有的客户按员工重复计数）
+     */
+    void customerFound() {
+        customersFound.incrementAndGet();
+    }
+
+    /**
+     * 去重后的客户数，构建客户目录后设置
+     */
+    void uniqueCustomers(int count) {
+        uniqueCustomers = count;
+    }
+
+    void finish() {
+        finishTime = System.currentTimeMillis();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getDepartmentId() {
+        return departmentId;
+    }
+
+    public int getStaffTotal() {
+        return staffTotal;
+    }
+
+    public int getStaffDone() {
+        return staffDone.get();
+    }
+
+    public int getStaffFailed() {
+        return staffFailed.get();
+    }
+
+    public int getStaffSkipped() {
+        return staffSkipped.get();
+    }
+
+    public int getStaffWithCustomers() {
+        return staffWithCustomers.get();
+    }
+
+    public int getCustomersFound() {
+        return customersFound.get();
+    }
+
+    /**
+     * 去重后的客户数，获取完成前为-1
+     */
+    public int getUniqueCustomers() {
+        return uniqueCustomers;
+    }
+
+    public boolean isFinished() {
+        return finishTime > 0;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", id);
+        map.put("departmentId", departmentId);
+        map.put("finished", isFinished());
+        map.put("staffTotal", staffTotal);
+        map.put("staffDone", staffDone.get());
+        map.put("staffFailed", staffFailed.get());
+        map.put("staffSkipped", staffSkipped.get());
+        map.put("staffWithCustomers", staffWithCustomers.get());
+        map.put("customersFound", customersFound.get());
+        if (uniqueCustomers >= 0) {
+            map.put("uniqueCustomers", uniqueCustomers);
+        }
+        long end = isFinished() ? finishTime : System.currentTimeMillis();
+        map.put("elapsedMillis", end - startTime);
+        return map;
+    }
+}
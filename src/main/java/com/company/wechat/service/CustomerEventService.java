@@ -1,19 +1,13 @@
 package com.company.wechat.service;
 
 import com.company.wechat.config.WechatWorkConfig;
-import com.company.wechat.model.dto.CustomerAddEvent;
+import com.company.wechat.model.dto.CallbackEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.ByteArrayInputStream;
 import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 
 /**
  * 客户事件处理服务
@@ -29,16 +23,16 @@ public class CustomerEventService {
     private WechatWorkConfig config;
 
     @Autowired
-    private WechatApiService wechatApiService;
+    private WelcomeMessageScheduler welcomeScheduler;
+
+    @Autowired
+    private WelcomeFallbackService fallbackService;
 
     /**
      * 处理客户添加事件
      */
-    public void handleCustomerAddEvent(String xmlContent) {
+    public void handleCustomerAddEvent(CallbackEvent event) {
         try {
-            // 解析XML获取客户信息
-            CustomerAddEvent event = parseCustomerAddEvent(xmlContent);
-
             if (event == null || event.getExternalUserId() == null) {
                 logger.warn("客户添加事件解析失败或缺少external_userid");
                 return;
@@ -47,35 +41,23 @@ public class CustomerEventService {
             logger.info("收到客户添加事件 - External UserID: {}, Staff UserID: {}, Welcome Code: {}",
                     event.getExternalUserId(), event.getUserId(), event.getWelcomeCode());
 
+            // 重放的事件：welcome_code早已失效，发送必然失败并转入补发，会再次给客户发消息
+            if (event.isReplayed()) {
+                logger.info("重放的客户添加事件，跳过欢迎语发送和补发 - External UserID: {}, 员工: {}",
+                        event.getExternalUserId(), event.getUserId());
+                return;
+            }
+
             // 生成带external_userid参数的H5链接
             String h5Link = buildH5Link(event.getExternalUserId());
 
             // 构建欢迎消息
             String welcomeMessage = buildWelcomeMessage(h5Link);
 
-            // 发送欢迎语给客户（仅使用welcome_code）
-            boolean success = false;
+            // 发送欢迎语给客户（仅使用welcome_code），交给调度器按截止时间优先发送
             if (event.getWelcomeCode() != null && !event.getWelcomeCode().isEmpty()) {
-                // 使用欢迎语API发送（这是唯一能主动发送给外部联系人的方式）
-                logger.info("尝试使用欢迎语API发送消息...");
-                success = wechatApiService.sendWelcomeMessage(event.getWelcomeCode(), welcomeMessage);
-                
-                if (success) {
-                    logger.info("✓ 成功发送H5链接给客户: {}", event.getExternalUserId());
-                } else {
-                    // 欢迎语API发送失败（通常是客户已发送消息，welcome_code失效）
-                    logger.warn("========================================");
-                    logger.warn("⚠️ 欢迎语发送失败（welcome_code已失效）");
-                    logger.warn("原因：客户已发送消息，或超过20秒有效期");
-                    logger.warn("解决方案：");
-                    logger.warn("  1. 客服在企业微信中手动发送以下链接：");
-                    logger.warn("     {}", h5Link);
-                    logger.warn("  2. 或等待客户主动发送消息后，在会话中回复");
-                    logger.warn("  客户信息：");
-                    logger.warn("    - External UserID: {}", event.getExternalUserId());
-                    logger.warn("    - 员工 UserID: {}", event.getUserId());
-                    logger.warn("========================================");
-                }
+                welcomeScheduler.schedule(event.getWelcomeCode(), event.getCreateTime(), welcomeMessage,
+                        outcome -> onWelcomeOutcome(event, h5Link, outcome));
             } else {
                 // 没有welcome_code，无法发送
                 logger.warn("========================================");
@@ -92,43 +74,34 @@ public class CustomerEventService {
     }
 
     /**
-     * 解析客户添加事件XML
+     * 欢迎语发送结果处理
      */
-    private CustomerAddEvent parseCustomerAddEvent(String xml) {
-        try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
-
-            Element root = document.getDocumentElement();
-
-            CustomerAddEvent event = new CustomerAddEvent();
-            event.setExternalUserId(getElementValue(root, "ExternalUserID"));
-            event.setUserId(getElementValue(root, "UserID"));
-            event.setState(getElementValue(root, "State"));
-            event.setWelcomeCode(getElementValue(root, "WelcomeCode"));
-
-            String createTimeStr = getElementValue(root, "CreateTime");
-            if (createTimeStr != null && !createTimeStr.isEmpty()) {
-                event.setCreateTime(Long.parseLong(createTimeStr));
-            }
-
-            return event;
-        } catch (Exception e) {
-            logger.error("解析客户添加事件XML失败", e);
-            return null;
+    private void onWelcomeOutcome(CallbackEvent event, String h5Link, WelcomeMessageScheduler.Outcome outcome) {
+        if (outcome == WelcomeMessageScheduler.Outcome.SENT) {
+            logger.info("✓ 成功发送H5链接给客户: {}", event.getExternalUserId());
+            return;
         }
-    }
 
-    /**
-     * 获取XML元素的值
-     */
-    private String getElementValue(Element parent, String tagName) {
-        try {
-            return parent.getElementsByTagName(tagName).item(0).getTextContent();
-        } catch (Exception e) {
-            return null;
+        // 交给补发服务，按员工合并后通过群发消息模板自动补发
+        if (fallbackService.enqueue(event.getUserId(), event.getExternalUserId())) {
+            logger.info("欢迎语未能发送（{}），已加入补发队列 - External UserID: {}, 员工: {}",
+                    outcome, event.getExternalUserId(), event.getUserId());
+            return;
         }
+
+        // 欢迎语未能发送（通常是客户已发送消息、超过20秒有效期或发送积压）
+        logger.warn("========================================");
+        logger.warn("⚠️ 欢迎语发送失败（{}）", outcome == WelcomeMessageScheduler.Outcome.FAILED
+                ? "welcome_code已失效" : "未能在20秒有效期内发送");
+        logger.warn("原因：客户已发送消息，或超过20秒有效期");
+        logger.warn("解决方案：");
+        logger.warn("  1. 客服在企业微信中手动发送以下链接：");
+        logger.warn("     {}", h5Link);
+        logger.warn("  2. 或等待客户主动发送消息后，在会话中回复");
+        logger.warn("  客户信息：");
+        logger.warn("    - External UserID: {}", event.getExternalUserId());
+        logger.warn("    - 员工 UserID: {}", event.getUserId());
+        logger.warn("========================================");
     }
 
     /**
@@ -0,0 +1,25 @@
+package com.company.wechat.service;
+
+import java.io.IOException;
+
+/**
+ * 有截止时间的调用在截止时间前无法完成时抛出的异常（如限流等待或重试退避会超过截止时间）
+ *
+ * @author Company
+ */
+public class DeadlineExceededException extends IOException {
+
+    private final String api;
+
+    public DeadlineExceededException(String api, String reason) {
+        super("接口 " + api + " 无法在截止时间前完成：" + reason);
+        this.api = api;
+    }
+
+    /**
+     * 接口名
+     */
+    public String getApi() {
+        return api;
+    }
+}
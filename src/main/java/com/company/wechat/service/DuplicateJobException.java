@@ -0,0 +1,23 @@
+package com.company.wechat.service;
+
+/**
+ * 提交的群发任务与正在执行或排队的任务相同时抛出的异常
+ *
+ * @author Company
+ */
+public class DuplicateJobException extends IllegalStateException {
+
+    private final BulkSendJob existing;
+
+    public DuplicateJobException(BulkSendJob existing) {
+        super("相同的群发任务正在执行: " + existing.getId());
+        this.existing = existing;
+    }
+
+    /**
+     * 正在执行或排队的相同任务
+     */
+    public BulkSendJob getExisting() {
+        return existing;
+    }
+}
@@ -1,19 +1,34 @@
 package com.company.wechat.service;
 
+import com.company.wechat.codec.WechatCodec;
+import com.company.wechat.config.CustomerCrawlConfig;
 import com.company.wechat.config.WechatWorkConfig;
+import com.company.wechat.model.dto.BatchMessageResponse;
 import com.company.wechat.model.dto.BatchSendRequest;
+import com.company.wechat.model.dto.GroupMsgResultRequest;
+import com.company.wechat.model.dto.GroupMsgResultResponse;
 import com.company.wechat.model.dto.PersonalizedMsgTemplateRequest;
-import com.company.wechat.model.vo.ExternalContactListResponse;
-import com.company.wechat.util.HttpUtil;
-import com.google.gson.Gson;
+import com.company.wechat.util.CompactCustomerDirectory;
+import com.company.wechat.util.JsonStreamDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * 存量客户服务
@@ -27,27 +42,92 @@ public class ExistingCustomerService {
     private static final Logger logger = LoggerFactory.getLogger(ExistingCustomerService.class);
 
     // 获取客户列表API
-    private static final String GET_EXTERNAL_CONTACT_LIST = "https://qyapi.weixin.qq.com/cgi-bin/externalcontact/list?access_token=%s&userid=%s";
+    private static final String GET_EXTERNAL_CONTACT_LIST = "/cgi-bin/externalcontact/list?access_token=%s&userid=%s";
     
     // 批量发送消息API（创建群发）
-    private static final String ADD_MSG_TEMPLATE_URL = "https://qyapi.weixin.qq.com/cgi-bin/externalcontact/add_msg_template?access_token=%s";
+    private static final String ADD_MSG_TEMPLATE_URL = "/cgi-bin/externalcontact/add_msg_template?access_token=%s";
+    
+    // 创建群发时external_userid列表的最大长度
+    private static final int MAX_EXTERNAL_USERIDS_PER_MSG = 10000;
+
+    // 分页查询群发结果时每页的最大数量
+    private static final int GROUP_MSG_RESULT_PAGE_SIZE = 1000;
     
     // 获取群发结果API
-    private static final String GET_GROUP_MSG_RESULT_URL = "https://qyapi.weixin.qq.com/cgi-bin/externalcontact/get_groupmsg_result?access_token=%s";
+    private static final String GET_GROUP_MSG_RESULT_URL = "/cgi-bin/externalcontact/get_groupmsg_result?access_token=%s";
     
     // 获取部门成员列表API
-    private static final String GET_DEPARTMENT_USER_LIST = "https://qyapi.weixin.qq.com/cgi-bin/user/simplelist?access_token=%s&department_id=%s";
+    private static final String GET_DEPARTMENT_USER_LIST = "/cgi-bin/user/simplelist?access_token=%s&department_id=%s";
     
     // 获取外部联系人详情API
-    private static final String GET_EXTERNAL_CONTACT_DETAIL = "https://qyapi.weixin.qq.com/cgi-bin/externalcontact/get?access_token=%s&external_userid=%s";
+    private static final String GET_EXTERNAL_CONTACT_DETAIL = "/cgi-bin/externalcontact/get?access_token=%s&external_userid=%s";
 
     @Autowired
     private WechatApiService wechatApiService;
 
+    @Autowired
+    private QyApiClient apiClient;
+
     @Autowired
     private WechatWorkConfig config;
 
-    private final Gson gson = new Gson();
+    @Autowired
+    private CustomerCrawlConfig crawlConfig;
+
+    @Autowired
+    private BulkSendJobService jobService;
+
+    @Autowired
+    private BulkSendCheckpointStore checkpointStore;
+
+    /**
+     * 并行获取客户列表的线程池，未启用并行时为null
+     */
+    private ExecutorService crawlExecutor;
+
+    private final Deque<CrawlProgress> recentCrawls = new ArrayDeque<>();
+
+    @PostConstruct
+    public void init() {
+        if (crawlConfig.isParallel() && crawlConfig.getThreads() > 1) {
+            AtomicInteger threadNumber = new AtomicInteger(1);
+            crawlExecutor = Executors.newFixedThreadPool(crawlConfig.getThreads(), r -> {
+                Thread thread = new Thread(r, "customer-crawl-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (crawlExecutor != null) {
+            crawlExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 应用启动后恢复有检查点的未完成企业全员客户群发任务（任务ID不变）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeCheckpointedJobs() {
+        for (BulkSendCheckpoint checkpoint : checkpointStore.listUnfinished()) {
+            int departmentId = Integer.parseInt(checkpoint.getParam("departmentId"));
+            String linkTitle = checkpoint.getParam("linkTitle");
+            String linkDesc = checkpoint.getParam("linkDesc");
+            String linkPicUrl = checkpoint.getParam("linkPicUrl");
+            try {
+                jobService.submit(checkpoint.getJobId(), checkpoint.getKey(), checkpoint.getDescription(),
+                        job -> sendPersonalizedH5LinksToAllCustomers(departmentId, linkTitle, linkDesc, linkPicUrl,
+                                job));
+                logger.info("恢复未完成的群发任务 - ID: {}, 已处理: {}/{}", checkpoint.getJobId(),
+                        checkpoint.getCursor(), checkpoint.hasTargets() ? checkpoint.getTotal() : "-");
+            } catch (IllegalStateException e) {
+                logger.warn("恢复群发任务失败 - ID: {}, {}", checkpoint.getJobId(), e.getMessage());
+            }
+        }
+    }
+
 
     /**
      * 获取员工的客户列表
@@ -56,30 +136,39 @@ public class ExistingCustomerService {
      * @return 客户external_userid列表
      */
     public List<String> getCustomerList(String staffUserId) {
+        Set<String> customers = new LinkedHashSet<>();
+        forEachCustomer(staffUserId, customers::add);
+        return customers.isEmpty() ? Collections.emptyList() : new ArrayList<>(customers);
+    }
+
+    /**
+     * 流式遍历员工的客户，每个external_userid回调一次
+     * 响应体不读成完整的字符串或对象树；请求失败重试时可能重复回调，consumer需要幂等
+     * 
+     * @param staffUserId 员工UserID
+     * @param consumer 客户external_userid回调
+     * @return 客户数量，获取失败时返回-1
+     */
+    public int forEachCustomer(String staffUserId, Consumer<String> consumer) {
         try {
-            String accessToken = wechatApiService.getAccessToken();
-            String url = String.format(GET_EXTERNAL_CONTACT_LIST, accessToken, staffUserId);
-            
             logger.debug("获取员工客户列表: staffUserId={}", staffUserId);
-            String response = HttpUtil.doGet(url);
-            
-            ExternalContactListResponse result = gson.fromJson(response, ExternalContactListResponse.class);
+            JsonStreamDecoder.Result result = apiClient.getList(GET_EXTERNAL_CONTACT_LIST, "external_userid",
+                    JsonStreamDecoder.strings(consumer), staffUserId);
             
-            if (result.getErrcode() == 0 && result.getExternalUserid() != null) {
-                logger.info("员工 {} 有 {} 个客户", staffUserId, result.getExternalUserid().size());
-                return result.getExternalUserid();
-            } else {
-                // 错误码84061表示该成员不是外部联系人配置成员，跳过即可
-                if (result.getErrcode() == 84061) {
-                    logger.debug("员工 {} 未配置客户联系功能（errcode=84061），跳过", staffUserId);
-                } else {
-                    logger.warn("获取员工 {} 客户列表失败: [{}] {}", staffUserId, result.getErrcode(), result.getErrmsg());
-                }
-                return Collections.emptyList();
+            if (result.getErrcode() == 0) {
+                logger.info("员工 {} 有 {} 个客户", staffUserId, result.getCount());
+                return result.getCount();
             }
+            // 错误码84061表示该成员不是外部联系人配置成员，跳过即可
+            if (result.getErrcode() == 84061) {
+                logger.debug("员工 {} 未配置客户联系功能（errcode=84061），跳过", staffUserId);
+                return 0;
+            }
+            logger.warn("获取员工 {} 客户列表失败: [{}] {}", staffUserId, result.getErrcode(), result.getErrmsg());
+            return -1;
         } catch (Exception e) {
             logger.error("获取员工 {} 客户列表异常: {}", staffUserId, e.getMessage());
-            return Collections.emptyList();
+            return -1;
         }
     }
 
@@ -93,9 +182,6 @@ public class ExistingCustomerService {
      */
     public String createBatchSendTask(String staffUserId, String content, List<String> tagList) {
         try {
-            String accessToken = wechatApiService.getAccessToken();
-            String url = String.format(ADD_MSG_TEMPLATE_URL, accessToken);
-
             // 构建请求
             BatchSendRequest request = BatchSendRequest.builder()
                     .chatType("single")
@@ -110,22 +196,18 @@ public class ExistingCustomerService {
                             .build())
                     .build();
 
-            String jsonRequest = gson.toJson(request);
+            String jsonRequest = WechatCodec.toJson(request);
             logger.info("创建群发任务: staffUserId={}, content={}", staffUserId, content);
 
-            String response = HttpUtil.doPostString(url, jsonRequest);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> resultMap = gson.fromJson(response, Map.class);
-            
-            Integer errcode = ((Number) resultMap.get("errcode")).intValue();
-            if (errcode == 0) {
-                // 提取msgid
-                String msgid = (String) resultMap.get("msgid");
+            String response = apiClient.post(ADD_MSG_TEMPLATE_URL, jsonRequest);
+            BatchMessageResponse result = WechatCodec.fromJson(response, BatchMessageResponse.class);
+
+            if (result.isSuccess()) {
+                String msgid = result.getMsgId();
                 logger.info("创建群发任务成功，msgid={}", msgid);
                 return msgid;
             } else {
-                String errmsg = (String) resultMap.get("errmsg");
-                logger.error("创建群发任务失败: {}", errmsg);
+                logger.error("创建群发任务失败: {}", result.getErrMsg());
                 return null;
             }
         } catch (Exception e) {
@@ -165,23 +247,34 @@ public class ExistingCustomerService {
      * @param msgid 群发任务ID
      * @return 群发结果统计
      */
-    public Map<String, Object> getGroupMsgResult(String msgid) {
-        try {
-            String accessToken = wechatApiService.getAccessToken();
-            String url = String.format(GET_GROUP_MSG_RESULT_URL, accessToken);
+    public GroupMsgResultResponse getGroupMsgResult(String msgid) {
+        return getGroupMsgResult(msgid, 0, null);
+    }
 
-            Map<String, Object> request = new HashMap<>();
-            request.put("msgid", msgid);
+    /**
+     * 分页查询群发结果
+     *
+     * @param msgid 群发任务ID
+     * @param limit 每页数量，为0时使用接口默认值
+     * @param cursor 分页游标，为null表示第一页
+     * @return 群发结果，失败返回null
+     */
+    private GroupMsgResultResponse getGroupMsgResult(String msgid, int limit, String cursor) {
+        try {
+            GroupMsgResultRequest request = GroupMsgResultRequest.builder()
+                    .msgid(msgid)
+                    .limit(limit)
+                    .cursor(cursor)
+                    .build();
 
-            String response = HttpUtil.doPostJson(url, request);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> result = gson.fromJson(response, Map.class);
+            String response = apiClient.postJson(GET_GROUP_MSG_RESULT_URL, request);
+            GroupMsgResultResponse result = WechatCodec.fromJson(response, GroupMsgResultResponse.class);
 
-            if (result.get("errcode") != null && ((Number) result.get("errcode")).intValue() == 0) {
-                logger.info("群发结果: {}", result);
+            if (result.isSuccess()) {
+                logger.debug("群发结果: {}", result);
                 return result;
             } else {
-                logger.error("查询群发结果失败: {}", result.get("errmsg"));
+                logger.error("查询群发结果失败: {}", result.getErrmsg());
                 return null;
             }
         } catch (Exception e) {
@@ -208,19 +301,42 @@ public class ExistingCustomerService {
      * @param staffUserId 员工UserID
      */
     public void sendPersonalizedLinksOneByOne(String staffUserId) {
+        sendPersonalizedLinksOneByOne(staffUserId, BulkSendJob.untracked());
+    }
+
+    /**
+     * 逐个发送个性化链接（后台任务）
+     * 
+     * @param staffUserId 员工UserID
+     * @param job 群发任务（进度、暂停和取消）
+     * @return 发送结果统计
+     */
+    public Map<String, Object> sendPersonalizedLinksOneByOne(String staffUserId, BulkSendJob job) {
+        job.setPhase("获取客户列表");
         List<String> customerIds = getCustomerList(staffUserId);
         
+        Map<String, Object> result = new HashMap<>();
         if (customerIds.isEmpty()) {
             logger.warn("没有找到客户");
-            return;
+            result.put("success", false);
+            result.put("message", "没有找到客户");
+            return result;
         }
         
         logger.info("开始逐个发送，共{}个客户", customerIds.size());
+        job.setPhase("发送");
+        job.setTotal(customerIds.size());
         
         int successCount = 0;
         int failCount = 0;
+        int pendingCount = 0;
         
         for (String externalUserId : customerIds) {
+            if (!job.awaitRunnable()) {
+                pendingCount++;
+                job.pending();
+                continue;
+            }
             try {
                 // 生成带external_id的个性化链接
                 String h5Link = buildPersonalizedLink(externalUserId);
@@ -231,24 +347,27 @@ public class ExistingCustomerService {
                 
                 if (success) {
                     successCount++;
+                    job.sent();
                 } else {
                     failCount++;
+                    job.failed();
                 }
-                
-                // 避免频率限制，添加延迟
-                Thread.sleep(200); // 200ms延迟
-                
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.error("发送被中断");
-                break;
             } catch (Exception e) {
                 logger.error("发送消息失败: external_userid={}", externalUserId, e);
                 failCount++;
+                job.failed();
             }
         }
         
-        logger.info("发送完成，成功: {}, 失败: {}", successCount, failCount);
+        logger.info("发送完成，成功: {}, 失败: {}, 因任务取消未发送: {}", successCount, failCount, pendingCount);
+        result.put("success", failCount == 0 && pendingCount == 0);
+        result.put("total", customerIds.size());
+        result.put("successCount", successCount);
+        result.put("failCount", failCount);
+        result.put("pendingCount", pendingCount);
+        result.put("message", String.format("发送完成，成功%d个，失败%d个，因任务取消未发送%d个",
+                successCount, failCount, pendingCount));
+        return result;
     }
 
     /**
@@ -290,7 +409,25 @@ public class ExistingCustomerService {
             String linkTitle,
             String linkDesc,
             String linkPicUrl) {
+        return sendPersonalizedH5Links(staffUserId, externalUserIds, linkTitle, linkDesc, linkPicUrl,
+                BulkSendJob.untracked());
+    }
+
+    /**
+     * 针对不同用户单发个性化H5链接（后台任务）
+     * 
+     * @param job 群发任务（进度、暂停和取消），其余参数同上
+     * @return 发送结果统计
+     */
+    public Map<String, Object> sendPersonalizedH5Links(
+            String staffUserId, 
+            List<String> externalUserIds,
+            String linkTitle,
+            String linkDesc,
+            String linkPicUrl,
+            BulkSendJob job) {
         
+        job.setPhase("获取客户列表");
         // 如果未指定客户列表，则获取该员工的所有客户
         List<String> targetCustomers = (externalUserIds != null && !externalUserIds.isEmpty()) 
                 ? externalUserIds 
@@ -305,23 +442,32 @@ public class ExistingCustomerService {
         }
         
         logger.info("开始针对{}个客户发送个性化H5链接", targetCustomers.size());
+        job.setPhase("发送");
+        job.setTotal(targetCustomers.size());
         
         int successCount = 0;
         int failCount = 0;
         List<String> successList = new ArrayList<>();
         List<String> failList = new ArrayList<>();
         List<String> msgidList = new ArrayList<>();
+        List<String> pendingList = new ArrayList<>();
         
         // 针对每个客户单独调用群发接口
         for (String externalUserId : targetCustomers) {
+            // 任务暂停时等待、取消后剩余客户不再发送；群发接口熔断时暂停，超过最长暂停时间后剩余客户不再尝试
+            if (!pendingList.isEmpty() || !job.awaitRunnable() || !awaitAvailable(ADD_MSG_TEMPLATE_URL)) {
+                pendingList.add(externalUserId);
+                job.pending();
+                continue;
+            }
             try {
                 // 生成带external_userid的个性化链接
                 String personalizedUrl = buildPersonalizedLink(externalUserId);
                 
                 // 调用群发接口
-                String msgid = sendMsgTemplateToSingleUser(
+                String msgid = sendMsgTemplate(
                         staffUserId, 
-                        externalUserId, 
+                        Collections.singletonList(externalUserId), 
                         linkTitle, 
                         linkDesc, 
                         linkPicUrl, 
@@ -329,69 +475,79 @@ public class ExistingCustomerService {
                 
                 if (msgid != null) {
                     successCount++;
+                    job.sent();
                     successList.add(externalUserId);
                     msgidList.add(msgid);
                     logger.info("发送成功: external_userid={}, msgid={}", externalUserId, msgid);
                 } else {
                     failCount++;
+                    job.failed();
                     failList.add(externalUserId);
                     logger.warn("发送失败: external_userid={}", externalUserId);
                 }
-                
-                // 避免频率限制，添加延迟（企业微信接口有频率限制）
-                Thread.sleep(100); // 100ms延迟
-                
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.error("发送被中断");
-                break;
             } catch (Exception e) {
                 logger.error("发送消息失败: external_userid={}", externalUserId, e);
                 failCount++;
+                job.failed();
                 failList.add(externalUserId);
             }
         }
         
-        logger.info("个性化群发完成，总数: {}, 成功: {}, 失败: {}", 
-                targetCustomers.size(), successCount, failCount);
+        logger.info("个性化群发完成，总数: {}, 成功: {}, 失败: {}, 未发送: {}", 
+                targetCustomers.size(), successCount, failCount, pendingList.size());
         
         // 返回结果
         Map<String, Object> result = new HashMap<>();
-        result.put("success", failCount == 0);
+        result.put("success", failCount == 0 && pendingList.isEmpty());
         result.put("total", targetCustomers.size());
         result.put("successCount", successCount);
         result.put("failCount", failCount);
         result.put("successList", successList);
         result.put("failList", failList);
+        result.put("pendingList", pendingList);
         result.put("msgidList", msgidList);
-        result.put("message", String.format("发送完成，成功%d个，失败%d个", successCount, failCount));
+        result.put("cancelled", job.isCancelled());
+        result.put("message", String.format("发送完成，成功%d个，失败%d个，因%s未发送%d个",
+                successCount, failCount, job.isCancelled() ? "任务取消" : "接口熔断", pendingList.size()));
         
         return result;
     }
 
     /**
-     * 向单个用户发送群发消息模板
+     * 接口熔断时暂停批量任务，等待熔断结束
+     *
+     * @return 是否可以继续调用（等待超时或被中断时返回false）
+     */
+    private boolean awaitAvailable(String urlTemplate) {
+        try {
+            return apiClient.awaitAvailable(urlTemplate);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 发送群发消息模板（链接消息）
+     * 同一员工的多个客户可以合并到一次调用，共用同一个链接
      * 
      * @param staffUserId 员工UserID
-     * @param externalUserId 客户的external_userid
+     * @param externalUserIds 客户的external_userid列表
      * @param linkTitle 链接标题
      * @param linkDesc 链接描述
      * @param linkPicUrl 链接封面图片URL
      * @param linkUrl 链接URL
      * @return 群发消息ID（msgid），失败返回null
      */
-    private String sendMsgTemplateToSingleUser(
+    public String sendMsgTemplate(
             String staffUserId,
-            String externalUserId,
+            List<String> externalUserIds,
             String linkTitle,
             String linkDesc,
             String linkPicUrl,
             String linkUrl) {
         
         try {
-            String accessToken = wechatApiService.getAccessToken();
-            String url = String.format(ADD_MSG_TEMPLATE_URL, accessToken);
-            
             // 构建链接附件
             PersonalizedMsgTemplateRequest.LinkAttachment link = 
                     PersonalizedMsgTemplateRequest.LinkAttachment.builder()
@@ -411,30 +567,26 @@ public class ExistingCustomerService {
             // 构建请求
             PersonalizedMsgTemplateRequest request = PersonalizedMsgTemplateRequest.builder()
                     .chatType("single")
-                    .externalUserid(Collections.singletonList(externalUserId))
+                    .externalUserid(externalUserIds)
                     .sender(staffUserId)
                     .attachments(Collections.singletonList(attachment))
                     .build();
             
-            String jsonRequest = gson.toJson(request);
+            String jsonRequest = WechatCodec.toJson(request);
             logger.debug("发送群发消息请求: {}", jsonRequest);
             
-            String response = HttpUtil.doPostString(url, jsonRequest);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> resultMap = gson.fromJson(response, Map.class);
-            
-            Integer errcode = ((Number) resultMap.get("errcode")).intValue();
-            if (errcode == 0) {
-                String msgid = (String) resultMap.get("msgid");
-                return msgid;
+            String response = apiClient.post(ADD_MSG_TEMPLATE_URL, jsonRequest);
+            BatchMessageResponse result = WechatCodec.fromJson(response, BatchMessageResponse.class);
+
+            if (result.isSuccess()) {
+                return result.getMsgId();
             } else {
-                String errmsg = (String) resultMap.get("errmsg");
-                logger.error("发送群发消息失败: external_userid={}, errcode={}, errmsg={}", 
-                        externalUserId, errcode, errmsg);
+                logger.error("发送群发消息失败: external_userid={}, errcode={}, errmsg={}",
+                        externalUserIds, result.getErrCode(), result.getErrMsg());
                 return null;
             }
         } catch (Exception e) {
-            logger.error("发送群发消息异常: external_userid={}", externalUserId, e);
+            logger.error("发送群发消息异常: external_userid={}", externalUserIds, e);
             return null;
         }
     }
@@ -471,39 +623,25 @@ public class ExistingCustomerService {
      */
     public List<String> getDepartmentUserList(int departmentId) {
         try {
-            String accessToken = wechatApiService.getAccessToken();
-            String url = String.format(GET_DEPARTMENT_USER_LIST, accessToken, departmentId);
-            
             logger.info("获取部门成员列表: departmentId={}", departmentId);
-            String response = HttpUtil.doGet(url);
-            
-            @SuppressWarnings("unchecked")
-            Map<String, Object> result = gson.fromJson(response, Map.class);
-            
-            Integer errcode = ((Number) result.get("errcode")).intValue();
-            if (errcode == 0) {
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> userlist = (List<Map<String, Object>>) result.get("userlist");
-                
-                if (userlist != null && !userlist.isEmpty()) {
-                    List<String> userIds = new ArrayList<>();
-                    for (Map<String, Object> user : userlist) {
-                        String userId = (String) user.get("userid");
-                        if (userId != null && !userId.isEmpty()) {
+            Set<String> userIds = new LinkedHashSet<>();
+            JsonStreamDecoder.Result result = apiClient.getList(GET_DEPARTMENT_USER_LIST, "userlist",
+                    JsonStreamDecoder.stringField("userid", userId -> {
+                        if (!userId.isEmpty()) {
                             userIds.add(userId);
                         }
-                    }
-                    logger.info("获取到{}个部门成员", userIds.size());
-                    return userIds;
-                } else {
-                    logger.warn("部门成员列表为空");
-                    return Collections.emptyList();
-                }
-            } else {
-                String errmsg = (String) result.get("errmsg");
-                logger.error("获取部门成员列表失败: {}", errmsg);
+                    }), departmentId);
+            
+            if (result.getErrcode() != 0) {
+                logger.error("获取部门成员列表失败: {}", result.getErrmsg());
+                return Collections.emptyList();
+            }
+            if (userIds.isEmpty()) {
+                logger.warn("部门成员列表为空");
                 return Collections.emptyList();
             }
+            logger.info("获取到{}个部门成员", userIds.size());
+            return new ArrayList<>(userIds);
         } catch (Exception e) {
             logger.error("获取部门成员列表异常", e);
             return Collections.emptyList();
@@ -512,54 +650,130 @@ public class ExistingCustomerService {
 
     /**
      * 获取企业所有员工下的所有客户（去重）
+     * 按配置并行获取各员工的客户列表，同一客户被多个员工添加时，对应部门成员列表中排在最前面的员工，
+     * 与逐个员工获取的结果一致
      * 
      * @param departmentId 部门ID，1表示根部门（整个企业）
-     * @return 去重后的客户external_userid列表和对应的第一个添加该客户的员工映射
+     * @return 去重后的客户external_userid和对应的第一个添加该客户的员工映射（客户目录的只读视图）
      */
     public Map<String, String> getAllCustomersInDepartment(int departmentId) {
+        return getCustomerDirectory(departmentId).asMap();
+    }
+
+    /**
+     * 获取部门下所有员工的所有客户（去重），以紧凑目录返回
+     * 客户ID存放在排序后的字节数组中，员工ID编为字典下标，百万级客户时内存占用约为HashMap的三分之一
+     * 
+     * @param departmentId 部门ID，1表示根部门（整个企业）
+     * @return 客户目录，同一客户归属成员列表中最靠前的员工
+     */
+    public CompactCustomerDirectory getCustomerDirectory(int departmentId) {
         // 获取部门所有员工
         List<String> staffUserIds = getDepartmentUserList(departmentId);
         
         if (staffUserIds.isEmpty()) {
             logger.warn("没有找到部门成员");
-            return Collections.emptyMap();
+            return CompactCustomerDirectory.builder(Collections.emptyList()).build();
         }
         
-        logger.info("开始获取{}个员工的客户列表...", staffUserIds.size());
-        
-        // 使用Map存储客户ID和第一个添加该客户的员工ID（用于发送消息）
-        Map<String, String> customerToStaffMap = new HashMap<>();
-        int staffWithCustomers = 0;
+        CrawlProgress progress = new CrawlProgress(departmentId, staffUserIds.size());
+        recordCrawl(progress);
+        boolean parallel = crawlExecutor != null && staffUserIds.size() > 1;
+        logger.info("开始{}获取{}个员工的客户列表...", parallel ? "并行" : "", staffUserIds.size());
         
-        for (String staffUserId : staffUserIds) {
-            try {
-                List<String> customers = getCustomerList(staffUserId);
-                
-                if (!customers.isEmpty()) {
-                    staffWithCustomers++;
-                    for (String externalUserId : customers) {
-                        // 如果客户尚未添加到映射中，记录该客户和员工的关系
-                        if (!customerToStaffMap.containsKey(externalUserId)) {
-                            customerToStaffMap.put(externalUserId, staffUserId);
-                        }
-                    }
-                }
-                
-                // 避免频率限制
-                Thread.sleep(50);
-                
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.error("获取客户列表被中断");
-                break;
-            } catch (Exception e) {
-                logger.error("获取员工 {} 客户列表失败: {}", staffUserId, e.getMessage());
+        // 客户ID按获取顺序追加，构建时排序去重，同一客户保留员工下标最小的记录
+        CompactCustomerDirectory.Builder builder = CompactCustomerDirectory.builder(staffUserIds);
+        AtomicBoolean breakerOpen = new AtomicBoolean();
+        List<Runnable> tasks = new ArrayList<>(staffUserIds.size());
+        for (int i = 0; i < staffUserIds.size(); i++) {
+            int index = i;
+            tasks.add(() -> crawlStaff(staffUserIds.get(index), index, builder, breakerOpen, progress));
+        }
+        CompactCustomerDirectory directory;
+        try {
+            if (parallel) {
+                runAll(tasks);
+            } else {
+                tasks.forEach(Runnable::run);
             }
+            directory = builder.build();
+            progress.uniqueCustomers(directory.size());
+        } finally {
+            progress.finish();
         }
         
-        logger.info("统计：共{}个员工，{}个有客户，去重后共{}个客户", 
-                staffUserIds.size(), staffWithCustomers, customerToStaffMap.size());
-        return customerToStaffMap;
+        logger.info("统计：共{}个员工，{}个有客户，去重后共{}个客户，目录占用约{}KB", 
+                staffUserIds.size(), progress.getStaffWithCustomers(), directory.size(),
+                directory.getFootprintBytes() / 1024);
+        return directory;
+    }
+
+    /**
+     * 获取一个员工的客户列表，追加到客户目录构建器中
+     */
+    private void crawlStaff(String staffUserId, int index, CompactCustomerDirectory.Builder builder,
+                            AtomicBoolean breakerOpen, CrawlProgress progress) {
+        if (breakerOpen.get() || !awaitAvailable(GET_EXTERNAL_CONTACT_LIST)) {
+            if (breakerOpen.compareAndSet(false, true)) {
+                logger.error("获取客户列表接口持续熔断，停止获取剩余员工的客户列表");
+            }
+            progress.staffSkipped();
+            return;
+        }
+        // 流式读取客户列表；请求重试时可能重复回调，构建目录时去重
+        int count = forEachCustomer(staffUserId, externalUserId -> {
+            builder.add(externalUserId, index);
+            progress.customerFound();
+        });
+        progress.staffDone(count);
+    }
+
+    /**
+     * 在获取线程池上执行所有任务并等待完成，等待被中断时取消未开始的任务
+     */
+    private void runAll(List<Runnable> tasks) {
+        List<Future<?>> futures = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            futures.add(crawlExecutor.submit(task));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            logger.warn("获取客户列表被中断");
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            logger.error("获取客户列表异常", e.getCause());
+        }
+    }
+
+    private void recordCrawl(CrawlProgress progress) {
+        synchronized (recentCrawls) {
+            recentCrawls.addFirst(progress);
+            while (recentCrawls.size() > Math.max(1, crawlConfig.getHistorySize())) {
+                recentCrawls.removeLast();
+            }
+        }
+    }
+
+    /**
+     * 客户列表获取进度（进行中和最近完成的获取，最新的在前）
+     */
+    public Map<String, Object> getCrawlStats() {
+        List<Map<String, Object>> crawls = new ArrayList<>();
+        synchronized (recentCrawls) {
+            for (CrawlProgress progress : recentCrawls) {
+                crawls.add(progress.toMap());
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("parallel", crawlExecutor != null);
+        stats.put("threads", crawlExecutor != null ? crawlConfig.getThreads() : 1);
+        stats.put("crawls", crawls);
+        return stats;
     }
 
     /**
@@ -576,87 +790,349 @@ public class ExistingCustomerService {
             String linkTitle,
             String linkDesc,
             String linkPicUrl) {
+        return sendPersonalizedH5LinksToAllCustomers(departmentId, linkTitle, linkDesc, linkPicUrl,
+                BulkSendJob.untracked());
+    }
+
+    /**
+     * 向企业所有员工下的所有客户发送个性化H5链接（后台任务）
+     * 
+     * @param job 群发任务（进度、暂停和取消），其余参数同上
+     * @return 发送结果统计
+     */
+    public Map<String, Object> sendPersonalizedH5LinksToAllCustomers(
+            int departmentId,
+            String linkTitle,
+            String linkDesc,
+            String linkPicUrl,
+            BulkSendJob job) {
         
         logger.info("开始向企业所有客户发送个性化H5链接，部门ID: {}", departmentId);
         
-        // 获取所有客户（去重）
-        Map<String, String> customerToStaffMap = getAllCustomersInDepartment(departmentId);
+        // 开启检查点时保存目标客户快照和发送进度，重启后从检查点继续
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("departmentId", String.valueOf(departmentId));
+        params.put("linkTitle", linkTitle);
+        params.put("linkDesc", linkDesc);
+        params.put("linkPicUrl", linkPicUrl);
+        BulkSendCheckpoint checkpoint = checkpointStore.open(job, params);
+        
+        Map<String, String> customerToStaffMap = Collections.emptyMap();
+        int total;
+        if (checkpoint != null && checkpoint.hasTargets()) {
+            total = checkpoint.getTotal();
+            logger.info("从检查点恢复企业全员客户群发 - 任务: {}, 已处理: {}/{}", job.getId(), checkpoint.getCursor(), total);
+        } else {
+            // 获取所有客户（去重）
+            job.setPhase("获取客户列表");
+            customerToStaffMap = getAllCustomersInDepartment(departmentId);
+            
+            if (job.isShutdown()) {
+                // 应用关闭时客户列表可能不完整，不保存快照，重启后重新获取
+                Map<String, Object> result = new HashMap<>();
+                result.put("success", false);
+                result.put("message", "应用关闭，任务将在重启后继续");
+                return result;
+            }
+            if (customerToStaffMap.isEmpty()) {
+                logger.warn("没有找到需要发送的客户");
+                if (checkpoint != null) {
+                    checkpoint.finish();
+                }
+                Map<String, Object> result = new HashMap<>();
+                result.put("success", false);
+                result.put("message", "没有找到需要发送的客户");
+                return result;
+            }
+            total = customerToStaffMap.size();
+            if (checkpoint != null) {
+                checkpoint.saveTargets(customerToStaffMap);
+            }
+        }
+        
+        logger.info("开始针对{}个客户发送个性化H5链接", total);
+        job.setPhase("发送");
+        job.setTotal(total);
+        
+        int successCount = checkpoint != null ? checkpoint.getSent() : 0;
+        int failCount = checkpoint != null ? checkpoint.getFailed() : 0;
+        job.restore(successCount, failCount);
+        List<String> successList = new ArrayList<>();
+        List<String> failList = new ArrayList<>();
+        List<String> msgidList = new ArrayList<>();
+        List<String> pendingList = new ArrayList<>();
+        if (checkpoint != null) {
+            // 重启前已发送部分的群发消息ID，送达情况查询覆盖整个任务
+            msgidList.addAll(checkpoint.getMsgids());
+        }
+        
+        // 有检查点时从快照中的游标位置读取，已处理的客户不再发送
+        Iterator<Map.Entry<String, String>> targets = checkpoint != null
+                ? checkpoint.targets() : customerToStaffMap.entrySet().iterator();
+        try {
+            // 针对每个客户单独调用群发接口
+            while (targets.hasNext()) {
+                Map.Entry<String, String> entry = targets.next();
+                String externalUserId = entry.getKey();
+                String staffUserId = entry.getValue();
+                
+                // 应用关闭：剩余客户留给重启后恢复的任务
+                if (job.isShutdown()) {
+                    break;
+                }
+                // 任务暂停时等待、取消后剩余客户不再发送；群发接口熔断时暂停，超过最长暂停时间后剩余客户不再尝试
+                if (!pendingList.isEmpty() || !job.awaitRunnable() || !awaitAvailable(ADD_MSG_TEMPLATE_URL)) {
+                    if (job.isShutdown()) {
+                        break;
+                    }
+                    pendingList.add(externalUserId);
+                    job.pending();
+                    continue;
+                }
+                boolean sent = false;
+                String msgid = null;
+                try {
+                    // 生成带external_userid的个性化链接
+                    String personalizedUrl = buildPersonalizedLink(externalUserId);
+                    
+                    // 调用群发接口
+                    msgid = sendMsgTemplate(
+                            staffUserId, 
+                            Collections.singletonList(externalUserId), 
+                            linkTitle, 
+                            linkDesc, 
+                            linkPicUrl, 
+                            personalizedUrl);
+                    
+                    if (msgid != null) {
+                        sent = true;
+                        successCount++;
+                        job.sent();
+                        successList.add(externalUserId);
+                        msgidList.add(msgid);
+                        logger.info("发送成功 [{}/{}]: external_userid={}, staff={}, msgid={}", 
+                                successCount, total, externalUserId, staffUserId, msgid);
+                    } else {
+                        failCount++;
+                        job.failed();
+                        failList.add(externalUserId);
+                        logger.warn("发送失败: external_userid={}, staff={}", externalUserId, staffUserId);
+                    }
+                } catch (Exception e) {
+                    logger.error("发送消息失败: external_userid={}, staff={}", externalUserId, staffUserId, e);
+                    failCount++;
+                    job.failed();
+                    failList.add(externalUserId);
+                }
+                if (checkpoint != null) {
+                    checkpoint.record(sent, msgid);
+                }
+            }
+        } finally {
+            if (checkpoint != null) {
+                checkpoint.close();
+            }
+        }
+        if (checkpoint != null && !job.isShutdown()) {
+            checkpoint.finish();
+        }
+        
+        logger.info("企业全员客户个性化群发完成，总数: {}, 成功: {}, 失败: {}, 未发送: {}", 
+                total, successCount, failCount, pendingList.size());
+        
+        // 返回结果
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", failCount == 0 && pendingList.isEmpty());
+        result.put("total", total);
+        result.put("successCount", successCount);
+        result.put("failCount", failCount);
+        result.put("successList", successList);
+        result.put("failList", failList);
+        result.put("pendingList", pendingList);
+        result.put("msgidList", msgidList);
+        result.put("cancelled", job.isCancelled());
+        result.put("message", String.format("企业全员客户群发完成，成功%d个，失败%d个，因%s未发送%d个",
+                successCount, failCount, job.isCancelled() ? "任务取消" : "接口熔断", pendingList.size()));
+        
+        return result;
+    }
+
+    /**
+     * 企业全员客户共享链接群发（后台任务）
+     * 所有客户收到同一个链接，客户身份由H5页面的OAuth授权识别，不需要在链接中携带external_userid；
+     * 每个员工只调用一次群发接口（客户超过接口上限时按上限分批），调用次数从客户数降到员工数
+     *
+     * @param departmentId 部门ID，1表示根部门（整个企业）
+     * @param linkTitle 链接标题
+     * @param linkDesc 链接描述
+     * @param linkPicUrl 链接封面图片URL
+     * @param job 群发任务（进度、暂停和取消）
+     * @return 发送结果统计，msgidList可用于查询每个客户的送达情况
+     */
+    public Map<String, Object> sendSharedH5LinkToAllCustomers(
+            int departmentId,
+            String linkTitle,
+            String linkDesc,
+            String linkPicUrl,
+            BulkSendJob job) {
         
-        if (customerToStaffMap.isEmpty()) {
+        logger.info("开始向企业所有客户发送共享H5链接，部门ID: {}", departmentId);
+        
+        // 获取所有客户（去重），按发送员工分组（只分组客户下标，发送时才按批生成客户ID）
+        job.setPhase("获取客户列表");
+        CompactCustomerDirectory directory = getCustomerDirectory(departmentId);
+        
+        if (directory.isEmpty()) {
             logger.warn("没有找到需要发送的客户");
             Map<String, Object> result = new HashMap<>();
             result.put("success", false);
             result.put("message", "没有找到需要发送的客户");
             return result;
         }
+        int[][] customersByStaff = directory.customerIndexesByStaff();
+        int staffCount = 0;
+        for (int[] customers : customersByStaff) {
+            if (customers.length > 0) {
+                staffCount++;
+            }
+        }
         
-        logger.info("开始针对{}个客户发送个性化H5链接", customerToStaffMap.size());
+        String sharedUrl = config.getH5BaseUrl() + "?source=campaign"
+                + (job.getId() != null ? "&campaign=" + job.getId() : "");
+        logger.info("开始针对{}个员工的{}个客户发送共享H5链接: {}", staffCount, directory.size(), sharedUrl);
+        job.setPhase("发送");
+        job.setTotal(directory.size());
         
         int successCount = 0;
         int failCount = 0;
-        List<String> successList = new ArrayList<>();
-        List<String> failList = new ArrayList<>();
+        int pendingCount = 0;
         List<String> msgidList = new ArrayList<>();
+        List<Map<String, Object>> messages = new ArrayList<>();
+        List<String> failStaffList = new ArrayList<>();
         
-        // 针对每个客户单独调用群发接口
-        for (Map.Entry<String, String> entry : customerToStaffMap.entrySet()) {
-            String externalUserId = entry.getKey();
-            String staffUserId = entry.getValue();
-            
-            try {
-                // 生成带external_userid的个性化链接
-                String personalizedUrl = buildPersonalizedLink(externalUserId);
-                
-                // 调用群发接口
-                String msgid = sendMsgTemplateToSingleUser(
-                        staffUserId, 
-                        externalUserId, 
-                        linkTitle, 
-                        linkDesc, 
-                        linkPicUrl, 
-                        personalizedUrl);
+        for (int staffIndex = 0; staffIndex < customersByStaff.length; staffIndex++) {
+            String staffUserId = directory.getStaffUserId(staffIndex);
+            int[] customers = customersByStaff[staffIndex];
+            for (int from = 0; from < customers.length; from += MAX_EXTERNAL_USERIDS_PER_MSG) {
+                int to = Math.min(from + MAX_EXTERNAL_USERIDS_PER_MSG, customers.length);
                 
+                // 任务暂停时等待、取消后剩余客户不再发送；群发接口熔断时暂停，超过最长暂停时间后剩余客户不再尝试
+                if (pendingCount > 0 || !job.awaitRunnable() || !awaitAvailable(ADD_MSG_TEMPLATE_URL)) {
+                    pendingCount += to - from;
+                    job.pending(to - from);
+                    continue;
+                }
+                List<String> batch = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    batch.add(directory.getCustomerAt(customers[i]));
+                }
+                String msgid = sendMsgTemplate(staffUserId, batch, linkTitle, linkDesc, linkPicUrl, sharedUrl);
                 if (msgid != null) {
-                    successCount++;
-                    successList.add(externalUserId);
+                    successCount += batch.size();
+                    job.sent(batch.size());
                     msgidList.add(msgid);
-                    logger.info("发送成功 [{}/{}]: external_userid={}, staff={}, msgid={}", 
-                            successCount, customerToStaffMap.size(), externalUserId, staffUserId, msgid);
+                    Map<String, Object> message = new LinkedHashMap<>();
+                    message.put("msgid", msgid);
+                    message.put("sender", staffUserId);
+                    message.put("customerCount", batch.size());
+                    messages.add(message);
+                    logger.info("发送成功: staff={}, 客户数={}, msgid={}", staffUserId, batch.size(), msgid);
                 } else {
-                    failCount++;
-                    failList.add(externalUserId);
-                    logger.warn("发送失败: external_userid={}, staff={}", externalUserId, staffUserId);
+                    failCount += batch.size();
+                    job.failed(batch.size());
+                    failStaffList.add(staffUserId);
+                    logger.warn("发送失败: staff={}, 客户数={}", staffUserId, batch.size());
                 }
-                
-                // 避免频率限制，添加延迟
-                Thread.sleep(100);
-                
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.error("发送被中断");
-                break;
-            } catch (Exception e) {
-                logger.error("发送消息失败: external_userid={}, staff={}", externalUserId, staffUserId, e);
-                failCount++;
-                failList.add(externalUserId);
             }
         }
         
-        logger.info("企业全员客户个性化群发完成，总数: {}, 成功: {}, 失败: {}", 
-                customerToStaffMap.size(), successCount, failCount);
+        logger.info("企业全员客户共享链接群发完成，总数: {}, 调用次数: {}, 成功: {}, 失败: {}, 未发送: {}",
+                directory.size(), msgidList.size() + failStaffList.size(), successCount, failCount,
+                pendingCount);
         
         // 返回结果
         Map<String, Object> result = new HashMap<>();
-        result.put("success", failCount == 0);
-        result.put("total", customerToStaffMap.size());
+        result.put("success", failCount == 0 && pendingCount == 0);
+        result.put("total", directory.size());
+        result.put("staffCount", staffCount);
         result.put("successCount", successCount);
         result.put("failCount", failCount);
-        result.put("successList", successList);
-        result.put("failList", failList);
+        result.put("pendingCount", pendingCount);
+        result.put("failStaffList", failStaffList);
         result.put("msgidList", msgidList);
-        result.put("message", String.format("企业全员客户群发完成，成功%d个，失败%d个", successCount, failCount));
+        result.put("messages", messages);
+        result.put("link", sharedUrl);
+        result.put("cancelled", job.isCancelled());
+        result.put("message", String.format("企业全员客户共享链接群发完成，%d条群发消息，成功%d个客户，失败%d个，因%s未发送%d个，"
+                        + "员工确认发送后可查询送达情况", msgidList.size(), successCount, failCount,
+                job.isCancelled() ? "任务取消" : "接口熔断", pendingCount));
         
         return result;
     }
-}
 
+    /**
+     * 汇总多条群发消息的送达情况（分页读取每条消息的get_groupmsg_result）
+     * 客户状态：0-未发送（员工尚未确认发送） 1-已发送 2-因客户不是好友导致发送失败 3-因客户已经收到其他群发消息导致发送失败
+     *
+     * @param msgids 群发消息ID列表
+     * @return 各状态的客户数、每条消息的统计以及发送失败的客户
+     */
+    public Map<String, Object> getGroupMsgReach(List<String> msgids) {
+        int[] statusCounts = new int[4];
+        List<Map<String, Object>> messages = new ArrayList<>();
+        List<String> failList = new ArrayList<>();
+        List<String> queryFailedList = new ArrayList<>();
+        
+        for (String msgid : msgids) {
+            int[] counts = new int[4];
+            String cursor = null;
+            boolean complete = true;
+            do {
+                GroupMsgResultResponse page = getGroupMsgResult(msgid, GROUP_MSG_RESULT_PAGE_SIZE, cursor);
+                if (page == null) {
+                    complete = false;
+                    break;
+                }
+                if (page.getDetailList() != null) {
+                    for (GroupMsgResultResponse.Detail detail : page.getDetailList()) {
+                        int status = detail.getStatus();
+                        if (status < 0 || status >= counts.length) {
+                            continue;
+                        }
+                        counts[status]++;
+                        if (status >= 2 && detail.getExternalUserid() != null) {
+                            failList.add(detail.getExternalUserid());
+                        }
+                    }
+                }
+                cursor = page.getNextCursor();
+            } while (cursor != null && !cursor.isEmpty());
+            
+            if (!complete) {
+                queryFailedList.add(msgid);
+            }
+            for (int i = 0; i < counts.length; i++) {
+                statusCounts[i] += counts[i];
+            }
+            Map<String, Object> message = new LinkedHashMap<>();
+            message.put("msgid", msgid);
+            message.put("unsent", counts[0]);
+            message.put("sent", counts[1]);
+            message.put("notFriend", counts[2]);
+            message.put("alreadyReceived", counts[3]);
+            messages.add(message);
+        }
+        
+        Map<String, Object> reach = new LinkedHashMap<>();
+        reach.put("messageCount", msgids.size());
+        reach.put("total", statusCounts[0] + statusCounts[1] + statusCounts[2] + statusCounts[3]);
+        reach.put("unsent", statusCounts[0]);
+        reach.put("sent", statusCounts[1]);
+        reach.put("notFriend", statusCounts[2]);
+        reach.put("alreadyReceived", statusCounts[3]);
+        reach.put("failList", failList);
+        reach.put("queryFailedList", queryFailedList);
+        reach.put("messages", messages);
+        return reach;
+    }
+}
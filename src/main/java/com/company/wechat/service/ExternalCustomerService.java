@@ -1,10 +1,10 @@
 package com.company.wechat.service;
 
+import com.company.wechat.codec.WechatCodec;
 import com.company.wechat.config.WechatWorkConfig;
 import com.company.wechat.model.dto.BatchMessageRequest;
 import com.company.wechat.model.dto.BatchMessageResponse;
-import com.company.wechat.model.dto.ExternalContactListResponse;
-import com.company.wechat.util.HttpUtil;
+import com.company.wechat.util.JsonStreamDecoder;
 import com.google.gson.Gson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,7 +13,9 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 外部客户管理服务
@@ -26,16 +28,19 @@ public class ExternalCustomerService {
 
     private static final Logger logger = LoggerFactory.getLogger(ExternalCustomerService.class);
     
-    private static final String GET_EXTERNAL_CONTACT_LIST_URL = "https://qyapi.weixin.qq.com/cgi-bin/externalcontact/list?access_token=%s&userid=%s";
-    private static final String ADD_MSG_TEMPLATE_URL = "https://qyapi.weixin.qq.com/cgi-bin/externalcontact/add_msg_template?access_token=%s";
+    private static final String GET_EXTERNAL_CONTACT_LIST_URL = "/cgi-bin/externalcontact/list?access_token=%s&userid=%s";
+    private static final String ADD_MSG_TEMPLATE_URL = "/cgi-bin/externalcontact/add_msg_template?access_token=%s";
 
     @Autowired
     private WechatApiService wechatApiService;
+
+    @Autowired
+    private QyApiClient apiClient;
     
     @Autowired
     private WechatWorkConfig config;
     
-    private final Gson gson = new Gson();
+    private final Gson gson = WechatCodec.gson();
 
     /**
      * 获取指定员工的客户列表
@@ -45,20 +50,16 @@ public class ExternalCustomerService {
      */
     public List<String> getCustomerList(String staffUserId) {
         try {
-            String accessToken = wechatApiService.getAccessToken();
-            String url = String.format(GET_EXTERNAL_CONTACT_LIST_URL, accessToken, staffUserId);
-            
             logger.info("获取员工{}的客户列表", staffUserId);
-            String response = HttpUtil.doGet(url);
-            
-            ExternalContactListResponse result = gson.fromJson(response, ExternalContactListResponse.class);
+            Set<String> customerIds = new LinkedHashSet<>();
+            JsonStreamDecoder.Result result = apiClient.getList(GET_EXTERNAL_CONTACT_LIST_URL, "external_userid",
+                    JsonStreamDecoder.strings(customerIds::add), staffUserId);
             
-            if (result.isSuccess()) {
-                List<String> customerIds = result.getExternalUserid();
-                logger.info("获取到{}个客户", customerIds != null ? customerIds.size() : 0);
-                return customerIds != null ? customerIds : Collections.emptyList();
+            if (result.getErrcode() == 0) {
+                logger.info("获取到{}个客户", customerIds.size());
+                return customerIds.isEmpty() ? Collections.emptyList() : new ArrayList<>(customerIds);
             } else {
-                logger.error("获取客户列表失败: {}", result.getErrMsg());
+                logger.error("获取客户列表失败: {}", result.getErrmsg());
                 return Collections.emptyList();
             }
         } catch (Exception e) {
@@ -79,9 +80,6 @@ public class ExternalCustomerService {
     public BatchMessageResponse sendBatchMessage(List<String> staffUserIds, String content, 
                                                    String linkTitle, String linkUrl) {
         try {
-            String accessToken = wechatApiService.getAccessToken();
-            String url = String.format(ADD_MSG_TEMPLATE_URL, accessToken);
-            
             // 构建请求
             BatchMessageRequest.BatchMessageRequestBuilder requestBuilder = BatchMessageRequest.builder()
                     .chatType("single") // 单聊
@@ -115,7 +113,7 @@ public class ExternalCustomerService {
             String jsonRequest = gson.toJson(request);
             logger.info("创建群发任务，员工列表: {}", staffUserIds);
             
-            String response = HttpUtil.doPostString(url, jsonRequest);
+            String response = apiClient.post(ADD_MSG_TEMPLATE_URL, jsonRequest);
             BatchMessageResponse result = gson.fromJson(response, BatchMessageResponse.class);
             
             if (result.isSuccess()) {
@@ -184,14 +182,6 @@ public class ExternalCustomerService {
                 } else {
                     failCount++;
                 }
-                
-                // 避免频率限制，添加延迟
-                Thread.sleep(200); // 200ms延迟
-                
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.error("发送被中断", e);
-                break;
             } catch (Exception e) {
                 failCount++;
                 logger.error("给客户{}发送消息失败", externalUserId, e);
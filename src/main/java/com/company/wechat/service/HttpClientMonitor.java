@@ -0,0 +1,93 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.HttpClientConfig;
+import com.company.wechat.config.WechatWorkConfig;
+import com.company.wechat.util.HttpClientMetrics;
+import com.company.wechat.util.HttpUtil;
+import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HTTP客户端监控
+ * 启动时按配置预热到企业微信API的连接，并汇总连接池、Dispatcher和连接复用指标
+ *
+ * @author Company
+ */
+@Service
+@DependsOn("httpUtilInitializer")
+public class HttpClientMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpClientMonitor.class);
+
+    @Autowired
+    private HttpClientConfig httpConfig;
+
+    @Autowired
+    private WechatWorkConfig wechatConfig;
+
+    @Autowired
+    private OkHttpClient qyapiHttpClient;
+
+    @Autowired
+    private HttpClientMetrics metrics;
+
+    /**
+     * 预热连接：并发发起若干请求建立TCP/TLS连接，避免首批业务请求承担握手耗时
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        if (!httpConfig.isPrewarm()) {
+            return;
+        }
+        String url = httpConfig.getPrewarmUrl() != null ? httpConfig.getPrewarmUrl()
+                : wechatConfig.getApiBaseUrl() + "/";
+        long start = System.currentTimeMillis();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < httpConfig.getPrewarmConnections(); i++) {
+            futures.add(HttpUtil.doGetAsync(url, HttpUtil.Profile.TOKEN));
+        }
+        // 预热只为建立连接，响应状态不重要
+        CompletableFuture.allOf(futures.stream()
+                        .map(future -> future.handle((result, error) -> null))
+                        .toArray(CompletableFuture[]::new))
+                .thenRun(() -> logger.info("HTTP连接预热完成 - 耗时: {}毫秒, 空闲连接: {}",
+                        System.currentTimeMillis() - start, qyapiHttpClient.connectionPool().idleConnectionCount()));
+    }
+
+    /**
+     * 获取HTTP客户端指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", qyapiHttpClient.connectionPool().connectionCount());
+        stats.put("idleConnections", qyapiHttpClient.connectionPool().idleConnectionCount());
+        stats.put("maxIdleConnections", httpConfig.getMaxIdleConnections());
+        stats.put("runningCalls", qyapiHttpClient.dispatcher().runningCallsCount());
+        stats.put("queuedCalls", qyapiHttpClient.dispatcher().queuedCallsCount());
+        stats.put("inFlight", HttpUtil.getInFlightCount());
+        stats.put("maxInFlight", HttpUtil.getMaxInFlight());
+        stats.put("reservedInFlight", HttpUtil.getReservedInFlight());
+        stats.put("queuedForInFlight", HttpUtil.getQueuedCount());
+        stats.put("calls", metrics.getCallCount());
+        stats.put("callsFailed", metrics.getCallFailedCount());
+        stats.put("connectionsAcquired", metrics.getConnectionAcquiredCount());
+        stats.put("connectsOpened", metrics.getConnectCount());
+        stats.put("connectsFailed", metrics.getConnectFailedCount());
+        stats.put("http2Connects", metrics.getHttp2ConnectCount());
+        stats.put("reuseRatio", metrics.getReuseRatio());
+        stats.put("avgConnectMillis", metrics.getAvgConnectMillis());
+        return stats;
+    }
+}
@@ -0,0 +1,681 @@
+package com.company.wechat.service;
+
+import com.company.wechat.codec.WechatCodec;
+import com.company.wechat.config.RateLimitConfig;
+import com.company.wechat.config.ResilienceConfig;
+import com.company.wechat.config.WechatWorkConfig;
+import com.company.wechat.util.HttpStatusException;
+import com.company.wechat.util.HttpUtil;
+import com.company.wechat.util.JsonStreamDecoder;
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.net.ssl.SSLHandshakeException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * 企业微信API调用客户端
+ * URL模板的第一个%s为access_token，其余参数依次填入。
+ * 响应的errcode表示Token无效或过期（40014/42001/40001）时，清除两级缓存，
+ * 通过单飞路径重新获取Token后重放一次请求，避免Token轮换时批量任务静默丢失客户。
+ * GET请求使用查询类超时（list），POST请求使用发送类超时（send）。
+ * 每次请求（包括重放）发出前先从{@link ApiRateLimiter}获取对应接口的许可；
+ * 响应为频率限制（errcode 45009/45011/45033、HTTP 429/5xx）时降低该接口速率，请求重新排队等待许可后再发。
+ * 临时性失败（网络异常、超时、errcode=-1）按带抖动的指数退避重试，并计入该接口的{@link ApiCircuitBreaker}，
+ * 熔断期间请求直接抛出{@link CircuitOpenException}；业务错误码属于永久性失败，原样返回。
+ * POST请求默认不是幂等的（如创建群发任务、发送欢迎语），服务端可能已经处理：只在连接阶段失败、HTTP 429
+ * 或errcode=-1时重发，读超时和5xx计入熔断器后直接失败；幂等的POST接口见
+ * {@link ResilienceConfig#getIdempotentPostApis()}，GET请求总是可以重发。
+ * 有截止时间的调用（{@link #postBefore}）的限流等待、重试退避、重新排队和单次请求超时都不超过截止时间
+ *
+ * @author Company
+ */
+@Service
+@DependsOn("httpUtilInitializer")
+public class QyApiClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(QyApiClient.class);
+
+    private static final String ERRCODE_FIELD = "\"errcode\"";
+
+    private static final String API_PATH_PREFIX = "/cgi-bin/";
+
+    /**
+     * 频率限制错误码：45009 接口调用超过限制，45011 API调用太频繁，45033 接口并发调用超过限制
+     */
+    private static final Set<Integer> THROTTLE_ERRCODES =
+            Collections.unmodifiableSet(new HashSet<>(Arrays.asList(45009, 45011, 45033)));
+
+    /**
+     * 系统繁忙，可重试
+     */
+    private static final int SYSTEM_BUSY_ERRCODE = -1;
+
+    @Autowired
+    private AccessTokenManager tokenManager;
+
+    @Autowired
+    private ApiRateLimiter rateLimiter;
+
+    @Autowired
+    private RateLimitConfig rateLimitConfig;
+
+    @Autowired
+    private ApiCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private ResilienceConfig resilienceConfig;
+
+    @Autowired
+    private WechatWorkConfig config;
+
+    private ScheduledExecutorService retryScheduler;
+
+    /**
+     * URL模板到限流接口名的缓存
+     */
+    private final Map<String, String> apiNames = new ConcurrentHashMap<>();
+
+    private final Gson gson = WechatCodec.gson();
+
+    private final AtomicLong callCount = new AtomicLong();
+    private final AtomicLong tokenErrorCount = new AtomicLong();
+    private final AtomicLong retrySuccessCount = new AtomicLong();
+    private final AtomicLong retryFailedCount = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+    private final AtomicLong requeuedCount = new AtomicLong();
+    private final AtomicLong requeueExhaustedCount = new AtomicLong();
+    private final AtomicLong transientFailureCount = new AtomicLong();
+    private final AtomicLong transientRetryCount = new AtomicLong();
+    private final AtomicLong transientRecoveredCount = new AtomicLong();
+    private final AtomicLong transientExhaustedCount = new AtomicLong();
+    private final AtomicLong unsafeRetrySkippedCount = new AtomicLong();
+    private final AtomicLong deadlineExceededCount = new AtomicLong();
+    private final Map<Integer, AtomicLong> tokenErrorsByCode = new LinkedHashMap<>();
+
+    public QyApiClient() {
+        tokenErrorsByCode.put(40001, new AtomicLong());
+        tokenErrorsByCode.put(40014, new AtomicLong());
+        tokenErrorsByCode.put(42001, new AtomicLong());
+    }
+
+    @PostConstruct
+    public void init() {
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "qyapi-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (retryScheduler != null) {
+            retryScheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * GET请求
+     *
+     * @param urlTemplate URL模板（/cgi-bin/开头的路径），第一个%s为access_token
+     * @param args 其余URL参数
+     * @return 响应内容
+     */
+    public String get(String urlTemplate, Object... args) throws IOException {
+        return execute(apiName(urlTemplate), true,
+                token -> HttpUtil.doGet(buildUrl(urlTemplate, token, args), HttpUtil.Profile.LIST),
+                QyApiClient::errcode);
+    }
+
+    /**
+     * POST请求（JSON字符串）
+     *
+     * @param urlTemplate URL模板（/cgi-bin/开头的路径），第一个%s为access_token
+     * @param json 请求体
+     * @param args 其余URL参数
+     * @return 响应内容
+     */
+    public String post(String urlTemplate, String json, Object... args) throws IOException {
+        String api = apiName(urlTemplate);
+        return execute(api, isIdempotentPost(api),
+                token -> HttpUtil.doPostString(buildUrl(urlTemplate, token, args), json, HttpUtil.Profile.SEND),
+                QyApiClient::errcode);
+    }
+
+    /**
+     * 截止时间前完成的POST请求（如welcome_code有效期内发送欢迎语）
+     * 每次请求的超时为距截止时间的剩余时间，限流等待或重试退避会超过截止时间时不再发送；
+     * 请求使用HttpUtil预留的在途名额，不排在批量任务的请求后面
+     *
+     * @param urlTemplate URL模板（/cgi-bin/开头的路径），第一个%s为access_token
+     * @param json 请求体
+     * @param deadline 截止时间（毫秒时间戳）
+     * @param args 其余URL参数
+     * @return 响应内容
+     * @throws DeadlineExceededException 截止时间前无法完成
+     */
+    public String postBefore(String urlTemplate, String json, long deadline, Object... args) throws IOException {
+        String api = apiName(urlTemplate);
+        return execute(api, isIdempotentPost(api), deadline,
+                token -> HttpUtil.doPostStringReserved(buildUrl(urlTemplate, token, args), json,
+                        HttpUtil.Profile.SEND, Math.max(1, deadline - System.currentTimeMillis())),
+                QyApiClient::errcode);
+    }
+
+    /**
+     * POST请求（对象序列化为JSON）
+     *
+     * @param urlTemplate URL模板（/cgi-bin/开头的路径），第一个%s为access_token
+     * @param data 请求对象
+     * @param args 其余URL参数
+     * @return 响应内容
+     */
+    public String postJson(String urlTemplate, Object data, Object... args) throws IOException {
+        return post(urlTemplate, gson.toJson(data), args);
+    }
+
+    /**
+     * GET请求，列表响应流式解码
+     * 响应体不读成字符串，数组字段的每个元素读取后立即回调。
+     * 请求失败重试时已回调过的元素可能再次回调，元素读取器的处理需要幂等
+     *
+     * @param urlTemplate URL模板（/cgi-bin/开头的路径），第一个%s为access_token
+     * @param arrayField 数组字段名，如 external_userid、userlist
+     * @param elementReader 元素读取器，见{@link JsonStreamDecoder#strings}、{@link JsonStreamDecoder#stringField}
+     * @param args 其余URL参数
+     * @return 解码结果（errcode、errmsg、元素个数）
+     */
+    public JsonStreamDecoder.Result getList(String urlTemplate, String arrayField,
+                                            JsonStreamDecoder.ElementReader elementReader,
+                                            Object... args) throws IOException {
+        return execute(apiName(urlTemplate), true,
+                token -> HttpUtil.doGetStream(buildUrl(urlTemplate, token, args), HttpUtil.Profile.LIST,
+                        in -> JsonStreamDecoder.readArray(in, arrayField, elementReader)),
+                JsonStreamDecoder.Result::getErrcode);
+    }
+
+    /**
+     * 异步GET请求
+     *
+     * @param urlTemplate URL模板（/cgi-bin/开头的路径），第一个%s为access_token
+     * @param args 其余URL参数
+     * @return 响应内容
+     */
+    public CompletableFuture<String> getAsync(String urlTemplate, Object... args) {
+        return executeAsync(apiName(urlTemplate), true,
+                token -> HttpUtil.doGetAsync(buildUrl(urlTemplate, token, args), HttpUtil.Profile.LIST));
+    }
+
+    /**
+     * 异步POST请求（JSON字符串）
+     *
+     * @param urlTemplate URL模板（/cgi-bin/开头的路径），第一个%s为access_token
+     * @param json 请求体
+     * @param args 其余URL参数
+     * @return 响应内容
+     */
+    public CompletableFuture<String> postAsync(String urlTemplate, String json, Object... args) {
+        String api = apiName(urlTemplate);
+        return executeAsync(api, isIdempotentPost(api),
+                token -> HttpUtil.doPostStringAsync(buildUrl(urlTemplate, token, args), json, HttpUtil.Profile.SEND));
+    }
+
+    /**
+     * 执行请求
+     * 遇到Token错误时刷新Token并重放一次；遇到频率限制时降低该接口速率并重新排队；
+     * 遇到临时性失败时按退避时间重试（非幂等请求只在确定未发出时重试），接口熔断时直接失败
+     *
+     * @param idempotent 请求是否可以安全重发
+     */
+    private <T> T execute(String api, boolean idempotent, ApiCall<T> call, ToIntFunction<T> errcodeOf)
+            throws IOException {
+        return execute(api, idempotent, 0, call, errcodeOf);
+    }
+
+    /**
+     * @param deadline 截止时间（毫秒时间戳），0表示没有截止时间
+     */
+    private <T> T execute(String api, boolean idempotent, long deadline, ApiCall<T> call,
+                          ToIntFunction<T> errcodeOf) throws IOException {
+        callCount.incrementAndGet();
+        Attempt attempt = new Attempt(tokenManager.getToken(), idempotent);
+        attempt.deadline = deadline;
+        try {
+            while (true) {
+                checkCircuit(api, attempt);
+                acquire(api, attempt);
+                long delay;
+                try {
+                    T response = call.execute(attempt.token);
+                    delay = beforeDeadline(api, attempt,
+                            onResponse(api, attempt, errcodeOf.applyAsInt(response), response));
+                    if (delay < 0) {
+                        return response;
+                    }
+                } catch (IOException e) {
+                    delay = beforeDeadline(api, attempt, onException(api, attempt, e));
+                    if (delay < 0) {
+                        throw e;
+                    }
+                }
+                if (delay > 0) {
+                    sleep(delay);
+                }
+            }
+        } finally {
+            circuitBreaker.releaseProbe(api, attempt.probeId);
+        }
+    }
+
+    /**
+     * 检查熔断状态；本次调用持有半开试探租约时不再检查，重新排队或Token重放仍由它完成
+     */
+    private void checkCircuit(String api, Attempt attempt) throws CircuitOpenException {
+        if (attempt.probeId == 0) {
+            attempt.probeId = circuitBreaker.check(api);
+        }
+    }
+
+    /**
+     * 异步执行请求，处理方式与同步请求相同，退避等待由调度线程完成
+     */
+    private CompletableFuture<String> executeAsync(String api, boolean idempotent, AsyncApiCall call) {
+        callCount.incrementAndGet();
+        String token;
+        try {
+            token = tokenManager.getToken();
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        Attempt attempt = new Attempt(token, idempotent);
+        return attemptAsync(api, call, attempt)
+                .whenComplete((response, error) -> circuitBreaker.releaseProbe(api, attempt.probeId));
+    }
+
+    private CompletableFuture<String> attemptAsync(String api, AsyncApiCall call, Attempt attempt) {
+        try {
+            checkCircuit(api, attempt);
+        } catch (CircuitOpenException e) {
+            return failed(e);
+        }
+        // 许可到期时请求在限流调度线程上发出；HttpUtil在途名额用完时只排队不阻塞，不会卡住其他接口的许可
+        return rateLimiter.acquireAsync(api).thenCompose(v -> call.execute(attempt.token)).handle((response, error) -> {
+            long delay;
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                delay = cause instanceof IOException ? onException(api, attempt, (IOException) cause) : -1;
+                if (delay < 0) {
+                    return QyApiClient.<String>failed(cause);
+                }
+            } else {
+                delay = onResponse(api, attempt, errcode(response), response);
+                if (delay < 0) {
+                    return CompletableFuture.completedFuture(response);
+                }
+            }
+            return delay(delay).thenCompose(v -> attemptAsync(api, call, attempt));
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * 处理一次响应
+     *
+     * @return 小于0表示返回该响应；否则为再次发起请求前的等待时间（毫秒）
+     */
+    private long onResponse(String api, Attempt attempt, int errcode, Object response) {
+        if (THROTTLE_ERRCODES.contains(errcode)) {
+            return requeue(api, "errcode=" + errcode, attempt.requeues++) ? 0 : -1;
+        }
+        if (errcode == SYSTEM_BUSY_ERRCODE) {
+            return retryTransient(api, attempt, "errcode=" + errcode);
+        }
+        circuitBreaker.onSuccess(api);
+        rateLimiter.onSuccess(api);
+        if (attempt.failures > 0) {
+            transientRecoveredCount.incrementAndGet();
+            attempt.failures = 0;
+        }
+
+        if (!onTokenError(errcode, attempt.tokenRetried, response)) {
+            return -1;
+        }
+        tokenManager.invalidate(attempt.token);
+        attempt.token = tokenManager.getToken();
+        attempt.tokenRetried = true;
+        return 0;
+    }
+
+    /**
+     * 处理一次请求异常
+     * 429/5xx先按频率限制重新排队，排队次数用完后按临时性失败处理；其余4xx为永久性失败。
+     * 非幂等请求遇到5xx或读超时等请求可能已被处理的失败时不再重发
+     *
+     * @return 小于0表示抛出该异常；否则为再次发起请求前的等待时间（毫秒）
+     */
+    private long onException(String api, Attempt attempt, IOException e) {
+        if (e instanceof HttpStatusException) {
+            HttpStatusException statusException = (HttpStatusException) e;
+            if (!statusException.isThrottled()) {
+                return -1;
+            }
+            String reason = "HTTP " + statusException.getStatusCode();
+            if (!attempt.idempotent && statusException.getStatusCode() != 429) {
+                throttledCount.incrementAndGet();
+                rateLimiter.onThrottled(api);
+                return failUnsafe(api, reason);
+            }
+            if (requeue(api, reason, attempt.requeues++)) {
+                return 0;
+            }
+        } else if (!attempt.idempotent && !isConnectFailure(e)) {
+            return failUnsafe(api, e.toString());
+        }
+        return retryTransient(api, attempt, e.toString());
+    }
+
+    /**
+     * 有截止时间的调用等待delay后再发是否来得及
+     *
+     * @return 来得及时原样返回delay，否则返回-1（不再重发）
+     */
+    private long beforeDeadline(String api, Attempt attempt, long delay) {
+        if (delay < 0 || attempt.deadline == 0 || System.currentTimeMillis() + delay < attempt.deadline) {
+            return delay;
+        }
+        deadlineExceededCount.incrementAndGet();
+        logger.warn("接口 {} 来不及在截止时间前重发，放弃", api);
+        return -1;
+    }
+
+    /**
+     * 非幂等请求在服务端可能已处理后失败：计入熔断器，不重发
+     *
+     * @return -1
+     */
+    private long failUnsafe(String api, String reason) {
+        transientFailureCount.incrementAndGet();
+        unsafeRetrySkippedCount.incrementAndGet();
+        circuitBreaker.onFailure(api);
+        logger.warn("接口 {} 请求失败（{}），请求可能已被处理，非幂等接口不重发", api, reason);
+        return -1;
+    }
+
+    /**
+     * 是否为连接阶段的失败（请求尚未发出，重发是安全的）
+     */
+    static boolean isConnectFailure(IOException e) {
+        if (e instanceof ConnectException || e instanceof NoRouteToHostException
+                || e instanceof UnknownHostException || e instanceof SSLHandshakeException) {
+            return true;
+        }
+        return e instanceof SocketTimeoutException && e.getMessage() != null
+                && e.getMessage().contains("connect timed out");
+    }
+
+    private boolean isIdempotentPost(String api) {
+        return resilienceConfig.getIdempotentPostApis().contains(api);
+    }
+
+    /**
+     * 临时性失败：计入熔断器，未熔断且未超过最大尝试次数时返回退避时间
+     *
+     * @return 退避时间（毫秒），不再重试时返回-1
+     */
+    private long retryTransient(String api, Attempt attempt, String reason) {
+        transientFailureCount.incrementAndGet();
+        boolean open = circuitBreaker.onFailure(api);
+        attempt.failures++;
+        if (open || attempt.failures >= resilienceConfig.getMaxAttempts()) {
+            transientExhaustedCount.incrementAndGet();
+            logger.warn("接口 {} 临时性失败（{}），已尝试{}次{}，放弃", api, reason, attempt.failures,
+                    open ? "且已熔断" : "");
+            return -1;
+        }
+        long delay = backoff(attempt.failures);
+        transientRetryCount.incrementAndGet();
+        logger.debug("接口 {} 临时性失败（{}），{}毫秒后第{}次重试", api, reason, delay, attempt.failures);
+        return delay;
+    }
+
+    /**
+     * 带抖动的指数退避：第n次重试在 [0, min(max, base * 2^(n-1))] 内随机取值
+     */
+    private long backoff(int failures) {
+        long cap = Math.min(resilienceConfig.getMaxDelayMillis(),
+                resilienceConfig.getBaseDelayMillis() << Math.min(failures - 1, 20));
+        return cap > 0 ? ThreadLocalRandom.current().nextLong(cap + 1) : 0;
+    }
+
+    private void sleep(long millis) throws IOException {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待重试时被中断", e);
+        }
+    }
+
+    private CompletableFuture<Void> delay(long millis) {
+        if (millis <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        retryScheduler.schedule(() -> future.complete(null), millis, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    /**
+     * 等待接口熔断结束，供批量任务在熔断期间暂停而不是继续消耗待处理的客户
+     *
+     * @param urlTemplate URL模板
+     * @return 熔断是否已结束（超过最长暂停时间仍未结束时返回false）
+     */
+    public boolean awaitAvailable(String urlTemplate) throws InterruptedException {
+        return circuitBreaker.awaitClosed(apiName(urlTemplate), resilienceConfig.getPauseMaxWaitMillis());
+    }
+
+    /**
+     * 统计Token错误
+     *
+     * @return 是否需要刷新Token后重放
+     */
+    private boolean onTokenError(int errcode, boolean tokenRetried, Object response) {
+        AtomicLong counter = tokenErrorsByCode.get(errcode);
+        if (counter == null) {
+            if (tokenRetried) {
+                retrySuccessCount.incrementAndGet();
+            }
+            return false;
+        }
+        if (tokenRetried) {
+            retryFailedCount.incrementAndGet();
+            logger.error("刷新Access Token后重试仍失败: {}", response);
+            return false;
+        }
+        counter.incrementAndGet();
+        tokenErrorCount.incrementAndGet();
+        logger.warn("Access Token无效或已过期（errcode={}），刷新后重试", errcode);
+        return true;
+    }
+
+    /**
+     * 遇到频率限制：降低接口速率，未超过重新排队次数时返回true，由调用方重新获取许可后再发
+     */
+    private boolean requeue(String api, String reason, int requeues) {
+        throttledCount.incrementAndGet();
+        rateLimiter.onThrottled(api);
+        if (requeues < rateLimitConfig.getMaxRequeues()) {
+            requeuedCount.incrementAndGet();
+            logger.debug("接口 {} 触发频率限制（{}），重新排队第{}次", api, reason, requeues + 1);
+            return true;
+        }
+        requeueExhaustedCount.incrementAndGet();
+        logger.warn("接口 {} 触发频率限制（{}），已重新排队{}次，放弃", api, reason, requeues);
+        return false;
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    /**
+     * 获取限流许可，等待被中断时转换为IOException；有截止时间时最多等到截止时间
+     */
+    private void acquire(String api, Attempt attempt) throws IOException {
+        try {
+            if (attempt.deadline == 0) {
+                rateLimiter.acquire(api);
+                return;
+            }
+            long remaining = attempt.deadline - System.currentTimeMillis();
+            if (remaining <= 0 || !rateLimiter.acquire(api, remaining)) {
+                deadlineExceededCount.incrementAndGet();
+                throw new DeadlineExceededException(api, "等待限流许可超过剩余时间" + Math.max(0, remaining) + "毫秒");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待限流许可时被中断", e);
+        }
+    }
+
+    /**
+     * 由URL模板得到限流接口名：取 /cgi-bin/ 之后、? 之前的路径，斜杠和下划线替换为短横线，
+     * 如 externalcontact/add_msg_template 对应 externalcontact-add-msg-template
+     */
+    private String apiName(String urlTemplate) {
+        return apiNames.computeIfAbsent(urlTemplate, QyApiClient::toApiName);
+    }
+
+    static String toApiName(String url) {
+        int start = url.indexOf(API_PATH_PREFIX);
+        start = start < 0 ? 0 : start + API_PATH_PREFIX.length();
+        int end = url.indexOf('?', start);
+        String path = end < 0 ? url.substring(start) : url.substring(start, end);
+        return path.replace('/', '-').replace('_', '-');
+    }
+
+    private String buildUrl(String urlTemplate, String token, Object[] args) {
+        Object[] values = new Object[args.length + 1];
+        values[0] = token;
+        System.arraycopy(args, 0, values, 1, args.length);
+        return config.getApiBaseUrl() + String.format(urlTemplate, values);
+    }
+
+    /**
+     * 从响应中读取errcode，不做完整的JSON解析
+     *
+     * @return errcode，不存在时返回0
+     */
+    static int errcode(String response) {
+        if (response == null) {
+            return 0;
+        }
+        int index = response.indexOf(ERRCODE_FIELD);
+        if (index < 0) {
+            return 0;
+        }
+        int i = index + ERRCODE_FIELD.length();
+        int n = response.length();
+        while (i < n && (response.charAt(i) == ' ' || response.charAt(i) == ':')) {
+            i++;
+        }
+        boolean negative = i < n && response.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        int value = 0;
+        while (i < n && Character.isDigit(response.charAt(i))) {
+            value = value * 10 + (response.charAt(i++) - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * 获取调用指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("calls", callCount.get());
+        stats.put("tokenErrors", tokenErrorCount.get());
+        Map<String, Long> byCode = new LinkedHashMap<>();
+        tokenErrorsByCode.forEach((code, count) -> byCode.put(String.valueOf(code), count.get()));
+        stats.put("tokenErrorsByCode", byCode);
+        stats.put("retrySuccess", retrySuccessCount.get());
+        stats.put("retryFailed", retryFailedCount.get());
+        stats.put("throttled", throttledCount.get());
+        stats.put("requeued", requeuedCount.get());
+        stats.put("requeueExhausted", requeueExhaustedCount.get());
+        stats.put("transientFailures", transientFailureCount.get());
+        stats.put("transientRetries", transientRetryCount.get());
+        stats.put("transientRecovered", transientRecoveredCount.get());
+        stats.put("transientExhausted", transientExhaustedCount.get());
+        stats.put("unsafeRetrySkipped", unsafeRetrySkippedCount.get());
+        stats.put("deadlineExceeded", deadlineExceededCount.get());
+        return stats;
+    }
+
+    /**
+     * 单次调用的重试状态
+     */
+    private static final class Attempt {
+
+        private String token;
+        private final boolean idempotent;
+        private long deadline;
+        private long probeId;
+        private boolean tokenRetried;
+        private int requeues;
+        private int failures;
+
+        Attempt(String token, boolean idempotent) {
+            this.token = token;
+            this.idempotent = idempotent;
+        }
+    }
+
+    /**
+     * 使用指定Token发起一次请求
+     */
+    private interface ApiCall<T> {
+
+        T execute(String token) throws IOException;
+    }
+
+    /**
+     * 使用指定Token发起一次异步请求
+     */
+    private interface AsyncApiCall {
+
+        CompletableFuture<String> execute(String token);
+    }
+}
@@ -1,20 +1,15 @@
 package com.company.wechat.service;
 
-import com.company.wechat.config.WechatWorkConfig;
+import com.company.wechat.codec.WechatCodec;
 import com.company.wechat.model.dto.TextMessage;
 import com.company.wechat.model.dto.WelcomeMessageRequest;
 import com.company.wechat.model.vo.WechatResponse;
-import com.company.wechat.util.HttpUtil;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.TimeUnit;
-
 /**
  * 企业微信API调用服务
  * 
@@ -24,55 +19,25 @@ import java.util.concurrent.TimeUnit;
 public class WechatApiService {
 
     private static final Logger logger = LoggerFactory.getLogger(WechatApiService.class);
-    private static final String ACCESS_TOKEN_KEY = "wechat:work:access_token";
-    private static final String GET_TOKEN_URL = "https://qyapi.weixin.qq.com/cgi-bin/gettoken?corpid=%s&corpsecret=%s";
     // 发送欢迎语API（外部联系人欢迎语接口）
-    private static final String SEND_WELCOME_MSG_URL = "https://qyapi.weixin.qq.com/cgi-bin/externalcontact/send_welcome_msg?access_token=%s";
+    private static final String SEND_WELCOME_MSG_URL = "/cgi-bin/externalcontact/send_welcome_msg?access_token=%s";
     // ⚠️ 注意：企业微信不支持主动给外部联系人发送普通消息，此URL仅用于文档说明
-    private static final String SEND_MESSAGE_URL = "https://qyapi.weixin.qq.com/cgi-bin/externalcontact/send_msg?access_token=%s";
+    private static final String SEND_MESSAGE_URL = "/cgi-bin/externalcontact/send_msg?access_token=%s";
 
     @Autowired
-    private WechatWorkConfig config;
+    private AccessTokenManager tokenManager;
 
     @Autowired
-    private RedisTemplate<String, String> redisTemplate;
+    private QyApiClient apiClient;
 
-    private final Gson gson = new Gson();
+    private final Gson gson = WechatCodec.gson();
 
     /**
      * 获取Access Token（带缓存）
-     * 使用自建应用的secret来获取（需要配置"企业客户权限"）
+     * 使用自建应用的secret来获取（需要配置"企业客户权限"），缓存与刷新由{@link AccessTokenManager}负责
      */
     public String getAccessToken() {
-        try {
-            // 先从缓存获取
-            String token = redisTemplate.opsForValue().get(ACCESS_TOKEN_KEY);
-            if (token != null && !token.isEmpty()) {
-                logger.debug("从缓存获取Access Token: {}", token);
-                return token;
-            }
-
-            // 缓存中没有，调用API获取（使用微信客服应用的secret）
-            String url = String.format(GET_TOKEN_URL, config.getCorpId(), config.getAppSecret());
-            String response = HttpUtil.doGet(url);
-
-            WechatResponse<String> result = gson.fromJson(response, new TypeToken<WechatResponse<String>>() {}.getType());
-
-            if (result.isSuccess() && result.getAccessToken() != null) {
-                String accessToken = result.getAccessToken();
-                // 缓存到Redis，提前5分钟过期
-                int expireTime = config.getTokenExpireTime() != null ? config.getTokenExpireTime() : 7000;
-                redisTemplate.opsForValue().set(ACCESS_TOKEN_KEY, accessToken, expireTime, TimeUnit.SECONDS);
-                logger.info("获取Access Token成功，已缓存，过期时间: {}秒", expireTime);
-                return accessToken;
-            } else {
-                logger.error("获取Access Token失败: {}", response);
-                throw new RuntimeException("获取Access Token失败: " + result.getErrMsg());
-            }
-        } catch (Exception e) {
-            logger.error("获取Access Token异常", e);
-            throw new RuntimeException("获取Access Token异常", e);
-        }
+        return tokenManager.getToken();
     }
 
     /**
@@ -82,10 +47,18 @@ public class WechatApiService {
      * @param content 消息内容
      */
     public boolean sendWelcomeMessage(String welcomeCode, String content) {
-        try {
-            String accessToken = getAccessToken();
-            String url = String.format(SEND_WELCOME_MSG_URL, accessToken);
+        return sendWelcomeMessage(welcomeCode, content, 0);
+    }
 
+    /**
+     * 发送欢迎语给新添加的客户，整个调用（限流等待、重试、请求超时）不超过截止时间
+     *
+     * @param welcomeCode 欢迎语code（从客户添加事件中获取）
+     * @param content 消息内容
+     * @param deadline 截止时间（毫秒时间戳），0表示没有截止时间
+     */
+    public boolean sendWelcomeMessage(String welcomeCode, String content, long deadline) {
+        try {
             // 构建欢迎语请求（外部联系人欢迎语接口）
             // 根据官方文档：https://developer.work.weixin.qq.com/document/path/92137
             WelcomeMessageRequest request = WelcomeMessageRequest.builder()
@@ -98,7 +71,9 @@ public class WechatApiService {
             String jsonRequest = gson.toJson(request);
             logger.info("发送欢迎语给客户: welcomeCode={}, 内容: {}", welcomeCode, content);
 
-            String response = HttpUtil.doPostString(url, jsonRequest);
+            String response = deadline > 0
+                    ? apiClient.postBefore(SEND_WELCOME_MSG_URL, jsonRequest, deadline)
+                    : apiClient.post(SEND_WELCOME_MSG_URL, jsonRequest);
             WechatResponse<?> result = gson.fromJson(response, WechatResponse.class);
 
             if (result.isSuccess()) {
@@ -108,6 +83,9 @@ public class WechatApiService {
                 logger.error("发送欢迎语失败: welcomeCode={}, 错误: {}", welcomeCode, result.getErrMsg());
                 return false;
             }
+        } catch (DeadlineExceededException e) {
+            logger.warn("发送欢迎语超过截止时间: welcomeCode={}, {}", welcomeCode, e.getMessage());
+            return false;
         } catch (Exception e) {
             logger.error("发送欢迎语异常: welcomeCode=" + welcomeCode, e);
             return false;
@@ -149,7 +127,6 @@ public class WechatApiService {
      * 清除Access Token缓存
      */
     public void clearAccessToken() {
-        redisTemplate.delete(ACCESS_TOKEN_KEY);
-        logger.info("已清除Access Token缓存");
+        tokenManager.invalidate(null);
     }
 }
@@ -1,15 +1,19 @@
 package com.company.wechat.service;
 
+import com.company.wechat.config.CallbackLoggingConfig;
 import com.company.wechat.config.WechatWorkConfig;
-import com.company.wechat.model.dto.CallbackMessage;
-import com.company.wechat.util.AesUtil;
+import com.company.wechat.model.dto.CallbackEvent;
+import com.company.wechat.util.CallbackBodyBuffer;
+import com.company.wechat.util.CallbackXmlParser;
+import com.company.wechat.util.WechatCryptoEngine;
 import com.company.wechat.util.WechatSignUtil;
-import com.company.wechat.util.XmlUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * 企业微信回调处理服务
  * 
@@ -24,7 +28,19 @@ public class WechatCallbackService {
     private WechatWorkConfig config;
 
     @Autowired
-    private CustomerEventService customerEventService;
+    private CallbackHandlerRegistry handlerRegistry;
+
+    @Autowired
+    private WechatCryptoEngine cryptoEngine;
+
+    @Autowired
+    private CallbackDeduplicator deduplicator;
+
+    @Autowired
+    private CallbackJournal journal;
+
+    @Autowired
+    private CallbackLoggingConfig loggingConfig;
 
     /**
      * 验证回调URL
@@ -52,8 +68,7 @@ public class WechatCallbackService {
             }
 
             // 解密echostr
-            AesUtil aesUtil = new AesUtil(config.getEncodingAesKey(), config.getCorpId());
-            String result = aesUtil.decrypt(echostr);
+            String result = cryptoEngine.decrypt(echostr);
 
             logger.info("URL验证成功");
             return result;
@@ -64,21 +79,21 @@ public class WechatCallbackService {
     }
 
     /**
-     * 处理回调消息
+     * 处理回调消息（原始请求体字节）
+     * 直接在请求体字节上定位Encrypt字段、验签和Base64解码，不把请求体转换为String
      *
      * @param msgSignature 消息签名
      * @param timestamp 时间戳
      * @param nonce 随机数
-     * @param encryptedData 加密的消息数据
+     * @param body 原始请求体
      * @return 响应消息
      */
-    public String handleCallback(String msgSignature, String timestamp, String nonce, String encryptedData) {
+    public String handleCallback(String msgSignature, String timestamp, String nonce, CallbackBodyBuffer body) {
         try {
             logger.debug("收到回调消息 - Signature: {}, Timestamp: {}, Nonce: {}", msgSignature, timestamp, nonce);
 
-            // 提取加密内容
-            String encrypt = extractEncrypt(encryptedData);
-            if (encrypt == null) {
+            // 按字节定位加密内容
+            if (!body.locateEncrypt()) {
                 logger.error("提取加密内容失败");
                 return buildSuccessResponse();
             }
@@ -88,7 +103,9 @@ public class WechatCallbackService {
                     config.getToken(),
                     timestamp,
                     nonce,
-                    encrypt,
+                    body.getBytes(),
+                    body.getEncryptOffset(),
+                    body.getEncryptLength(),
                     msgSignature
             );
 
@@ -97,19 +114,11 @@ public class WechatCallbackService {
                 return buildSuccessResponse();
             }
 
-            // 解密消息
-            AesUtil aesUtil = new AesUtil(config.getEncodingAesKey(), config.getCorpId());
-            String xmlContent = aesUtil.decrypt(encrypt);
-            
-            logger.debug("解密后的消息内容: {}", xmlContent);
-
-            // 解析消息
-            CallbackMessage message = XmlUtil.parseCallbackXml(xmlContent);
+            // Base64直接从请求体字节解码到解密缓冲区
+            String xmlContent = cryptoEngine.decrypt(body.getBytes(), body.getEncryptOffset(), body.getEncryptLength());
 
-            // 根据消息类型和事件类型处理
-            handleMessage(message, xmlContent);
+            processMessage(xmlContent);
 
-            // 返回success响应
             return buildSuccessResponse();
 
         } catch (Exception e) {
@@ -119,68 +128,42 @@ public class WechatCallbackService {
     }
 
     /**
-     * 根据消息类型处理消息
+     * 解析解密后的消息，去重、写入日志后交给事件处理器
      */
-    private void handleMessage(CallbackMessage message, String xmlContent) {
-        String msgType = message.getMsgType();
-        String event = message.getEvent();
+    private void processMessage(String xmlContent) {
+        if (logger.isDebugEnabled() && sampleBody()) {
+            logger.debug("解密后的消息内容: {}", xmlContent);
+        }
 
-        logger.info("处理消息 - 类型: {}, 事件: {}, 变更类型: {}", msgType, event, message.getChangeType());
+        // 单次流式解析为回调事件
+        CallbackEvent event = CallbackXmlParser.parse(xmlContent);
 
-        // 处理事件类型消息
-        if ("event".equals(msgType)) {
-            handleEvent(message, xmlContent);
+        // 企业微信重推的回调直接确认，不再重复处理
+        if (deduplicator.isDuplicate(event)) {
+            logger.info("忽略重复推送的回调 - 事件: {}, 变更类型: {}, External UserID: {}",
+                    event.getEvent(), event.getChangeType(), event.getExternalUserId());
+            return;
         }
-    }
 
-    /**
-     * 处理事件
-     */
-    private void handleEvent(CallbackMessage message, String xmlContent) {
-        String event = message.getEvent();
-        String changeType = message.getChangeType();
-
-        // 客户变更事件
-        if ("change_external_contact".equals(event)) {
-            // 添加客户事件
-            if ("add_external_contact".equals(changeType)) {
-                logger.info("检测到客户添加事件");
-                customerEventService.handleCustomerAddEvent(xmlContent);
-            }
-            // 删除客户事件
-            else if ("del_external_contact".equals(changeType)) {
-                logger.info("检测到客户删除事件");
-                // 可以在这里处理客户删除逻辑
-            }
+        // 先写入回调日志再确认，进程在处理完成前退出时可从日志重放
+        journal.append(xmlContent);
+
+        logger.info("处理消息 - 类型: {}, 事件: {}, 变更类型: {}",
+                event.getMsgType(), event.getEvent(), event.getChangeType());
+
+        // 事件类型消息放入对应处理器的队列（异步模式下立即返回，不等待业务处理完成）；
+        // 被丢弃或处理失败的事件撤销去重记录，企业微信重推时仍会处理
+        if ("event".equals(event.getMsgType())) {
+            handlerRegistry.dispatch(event, () -> deduplicator.release(event));
         }
     }
 
     /**
-     * 从加密数据中提取Encrypt字段
+     * 是否抽中打印完整消息体（按配置的采样率）
      */
-    private String extractEncrypt(String encryptedData) {
-        try {
-            int start = encryptedData.indexOf("<Encrypt><![CDATA[");
-            int end = encryptedData.indexOf("]]></Encrypt>");
-            
-            if (start != -1 && end != -1) {
-                start += "<Encrypt><![CDATA[".length();
-                return encryptedData.substring(start, end);
-            }
-            
-            // 尝试其他格式
-            start = encryptedData.indexOf("<Encrypt>");
-            end = encryptedData.indexOf("</Encrypt>");
-            if (start != -1 && end != -1) {
-                start += "<Encrypt>".length();
-                return encryptedData.substring(start, end);
-            }
-            
-            return null;
-        } catch (Exception e) {
-            logger.error("提取Encrypt字段失败", e);
-            return null;
-        }
+    public boolean sampleBody() {
+        double rate = loggingConfig.getBodySampleRate();
+        return rate >= 1.0 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
     }
 
     /**
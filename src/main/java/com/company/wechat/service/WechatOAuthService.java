@@ -1,8 +1,8 @@
 package com.company.wechat.service;
 
+import com.company.wechat.codec.WechatCodec;
 import com.company.wechat.config.WechatWorkConfig;
 import com.company.wechat.model.vo.WechatOAuthResponse;
-import com.company.wechat.util.HttpUtil;
 import com.google.gson.Gson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,18 +21,18 @@ public class WechatOAuthService {
     private static final Logger logger = LoggerFactory.getLogger(WechatOAuthService.class);
 
     // 获取访问用户身份API
-    private static final String GET_USER_INFO_URL = "https://qyapi.weixin.qq.com/cgi-bin/user/getuserinfo?access_token=%s&code=%s";
+    private static final String GET_USER_INFO_URL = "/cgi-bin/user/getuserinfo?access_token=%s&code=%s";
     
     // 获取外部联系人详情API
-    private static final String GET_EXTERNAL_CONTACT_URL = "https://qyapi.weixin.qq.com/cgi-bin/externalcontact/get?access_token=%s&external_userid=%s";
+    private static final String GET_EXTERNAL_CONTACT_URL = "/cgi-bin/externalcontact/get?access_token=%s&external_userid=%s";
 
     @Autowired
-    private WechatApiService wechatApiService;
+    private QyApiClient apiClient;
 
     @Autowired
     private WechatWorkConfig config;
 
-    private final Gson gson = new Gson();
+    private final Gson gson = WechatCodec.gson();
 
     /**
      * 通过OAuth code获取用户身份
@@ -42,11 +42,8 @@ public class WechatOAuthService {
      */
     public WechatOAuthResponse getUserInfo(String code) {
         try {
-            String accessToken = wechatApiService.getAccessToken();
-            String url = String.format(GET_USER_INFO_URL, accessToken, code);
-            
             logger.info("通过code获取用户信息: code={}", code);
-            String response = HttpUtil.doGet(url);
+            String response = apiClient.get(GET_USER_INFO_URL, code);
             
             WechatOAuthResponse result = gson.fromJson(response, WechatOAuthResponse.class);
             
@@ -72,11 +69,8 @@ public class WechatOAuthService {
      */
     public String getExternalContactDetail(String externalUserId) {
         try {
-            String accessToken = wechatApiService.getAccessToken();
-            String url = String.format(GET_EXTERNAL_CONTACT_URL, accessToken, externalUserId);
-            
             logger.info("获取外部联系人详情: externalUserId={}", externalUserId);
-            String response = HttpUtil.doGet(url);
+            String response = apiClient.get(GET_EXTERNAL_CONTACT_URL, externalUserId);
             
             logger.debug("外部联系人详情: {}", response);
             return response;
@@ -0,0 +1,210 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.WechatWorkConfig;
+import com.company.wechat.config.WelcomeFallbackConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 欢迎语补发服务
+ *
+ * 欢迎语发送失败（welcome_code失效或超时）的客户按员工UserID归集，在合并窗口到期或达到批量上限时，
+ * 以该员工身份调用一次add_msg_template，external_userid为多个客户，代替人工逐个发送链接。
+ * 同一批客户共用一个链接，客户身份由H5页面的OAuth授权识别
+ *
+ * @author Company
+ */
+@Service
+public class WelcomeFallbackService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WelcomeFallbackService.class);
+
+    @Autowired
+    private WelcomeFallbackConfig fallbackConfig;
+
+    @Autowired
+    private WechatWorkConfig config;
+
+    @Autowired
+    private ExistingCustomerService existingCustomerService;
+
+    /**
+     * 按员工归集的待补发客户
+     */
+    private final Map<String, PendingBatch> pending = new LinkedHashMap<>();
+
+    private ScheduledExecutorService flusher;
+
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong sentCustomerCount = new AtomicLong();
+    private final AtomicLong failedBatchCount = new AtomicLong();
+    private final AtomicLong failedCustomerCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!fallbackConfig.isEnabled()) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "welcome-fallback");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushExpired, 1, 1, TimeUnit.SECONDS);
+        logger.info("欢迎语补发已开启 - 合并窗口: {}秒, 单批上限: {}",
+                fallbackConfig.getWindowSeconds(), fallbackConfig.getMaxBatchSize());
+    }
+
+    /**
+     * 是否开启自动补发
+     */
+    public boolean isEnabled() {
+        return flusher != null;
+    }
+
+    /**
+     * 加入待补发队列
+     *
+     * @param staffUserId 添加客户的员工UserID
+     * @param externalUserId 客户的external_userid
+     * @return 是否已加入队列
+     */
+    public boolean enqueue(String staffUserId, String externalUserId) {
+        if (flusher == null || staffUserId == null || externalUserId == null) {
+            return false;
+        }
+        PendingBatch full = null;
+        synchronized (pending) {
+            PendingBatch batch = pending.computeIfAbsent(staffUserId, PendingBatch::new);
+            if (batch.customers.add(externalUserId)) {
+                enqueuedCount.incrementAndGet();
+            }
+            if (batch.customers.size() >= fallbackConfig.getMaxBatchSize()) {
+                full = pending.remove(staffUserId);
+            }
+        }
+        if (full != null) {
+            PendingBatch batch = full;
+            flusher.execute(() -> send(batch));
+        }
+        return true;
+    }
+
+    /**
+     * 发送合并窗口已到期的批次
+     */
+    private void flushExpired() {
+        long expireBefore = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(fallbackConfig.getWindowSeconds());
+        List<PendingBatch> due = new ArrayList<>();
+        synchronized (pending) {
+            pending.values().removeIf(batch -> {
+                if (batch.firstEnqueueTime <= expireBefore) {
+                    due.add(batch);
+                    return true;
+                }
+                return false;
+            });
+        }
+        due.forEach(this::send);
+    }
+
+    /**
+     * 以员工身份发送一次群发消息模板
+     */
+    private void send(PendingBatch batch) {
+        List<String> customers = new ArrayList<>(batch.customers);
+        String link = config.getH5BaseUrl() + "?source=welcome_fallback";
+        try {
+            String msgid = existingCustomerService.sendMsgTemplate(
+                    batch.staffUserId,
+                    customers,
+                    fallbackConfig.getLinkTitle(),
+                    fallbackConfig.getLinkDesc(),
+                    fallbackConfig.getLinkPicUrl(),
+                    link);
+            if (msgid != null) {
+                batchCount.incrementAndGet();
+                sentCustomerCount.addAndGet(customers.size());
+                logger.info("欢迎语补发成功 - 员工: {}, 客户数: {}, msgid: {}",
+                        batch.staffUserId, customers.size(), msgid);
+                return;
+            }
+        } catch (Exception e) {
+            logger.error("欢迎语补发异常 - 员工: {}", batch.staffUserId, e);
+        }
+        failedBatchCount.incrementAndGet();
+        failedCustomerCount.addAndGet(customers.size());
+        logger.warn("欢迎语补发失败，请客服手动发送链接 {} - 员工: {}, 客户: {}", link, batch.staffUserId, customers);
+    }
+
+    /**
+     * 获取补发指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int pendingStaff;
+        int pendingCustomers = 0;
+        synchronized (pending) {
+            pendingStaff = pending.size();
+            for (PendingBatch batch : pending.values()) {
+                pendingCustomers += batch.customers.size();
+            }
+        }
+        stats.put("enabled", isEnabled());
+        stats.put("pendingStaff", pendingStaff);
+        stats.put("pendingCustomers", pendingCustomers);
+        stats.put("enqueued", enqueuedCount.get());
+        stats.put("batches", batchCount.get());
+        stats.put("sentCustomers", sentCustomerCount.get());
+        stats.put("failedBatches", failedBatchCount.get());
+        stats.put("failedCustomers", failedCustomerCount.get());
+        // 相比每个客户单独调用一次节省的接口调用次数
+        stats.put("savedCalls", sentCustomerCount.get() - batchCount.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        List<PendingBatch> remaining;
+        synchronized (pending) {
+            remaining = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        // 关闭前把未到期的批次发出去
+        remaining.forEach(this::send);
+    }
+
+    /**
+     * 单个员工的待补发批次
+     */
+    private static final class PendingBatch {
+
+        private final String staffUserId;
+        private final long firstEnqueueTime = System.currentTimeMillis();
+        private final Set<String> customers = new LinkedHashSet<>();
+
+        PendingBatch(String staffUserId) {
+            this.staffUserId = staffUserId;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.WelcomeSchedulerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 欢迎语发送调度器
+ *
+ * welcome_code在客户添加后20秒内有效，突发的添加事件如果排在慢速HTTP调用后面就会过期。
+ * 调度器按截止时间（CreateTime + 有效期）最早优先发送；发送前根据近期调用耗时估算能否赶上截止时间，
+ * 赶不上的直接转交给回调方处理，不再浪费一次API调用。调用本身的限流等待、重试退避和请求超时也以截止时间为上限。
+ * 发送使用专用线程和预留的HTTP在途名额，批量群发任务无法占用
+ *
+ * @author Company
+ */
+@Service
+public class WelcomeMessageScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(WelcomeMessageScheduler.class);
+
+    /**
+     * 调用耗时指数移动平均的权重
+     */
+    private static final double LATENCY_ALPHA = 0.2;
+
+    @Autowired
+    private WelcomeSchedulerConfig schedulerConfig;
+
+    @Autowired
+    private WechatApiService wechatApiService;
+
+    private final PriorityBlockingQueue<WelcomeTask> queue = new PriorityBlockingQueue<>();
+    private final List<Thread> senders = new ArrayList<>();
+    private volatile boolean running;
+
+    /**
+     * 欢迎语调用耗时的指数移动平均（毫秒）
+     */
+    private volatile double latencyEwmaMillis;
+
+    private final AtomicLong scheduledCount = new AtomicLong();
+    private final AtomicLong onTimeCount = new AtomicLong();
+    private final AtomicLong lateCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalSlackMillis = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        running = true;
+        for (int i = 1; i <= schedulerConfig.getSendThreads(); i++) {
+            Thread thread = new Thread(this::sendLoop, "welcome-sender-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            senders.add(thread);
+        }
+        logger.info("欢迎语发送调度器已启动 - 发送线程: {}, 有效期: {}秒, 安全余量: {}毫秒",
+                schedulerConfig.getSendThreads(), schedulerConfig.getCodeValiditySeconds(),
+                schedulerConfig.getSafetyMarginMillis());
+    }
+
+    /**
+     * 提交欢迎语发送
+     *
+     * @param welcomeCode 欢迎语code
+     * @param createTime 事件CreateTime（秒），为空时按当前时间计算
+     * @param content 消息内容
+     * @param listener 发送结果回调，在发送线程上执行
+     */
+    public void schedule(String welcomeCode, Long createTime, String content, Consumer<Outcome> listener) {
+        long createMillis = createTime != null ? createTime * 1000L : System.currentTimeMillis();
+        long deadline = createMillis + schedulerConfig.getCodeValiditySeconds() * 1000L;
+        WelcomeTask task = new WelcomeTask(welcomeCode, deadline, content, listener);
+
+        scheduledCount.incrementAndGet();
+        if (queue.size() >= schedulerConfig.getMaxPending()) {
+            rejectedCount.incrementAndGet();
+            logger.warn("欢迎语待发送队列已满，放弃发送: welcomeCode={}", welcomeCode);
+            notify(task, Outcome.REJECTED);
+            return;
+        }
+        queue.offer(task);
+    }
+
+    /**
+     * 发送线程主循环
+     */
+    private void sendLoop() {
+        while (running) {
+            WelcomeTask task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            send(task);
+        }
+    }
+
+    /**
+     * 发送单条欢迎语
+     */
+    private void send(WelcomeTask task) {
+        long now = System.currentTimeMillis();
+        long expectedFinish = now + (long) latencyEwmaMillis + schedulerConfig.getSafetyMarginMillis();
+        if (expectedFinish > task.deadline) {
+            expiredCount.incrementAndGet();
+            logger.warn("welcome_code预计无法在有效期内发送，放弃调用: welcomeCode={}, 剩余: {}毫秒",
+                    task.welcomeCode, task.deadline - now);
+            notify(task, Outcome.EXPIRED);
+            return;
+        }
+
+        boolean success = wechatApiService.sendWelcomeMessage(task.welcomeCode, task.content, task.deadline);
+        long finish = System.currentTimeMillis();
+        recordLatency(finish - now);
+
+        if (!success && finish >= task.deadline) {
+            // 调用在截止时间处被中止（请求超时或放弃重试）
+            expiredCount.incrementAndGet();
+            notify(task, Outcome.EXPIRED);
+        } else if (!success) {
+            failedCount.incrementAndGet();
+            notify(task, Outcome.FAILED);
+        } else if (finish <= task.deadline) {
+            onTimeCount.incrementAndGet();
+            totalSlackMillis.addAndGet(task.deadline - finish);
+            notify(task, Outcome.SENT);
+        } else {
+            // 接口返回成功但已超过本地计算的截止时间（通常是CreateTime与本机时钟存在偏差）
+            lateCount.incrementAndGet();
+            notify(task, Outcome.SENT);
+        }
+    }
+
+    private void recordLatency(long millis) {
+        double current = latencyEwmaMillis;
+        latencyEwmaMillis = current == 0 ? millis : current + LATENCY_ALPHA * (millis - current);
+    }
+
+    private void notify(WelcomeTask task, Outcome outcome) {
+        if (task.listener == null) {
+            return;
+        }
+        try {
+            task.listener.accept(outcome);
+        } catch (Exception e) {
+            logger.error("欢迎语发送结果回调异常: welcomeCode={}", task.welcomeCode, e);
+        }
+    }
+
+    /**
+     * 获取调度指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long onTime = onTimeCount.get();
+        long finished = onTime + lateCount.get() + failedCount.get() + expiredCount.get() + rejectedCount.get();
+        stats.put("pending", queue.size());
+        stats.put("sendThreads", senders.size());
+        stats.put("scheduled", scheduledCount.get());
+        stats.put("onTime", onTime);
+        stats.put("late", lateCount.get());
+        stats.put("failed", failedCount.get());
+        stats.put("expired", expiredCount.get());
+        stats.put("rejected", rejectedCount.get());
+        stats.put("onTimeRate", finished > 0 ? (double) onTime / finished : 1.0);
+        stats.put("avgSlackMillis", onTime > 0 ? totalSlackMillis.get() / onTime : 0);
+        stats.put("latencyEwmaMillis", Math.round(latencyEwmaMillis));
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        senders.forEach(Thread::interrupt);
+        if (!queue.isEmpty()) {
+            logger.warn("欢迎语发送调度器关闭，放弃{}条待发送欢迎语", queue.size());
+        }
+    }
+
+    /**
+     * 发送结果
+     */
+    public enum Outcome {
+        /**
+         * 发送成功
+         */
+        SENT,
+        /**
+         * 接口调用失败（welcome_code已失效或其他错误）
+         */
+        FAILED,
+        /**
+         * 预计赶不上有效期未调用接口，或调用到截止时间仍未完成
+         */
+        EXPIRED,
+        /**
+         * 待发送队列已满
+         */
+        REJECTED
+    }
+
+    /**
+     * 待发送的欢迎语，按截止时间排序
+     */
+    private static final class WelcomeTask implements Comparable<WelcomeTask> {
+
+        private final String welcomeCode;
+        private final long deadline;
+        private final String content;
+        private final Consumer<Outcome> listener;
+
+        WelcomeTask(String welcomeCode, long deadline, String content, Consumer<Outcome> listener) {
+            this.welcomeCode = welcomeCode;
+            this.deadline = deadline;
+            this.content = content;
+            this.listener = listener;
+        }
+
+        @Override
+        public int compareTo(WelcomeTask other) {
+            return Long.compare(deadline, other.deadline);
+        }
+    }
+}
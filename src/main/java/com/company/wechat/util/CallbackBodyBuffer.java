@@ -0,0 +1,158 @@
+package com.company.wechat.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 回调请求体缓冲区
+ * 每个线程复用一个字节缓冲区读取原始请求体，并按字节查找Encrypt字段的位置，
+ * 配合{@link WechatSignUtil}和{@link WechatCryptoEngine}的字节数组重载，整个回调处理过程不把请求体转换为String
+ *
+ * @author Company
+ */
+public final class CallbackBodyBuffer {
+
+    /**
+     * 缓冲区初始大小，以及回收后保留的最大大小
+     */
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 允许的最大请求体
+     */
+    private static final int MAX_BODY_SIZE = 1024 * 1024;
+
+    private static final byte[] ENCRYPT_START = "<Encrypt>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ENCRYPT_END = "</Encrypt>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CDATA_START = "<![CDATA[".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CDATA_END = "]]>".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<CallbackBodyBuffer> BUFFERS = ThreadLocal.withInitial(CallbackBodyBuffer::new);
+
+    private byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+    private int length;
+    private int encryptOffset = -1;
+    private int encryptLength;
+
+    private CallbackBodyBuffer() {
+    }
+
+    /**
+     * 读取请求体到当前线程的缓冲区
+     * 返回的缓冲区在同一线程下次调用前有效，使用完毕后调用{@link #release()}
+     *
+     * @param in 请求输入流
+     * @param contentLength 请求头中的Content-Length，未知时传-1
+     * @return 当前线程的缓冲区
+     */
+    public static CallbackBodyBuffer read(InputStream in, int contentLength) throws IOException {
+        CallbackBodyBuffer buffer = BUFFERS.get();
+        buffer.length = 0;
+        buffer.encryptOffset = -1;
+        buffer.encryptLength = 0;
+        if (contentLength > MAX_BODY_SIZE) {
+            throw new IOException("回调消息体过大: " + contentLength);
+        }
+        // 多留1字节，读满Content-Length后不必为了确认流结束而扩容
+        if (contentLength >= buffer.bytes.length) {
+            buffer.bytes = new byte[contentLength + 1];
+        }
+
+        int n;
+        while ((n = in.read(buffer.bytes, buffer.length, buffer.bytes.length - buffer.length)) != -1) {
+            buffer.length += n;
+            if (buffer.length == buffer.bytes.length) {
+                if (buffer.length >= MAX_BODY_SIZE) {
+                    throw new IOException("回调消息体过大");
+                }
+                byte[] grown = new byte[Math.min(buffer.bytes.length * 2, MAX_BODY_SIZE)];
+                System.arraycopy(buffer.bytes, 0, grown, 0, buffer.length);
+                buffer.bytes = grown;
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * 查找Encrypt字段内容的位置，支持CDATA和普通文本两种格式
+     *
+     * @return 是否找到
+     */
+    public boolean locateEncrypt() {
+        int start = indexOf(ENCRYPT_START, 0);
+        if (start < 0) {
+            return false;
+        }
+        start += ENCRYPT_START.length;
+        int end = indexOf(ENCRYPT_END, start);
+        if (end < 0) {
+            return false;
+        }
+        // 去掉CDATA包裹
+        if (regionMatches(start, CDATA_START) && end - CDATA_END.length >= start + CDATA_START.length
+                && regionMatches(end - CDATA_END.length, CDATA_END)) {
+            start += CDATA_START.length;
+            end -= CDATA_END.length;
+        }
+        encryptOffset = start;
+        encryptLength = end - start;
+        return true;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getEncryptOffset() {
+        return encryptOffset;
+    }
+
+    public int getEncryptLength() {
+        return encryptLength;
+    }
+
+    /**
+     * 释放处理超大请求体时放大的缓冲区
+     */
+    public void release() {
+        if (bytes.length > MAX_RETAINED_BUFFER_SIZE) {
+            bytes = new byte[INITIAL_BUFFER_SIZE];
+        }
+        length = 0;
+    }
+
+    /**
+     * 请求体内容（仅用于日志输出）
+     */
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int indexOf(byte[] pattern, int from) {
+        for (int i = from, last = length - pattern.length; i <= last; i++) {
+            if (regionMatches(i, pattern)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean regionMatches(int offset, byte[] pattern) {
+        if (offset + pattern.length > length) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length; i++) {
+            if (bytes[offset + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,157 @@
+package com.company.wechat.util;
+
+import com.company.wechat.model.dto.CallbackEvent;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+
+/**
+ * 回调事件XML流式解析器
+ * 基于StAX单次遍历，把所有关心的字段直接解码到{@link CallbackEvent}，
+ * 不构建DOM树，也不需要对同一段XML重复解析
+ *
+ * 安全：禁用DTD和外部实体，遇到DOCTYPE直接拒绝，防止XXE攻击
+ *
+ * @author Company
+ */
+public class CallbackXmlParser {
+
+    /**
+     * XMLInputFactory不保证线程安全，每个线程持有一个已配置好的实例
+     */
+    private static final ThreadLocal<XMLInputFactory> FACTORY = ThreadLocal.withInitial(() -> {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    });
+
+    /**
+     * 解析企业微信回调XML
+     *
+     * @param xml 解密后的XML
+     * @return 回调事件
+     */
+    public static CallbackEvent parse(String xml) {
+        XMLStreamReader reader = null;
+        try {
+            reader = FACTORY.get().createXMLStreamReader(new StringReader(xml));
+
+            CallbackEvent event = new CallbackEvent();
+            event.setOriginalXml(xml);
+
+            int depth = 0;
+            while (reader.hasNext()) {
+                int type = reader.next();
+                if (type == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    // 只读取根节点<xml>下的直接子元素，其余嵌套元素跳过
+                    if (depth == 2 && readField(reader, event)) {
+                        depth--;
+                    }
+                } else if (type == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                } else if (type == XMLStreamConstants.DTD) {
+                    throw new IllegalArgumentException("回调XML不允许包含DOCTYPE声明");
+                }
+            }
+            return event;
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("解析回调XML失败", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                    // 忽略关闭异常
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取当前元素的文本并写入对应字段
+     *
+     * @return 是否已读取（读取后reader停在该元素的结束标签上）
+     */
+    private static boolean readField(XMLStreamReader reader, CallbackEvent event) throws XMLStreamException {
+        switch (reader.getLocalName()) {
+            case "ToUserName":
+                event.setToUserName(reader.getElementText());
+                return true;
+            case "FromUserName":
+                event.setFromUserName(reader.getElementText());
+                return true;
+            case "CreateTime":
+                event.setCreateTime(parseLong(reader.getElementText()));
+                return true;
+            case "MsgType":
+                event.setMsgType(reader.getElementText());
+                return true;
+            case "Event":
+                event.setEvent(reader.getElementText());
+                return true;
+            case "ChangeType":
+                event.setChangeType(reader.getElementText());
+                return true;
+            case "MsgId":
+                event.setMsgId(parseLong(reader.getElementText()));
+                return true;
+            case "ExternalUserID":
+                event.setExternalUserId(reader.getElementText());
+                return true;
+            case "UserID":
+                event.setUserId(reader.getElementText());
+                return true;
+            case "WelcomeCode":
+                event.setWelcomeCode(reader.getElementText());
+                return true;
+            case "State":
+                event.setState(reader.getElementText());
+                return true;
+            case "Source":
+                event.setSource(reader.getElementText());
+                return true;
+            case "ChatId":
+                event.setChatId(reader.getElementText());
+                return true;
+            case "UpdateDetail":
+                event.setUpdateDetail(reader.getElementText());
+                return true;
+            case "Id":
+                event.setTagId(reader.getElementText());
+                return true;
+            case "TagType":
+                event.setTagType(reader.getElementText());
+                return true;
+            case "StrategyId":
+                event.setStrategyId(reader.getElementText());
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 解析Long值，非法值返回null
+     */
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(trimmed);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
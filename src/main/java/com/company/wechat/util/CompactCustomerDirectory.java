@@ -0,0 +1,456 @@
+package com.company.wechat.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * 紧凑的客户目录：客户external_userid -> 发送员工userid
+ *
+ * 员工userid编为int字典下标；客户ID按UTF-8字节无符号字典序排序后连续存放在一个byte数组中，
+ * offsets[i]为第i个客户ID的起始位置，staffIndexes[i]为其员工下标。每个客户约占ID字节数加8字节，
+ * 没有每条记录的String和Map.Entry对象；按客户ID查找为二分查找，遍历按下标进行。
+ * 构建后不可修改，可被多个线程同时读取
+ *
+ * @author Company
+ */
+public final class CompactCustomerDirectory {
+
+    private final String[] staff;
+    private final byte[] arena;
+    private final int[] offsets;
+    private final int[] staffIndexes;
+
+    private CompactCustomerDirectory(String[] staff, byte[] arena, int[] offsets, int[] staffIndexes) {
+        this.staff = staff;
+        this.arena = arena;
+        this.offsets = offsets;
+        this.staffIndexes = staffIndexes;
+    }
+
+    /**
+     * 创建构建器
+     *
+     * @param staffUserIds 员工userid列表，下标即员工在字典中的下标；同一客户属于多个员工时保留下标最小的员工
+     */
+    public static Builder builder(List<String> staffUserIds) {
+        return new Builder(staffUserIds);
+    }
+
+    /**
+     * 客户数量
+     */
+    public int size() {
+        return staffIndexes.length;
+    }
+
+    public boolean isEmpty() {
+        return staffIndexes.length == 0;
+    }
+
+    /**
+     * 员工字典大小
+     */
+    public int getStaffCount() {
+        return staff.length;
+    }
+
+    public boolean contains(String externalUserId) {
+        return indexOf(externalUserId) >= 0;
+    }
+
+    /**
+     * 查找客户的发送员工
+     *
+     * @return 员工userid，客户不存在时返回null
+     */
+    public String getStaff(String externalUserId) {
+        int index = indexOf(externalUserId);
+        return index >= 0 ? staff[staffIndexes[index]] : null;
+    }
+
+    /**
+     * 二分查找客户的下标
+     *
+     * @return 下标，不存在时返回-1
+     */
+    public int indexOf(String externalUserId) {
+        if (externalUserId == null) {
+            return -1;
+        }
+        byte[] key = externalUserId.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = staffIndexes.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(arena, offsets[mid], offsets[mid + 1], key, 0, key.length);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 第index个客户的external_userid（按字节序）
+     */
+    public String getCustomerAt(int index) {
+        return new String(arena, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 第index个客户的发送员工userid
+     */
+    public String getStaffAt(int index) {
+        return staff[staffIndexes[index]];
+    }
+
+    /**
+     * 第index个客户的发送员工在字典中的下标
+     */
+    public int getStaffIndexAt(int index) {
+        return staffIndexes[index];
+    }
+
+    /**
+     * 员工字典中下标为staffIndex的员工userid
+     */
+    public String getStaffUserId(int staffIndex) {
+        return staff[staffIndex];
+    }
+
+    /**
+     * 按员工分组的客户下标（计数排序，不生成客户ID字符串）
+     *
+     * @return 第s个元素为员工字典下标s的客户下标，按客户ID字节序排列；没有客户的员工为空数组
+     */
+    public int[][] customerIndexesByStaff() {
+        int[] counts = new int[staff.length];
+        for (int staffIndex : staffIndexes) {
+            counts[staffIndex]++;
+        }
+        int[][] groups = new int[staff.length][];
+        for (int s = 0; s < staff.length; s++) {
+            groups[s] = new int[counts[s]];
+            counts[s] = 0;
+        }
+        for (int i = 0; i < staffIndexes.length; i++) {
+            int s = staffIndexes[i];
+            groups[s][counts[s]++] = i;
+        }
+        return groups;
+    }
+
+    /**
+     * 按客户ID字节序遍历
+     */
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < staffIndexes.length; i++) {
+            action.accept(getCustomerAt(i), staff[staffIndexes[i]]);
+        }
+    }
+
+    /**
+     * 客户ID的只读列表视图，元素在访问时解码，不复制整个目录
+     */
+    public List<String> customerIds() {
+        return new CustomerIdList();
+    }
+
+    /**
+     * 客户ID -> 员工userid的只读Map视图，get/containsKey为二分查找，遍历时逐条生成Entry
+     */
+    public Map<String, String> asMap() {
+        return new DirectoryMap();
+    }
+
+    /**
+     * 目录本身占用的内存估算（字节）：ID字节数组、两个int数组和员工字典
+     */
+    public long getFootprintBytes() {
+        long bytes = 16 + arrayBytes(arena.length, 1) + arrayBytes(offsets.length, 4)
+                + arrayBytes(staffIndexes.length, 4) + arrayBytes(staff.length, 4);
+        for (String userId : staff) {
+            bytes += 24 + arrayBytes(userId.length(), 2);
+        }
+        return bytes;
+    }
+
+    private static long arrayBytes(int length, int elementSize) {
+        return (16 + (long) length * elementSize + 7) & ~7L;
+    }
+
+    /**
+     * 按无符号字节字典序比较两个字节区间
+     */
+    private static int compare(byte[] a, int aFrom, int aTo, byte[] b, int bFrom, int bTo) {
+        int aLength = aTo - aFrom;
+        int bLength = bTo - bFrom;
+        int length = Math.min(aLength, bLength);
+        for (int i = 0; i < length; i++) {
+            int cmp = (a[aFrom + i] & 0xff) - (b[bFrom + i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    private final class CustomerIdList extends AbstractList<String> implements RandomAccess {
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return getCustomerAt(index);
+        }
+
+        @Override
+        public int size() {
+            return CompactCustomerDirectory.this.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String && indexOf((String) o) >= 0;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            return o instanceof String ? CompactCustomerDirectory.this.indexOf((String) o) : -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            return indexOf(o);
+        }
+    }
+
+    private final class DirectoryMap extends AbstractMap<String, String> {
+
+        @Override
+        public int size() {
+            return CompactCustomerDirectory.this.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && indexOf((String) key) >= 0;
+        }
+
+        @Override
+        public String get(Object key) {
+            return key instanceof String ? getStaff((String) key) : null;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<Entry<String, String>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < staffIndexes.length;
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (next >= staffIndexes.length) {
+                                throw new NoSuchElementException();
+                            }
+                            int index = next++;
+                            return new SimpleImmutableEntry<>(getCustomerAt(index), getStaffAt(index));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return CompactCustomerDirectory.this.size();
+                }
+            };
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super String, ? super String> action) {
+            for (int i = 0; i < staffIndexes.length; i++) {
+                action.accept(getCustomerAt(i), getStaffAt(i));
+            }
+        }
+    }
+
+    /**
+     * 目录构建器，add可被多个线程同时调用
+     * 客户ID按添加顺序追加到字节数组，build时排序去重并压缩
+     */
+    public static final class Builder {
+
+        private final String[] staff;
+        private final Map<String, Integer> staffDictionary;
+
+        private byte[] arena = new byte[4096];
+        private int arenaSize;
+        private int[] starts = new int[256];
+        private int[] staffIndexes = new int[256];
+        private int count;
+
+        private Builder(List<String> staffUserIds) {
+            this.staff = staffUserIds.toArray(new String[0]);
+            this.staffDictionary = new HashMap<>(staff.length * 4 / 3 + 1);
+            for (int i = 0; i < staff.length; i++) {
+                staffDictionary.putIfAbsent(staff[i], i);
+            }
+        }
+
+        /**
+         * 添加客户
+         *
+         * @param externalUserId 客户external_userid
+         * @param staffIndex 员工在构建器员工列表中的下标
+         */
+        public Builder add(String externalUserId, int staffIndex) {
+            if (staffIndex < 0 || staffIndex >= staff.length) {
+                throw new IllegalArgumentException("员工下标越界: " + staffIndex);
+            }
+            byte[] bytes = externalUserId.getBytes(StandardCharsets.UTF_8);
+            synchronized (this) {
+                if (arenaSize + bytes.length > arena.length) {
+                    arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + bytes.length));
+                }
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    staffIndexes = Arrays.copyOf(staffIndexes, count * 2);
+                }
+                System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+                starts[count] = arenaSize;
+                staffIndexes[count] = staffIndex;
+                arenaSize += bytes.length;
+                count++;
+            }
+            return this;
+        }
+
+        /**
+         * 添加客户
+         *
+         * @param externalUserId 客户external_userid
+         * @param staffUserId 员工userid，必须在构建器员工列表中
+         */
+        public Builder add(String externalUserId, String staffUserId) {
+            Integer staffIndex = staffDictionary.get(staffUserId);
+            if (staffIndex == null) {
+                throw new IllegalArgumentException("员工不在字典中: " + staffUserId);
+            }
+            return add(externalUserId, staffIndex);
+        }
+
+        /**
+         * 已添加的客户数（未去重）
+         */
+        public synchronized int getAddedCount() {
+            return count;
+        }
+
+        /**
+         * 排序、去重并生成目录；同一客户保留下标最小的员工
+         */
+        public synchronized CompactCustomerDirectory build() {
+            int[] order = sortedOrder();
+
+            // 统计去重后的客户数和ID总字节数
+            int unique = 0;
+            int uniqueBytes = 0;
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || compareEntries(order[i - 1], order[i]) != 0) {
+                    unique++;
+                    uniqueBytes += end(order[i]) - starts[order[i]];
+                }
+            }
+
+            byte[] packedArena = new byte[uniqueBytes];
+            int[] packedOffsets = new int[unique + 1];
+            int[] packedStaff = new int[unique];
+            int n = 0;
+            int position = 0;
+            for (int i = 0; i < count; i++) {
+                int entry = order[i];
+                // 排序时ID相同的按员工下标升序，第一条即下标最小的员工
+                if (i > 0 && compareEntries(order[i - 1], entry) == 0) {
+                    continue;
+                }
+                int length = end(entry) - starts[entry];
+                System.arraycopy(arena, starts[entry], packedArena, position, length);
+                packedOffsets[n] = position;
+                packedStaff[n] = staffIndexes[entry];
+                position += length;
+                n++;
+            }
+            packedOffsets[unique] = position;
+            return new CompactCustomerDirectory(staff.clone(), packedArena, packedOffsets, packedStaff);
+        }
+
+        /**
+         * 自底向上归并排序，按客户ID字节序、员工下标升序
+         */
+        private int[] sortedOrder() {
+            int[] source = new int[count];
+            for (int i = 0; i < count; i++) {
+                source[i] = i;
+            }
+            int[] target = new int[count];
+            for (int width = 1; width < count; width <<= 1) {
+                for (int low = 0; low < count; low += width << 1) {
+                    int mid = Math.min(low + width, count);
+                    int high = Math.min(low + (width << 1), count);
+                    int i = low;
+                    int j = mid;
+                    int k = low;
+                    while (i < mid && j < high) {
+                        target[k++] = compareWithStaff(source[i], source[j]) <= 0 ? source[i++] : source[j++];
+                    }
+                    while (i < mid) {
+                        target[k++] = source[i++];
+                    }
+                    while (j < high) {
+                        target[k++] = source[j++];
+                    }
+                }
+                int[] swap = source;
+                source = target;
+                target = swap;
+            }
+            return source;
+        }
+
+        private int end(int entry) {
+            return entry + 1 < count ? starts[entry + 1] : arenaSize;
+        }
+
+        private int compareEntries(int a, int b) {
+            return compare(arena, starts[a], end(a), arena, starts[b], end(b));
+        }
+
+        private int compareWithStaff(int a, int b) {
+            int cmp = compareEntries(a, b);
+            return cmp != 0 ? cmp : Integer.compare(staffIndexes[a], staffIndexes[b]);
+        }
+    }
+}
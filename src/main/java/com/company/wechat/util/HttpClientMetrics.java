@@ -0,0 +1,117 @@
+package com.company.wechat.util;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP客户端连接指标
+ * 通过OkHttp事件监听统计连接获取次数和新建连接次数，二者之差即为复用的连接
+ *
+ * @author Company
+ */
+public class HttpClientMetrics extends EventListener {
+
+    private final AtomicLong callCount = new AtomicLong();
+    private final AtomicLong callFailedCount = new AtomicLong();
+    private final AtomicLong connectionAcquiredCount = new AtomicLong();
+    private final AtomicLong connectCount = new AtomicLong();
+    private final AtomicLong connectFailedCount = new AtomicLong();
+    private final AtomicLong http2ConnectCount = new AtomicLong();
+    private final AtomicLong totalConnectNanos = new AtomicLong();
+
+    /**
+     * 每个调用的建连开始时间
+     */
+    private final ThreadLocal<Long> connectStart = new ThreadLocal<>();
+
+    @Override
+    public void callStart(Call call) {
+        callCount.incrementAndGet();
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        callFailedCount.incrementAndGet();
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStart.set(System.nanoTime());
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        connectCount.incrementAndGet();
+        if (protocol == Protocol.HTTP_2) {
+            http2ConnectCount.incrementAndGet();
+        }
+        recordConnect();
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                              Protocol protocol, IOException ioe) {
+        connectFailedCount.incrementAndGet();
+        recordConnect();
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        connectionAcquiredCount.incrementAndGet();
+    }
+
+    private void recordConnect() {
+        Long start = connectStart.get();
+        if (start != null) {
+            totalConnectNanos.addAndGet(System.nanoTime() - start);
+            connectStart.remove();
+        }
+    }
+
+    public long getCallCount() {
+        return callCount.get();
+    }
+
+    public long getCallFailedCount() {
+        return callFailedCount.get();
+    }
+
+    public long getConnectionAcquiredCount() {
+        return connectionAcquiredCount.get();
+    }
+
+    public long getConnectCount() {
+        return connectCount.get();
+    }
+
+    public long getConnectFailedCount() {
+        return connectFailedCount.get();
+    }
+
+    public long getHttp2ConnectCount() {
+        return http2ConnectCount.get();
+    }
+
+    /**
+     * 连接复用率：获取连接时没有新建连接的比例
+     */
+    public double getReuseRatio() {
+        long acquired = connectionAcquiredCount.get();
+        return acquired > 0 ? Math.max(0, acquired - connectCount.get()) / (double) acquired : 0.0;
+    }
+
+    /**
+     * 平均建连耗时（毫秒，含TLS握手）
+     */
+    public double getAvgConnectMillis() {
+        long connects = connectCount.get() + connectFailedCount.get();
+        return connects > 0 ? totalConnectNanos.get() / connects / 1_000_000.0 : 0.0;
+    }
+}
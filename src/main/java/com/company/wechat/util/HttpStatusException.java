@@ -0,0 +1,32 @@
+package com.company.wechat.util;
+
+import java.io.IOException;
+
+/**
+ * HTTP响应状态码不是2xx时抛出的异常
+ *
+ * @author Company
+ */
+public class HttpStatusException extends IOException {
+
+    private final int statusCode;
+
+    public HttpStatusException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * HTTP状态码
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * 是否为服务端限流（429）或服务端错误（5xx）
+     */
+    public boolean isThrottled() {
+        return statusCode == 429 || statusCode >= 500;
+    }
+}
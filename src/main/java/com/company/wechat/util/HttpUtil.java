@@ -1,15 +1,33 @@
 package com.company.wechat.util;
 
+import com.company.wechat.codec.WechatCodec;
 import com.google.gson.Gson;
 import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * HTTP请求工具类
+ * 异步方法基于OkHttp的enqueue，返回CompletableFuture，同时在途的请求数量有上限，
+ * 达到上限时请求进入等待队列，由完成的请求释放名额时发出，提交请求的线程不会被阻塞；
+ * 其中一部分名额预留给有效期很短的请求（欢迎语，见{@link #doPostStringReserved}），批量任务占不满；
+ * 同步方法是异步方法的简单包装。客户端由Spring按配置构建后通过{@link #configure}注入，
+ * 按接口类别（{@link Profile}）使用不同的超时设置。
+ * 可能很大的响应可以通过{@link #doGetStream}以字节流交给读取器解码，不读成完整的字符串
  * 
  * @author Company
  */
@@ -17,73 +35,547 @@ public class HttpUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(HttpUtil.class);
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
-    private static final Gson gson = new Gson();
+    private static final Gson gson = WechatCodec.gson();
 
-    private static final OkHttpClient client = new OkHttpClient.Builder()
-            .connectTimeout(10, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
-            .build();
+    /**
+     * 未通过{@link #configure}配置时的默认在途请求上限
+     */
+    private static final int DEFAULT_MAX_IN_FLIGHT = 64;
+
+    /**
+     * 按接口类别区分超时的客户端，共享同一个连接池和Dispatcher
+     */
+    private static volatile Map<Profile, OkHttpClient> clients = defaultClients();
+
+    /**
+     * 同时在途的最大请求数，超过时请求排队
+     */
+    private static volatile InFlightLimit inFlight = new InFlightLimit(DEFAULT_MAX_IN_FLIGHT, 0);
+
+    /**
+     * 接口类别（对应不同的超时配置）
+     */
+    public enum Profile {
+        /**
+         * 默认
+         */
+        DEFAULT,
+        /**
+         * 获取Access Token
+         */
+        TOKEN,
+        /**
+         * 查询类接口（客户列表、成员列表、群发结果等）
+         */
+        LIST,
+        /**
+         * 发送类接口（欢迎语、群发消息模板等）
+         */
+        SEND
+    }
+
+    private static Map<Profile, OkHttpClient> defaultClients() {
+        // 企业微信API都在同一个域名下，单域名并发上限与总上限保持一致
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(DEFAULT_MAX_IN_FLIGHT);
+        dispatcher.setMaxRequestsPerHost(DEFAULT_MAX_IN_FLIGHT);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .build();
+        Map<Profile, OkHttpClient> map = new EnumMap<>(Profile.class);
+        for (Profile profile : Profile.values()) {
+            map.put(profile, client);
+        }
+        return map;
+    }
+
+    /**
+     * 替换HTTP客户端（由Spring配置的客户端在启动时注入）
+     *
+     * @param profileClients 各接口类别的客户端，缺少的类别使用DEFAULT
+     * @param maxRequests 同时在途的最大请求数
+     */
+    public static void configure(Map<Profile, OkHttpClient> profileClients, int maxRequests) {
+        configure(profileClients, maxRequests, 0);
+    }
+
+    /**
+     * 替换HTTP客户端（由Spring配置的客户端在启动时注入）
+     *
+     * @param profileClients 各接口类别的客户端，缺少的类别使用DEFAULT
+     * @param maxRequests 同时在途的最大请求数
+     * @param reservedRequests 其中预留给{@link #doPostStringReserved}的名额数，普通请求只能使用其余名额
+     */
+    public static synchronized void configure(Map<Profile, OkHttpClient> profileClients, int maxRequests,
+                                              int reservedRequests) {
+        if (reservedRequests < 0 || reservedRequests >= maxRequests) {
+            throw new IllegalArgumentException("预留名额数必须小于在途请求上限: " + reservedRequests);
+        }
+        OkHttpClient defaultClient = profileClients.get(Profile.DEFAULT);
+        if (defaultClient == null) {
+            throw new IllegalArgumentException("缺少DEFAULT客户端");
+        }
+        Map<Profile, OkHttpClient> map = new EnumMap<>(Profile.class);
+        for (Profile profile : Profile.values()) {
+            map.put(profile, profileClients.getOrDefault(profile, defaultClient));
+        }
+        clients = map;
+        inFlight = new InFlightLimit(maxRequests, reservedRequests);
+    }
+
+    /**
+     * 当前使用的默认客户端
+     */
+    public static OkHttpClient getClient() {
+        return clients.get(Profile.DEFAULT);
+    }
 
     /**
      * GET请求
      */
     public static String doGet(String url) throws IOException {
+        return await(doGetAsync(url));
+    }
+
+    /**
+     * POST请求（JSON格式）
+     */
+    public static String doPostJson(String url, Object data) throws IOException {
+        return await(doPostJsonAsync(url, data));
+    }
+
+    /**
+     * POST请求（String格式）
+     */
+    public static String doPostString(String url, String data) throws IOException {
+        return await(doPostStringAsync(url, data));
+    }
+
+    /**
+     * GET请求（指定接口类别）
+     */
+    public static String doGet(String url, Profile profile) throws IOException {
+        return await(doGetAsync(url, profile));
+    }
+
+    /**
+     * POST请求（String格式，指定接口类别）
+     */
+    public static String doPostString(String url, String data, Profile profile) throws IOException {
+        return await(doPostStringAsync(url, data, profile));
+    }
+
+    /**
+     * POST请求（String格式），可以使用预留的在途名额，并优先于普通请求获得释放的名额
+     * 用于有截止时间的请求（如欢迎语），避免排在批量任务的请求后面
+     *
+     * @param url 请求地址
+     * @param data 请求体
+     * @param profile 接口类别
+     * @param timeoutMillis 整个调用的超时时间（毫秒，包括等待在途名额的时间），0表示只使用连接/读写超时
+     */
+    public static String doPostStringReserved(String url, String data, Profile profile, long timeoutMillis)
+            throws IOException {
+        return await(enqueue(clients.get(profile), postRequest(url, data), timeoutMillis,
+                stringBody("POST请求: {}, 参数: {}, 响应: {}", url, data), true), timeoutMillis);
+    }
+
+    /**
+     * 异步GET请求
+     */
+    public static CompletableFuture<String> doGetAsync(String url) {
+        return doGetAsync(url, Profile.DEFAULT);
+    }
+
+    /**
+     * 异步GET请求（指定接口类别）
+     */
+    public static CompletableFuture<String> doGetAsync(String url, Profile profile) {
         Request request = new Request.Builder()
                 .url(url)
                 .get()
                 .build();
+        return enqueue(clients.get(profile), request, 0, stringBody("GET请求: {}, 响应: {}", url, null));
+    }
 
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("请求失败: " + response);
-            }
-            String result = response.body().string();
-            logger.debug("GET请求: {}, 响应: {}", url, result);
-            return result;
-        }
+    /**
+     * 异步GET请求
+     *
+     * @param url 请求地址
+     * @param timeoutMillis 整个调用的超时时间（毫秒），0表示只使用连接/读写超时
+     */
+    public static CompletableFuture<String> doGetAsync(String url, long timeoutMillis) {
+        Request request = new Request.Builder()
+                .url(url)
+                .get()
+                .build();
+        return enqueue(clients.get(Profile.DEFAULT), request, timeoutMillis,
+                stringBody("GET请求: {}, 响应: {}", url, null));
     }
 
     /**
-     * POST请求（JSON格式）
+     * 异步GET请求，响应解析为指定类型
      */
-    public static String doPostJson(String url, Object data) throws IOException {
-        String jsonData = gson.toJson(data);
-        RequestBody body = RequestBody.create(jsonData, JSON);
+    public static <T> CompletableFuture<T> doGetAsync(String url, Type type) {
+        return doGetAsync(url).thenApply(response -> gson.fromJson(response, type));
+    }
 
-        Request request = new Request.Builder()
+    /**
+     * 异步POST请求（JSON格式）
+     */
+    public static CompletableFuture<String> doPostJsonAsync(String url, Object data) {
+        return doPostStringAsync(url, gson.toJson(data), 0);
+    }
+
+    /**
+     * 异步POST请求（String格式）
+     */
+    public static CompletableFuture<String> doPostStringAsync(String url, String data) {
+        return doPostStringAsync(url, data, 0);
+    }
+
+    /**
+     * 异步POST请求（String格式，指定接口类别）
+     */
+    public static CompletableFuture<String> doPostStringAsync(String url, String data, Profile profile) {
+        return doPostStringAsync(clients.get(profile), url, data, 0);
+    }
+
+    /**
+     * 异步POST请求（String格式）
+     *
+     * @param url 请求地址
+     * @param data 请求体
+     * @param timeoutMillis 整个调用的超时时间（毫秒），0表示只使用连接/读写超时
+     */
+    public static CompletableFuture<String> doPostStringAsync(String url, String data, long timeoutMillis) {
+        return doPostStringAsync(clients.get(Profile.DEFAULT), url, data, timeoutMillis);
+    }
+
+    private static CompletableFuture<String> doPostStringAsync(OkHttpClient client, String url, String data,
+                                                               long timeoutMillis) {
+        return enqueue(client, postRequest(url, data), timeoutMillis,
+                stringBody("POST请求: {}, 参数: {}, 响应: {}", url, data));
+    }
+
+    private static Request postRequest(String url, String data) {
+        RequestBody body = RequestBody.create(data, JSON);
+        return new Request.Builder()
                 .url(url)
                 .post(body)
                 .build();
+    }
 
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("请求失败: " + response);
-            }
-            String result = response.body().string();
-            logger.debug("POST请求: {}, 参数: {}, 响应: {}", url, jsonData, result);
-            return result;
-        }
+    /**
+     * 异步POST请求（String格式），响应解析为指定类型
+     */
+    public static <T> CompletableFuture<T> doPostStringAsync(String url, String data, Type type) {
+        return doPostStringAsync(url, data).thenApply(response -> gson.fromJson(response, type));
     }
 
     /**
-     * POST请求（String格式）
+     * GET请求，响应体以字节流交给读取器解码，不读成完整的字符串
+     * 用于客户列表等可能很大的响应
+     *
+     * @param url 请求地址
+     * @param profile 接口类别
+     * @param reader 响应体读取器
+     * @return 读取器的返回值
      */
-    public static String doPostString(String url, String data) throws IOException {
-        RequestBody body = RequestBody.create(data, JSON);
+    public static <T> T doGetStream(String url, Profile profile, BodyReader<T> reader) throws IOException {
+        return await(doGetStreamAsync(url, profile, reader));
+    }
 
+    /**
+     * 异步GET请求，响应体以字节流交给读取器解码
+     * 读取器在OkHttp回调线程上执行，执行期间占用一个在途名额
+     */
+    public static <T> CompletableFuture<T> doGetStreamAsync(String url, Profile profile, BodyReader<T> reader) {
         Request request = new Request.Builder()
                 .url(url)
-                .post(body)
+                .get()
                 .build();
+        return enqueue(clients.get(profile), request, 0, body -> {
+            T result = reader.read(body.byteStream());
+            logger.debug("GET流式请求: {}, 已解码响应体", url);
+            return result;
+        });
+    }
+
+    /**
+     * 当前在途的请求数
+     */
+    public static int getInFlightCount() {
+        return inFlight.getInFlight();
+    }
+
+    /**
+     * 等待在途名额的请求数
+     */
+    public static int getQueuedCount() {
+        return inFlight.getQueued();
+    }
+
+    /**
+     * 同时在途的最大请求数
+     */
+    public static int getMaxInFlight() {
+        return inFlight.max;
+    }
+
+    /**
+     * 预留给{@link #doPostStringReserved}的在途名额数
+     */
+    public static int getReservedInFlight() {
+        return inFlight.reserved;
+    }
 
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("请求失败: " + response);
+    /**
+     * 读取响应体为字符串，并在debug级别打印
+     */
+    private static BodyHandler<String> stringBody(String logFormat, String url, String data) {
+        return body -> {
+            String result = body.string();
+            if (data != null) {
+                logger.debug(logFormat, url, data, result);
+            } else {
+                logger.debug(logFormat, url, result);
             }
-            String result = response.body().string();
-            logger.debug("POST请求: {}, 参数: {}, 响应: {}", url, data, result);
             return result;
+        };
+    }
+
+    /**
+     * 提交请求
+     * 在途请求达到上限时排队，不阻塞当前线程；返回的Future被取消时同时取消底层请求或移出队列
+     */
+    private static <T> CompletableFuture<T> enqueue(OkHttpClient client, Request request, long timeoutMillis,
+                                                    BodyHandler<T> handler) {
+        return enqueue(client, request, timeoutMillis, handler, false);
+    }
+
+    /**
+     * @param reserved 是否可以使用预留名额
+     */
+    private static <T> CompletableFuture<T> enqueue(OkHttpClient client, Request request, long timeoutMillis,
+                                                    BodyHandler<T> handler, boolean reserved) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        // 记住获取名额的限制器，运行期间重新配置时归还到原来的限制器
+        InFlightLimit limit = inFlight;
+        Starter starter = () -> start(client, request, timeoutMillis, handler, future, limit);
+        limit.submit(starter, reserved);
+        future.whenComplete((result, error) -> {
+            if (error instanceof CancellationException) {
+                limit.remove(starter);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 已获得在途名额，发出请求
+     *
+     * @return 是否占用了名额（Future已被取消时不发出请求，返回false）
+     */
+    private static <T> boolean start(OkHttpClient client, Request request, long timeoutMillis,
+                                     BodyHandler<T> handler, CompletableFuture<T> future, InFlightLimit limit) {
+        if (future.isDone()) {
+            return false;
+        }
+        Call call = client.newCall(request);
+        if (timeoutMillis > 0) {
+            call.timeout().timeout(timeoutMillis, TimeUnit.MILLISECONDS);
         }
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                limit.release();
+            }
+        };
+        future.whenComplete((result, error) -> {
+            if (error instanceof CancellationException) {
+                call.cancel();
+                release.run();
+            }
+        });
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call c, IOException e) {
+                release.run();
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call c, Response response) {
+                T result;
+                try (Response r = response) {
+                    if (!r.isSuccessful()) {
+                        throw new HttpStatusException(r.code(), "请求失败: " + r);
+                    }
+                    result = handler.handle(r.body());
+                } catch (IOException | RuntimeException e) {
+                    release.run();
+                    future.completeExceptionally(e);
+                    return;
+                }
+                // 先释放名额再完成Future，后续阶段在回调线程上发起新请求时可以直接获得名额
+                release.run();
+                future.complete(result);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 等待异步请求完成，异常还原为IOException
+     */
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("请求被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 等待异步请求完成，最多等待timeoutMillis（包括排队等待名额的时间）
+     * 超时后取消请求：仍在排队时移出队列不再发出，已发出时取消底层请求
+     *
+     * @param timeoutMillis 最长等待时间（毫秒），0表示不限制
+     */
+    private static <T> T await(CompletableFuture<T> future, long timeoutMillis) throws IOException {
+        if (timeoutMillis <= 0) {
+            return await(future);
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new InterruptedIOException("请求超过" + timeoutMillis + "毫秒未完成（含等待在途名额）");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("请求被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 在途请求名额
+     * 有空闲名额时立即发出请求，否则按提交顺序排队；请求完成释放名额时，名额直接转交给队首的请求，
+     * 由释放名额的线程发出（OkHttp的enqueue不阻塞）。
+     * 普通请求只能使用预留之外的名额；可以使用预留名额的请求单独排队，释放的名额优先转交给它们
+     */
+    private static final class InFlightLimit {
+
+        private final int max;
+        private final int reserved;
+        private int available;
+        private final ArrayDeque<Starter> waiters = new ArrayDeque<>();
+        private final ArrayDeque<Starter> reservedWaiters = new ArrayDeque<>();
+
+        InFlightLimit(int max, int reserved) {
+            this.max = max;
+            this.reserved = reserved;
+            this.available = max;
+        }
+
+        void submit(Starter starter, boolean useReserved) {
+            synchronized (this) {
+                if (available <= (useReserved ? 0 : reserved)) {
+                    (useReserved ? reservedWaiters : waiters).add(starter);
+                    return;
+                }
+                available--;
+            }
+            if (!starter.start()) {
+                release();
+            }
+        }
+
+        void release() {
+            while (true) {
+                Starter next;
+                synchronized (this) {
+                    next = reservedWaiters.poll();
+                    // 归还这个名额后空闲名额仍多于预留数时，普通请求才能接手
+                    if (next == null && available >= reserved) {
+                        next = waiters.poll();
+                    }
+                    if (next == null) {
+                        available++;
+                        return;
+                    }
+                }
+                // 排队期间已取消的请求不占用名额，继续转交给下一个
+                if (next.start()) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 从队列中移除（排队期间取消），已发出的请求不受影响
+         */
+        synchronized void remove(Starter starter) {
+            if (!waiters.remove(starter)) {
+                reservedWaiters.remove(starter);
+            }
+        }
+
+        synchronized int getInFlight() {
+            return max - available;
+        }
+
+        synchronized int getQueued() {
+            return waiters.size() + reservedWaiters.size();
+        }
+    }
+
+    /**
+     * 获得名额后发出请求
+     */
+    private interface Starter {
+
+        /**
+         * @return 是否占用了名额
+         */
+        boolean start();
+    }
+
+    /**
+     * 响应体读取器
+     */
+    public interface BodyReader<T> {
+
+        /**
+         * 从响应体字节流读取结果，流由调用方关闭
+         */
+        T read(InputStream in) throws IOException;
+    }
+
+    /**
+     * 响应体处理
+     */
+    private interface BodyHandler<T> {
+
+        T handle(ResponseBody body) throws IOException;
     }
 }
@@ -0,0 +1,130 @@
+package com.company.wechat.util;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * 企业微信列表响应的流式解码
+ * 基于Gson的JsonReader逐个读取数组元素交给回调，响应不会作为完整的字符串或对象树存在于内存中，
+ * 适用于 externalcontact/list、user/simplelist 等可能返回上万条记录的接口
+ *
+ * @author Company
+ */
+public class JsonStreamDecoder {
+
+    private static final String ERRCODE = "errcode";
+    private static final String ERRMSG = "errmsg";
+
+    /**
+     * 读取响应中的errcode、errmsg，并将指定数组字段的每个元素交给元素读取器
+     * 其他字段直接跳过
+     *
+     * @param in 响应体字节流（UTF-8）
+     * @param arrayField 数组字段名，如 external_userid、userlist
+     * @param elementReader 元素读取器，每次调用必须完整读取一个元素
+     * @return 解码结果
+     */
+    public static Result readArray(InputStream in, String arrayField, ElementReader elementReader) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Result result = new Result();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (ERRCODE.equals(name) && reader.peek() == JsonToken.NUMBER) {
+                result.errcode = reader.nextInt();
+            } else if (ERRMSG.equals(name) && reader.peek() == JsonToken.STRING) {
+                result.errmsg = reader.nextString();
+            } else if (arrayField.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    elementReader.read(reader);
+                    result.count++;
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return result;
+    }
+
+    /**
+     * 字符串数组元素（如 external_userid），null元素跳过
+     */
+    public static ElementReader strings(Consumer<String> consumer) {
+        return reader -> {
+            if (reader.peek() == JsonToken.STRING) {
+                consumer.accept(reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        };
+    }
+
+    /**
+     * 对象数组元素，只取其中一个字符串字段（如 userlist 中的 userid），其余字段跳过
+     */
+    public static ElementReader stringField(String field, Consumer<String> consumer) {
+        return reader -> {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                return;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (field.equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                    consumer.accept(reader.nextString());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        };
+    }
+
+    /**
+     * 数组元素读取器
+     */
+    public interface ElementReader {
+
+        /**
+         * 读取一个数组元素
+         */
+        void read(JsonReader reader) throws IOException;
+    }
+
+    /**
+     * 解码结果
+     */
+    public static final class Result {
+
+        private int errcode;
+        private String errmsg;
+        private int count;
+
+        /**
+         * 错误码，响应中没有时为0
+         */
+        public int getErrcode() {
+            return errcode;
+        }
+
+        public String getErrmsg() {
+            return errmsg;
+        }
+
+        /**
+         * 数组元素个数
+         */
+        public int getCount() {
+            return count;
+        }
+    }
+}
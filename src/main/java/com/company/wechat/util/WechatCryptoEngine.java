@@ -0,0 +1,398 @@
+package com.company.wechat.util;
+
+import org.apache.commons.codec.binary.Base64;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 企业微信回调消息加解密引擎
+ * 与{@link AesUtil}的算法完全一致，区别在于：
+ * 1. 密钥只在构造时解析一次，可作为单例在多线程间共享
+ * 2. 每个线程持有已初始化的Cipher和可复用的缓冲区
+ * 3. 解密时Base64直接解码到缓冲区（支持String和原始请求体字节），并在缓冲区内原地切分出
+ *    XML长度、XML内容和corpId，整个过程只分配最终返回的String
+ *
+ * @author Company
+ */
+public final class WechatCryptoEngine {
+
+    private static final String ALGORITHM = "AES/CBC/NoPadding";
+
+    /**
+     * 补位块大小（企业微信使用32字节补位）
+     */
+    private static final int BLOCK_SIZE = 32;
+
+    /**
+     * 16字节随机串 + 4字节网络字节序长度
+     */
+    private static final int HEADER_LENGTH = 20;
+
+    private static final int RANDOM_LENGTH = 16;
+
+    /**
+     * 线程缓冲区初始大小，以及回收后保留的最大大小
+     */
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] RANDOM_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    private static final char[] BASE64_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private static final byte[] BASE64_DECODE_TABLE = new byte[128];
+
+    static {
+        Arrays.fill(BASE64_DECODE_TABLE, (byte) -1);
+        for (int i = 0; i < BASE64_ALPHABET.length; i++) {
+            BASE64_DECODE_TABLE[BASE64_ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private final SecretKeySpec keySpec;
+    private final IvParameterSpec ivSpec;
+    private final byte[] corpIdBytes;
+
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    public WechatCryptoEngine(String encodingAesKey, String corpId) {
+        if (encodingAesKey == null || encodingAesKey.length() != 43) {
+            throw new IllegalArgumentException("EncodingAESKey长度必须为43字符");
+        }
+        byte[] aesKey = Base64.decodeBase64(encodingAesKey + "=");
+        this.keySpec = new SecretKeySpec(aesKey, "AES");
+        this.ivSpec = new IvParameterSpec(Arrays.copyOfRange(aesKey, 0, 16));
+        this.corpIdBytes = corpId.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 解密消息
+     *
+     * @param encryptedMsg Base64编码的密文
+     * @return 解密后的XML内容
+     */
+    public String decrypt(CharSequence encryptedMsg) throws GeneralSecurityException {
+        Buffers buf = buffers.get();
+        try {
+            buf.ensureInput(encryptedMsg.length() / 4 * 3 + 3);
+            int length = decodeBase64(encryptedMsg, buf.input);
+            return decryptInput(buf, length);
+        } catch (GeneralSecurityException e) {
+            buf.resetCiphers();
+            throw e;
+        } finally {
+            buf.trim();
+        }
+    }
+
+    /**
+     * 解密字节数组中的一段Base64密文
+     * 用于直接读取原始请求体字节的场景，Base64字符不经过String直接解码到缓冲区
+     *
+     * @param src 包含密文的字节数组（ASCII）
+     * @param offset 密文起始位置
+     * @param length 密文字节数
+     * @return 解密后的XML内容
+     */
+    public String decrypt(byte[] src, int offset, int length) throws GeneralSecurityException {
+        Buffers buf = buffers.get();
+        try {
+            buf.ensureInput(length / 4 * 3 + 3);
+            int decodedLength = decodeBase64(src, offset, length, buf.input);
+            return decryptInput(buf, decodedLength);
+        } catch (GeneralSecurityException e) {
+            buf.resetCiphers();
+            throw e;
+        } finally {
+            buf.trim();
+        }
+    }
+
+    /**
+     * 加密消息（使用随机生成的16位随机串）
+     *
+     * @param text 明文
+     * @return Base64编码的密文
+     */
+    public String encrypt(String text) throws GeneralSecurityException {
+        return encrypt(null, text);
+    }
+
+    /**
+     * 加密消息
+     *
+     * @param randomStr 16位随机串，为null时自动生成
+     * @param text 明文
+     * @return Base64编码的密文
+     */
+    public String encrypt(String randomStr, String text) throws GeneralSecurityException {
+        Buffers buf = buffers.get();
+        try {
+            byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+            int plainLength = HEADER_LENGTH + textBytes.length + corpIdBytes.length;
+            int amountToPad = BLOCK_SIZE - (plainLength % BLOCK_SIZE);
+            int paddedLength = plainLength + amountToPad;
+
+            buf.ensureInput(paddedLength);
+            byte[] plain = buf.input;
+
+            // 16位随机串
+            if (randomStr != null) {
+                byte[] randomBytes = randomStr.getBytes(StandardCharsets.UTF_8);
+                if (randomBytes.length != RANDOM_LENGTH) {
+                    throw new IllegalArgumentException("随机串长度必须为16字节");
+                }
+                System.arraycopy(randomBytes, 0, plain, 0, RANDOM_LENGTH);
+            } else {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < RANDOM_LENGTH; i++) {
+                    plain[i] = RANDOM_ALPHABET[random.nextInt(RANDOM_ALPHABET.length)];
+                }
+            }
+
+            // 网络字节序的明文长度、明文、corpId、补位
+            writeInt(plain, RANDOM_LENGTH, textBytes.length);
+            System.arraycopy(textBytes, 0, plain, HEADER_LENGTH, textBytes.length);
+            System.arraycopy(corpIdBytes, 0, plain, HEADER_LENGTH + textBytes.length, corpIdBytes.length);
+            Arrays.fill(plain, plainLength, paddedLength, (byte) amountToPad);
+
+            buf.ensureOutput(paddedLength);
+            int encryptedLength = buf.encryptCipher().doFinal(plain, 0, paddedLength, buf.output, 0);
+
+            return encodeBase64(buf, encryptedLength);
+        } catch (GeneralSecurityException e) {
+            buf.resetCiphers();
+            throw e;
+        } finally {
+            buf.trim();
+        }
+    }
+
+    /**
+     * 解密缓冲区中的密文，并原地切分出XML内容、校验corpId
+     */
+    private String decryptInput(Buffers buf, int length) throws GeneralSecurityException {
+        if (length == 0 || length % 16 != 0) {
+            throw new IllegalArgumentException("密文长度不合法: " + length);
+        }
+        buf.ensureOutput(length);
+        int decryptedLength = buf.decryptCipher().doFinal(buf.input, 0, length, buf.output, 0);
+        byte[] plain = buf.output;
+
+        // 去除补位字符
+        int pad = plain[decryptedLength - 1];
+        if (pad < 1 || pad > BLOCK_SIZE) {
+            pad = 0;
+        }
+        int end = decryptedLength - pad;
+        if (end < HEADER_LENGTH) {
+            throw new IllegalArgumentException("解密后的消息长度不合法");
+        }
+
+        // 16位随机串之后是4字节网络字节序的XML长度
+        int xmlLength = readInt(plain, RANDOM_LENGTH);
+        int corpIdOffset = HEADER_LENGTH + xmlLength;
+        if (xmlLength < 0 || corpIdOffset > end) {
+            throw new IllegalArgumentException("XML长度不合法: " + xmlLength);
+        }
+
+        // 原地校验corpId，不构造String
+        if (end - corpIdOffset != corpIdBytes.length) {
+            throw new IllegalArgumentException("CorpId校验失败");
+        }
+        for (int i = 0; i < corpIdBytes.length; i++) {
+            if (plain[corpIdOffset + i] != corpIdBytes[i]) {
+                throw new IllegalArgumentException("CorpId校验失败");
+            }
+        }
+
+        return new String(plain, HEADER_LENGTH, xmlLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Base64解码到目标缓冲区，忽略空白字符
+     *
+     * @return 解码后的字节数
+     */
+    private static int decodeBase64(CharSequence src, byte[] dst) {
+        int accumulator = 0;
+        int bits = 0;
+        int out = 0;
+        for (int i = 0, n = src.length(); i < n; i++) {
+            char c = src.charAt(i);
+            if (c == '=') {
+                break;
+            }
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                continue;
+            }
+            int value = c < 128 ? BASE64_DECODE_TABLE[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("非法的Base64字符: " + c);
+            }
+            accumulator = (accumulator << 6) | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                dst[out++] = (byte) (accumulator >> bits);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * 字节数组中的Base64解码到目标缓冲区，忽略空白字符
+     *
+     * @return 解码后的字节数
+     */
+    private static int decodeBase64(byte[] src, int offset, int length, byte[] dst) {
+        int accumulator = 0;
+        int bits = 0;
+        int out = 0;
+        for (int i = offset, n = offset + length; i < n; i++) {
+            int c = src[i] & 0xFF;
+            if (c == '=') {
+                break;
+            }
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                continue;
+            }
+            int value = c < 128 ? BASE64_DECODE_TABLE[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("非法的Base64字符: " + (char) c);
+            }
+            accumulator = (accumulator << 6) | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                dst[out++] = (byte) (accumulator >> bits);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * 将输出缓冲区的前length字节编码为Base64字符串
+     */
+    private static String encodeBase64(Buffers buf, int length) {
+        int encodedLength = (length + 2) / 3 * 4;
+        char[] chars = buf.ensureChars(encodedLength);
+        byte[] src = buf.output;
+        int in = 0;
+        int out = 0;
+        while (in + 3 <= length) {
+            int bits = (src[in++] & 0xFF) << 16 | (src[in++] & 0xFF) << 8 | (src[in++] & 0xFF);
+            chars[out++] = BASE64_ALPHABET[(bits >>> 18) & 0x3F];
+            chars[out++] = BASE64_ALPHABET[(bits >>> 12) & 0x3F];
+            chars[out++] = BASE64_ALPHABET[(bits >>> 6) & 0x3F];
+            chars[out++] = BASE64_ALPHABET[bits & 0x3F];
+        }
+        int remaining = length - in;
+        if (remaining > 0) {
+            int bits = (src[in] & 0xFF) << 16 | (remaining == 2 ? (src[in + 1] & 0xFF) << 8 : 0);
+            chars[out++] = BASE64_ALPHABET[(bits >>> 18) & 0x3F];
+            chars[out++] = BASE64_ALPHABET[(bits >>> 12) & 0x3F];
+            chars[out++] = remaining == 2 ? BASE64_ALPHABET[(bits >>> 6) & 0x3F] : '=';
+            chars[out++] = '=';
+        }
+        return new String(chars, 0, out);
+    }
+
+    /**
+     * 4字节网络字节序转换为整数
+     */
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24
+                | (bytes[offset + 1] & 0xFF) << 16
+                | (bytes[offset + 2] & 0xFF) << 8
+                | (bytes[offset + 3] & 0xFF);
+    }
+
+    /**
+     * 将整数写为4字节网络字节序
+     */
+    private static void writeInt(byte[] bytes, int offset, int number) {
+        bytes[offset] = (byte) (number >> 24 & 0xFF);
+        bytes[offset + 1] = (byte) (number >> 16 & 0xFF);
+        bytes[offset + 2] = (byte) (number >> 8 & 0xFF);
+        bytes[offset + 3] = (byte) (number & 0xFF);
+    }
+
+    /**
+     * 线程私有的Cipher和缓冲区
+     */
+    private final class Buffers {
+
+        private Cipher decryptCipher;
+        private Cipher encryptCipher;
+        private byte[] input = new byte[INITIAL_BUFFER_SIZE];
+        private byte[] output = new byte[INITIAL_BUFFER_SIZE];
+        private char[] chars = new char[0];
+
+        Cipher decryptCipher() throws GeneralSecurityException {
+            if (decryptCipher == null) {
+                decryptCipher = Cipher.getInstance(ALGORITHM);
+                decryptCipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
+            }
+            return decryptCipher;
+        }
+
+        Cipher encryptCipher() throws GeneralSecurityException {
+            if (encryptCipher == null) {
+                encryptCipher = Cipher.getInstance(ALGORITHM);
+                encryptCipher.init(Cipher.ENCRYPT_MODE, keySpec, ivSpec);
+            }
+            return encryptCipher;
+        }
+
+        void ensureInput(int size) {
+            if (input.length < size) {
+                input = new byte[size];
+            }
+        }
+
+        void ensureOutput(int size) {
+            if (output.length < size) {
+                output = new byte[size];
+            }
+        }
+
+        char[] ensureChars(int size) {
+            if (chars.length < size) {
+                chars = new char[size];
+            }
+            return chars;
+        }
+
+        /**
+         * 出现异常后丢弃Cipher，下次使用时重新初始化
+         */
+        void resetCiphers() {
+            decryptCipher = null;
+            encryptCipher = null;
+        }
+
+        /**
+         * 超大消息处理完后释放放大的缓冲区，避免长期占用内存
+         */
+        void trim() {
+            if (input.length > MAX_RETAINED_BUFFER_SIZE) {
+                input = new byte[INITIAL_BUFFER_SIZE];
+            }
+            if (output.length > MAX_RETAINED_BUFFER_SIZE) {
+                output = new byte[INITIAL_BUFFER_SIZE];
+            }
+            if (chars.length > MAX_RETAINED_BUFFER_SIZE) {
+                chars = new char[0];
+            }
+        }
+    }
+}
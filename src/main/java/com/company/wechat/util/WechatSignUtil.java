@@ -1,18 +1,49 @@
 package com.company.wechat.util;
 
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
-import java.util.Arrays;
+import java.security.NoSuchAlgorithmException;
 
 /**
  * 企业微信签名验证工具
- * 
+ * 签名规则：token、timestamp、nonce、encrypt 四个参数按字典序排序后拼接，再做SHA-1
+ *
+ * 每个线程复用一个MessageDigest和编码缓冲区，排序后的参数逐个送入摘要，
+ * 不做字符串拼接；验签时直接与十六进制签名做常量时间比较，不生成十六进制字符串
+ *
  * @author Company
  */
 public class WechatSignUtil {
 
+    private static final int DIGEST_LENGTH = 20;
+    private static final int SIGNATURE_LENGTH = DIGEST_LENGTH * 2;
+
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
+    /**
+     * 十六进制字符到数值的映射，非法字符为-1
+     */
+    private static final int[] HEX_VALUES = new int[128];
+
+    static {
+        for (int i = 0; i < HEX_VALUES.length; i++) {
+            HEX_VALUES[i] = -1;
+        }
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = 10 + i;
+            HEX_VALUES['A' + i] = 10 + i;
+        }
+    }
+
+    private static final ThreadLocal<SignContext> CONTEXT = ThreadLocal.withInitial(SignContext::new);
+
     /**
      * 验证签名
-     * 
+     *
      * @param token 企业微信Token
      * @param timestamp 时间戳
      * @param nonce 随机数
@@ -21,13 +52,79 @@ public class WechatSignUtil {
      * @return 是否验证通过
      */
     public static boolean verifySignature(String token, String timestamp, String nonce, String encrypt, String signature) {
-        String computedSignature = computeSignature(token, timestamp, nonce, encrypt);
-        return computedSignature != null && computedSignature.equals(signature);
+        if (signature == null || signature.length() != SIGNATURE_LENGTH) {
+            return false;
+        }
+        SignContext context = CONTEXT.get();
+        if (!digest(context, token, timestamp, nonce, encrypt)) {
+            return false;
+        }
+        return matchesHex(context.result, signature);
+    }
+
+    /**
+     * 验证签名（加密内容为原始请求体中的一段字节）
+     * 加密内容是Base64字符，直接按字节参与排序和摘要，不构造String
+     *
+     * @param token 企业微信Token
+     * @param timestamp 时间戳
+     * @param nonce 随机数
+     * @param encrypt 包含加密内容的字节数组
+     * @param offset 加密内容起始位置
+     * @param length 加密内容字节数
+     * @param signature 待验证的签名
+     * @return 是否验证通过
+     */
+    public static boolean verifySignature(String token, String timestamp, String nonce,
+                                          byte[] encrypt, int offset, int length, String signature) {
+        if (signature == null || signature.length() != SIGNATURE_LENGTH
+                || token == null || timestamp == null || nonce == null || encrypt == null) {
+            return false;
+        }
+
+        // 三个字符串排序
+        String a = token;
+        String b = timestamp;
+        String c = nonce;
+        String t;
+        if (a.compareTo(b) > 0) {
+            t = a;
+            a = b;
+            b = t;
+        }
+        if (b.compareTo(c) > 0) {
+            t = b;
+            b = c;
+            c = t;
+        }
+        if (a.compareTo(b) > 0) {
+            t = a;
+            a = b;
+            b = t;
+        }
+
+        // 按字典序把加密内容插入到对应位置
+        SignContext context = CONTEXT.get();
+        MessageDigest md = context.digest;
+        md.reset();
+        boolean written = update(context, a, false, encrypt, offset, length);
+        written = update(context, b, written, encrypt, offset, length);
+        written = update(context, c, written, encrypt, offset, length);
+        if (!written) {
+            md.update(encrypt, offset, length);
+        }
+        try {
+            md.digest(context.result, 0, DIGEST_LENGTH);
+        } catch (DigestException e) {
+            md.reset();
+            return false;
+        }
+        return matchesHex(context.result, signature);
     }
 
     /**
      * 计算签名
-     * 
+     *
      * @param token 企业微信Token
      * @param timestamp 时间戳
      * @param nonce 随机数
@@ -35,31 +132,156 @@ public class WechatSignUtil {
      * @return 签名
      */
     public static String computeSignature(String token, String timestamp, String nonce, String encrypt) {
+        SignContext context = CONTEXT.get();
+        if (!digest(context, token, timestamp, nonce, encrypt)) {
+            return null;
+        }
+        char[] hex = new char[SIGNATURE_LENGTH];
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            int b = context.result[i] & 0xFF;
+            hex[i * 2] = HEX_CHARS[b >>> 4];
+            hex[i * 2 + 1] = HEX_CHARS[b & 0x0F];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * 按字典序排序四个参数后逐个送入SHA-1，结果写入context.result
+     *
+     * @return 参数非法或摘要失败时返回false
+     */
+    private static boolean digest(SignContext context, String a, String b, String c, String d) {
+        if (a == null || b == null || c == null || d == null) {
+            return false;
+        }
+
+        // 四元素排序网络，避免创建数组
+        String t;
+        if (a.compareTo(b) > 0) {
+            t = a;
+            a = b;
+            b = t;
+        }
+        if (c.compareTo(d) > 0) {
+            t = c;
+            c = d;
+            d = t;
+        }
+        if (a.compareTo(c) > 0) {
+            t = a;
+            a = c;
+            c = t;
+        }
+        if (b.compareTo(d) > 0) {
+            t = b;
+            b = d;
+            d = t;
+        }
+        if (b.compareTo(c) > 0) {
+            t = b;
+            b = c;
+            c = t;
+        }
+
+        MessageDigest md = context.digest;
+        md.reset();
+        context.update(a);
+        context.update(b);
+        context.update(c);
+        context.update(d);
         try {
-            String[] params = {token, timestamp, nonce, encrypt};
-            Arrays.sort(params);
-            
-            StringBuilder sb = new StringBuilder();
-            for (String param : params) {
-                sb.append(param);
+            md.digest(context.result, 0, DIGEST_LENGTH);
+            return true;
+        } catch (DigestException e) {
+            md.reset();
+            return false;
+        }
+    }
+
+    /**
+     * 送入一个已排序的字符串，加密内容尚未送入且字典序更小时先送入加密内容
+     *
+     * @return 加密内容是否已送入
+     */
+    private static boolean update(SignContext context, String value, boolean written,
+                                  byte[] encrypt, int offset, int length) {
+        if (!written && compare(value, encrypt, offset, length) > 0) {
+            context.digest.update(encrypt, offset, length);
+            written = true;
+        }
+        context.update(value);
+        return written;
+    }
+
+    /**
+     * 按字典序比较字符串与字节片段（字节片段为ASCII字符）
+     */
+    private static int compare(String value, byte[] bytes, int offset, int length) {
+        int n = Math.min(value.length(), length);
+        for (int i = 0; i < n; i++) {
+            int diff = value.charAt(i) - (bytes[offset + i] & 0xFF);
+            if (diff != 0) {
+                return diff;
             }
-            
-            MessageDigest md = MessageDigest.getInstance("SHA-1");
-            byte[] digest = md.digest(sb.toString().getBytes("UTF-8"));
-            
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : digest) {
-                String hex = Integer.toHexString(0xFF & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
+        }
+        return value.length() - length;
+    }
+
+    /**
+     * 常量时间比较摘要与十六进制签名（大小写不敏感）
+     */
+    private static boolean matchesHex(byte[] digest, String signature) {
+        int diff = 0;
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            int hi = hexValue(signature.charAt(i * 2));
+            int lo = hexValue(signature.charAt(i * 2 + 1));
+            // 非法字符为-1，其第8位会被置上，保证结果不为0
+            diff |= (((hi << 4) | lo) ^ (digest[i] & 0xFF)) | ((hi | lo) & 0x100);
+        }
+        return diff == 0;
+    }
+
+    private static int hexValue(char c) {
+        return c < 128 ? HEX_VALUES[c] : -1;
+    }
+
+    /**
+     * 线程私有的摘要器和缓冲区
+     */
+    private static final class SignContext {
+
+        private final MessageDigest digest;
+        private final byte[] buffer = new byte[256];
+        private final byte[] result = new byte[DIGEST_LENGTH];
+
+        SignContext() {
+            try {
+                digest = MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("不支持SHA-1算法", e);
+            }
+        }
+
+        /**
+         * 将字符串按UTF-8编码送入摘要
+         * 签名参数通常全是ASCII字符，直接逐字节写入缓冲区；遇到非ASCII字符时剩余部分按UTF-8编码
+         */
+        void update(String value) {
+            int pos = 0;
+            for (int i = 0, n = value.length(); i < n; i++) {
+                char ch = value.charAt(i);
+                if (ch >= 0x80) {
+                    digest.update(buffer, 0, pos);
+                    digest.update(value.substring(i).getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                buffer[pos++] = (byte) ch;
+                if (pos == buffer.length) {
+                    digest.update(buffer, 0, pos);
+                    pos = 0;
                 }
-                hexString.append(hex);
             }
-            
-            return hexString.toString();
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
+            digest.update(buffer, 0, pos);
         }
     }
 }
@@ -0,0 +1,70 @@
+package com.company.wechat.benchmark;
+
+import com.company.wechat.util.AesUtil;
+import com.company.wechat.util.WechatCryptoEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回调解密基准测试：每次回调新建AesUtil vs 共享的WechatCryptoEngine
+ * 使用 -prof gc 查看每次操作的内存分配（gc.alloc.rate.norm）
+ *
+ * 运行：mvn -P benchmark test-compile exec:exec -Dbenchmark=CallbackCryptoBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallbackCryptoBenchmark {
+
+    private static final String ENCODING_AES_KEY = "abcdefghijklmnopqrstuvwxyz0123456789ABCDEFG";
+    private static final String CORP_ID = "wwd79126fde9eba684";
+
+    private static final String CALLBACK_XML = "<xml><ToUserName><![CDATA[wwd79126fde9eba684]]></ToUserName>"
+            + "<FromUserName><![CDATA[sys]]></FromUserName><CreateTime>1700000000</CreateTime>"
+            + "<MsgType><![CDATA[event]]></MsgType><Event><![CDATA[change_external_contact]]></Event>"
+            + "<ChangeType><![CDATA[add_external_contact]]></ChangeType><UserID><![CDATA[zhangsan]]></UserID>"
+            + "<ExternalUserID><![CDATA[wmOgQhDgAAuXFJGwbve4g4iQknRdlDmQ]]></ExternalUserID>"
+            + "<State><![CDATA[campaign]]></State><WelcomeCode><![CDATA[WELCOMECODE]]></WelcomeCode></xml>";
+
+    private WechatCryptoEngine engine;
+    private String encrypted;
+
+    @Setup
+    public void setUp() throws Exception {
+        engine = new WechatCryptoEngine(ENCODING_AES_KEY, CORP_ID);
+        encrypted = new AesUtil(ENCODING_AES_KEY, CORP_ID).encrypt(AesUtil.getRandomStr(), CALLBACK_XML);
+    }
+
+    @Benchmark
+    public String decryptPerRequestAesUtil() throws Exception {
+        return new AesUtil(ENCODING_AES_KEY, CORP_ID).decrypt(encrypted);
+    }
+
+    @Benchmark
+    public String decryptSharedEngine() throws Exception {
+        return engine.decrypt(encrypted);
+    }
+
+    @Benchmark
+    public String encryptPerRequestAesUtil() throws Exception {
+        return new AesUtil(ENCODING_AES_KEY, CORP_ID).encrypt(AesUtil.getRandomStr(), CALLBACK_XML);
+    }
+
+    @Benchmark
+    public String encryptSharedEngine() throws Exception {
+        return engine.encrypt(CALLBACK_XML);
+    }
+}
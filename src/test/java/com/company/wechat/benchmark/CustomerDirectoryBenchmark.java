@@ -0,0 +1,124 @@
+package com.company.wechat.benchmark;
+
+import com.company.wechat.util.CompactCustomerDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户目录基准测试：HashMap&lt;String,String&gt; vs CompactCustomerDirectory
+ * Setup时分别构建两种结构，强制GC后按堆占用差值打印常驻内存；基准方法测量按客户ID查找员工的耗时。
+ * 客户ID与企业微信external_userid长度一致（32个ASCII字符），员工1000人
+ *
+ * 运行：mvn -P benchmark test-compile exec:exec -Dbenchmark=CustomerDirectoryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CustomerDirectoryBenchmark {
+
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    @Param({"100000", "1000000"})
+    private int customers;
+
+    private Map<String, String> hashMap;
+    private CompactCustomerDirectory directory;
+    private String[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<String> staff = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            staff.add("staff" + i);
+        }
+        String[] customerIds = new String[customers];
+        int[] owners = new int[customers];
+        for (int i = 0; i < customers; i++) {
+            StringBuilder id = new StringBuilder("wm");
+            for (int j = 0; j < 30; j++) {
+                id.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            customerIds[i] = id.toString();
+            owners[i] = random.nextInt(staff.size());
+        }
+
+        // 与获取客户列表时一样，每个客户ID都是从响应中新解析出的String
+        long base = usedHeap();
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < customers; i++) {
+            map.put(new String(customerIds[i].toCharArray()), staff.get(owners[i]));
+        }
+        long mapBytes = usedHeap() - base;
+
+        base = usedHeap();
+        CompactCustomerDirectory.Builder builder = CompactCustomerDirectory.builder(staff);
+        for (int i = 0; i < customers; i++) {
+            builder.add(customerIds[i], owners[i]);
+        }
+        CompactCustomerDirectory compact = builder.build();
+        builder = null;
+        long compactBytes = usedHeap() - base;
+
+        System.out.printf("%n客户数: %d%n  HashMap<String,String>: %.1f MB (%.0f 字节/客户)%n"
+                        + "  CompactCustomerDirectory: %.1f MB (%.0f 字节/客户, 估算 %.1f MB)%n",
+                customers, mapBytes / 1048576.0, (double) mapBytes / customers,
+                compactBytes / 1048576.0, (double) compactBytes / customers,
+                compact.getFootprintBytes() / 1048576.0);
+
+        hashMap = map;
+        directory = compact;
+        probes = new String[1024];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = customerIds[random.nextInt(customers)];
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private String probe() {
+        return probes[next++ & (probes.length - 1)];
+    }
+
+    @Benchmark
+    public String hashMapLookup() {
+        return hashMap.get(probe());
+    }
+
+    @Benchmark
+    public String compactLookup() {
+        return directory.getStaff(probe());
+    }
+}
@@ -0,0 +1,89 @@
+package com.company.wechat.benchmark;
+
+import com.company.wechat.codec.WechatCodec;
+import com.company.wechat.model.dto.GroupMsgResultResponse;
+import com.company.wechat.model.dto.PersonalizedMsgTemplateRequest;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON编解码基准测试：Gson反射方式 vs 手写TypeAdapter
+ * 请求为100个客户的群发消息模板，响应为100条明细的群发结果
+ *
+ * 运行：mvn -P benchmark test-compile exec:exec -Dbenchmark=WechatCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WechatCodecBenchmark {
+
+    private final Gson reflective = new Gson();
+
+    private PersonalizedMsgTemplateRequest request;
+    private String response;
+
+    @Setup
+    public void setUp() {
+        List<String> customers = new ArrayList<>();
+        StringBuilder details = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            customers.add("wmABCDEFGHIJKLMNOPQRSTUVWX" + i);
+            if (i > 0) {
+                details.append(',');
+            }
+            details.append("{\"external_userid\":\"wmABCDEFGHIJKLMNOPQRSTUVWX").append(i)
+                    .append("\",\"userid\":\"zhangsan\",\"status\":1,\"send_time\":1700000000}");
+        }
+        request = PersonalizedMsgTemplateRequest.builder()
+                .chatType("single")
+                .externalUserid(customers)
+                .sender("zhangsan")
+                .attachments(Collections.singletonList(PersonalizedMsgTemplateRequest.Attachment.builder()
+                        .msgtype("link")
+                        .link(PersonalizedMsgTemplateRequest.LinkAttachment.builder()
+                                .title("完善您的信息")
+                                .url("http://example.com/h5/oauth.html")
+                                .desc("点击查看详情")
+                                .build())
+                        .build()))
+                .build();
+        response = "{\"errcode\":0,\"errmsg\":\"ok\",\"next_cursor\":\"\",\"detail_list\":[" + details + "]}";
+    }
+
+    @Benchmark
+    public String reflectiveWrite() {
+        return reflective.toJson(request);
+    }
+
+    @Benchmark
+    public String codecWrite() {
+        return WechatCodec.toJson(request);
+    }
+
+    @Benchmark
+    public GroupMsgResultResponse reflectiveRead() {
+        return reflective.fromJson(response, GroupMsgResultResponse.class);
+    }
+
+    @Benchmark
+    public GroupMsgResultResponse codecRead() {
+        return WechatCodec.fromJson(response, GroupMsgResultResponse.class);
+    }
+}
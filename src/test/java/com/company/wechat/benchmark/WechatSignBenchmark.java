@@ -0,0 +1,91 @@
+package com.company.wechat.benchmark;
+
+import com.company.wechat.util.WechatSignUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回调验签基准测试：原实现（拼接 + 新建MessageDigest + 十六进制字符串比较）vs 当前实现
+ *
+ * 运行：mvn -P benchmark test-compile exec:exec -Dbenchmark=WechatSignBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WechatSignBenchmark {
+
+    private String token;
+    private String timestamp;
+    private String nonce;
+    private String encrypt;
+    private String signature;
+
+    @Setup
+    public void setUp() {
+        token = "JKBYwA8yEwhjKEyKWRQe";
+        timestamp = "1700000000";
+        nonce = "1372623149";
+        // 与真实回调相近长度的密文
+        char[] chars = new char[684];
+        Arrays.fill(chars, 'Q');
+        encrypt = new String(chars);
+        signature = WechatSignUtil.computeSignature(token, timestamp, nonce, encrypt);
+    }
+
+    @Benchmark
+    public boolean verifyLegacy() {
+        String computed = legacyComputeSignature(token, timestamp, nonce, encrypt);
+        return computed != null && computed.equals(signature);
+    }
+
+    @Benchmark
+    public boolean verifyCurrent() {
+        return WechatSignUtil.verifySignature(token, timestamp, nonce, encrypt, signature);
+    }
+
+    /**
+     * 优化前的签名计算实现
+     */
+    private static String legacyComputeSignature(String token, String timestamp, String nonce, String encrypt) {
+        try {
+            String[] params = {token, timestamp, nonce, encrypt};
+            Arrays.sort(params);
+
+            StringBuilder sb = new StringBuilder();
+            for (String param : params) {
+                sb.append(param);
+            }
+
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] digest = md.digest(sb.toString().getBytes("UTF-8"));
+
+            StringBuilder hexString = new StringBuilder();
+            for (byte b : digest) {
+                String hex = Integer.toHexString(0xFF & b);
+                if (hex.length() == 1) {
+                    hexString.append('0');
+                }
+                hexString.append(hex);
+            }
+
+            return hexString.toString();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
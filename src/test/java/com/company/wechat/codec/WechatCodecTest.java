@@ -0,0 +1,200 @@
+package com.company.wechat.codec;
+
+import com.company.wechat.model.dto.BatchMessageRequest;
+import com.company.wechat.model.dto.BatchMessageResponse;
+import com.company.wechat.model.dto.BatchSendRequest;
+import com.company.wechat.model.dto.GroupMsgResultRequest;
+import com.company.wechat.model.dto.GroupMsgResultResponse;
+import com.company.wechat.model.dto.PersonalizedMsgTemplateRequest;
+import com.company.wechat.model.dto.UserSimpleListResponse;
+import com.company.wechat.model.dto.WelcomeMessageRequest;
+import com.company.wechat.model.vo.WechatOAuthResponse;
+import com.company.wechat.model.vo.WechatResponse;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 手写编解码测试：请求序列化结果与反射方式一致，响应解析正确
+ */
+class WechatCodecTest {
+
+    private final Gson reflective = new Gson();
+
+    @Test
+    void testPersonalizedMsgTemplateRequest() {
+        PersonalizedMsgTemplateRequest request = PersonalizedMsgTemplateRequest.builder()
+                .chatType("single")
+                .externalUserid(Arrays.asList("wm1", "wm2"))
+                .sender("zhangsan")
+                .attachments(Collections.singletonList(PersonalizedMsgTemplateRequest.Attachment.builder()
+                        .msgtype("link")
+                        .link(PersonalizedMsgTemplateRequest.LinkAttachment.builder()
+                                .title("完善您的信息")
+                                .url("http://example.com/h5?a=1&b=<2>")
+                                .desc("点击查看详情")
+                                .build())
+                        .build()))
+                .build();
+
+        assertEquals(reflective.toJson(request), WechatCodec.toJson(request));
+    }
+
+    @Test
+    void testBatchSendRequest() {
+        BatchSendRequest request = BatchSendRequest.builder()
+                .chatType("single")
+                .sender(BatchSendRequest.Sender.builder().sender("zhangsan").build())
+                .externalContact(BatchSendRequest.ExternalContact.builder()
+                        .tagList(Collections.emptyList())
+                        .build())
+                .text(BatchSendRequest.TextContent.builder().content("您好").build())
+                .attachments(Collections.singletonList(BatchSendRequest.Attachment.builder()
+                        .msgType("link")
+                        .link(BatchSendRequest.Attachment.Link.builder()
+                                .title("标题").url("http://example.com").desc("描述").picUrl("http://p")
+                                .build())
+                        .build()))
+                .build();
+
+        assertEquals(reflective.toJson(request), WechatCodec.toJson(request));
+    }
+
+    @Test
+    void testBatchMessageRequest() {
+        BatchMessageRequest request = BatchMessageRequest.builder()
+                .chatType("single")
+                .externalContact(BatchMessageRequest.ExternalContact.builder()
+                        .tagList(Arrays.asList("t1", "t2"))
+                        .build())
+                .sender(BatchMessageRequest.Sender.builder()
+                        .senderList(Arrays.asList("zhangsan", "lisi"))
+                        .build())
+                .attachments(Arrays.asList(BatchMessageRequest.Attachment.builder()
+                        .msgType("link")
+                        .link(BatchMessageRequest.Link.builder().title("标题").url("http://example.com").build())
+                        .build(), null))
+                .build();
+
+        assertEquals(reflective.toJson(request), WechatCodec.toJson(request));
+    }
+
+    @Test
+    void testGroupMsgResultRequest() {
+        GroupMsgResultRequest request = GroupMsgResultRequest.builder()
+                .msgid("msg1").limit(1000).cursor("CURSOR").build();
+        assertEquals("{\"msgid\":\"msg1\",\"limit\":1000,\"cursor\":\"CURSOR\"}", WechatCodec.toJson(request));
+
+        // 第一页不带游标，limit为0时使用接口默认值
+        assertEquals("{\"msgid\":\"msg1\"}",
+                WechatCodec.toJson(GroupMsgResultRequest.builder().msgid("msg1").cursor("").build()));
+    }
+
+    @Test
+    void testWelcomeMessageRequest() {
+        WelcomeMessageRequest request = WelcomeMessageRequest.builder()
+                .welcomeCode("CODE")
+                .text(WelcomeMessageRequest.TextContent.builder().content("欢迎\n\"新客户\"").build())
+                .attachments(Arrays.asList(
+                        WelcomeMessageRequest.Attachment.builder()
+                                .msgtype("image")
+                                .image(WelcomeMessageRequest.ImageAttachment.builder().mediaId("MEDIA").build())
+                                .build(),
+                        WelcomeMessageRequest.Attachment.builder()
+                                .msgtype("miniprogram")
+                                .miniprogram(WelcomeMessageRequest.MiniprogramAttachment.builder()
+                                        .title("小程序").picMediaId("PIC").appid("wx1").page("/index")
+                                        .build())
+                                .build(),
+                        WelcomeMessageRequest.Attachment.builder()
+                                .msgtype("video")
+                                .video(WelcomeMessageRequest.VideoAttachment.builder().mediaId("V").build())
+                                .build(),
+                        WelcomeMessageRequest.Attachment.builder()
+                                .msgtype("file")
+                                .file(WelcomeMessageRequest.FileAttachment.builder().mediaId("F").build())
+                                .build()))
+                .build();
+
+        assertEquals(reflective.toJson(request), WechatCodec.toJson(request));
+    }
+
+    @Test
+    void testBatchMessageResponse() {
+        BatchMessageResponse response = WechatCodec.fromJson(
+                "{\"errcode\":0,\"errmsg\":\"ok\",\"fail_list\":[\"wm1\"],\"msgid\":\"msg123\",\"unknown\":{\"a\":1}}",
+                BatchMessageResponse.class);
+
+        assertTrue(response.isSuccess());
+        assertEquals("ok", response.getErrMsg());
+        assertEquals(Collections.singletonList("wm1"), response.getFailList());
+        assertEquals("msg123", response.getMsgId());
+    }
+
+    @Test
+    void testGroupMsgResultResponse() {
+        GroupMsgResultResponse response = WechatCodec.fromJson("{\"errcode\":0,\"errmsg\":\"ok\","
+                        + "\"next_cursor\":\"C1\",\"detail_list\":[{\"external_userid\":\"wm1\",\"chat_id\":null,"
+                        + "\"userid\":\"zhangsan\",\"status\":1,\"send_time\":1700000000}]}",
+                GroupMsgResultResponse.class);
+
+        assertTrue(response.isSuccess());
+        assertEquals("C1", response.getNextCursor());
+        assertEquals(1, response.getDetailList().size());
+        GroupMsgResultResponse.Detail detail = response.getDetailList().get(0);
+        assertEquals("wm1", detail.getExternalUserid());
+        assertNull(detail.getChatId());
+        assertEquals("zhangsan", detail.getUserid());
+        assertEquals(1, detail.getStatus());
+        assertEquals(1700000000L, detail.getSendTime());
+    }
+
+    @Test
+    void testUserSimpleListResponse() {
+        UserSimpleListResponse response = WechatCodec.fromJson("{\"errcode\":0,\"errmsg\":\"ok\","
+                        + "\"userlist\":[{\"userid\":\"zhangsan\",\"name\":\"张三\",\"department\":[1,2]}]}",
+                UserSimpleListResponse.class);
+
+        assertTrue(response.isSuccess());
+        assertEquals("张三", response.getUserlist().get(0).getName());
+        assertArrayEquals(new int[]{1, 2}, response.getUserlist().get(0).getDepartment());
+    }
+
+    @Test
+    void testWechatResponse() {
+        WechatResponse<String> token = WechatCodec.gson().fromJson(
+                "{\"errcode\":0,\"errmsg\":\"ok\",\"access_token\":\"TOKEN\",\"expires_in\":7200}",
+                new TypeToken<WechatResponse<String>>() {}.getType());
+        assertTrue(token.isSuccess());
+        assertEquals("TOKEN", token.getAccessToken());
+        assertEquals(7200, token.getExpiresIn());
+
+        WechatResponse<?> error = WechatCodec.fromJson("{\"errcode\":40014,\"errmsg\":\"invalid\"}",
+                WechatResponse.class);
+        assertFalse(error.isSuccess());
+        assertEquals(40014, error.getErrCode());
+    }
+
+    @Test
+    void testWechatOAuthResponse() {
+        WechatOAuthResponse response = WechatCodec.fromJson(
+                "{\"errcode\":0,\"errmsg\":\"ok\",\"userid\":\"zhangsan\",\"deviceid\":\"D\"}",
+                WechatOAuthResponse.class);
+
+        assertEquals(0, response.getErrcode());
+        assertEquals("zhangsan", response.getUserId());
+        assertEquals("D", response.getDeviceId());
+        assertNull(response.getOpenId());
+    }
+
+    @Test
+    void testRequestIsWriteOnly() {
+        assertThrows(UnsupportedOperationException.class,
+                () -> WechatCodec.fromJson("{}", BatchSendRequest.class));
+    }
+}
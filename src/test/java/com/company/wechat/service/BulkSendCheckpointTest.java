@@ -0,0 +1,209 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.BulkSendCheckpointConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 群发任务检查点测试（临时目录）
+ */
+class BulkSendCheckpointTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BulkSendCheckpointConfig config;
+    private BulkSendCheckpointStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        config = new BulkSendCheckpointConfig();
+        config.setEnabled(true);
+        config.setDirectory(tempDir.toString());
+        config.setBatchSize(3);
+        config.setIntervalMillis(60000);
+        store = openStore();
+    }
+
+    private BulkSendCheckpointStore openStore() throws IOException {
+        BulkSendCheckpointStore opened = new BulkSendCheckpointStore();
+        ReflectionTestUtils.setField(opened, "checkpointConfig", config);
+        opened.init();
+        return opened;
+    }
+
+    private static Map<String, String> targets(int count) {
+        Map<String, String> targets = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            targets.put("wm" + i, "staff" + (i % 3));
+        }
+        return targets;
+    }
+
+    /**
+     * 取出并记录n个客户的发送结果
+     */
+    private static List<String> send(BulkSendCheckpoint checkpoint, Iterator<Map.Entry<String, String>> it, int n) {
+        List<String> customers = new ArrayList<>();
+        for (int i = 0; i < n && it.hasNext(); i++) {
+            customers.add(it.next().getKey());
+            checkpoint.record(i % 4 != 3);
+        }
+        return customers;
+    }
+
+    private File outcomes(String jobId) {
+        return new File(new File(tempDir.toFile(), jobId), "outcomes");
+    }
+
+    private BulkSendCheckpoint newJob(String jobId, int total) {
+        BulkSendCheckpoint checkpoint = store.open(new BulkSendJob(jobId, "all-customers", "测试群发"),
+                Collections.singletonMap("title", "标题"));
+        checkpoint.saveTargets(targets(total));
+        return checkpoint;
+    }
+
+    @Test
+    void testResumeFromCheckpointOffset() throws Exception {
+        BulkSendCheckpoint checkpoint = newJob("job-1", 10);
+        send(checkpoint, checkpoint.targets(), 7);
+        // 模拟宕机：最后一个客户的结果尚未写入检查点
+        assertEquals(7, checkpoint.getCursor());
+        assertEquals(6L, outcomes("job-1").length());
+
+        store = openStore();
+        List<BulkSendCheckpoint> unfinished = store.listUnfinished();
+        assertEquals(1, unfinished.size());
+        assertEquals("job-1", unfinished.get(0).getJobId());
+        assertEquals("标题", unfinished.get(0).getParam("title"));
+
+        BulkSendCheckpoint resumed = store.open(new BulkSendJob("job-1", "all-customers", "测试群发"),
+                Collections.emptyMap());
+        assertTrue(resumed.hasTargets());
+        assertEquals(10, resumed.getTotal());
+        assertEquals(6, resumed.getCursor());
+        assertEquals(5, resumed.getSent());
+        assertEquals(1, resumed.getFailed());
+
+        // 从快照偏移直接定位到第7个客户，未写入检查点的客户再发送一次
+        List<String> remaining = send(resumed, resumed.targets(), 10);
+        assertEquals(Arrays.asList("wm6", "wm7", "wm8", "wm9"), remaining);
+        resumed.close();
+        assertEquals(10, resumed.getCursor());
+        assertEquals(10L, outcomes("job-1").length());
+    }
+
+    @Test
+    void testOpenDiscardsOutcomesAppendedAfterCheckpoint() throws Exception {
+        BulkSendCheckpoint checkpoint = newJob("job-2", 10);
+        send(checkpoint, checkpoint.targets(), 6);
+        checkpoint.close();
+        assertEquals(6L, outcomes("job-2").length());
+
+        // 模拟追加发送结果后、替换checkpoint前宕机
+        Files.write(outcomes("job-2").toPath(), new byte[] {'S', 'S'}, StandardOpenOption.APPEND);
+
+        // 列出任务只读取，不修改文件
+        store = openStore();
+        assertEquals(6, store.listUnfinished().get(0).getCursor());
+        assertEquals(8L, outcomes("job-2").length());
+
+        // 恢复执行时截掉多出的结果，之后的结果与游标对齐
+        BulkSendCheckpoint resumed = store.open(new BulkSendJob("job-2", "all-customers", "测试群发"),
+                Collections.emptyMap());
+        assertEquals(6L, outcomes("job-2").length());
+        assertEquals(Arrays.asList("wm6", "wm7"), send(resumed, resumed.targets(), 2));
+        resumed.close();
+        assertEquals(8L, outcomes("job-2").length());
+        assertEquals(8, resumed.getCursor());
+    }
+
+    @Test
+    void testMsgidsRestoredOnResume() throws Exception {
+        BulkSendCheckpoint checkpoint = newJob("job-6", 10);
+        Iterator<Map.Entry<String, String>> it = checkpoint.targets();
+        for (int i = 0; i < 4; i++) {
+            String customer = it.next().getKey();
+            checkpoint.record(i != 1, i != 1 ? "msg-" + customer : null);
+        }
+        // 第4个客户的消息ID尚未写入检查点
+        assertEquals(Arrays.asList("msg-wm0", "msg-wm2"), checkpoint.getMsgids());
+
+        // 模拟宕机时追加了消息ID但没有替换checkpoint
+        File msgids = new File(new File(tempDir.toFile(), "job-6"), "msgids");
+        Files.write(msgids.toPath(), "msg-lost\n".getBytes("UTF-8"), StandardOpenOption.APPEND);
+
+        store = openStore();
+        assertEquals(Arrays.asList("msg-wm0", "msg-wm2"), store.listUnfinished().get(0).getMsgids());
+        BulkSendCheckpoint resumed = store.open(new BulkSendJob("job-6", "all-customers", "测试群发"),
+                Collections.emptyMap());
+        Iterator<Map.Entry<String, String>> resumedTargets = resumed.targets();
+        assertEquals("wm3", resumedTargets.next().getKey());
+        resumed.record(true, "msg-wm3-retry");
+        resumed.close();
+        assertEquals(Arrays.asList("msg-wm0", "msg-wm2", "msg-wm3-retry"), resumed.getMsgids());
+    }
+
+    @Test
+    void testCloseSavesWhenThreadInterrupted() throws Exception {
+        BulkSendCheckpoint checkpoint = newJob("job-3", 10);
+        send(checkpoint, checkpoint.targets(), 2);
+        assertEquals(0L, outcomes("job-3").length());
+
+        Thread.currentThread().interrupt();
+        try {
+            checkpoint.close();
+            // 中断状态在写入后恢复
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(2L, outcomes("job-3").length());
+
+        store = openStore();
+        assertEquals(2, store.listUnfinished().get(0).getCursor());
+    }
+
+    @Test
+    void testFinishedJobsRemovedAfterRetention() throws Exception {
+        BulkSendCheckpoint finished = newJob("job-4", 3);
+        send(finished, finished.targets(), 3);
+        finished.finish();
+        finished.close();
+        BulkSendCheckpoint unfinished = newJob("job-5", 3);
+        send(unfinished, unfinished.targets(), 1);
+        unfinished.close();
+
+        // 保留时间内：已结束的任务不再恢复，但检查点保留
+        store = openStore();
+        assertTrue(new File(tempDir.toFile(), "job-4").exists());
+        List<BulkSendCheckpoint> pending = store.listUnfinished();
+        assertEquals(1, pending.size());
+        assertEquals("job-5", pending.get(0).getJobId());
+
+        // 超过保留时间：清理已结束的任务，未结束的任务不受影响
+        config.setRetentionHours(0);
+        Thread.sleep(5);
+        store = openStore();
+        assertFalse(new File(tempDir.toFile(), "job-4").exists());
+        assertTrue(new File(tempDir.toFile(), "job-5").exists());
+        assertEquals(1, store.listUnfinished().size());
+    }
+}
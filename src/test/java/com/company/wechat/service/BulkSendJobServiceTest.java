@@ -0,0 +1,241 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.BulkSendCheckpointConfig;
+import com.company.wechat.config.BulkSendJobConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 后台群发任务引擎测试
+ */
+class BulkSendJobServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BulkSendJobConfig config;
+    private BulkSendJobService service;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        config = new BulkSendJobConfig();
+        config.setMaxConcurrent(2);
+        config.setMaxQueued(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    private void start() {
+        service = new BulkSendJobService();
+        ReflectionTestUtils.setField(service, "jobConfig", config);
+        service.init();
+    }
+
+    /**
+     * 开始执行后阻塞到release的任务
+     */
+    private Function<BulkSendJob, Map<String, Object>> blocking(CountDownLatch started) {
+        return job -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Collections.singletonMap("success", true);
+        };
+    }
+
+    private static void awaitStatus(BulkSendJob job, String status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!status.equals(job.getStatus())) {
+            assertTrue(System.currentTimeMillis() < deadline,
+                    "任务状态为" + job.getStatus() + "，期望" + status);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void testDuplicateKeyRejected() throws Exception {
+        start();
+        CountDownLatch started = new CountDownLatch(1);
+        BulkSendJob first = service.submit("all-customers:1", "全员群发", blocking(started));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        DuplicateJobException duplicate = assertThrows(DuplicateJobException.class,
+                () -> service.submit("all-customers:1", "全员群发", blocking(new CountDownLatch(1))));
+        assertSame(first, duplicate.getExisting());
+        // 不同的任务键不受影响
+        BulkSendJob other = service.submit("all-customers:2", "部门群发", blocking(new CountDownLatch(1)));
+
+        release.countDown();
+        awaitStatus(first, BulkSendJob.COMPLETED);
+        awaitStatus(other, BulkSendJob.COMPLETED);
+        // 任务结束后可以再次提交
+        BulkSendJob again = service.submit("all-customers:1", "全员群发", job -> Collections.emptyMap());
+        awaitStatus(again, BulkSendJob.COMPLETED);
+    }
+
+    @Test
+    void testConcurrencyAndQueueCaps() throws Exception {
+        start();
+        CountDownLatch started = new CountDownLatch(2);
+        BulkSendJob first = service.submit("job-1", "任务1", blocking(started));
+        // 尚未开始执行的任务计入排队数
+        awaitStatus(first, BulkSendJob.RUNNING);
+        BulkSendJob second = service.submit("job-2", "任务2", blocking(started));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // 同时执行的任务数已满，新任务排队；排队数也满时拒绝提交
+        CountDownLatch thirdStarted = new CountDownLatch(1);
+        BulkSendJob third = service.submit("job-3", "任务3", blocking(thirdStarted));
+        assertEquals(BulkSendJob.PENDING, third.getStatus());
+        assertThrows(IllegalStateException.class,
+                () -> service.submit("job-4", "任务4", blocking(new CountDownLatch(1))));
+        assertEquals(BulkSendJob.RUNNING, first.getStatus());
+        assertEquals(BulkSendJob.RUNNING, second.getStatus());
+
+        release.countDown();
+        assertTrue(thirdStarted.await(5, TimeUnit.SECONDS));
+        awaitStatus(third, BulkSendJob.COMPLETED);
+        assertEquals(3, service.listJobs().size());
+    }
+
+    @Test
+    void testPauseResumeCancel() throws Exception {
+        start();
+        BulkSendJob job = service.submit("loop", "循环发送", running -> {
+            while (running.awaitRunnable()) {
+                running.sent();
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return Collections.singletonMap("success", false);
+        });
+        awaitStatus(job, BulkSendJob.RUNNING);
+
+        assertTrue(service.pause(job.getId()));
+        awaitStatus(job, BulkSendJob.PAUSED);
+        Object sent = job.toMap().get("sent");
+        Thread.sleep(50);
+        assertEquals(sent, job.toMap().get("sent"));
+
+        assertTrue(service.resume(job.getId()));
+        assertFalse(service.resume(job.getId()));
+        awaitStatus(job, BulkSendJob.RUNNING);
+
+        assertTrue(service.cancel(job.getId()));
+        awaitStatus(job, BulkSendJob.CANCELLED);
+        // 已结束的任务不能再暂停或取消
+        assertFalse(service.pause(job.getId()));
+        assertFalse(service.cancel(job.getId()));
+        assertFalse(service.cancel("missing"));
+    }
+
+    @Test
+    void testCancelWhileQueued() throws Exception {
+        config.setMaxConcurrent(1);
+        start();
+        CountDownLatch started = new CountDownLatch(1);
+        service.submit("job-1", "任务1", blocking(started));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CountDownLatch queuedStarted = new CountDownLatch(1);
+        BulkSendJob queued = service.submit("job-2", "任务2", blocking(queuedStarted));
+
+        assertTrue(service.cancel(queued.getId()));
+        release.countDown();
+        awaitStatus(queued, BulkSendJob.CANCELLED);
+        // 排队期间取消的任务不执行
+        assertEquals(1L, queuedStarted.getCount());
+    }
+
+    @Test
+    void testShutdownLeavesCheckpointedJobUnfinished() throws Exception {
+        BulkSendCheckpointConfig checkpointConfig = new BulkSendCheckpointConfig();
+        checkpointConfig.setEnabled(true);
+        checkpointConfig.setDirectory(tempDir.toString());
+        checkpointConfig.setBatchSize(1);
+        BulkSendCheckpointStore store = new BulkSendCheckpointStore();
+        ReflectionTestUtils.setField(store, "checkpointConfig", checkpointConfig);
+        store.init();
+        Map<String, String> targets = new LinkedHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            targets.put("wm" + i, "staff" + (i % 3));
+        }
+        start();
+
+        // 与企业全员群发相同的发送循环：应用关闭时停止，不标记检查点为已结束
+        CountDownLatch sending = new CountDownLatch(5);
+        BulkSendJob job = service.submit("all-customers:1", "全员群发", running -> {
+            BulkSendCheckpoint checkpoint = store.open(running, Collections.singletonMap("departmentId", "1"));
+            checkpoint.saveTargets(targets);
+            Iterator<Map.Entry<String, String>> it = checkpoint.targets();
+            try {
+                while (it.hasNext()) {
+                    it.next();
+                    if (running.isShutdown() || !running.awaitRunnable()) {
+                        break;
+                    }
+                    running.sent();
+                    checkpoint.record(true);
+                    sending.countDown();
+                    try {
+                        Thread.sleep(2);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            } finally {
+                checkpoint.close();
+            }
+            if (!running.isShutdown()) {
+                checkpoint.finish();
+            }
+            return Collections.singletonMap("success", true);
+        });
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        service.shutdown();
+        assertTrue(job.isShutdown());
+        assertEquals(BulkSendJob.CANCELLED, job.getStatus());
+
+        // 重启后检查点仍未结束，从停止的位置继续
+        BulkSendCheckpointStore restarted = new BulkSendCheckpointStore();
+        ReflectionTestUtils.setField(restarted, "checkpointConfig", checkpointConfig);
+        restarted.init();
+        List<BulkSendCheckpoint> unfinished = restarted.listUnfinished();
+        assertEquals(1, unfinished.size());
+        assertEquals(job.getId(), unfinished.get(0).getJobId());
+        int cursor = unfinished.get(0).getCursor();
+        assertTrue(cursor >= 5 && cursor < 1000, "游标: " + cursor);
+        assertEquals(job.toMap().get("sent"), cursor);
+        service = null;
+    }
+}
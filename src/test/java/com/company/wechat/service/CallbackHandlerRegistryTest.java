@@ -0,0 +1,170 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.CallbackAsyncConfig;
+import com.company.wechat.config.CallbackHandlerConfig;
+import com.company.wechat.handler.CallbackEventHandler;
+import com.company.wechat.model.dto.CallbackEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 回调事件处理器注册中心测试（队列、拒绝策略、丢弃回调）
+ */
+class CallbackHandlerRegistryTest {
+
+    private CallbackAsyncConfig asyncConfig;
+    private CallbackHandlerConfig handlerConfig;
+    private CallbackHandlerRegistry registry;
+
+    private final AtomicInteger released = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        asyncConfig = new CallbackAsyncConfig();
+        asyncConfig.setShutdownTimeoutSeconds(1);
+        handlerConfig = new CallbackHandlerConfig();
+        handlerConfig.setDefaultThreads(1);
+        handlerConfig.setDefaultQueueCapacity(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (registry != null) {
+            registry.shutdown();
+        }
+    }
+
+    private void start(Consumer<CallbackEvent> body) {
+        CallbackEventHandler handler = new CallbackEventHandler() {
+            @Override
+            public String name() {
+                return "test";
+            }
+
+            @Override
+            public String event() {
+                return "change_external_contact";
+            }
+
+            @Override
+            public void handle(CallbackEvent event) {
+                body.accept(event);
+            }
+        };
+        registry = new CallbackHandlerRegistry();
+        ReflectionTestUtils.setField(registry, "handlerConfig", handlerConfig);
+        ReflectionTestUtils.setField(registry, "asyncConfig", asyncConfig);
+        ReflectionTestUtils.setField(registry, "handlers", Collections.singletonList(handler));
+        registry.init();
+    }
+
+    private boolean dispatch() {
+        CallbackEvent event = new CallbackEvent();
+        event.setEvent("change_external_contact");
+        event.setChangeType("add_external_contact");
+        return registry.dispatch(event, released::incrementAndGet);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> handlerStats() {
+        return ((List<Map<String, Object>>) registry.getStats().get("handlers")).get(0);
+    }
+
+    @Test
+    void testRunsInlineWhenAsyncDisabled() {
+        asyncConfig.setEnabled(false);
+        Thread caller = Thread.currentThread();
+        AtomicInteger inline = new AtomicInteger();
+        start(event -> {
+            if (Thread.currentThread() == caller) {
+                inline.incrementAndGet();
+            }
+        });
+
+        assertTrue(dispatch());
+        assertEquals(1, inline.get());
+        assertEquals(1L, handlerStats().get("completed"));
+        assertEquals(0, released.get());
+    }
+
+    @Test
+    void testHandlerFailureReleasesEvent() {
+        asyncConfig.setEnabled(false);
+        start(event -> {
+            throw new IllegalStateException("boom");
+        });
+
+        dispatch();
+        assertEquals(1L, handlerStats().get("failed"));
+        assertEquals(1, released.get());
+    }
+
+    @Test
+    void testDiscardPolicyCountsDropsSeparately() throws Exception {
+        asyncConfig.setRejectionPolicy(CallbackAsyncConfig.RejectionPolicy.DISCARD);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        start(event -> {
+            running.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // 第1个事件占用唯一线程，第2个进入队列，第3个被丢弃
+        dispatch();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        dispatch();
+        dispatch();
+
+        Map<String, Object> stats = handlerStats();
+        assertEquals(1L, stats.get("discarded"));
+        assertEquals(0L, stats.get("callerRuns"));
+        assertEquals(1, released.get());
+        assertEquals(1L, registry.getQueueStats().get("discarded"));
+        unblock.countDown();
+    }
+
+    @Test
+    void testShutdownReleasesQueuedEvents() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        start(event -> {
+            running.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        dispatch();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        dispatch();
+        registry.shutdown();
+
+        // 未执行的事件按丢弃处理，不计入调用方执行次数
+        assertEquals(1L, handlerStats().get("discarded"));
+        assertEquals(0L, handlerStats().get("callerRuns"));
+        assertEquals(1, released.get());
+
+        // 关闭后到达的事件同样撤销去重记录
+        dispatch();
+        assertEquals(2L, handlerStats().get("discarded"));
+        assertEquals(2, released.get());
+        registry = null;
+    }
+}
@@ -0,0 +1,183 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.CallbackJournalConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 回调事件日志测试（临时目录）
+ */
+class CallbackJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CallbackJournalConfig config;
+    private CallbackJournal journal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        config = new CallbackJournalConfig();
+        config.setEnabled(true);
+        config.setDirectory(tempDir.toString());
+        config.setSegmentSizeMb(1);
+        config.setFlushIntervalMillis(60000);
+        journal = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    private CallbackJournal open() throws IOException {
+        CallbackJournal opened = new CallbackJournal();
+        ReflectionTestUtils.setField(opened, "journalConfig", config);
+        opened.init();
+        return opened;
+    }
+
+    private List<String> readAll(Long fromOffset, Long toOffset, Long fromTime, Long toTime) throws IOException {
+        List<String> records = new ArrayList<>();
+        journal.read(fromOffset, toOffset, fromTime, toTime, (offset, timestamp, xml) -> records.add(xml));
+        return records;
+    }
+
+    private static String payload(String id, int length) {
+        StringBuilder sb = new StringBuilder("<xml><Id>").append(id).append("</Id><Pad>");
+        while (sb.length() < length) {
+            sb.append('x');
+        }
+        return sb.append("</Pad></xml>").toString();
+    }
+
+    @Test
+    void testReadByOffsetAndTimeRange() throws Exception {
+        long first = journal.append("<xml>1</xml>");
+        long second = journal.append("<xml>2</xml>");
+        Thread.sleep(20);
+        long thirdTime = System.currentTimeMillis();
+        long third = journal.append("<xml>3</xml>");
+
+        assertEquals(0, first);
+        assertTrue(first < second && second < third);
+        assertEquals(Arrays.asList("<xml>1</xml>", "<xml>2</xml>", "<xml>3</xml>"), readAll(null, null, null, null));
+        assertEquals(Arrays.asList("<xml>2</xml>"), readAll(second, third, null, null));
+        assertEquals(Arrays.asList("<xml>2</xml>", "<xml>3</xml>"), readAll(second, null, null, null));
+        assertEquals(Arrays.asList("<xml>3</xml>"), readAll(null, null, thirdTime, null));
+        assertEquals(Arrays.asList("<xml>1</xml>", "<xml>2</xml>"), readAll(null, null, null, thirdTime));
+
+        // 访问器返回false时停止读取
+        List<Long> offsets = new ArrayList<>();
+        journal.read(null, null, null, null, (offset, timestamp, xml) -> offsets.add(offset) && false);
+        assertEquals(Arrays.asList(first), offsets);
+    }
+
+    @Test
+    void testRecoverTornTail() throws Exception {
+        journal.append("<xml>1</xml>");
+        journal.append("<xml>2</xml>");
+        long tail = journal.getWriteOffset();
+        journal.close();
+
+        // 模拟宕机时写了一半的记录：长度和CRC已写入，负载不完整
+        try (RandomAccessFile file = new RandomAccessFile(new File(tempDir.toFile(), String.format("%020d.journal", 0)), "rw")) {
+            file.seek(tail);
+            file.writeInt(100);
+            file.writeInt(12345);
+            file.writeLong(System.currentTimeMillis());
+            file.write("<xml>torn".getBytes("UTF-8"));
+        }
+
+        journal = open();
+        assertEquals(tail, journal.getWriteOffset());
+        assertEquals(Arrays.asList("<xml>1</xml>", "<xml>2</xml>"), readAll(null, null, null, null));
+
+        // 新记录覆盖半条记录
+        assertEquals(tail, journal.append("<xml>3</xml>"));
+        assertEquals(Arrays.asList("<xml>1</xml>", "<xml>2</xml>", "<xml>3</xml>"), readAll(null, null, null, null));
+    }
+
+    @Test
+    void testSkipRecordWithCrcMismatch() throws Exception {
+        journal.append("<xml>1</xml>");
+        long second = journal.append("<xml>2</xml>");
+        journal.append("<xml>3</xml>");
+
+        // 损坏第二条记录的负载（映射为共享模式，读取可见）
+        try (RandomAccessFile file = new RandomAccessFile(new File(tempDir.toFile(), String.format("%020d.journal", 0)), "rw")) {
+            file.seek(second + 16 + 5);
+            file.write('9');
+        }
+
+        assertEquals(Arrays.asList("<xml>1</xml>", "<xml>3</xml>"), readAll(null, null, null, null));
+    }
+
+    @Test
+    void testRollAcrossSegments() throws Exception {
+        List<String> expected = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String xml = payload(String.valueOf(i), 300 * 1024);
+            expected.add(xml);
+            offsets.add(journal.append(xml));
+        }
+
+        // 1MB的段每段容纳3条记录
+        assertEquals(2L, journal.getStats().get("rolls"));
+        assertEquals(3, journal.getStats().get("segments"));
+        assertTrue(new File(tempDir.toFile(), String.format("%020d.journal", offsets.get(3))).exists());
+        assertTrue(new File(tempDir.toFile(), String.format("%020d.journal", offsets.get(6))).exists());
+
+        assertEquals(expected, readAll(null, null, null, null));
+        // 跨段的偏移范围
+        assertEquals(expected.subList(2, 7), readAll(offsets.get(2), offsets.get(7), null, null));
+
+        // 重启后继续写入最后一个段
+        journal.close();
+        journal = open();
+        assertEquals(offsets.get(7) + 16 + expected.get(7).length(), journal.getWriteOffset());
+        assertEquals(expected, readAll(null, null, null, null));
+    }
+
+    @Test
+    void testReadToleratesSegmentRemovedByRetention() throws Exception {
+        config.setMaxSegments(2);
+        List<Long> offsets = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            offsets.add(journal.append(payload(String.valueOf(i), 300 * 1024)));
+        }
+        assertEquals(2, journal.getStats().get("segments"));
+
+        // 读取过程中清理掉后续的段
+        File next = new File(tempDir.toFile(), String.format("%020d.journal", offsets.get(3)));
+        List<Long> visited = new ArrayList<>();
+        config.setMaxSegments(1);
+        journal.read(null, null, null, null, (offset, timestamp, xml) -> {
+            visited.add(offset);
+            if (visited.size() == 1) {
+                for (int i = 0; i < 3; i++) {
+                    journal.append(payload("new" + i, 300 * 1024));
+                }
+                assertFalse(next.exists());
+            }
+            return true;
+        });
+
+        assertEquals(offsets.get(0), visited.get(0));
+        assertFalse(visited.contains(offsets.get(3)));
+    }
+}
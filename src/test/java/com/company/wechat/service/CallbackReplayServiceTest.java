@@ -0,0 +1,142 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.CallbackAsyncConfig;
+import com.company.wechat.config.CallbackHandlerConfig;
+import com.company.wechat.config.CallbackJournalConfig;
+import com.company.wechat.config.WechatWorkConfig;
+import com.company.wechat.handler.CallbackEventHandler;
+import com.company.wechat.handler.CustomerAddHandler;
+import com.company.wechat.util.CallbackXmlParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 回调事件重放测试（临时目录）
+ */
+class CallbackReplayServiceTest {
+
+    private static final String ADD_EVENT = "<xml>"
+            + "<ToUserName><![CDATA[ww]]></ToUserName>"
+            + "<FromUserName><![CDATA[sys]]></FromUserName>"
+            + "<CreateTime>1700000000</CreateTime>"
+            + "<MsgType><![CDATA[event]]></MsgType>"
+            + "<Event><![CDATA[change_external_contact]]></Event>"
+            + "<ChangeType><![CDATA[add_external_contact]]></ChangeType>"
+            + "<UserID><![CDATA[staff1]]></UserID>"
+            + "<ExternalUserID><![CDATA[wm1]]></ExternalUserID>"
+            + "<WelcomeCode><![CDATA[expired-code]]></WelcomeCode>"
+            + "</xml>";
+
+    @TempDir
+    Path tempDir;
+
+    private CallbackJournal journal;
+    private CallbackHandlerRegistry registry;
+    private CallbackReplayService replayService;
+
+    private final List<String> scheduled = new ArrayList<>();
+    private final List<String> fallbacks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        CallbackJournalConfig journalConfig = new CallbackJournalConfig();
+        journalConfig.setEnabled(true);
+        journalConfig.setDirectory(tempDir.toString());
+        journalConfig.setSegmentSizeMb(1);
+        journalConfig.setFlushIntervalMillis(60000);
+        journal = new CallbackJournal();
+        ReflectionTestUtils.setField(journal, "journalConfig", journalConfig);
+        journal.init();
+
+        // welcome_code已过期：发送结果总是EXPIRED
+        WelcomeMessageScheduler scheduler = new WelcomeMessageScheduler() {
+            @Override
+            public void schedule(String welcomeCode, Long createTime, String content, Consumer<Outcome> listener) {
+                scheduled.add(welcomeCode);
+                listener.accept(Outcome.EXPIRED);
+            }
+        };
+        WelcomeFallbackService fallbackService = new WelcomeFallbackService() {
+            @Override
+            public boolean enqueue(String staffUserId, String externalUserId) {
+                fallbacks.add(externalUserId);
+                return true;
+            }
+        };
+        WechatWorkConfig wechatConfig = new WechatWorkConfig();
+        wechatConfig.setH5BaseUrl("https://h5.example.com/form");
+        CustomerEventService customerEventService = new CustomerEventService();
+        ReflectionTestUtils.setField(customerEventService, "config", wechatConfig);
+        ReflectionTestUtils.setField(customerEventService, "welcomeScheduler", scheduler);
+        ReflectionTestUtils.setField(customerEventService, "fallbackService", fallbackService);
+        CustomerAddHandler handler = new CustomerAddHandler();
+        ReflectionTestUtils.setField(handler, "customerEventService", customerEventService);
+
+        CallbackAsyncConfig asyncConfig = new CallbackAsyncConfig();
+        asyncConfig.setEnabled(false);
+        registry = new CallbackHandlerRegistry();
+        ReflectionTestUtils.setField(registry, "handlerConfig", new CallbackHandlerConfig());
+        ReflectionTestUtils.setField(registry, "asyncConfig", asyncConfig);
+        ReflectionTestUtils.setField(registry, "handlers",
+                Collections.<CallbackEventHandler>singletonList(handler));
+        registry.init();
+
+        replayService = new CallbackReplayService();
+        ReflectionTestUtils.setField(replayService, "journal", journal);
+        ReflectionTestUtils.setField(replayService, "journalConfig", journalConfig);
+        ReflectionTestUtils.setField(replayService, "handlerRegistry", registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        replayService.shutdown();
+        registry.shutdown();
+        journal.close();
+    }
+
+    private CallbackReplayService.ReplayTask awaitFinished(CallbackReplayService.ReplayTask task)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            Object status = task.toMap().get("status");
+            if (!"PENDING".equals(status) && !"RUNNING".equals(status)) {
+                return task;
+            }
+            Thread.sleep(10);
+        }
+        fail("重放任务未在5秒内结束");
+        return task;
+    }
+
+    @Test
+    void testLiveAddEventFallsBackWhenWelcomeExpired() {
+        registry.dispatch(CallbackXmlParser.parse(ADD_EVENT));
+
+        assertEquals(Collections.singletonList("expired-code"), scheduled);
+        assertEquals(Collections.singletonList("wm1"), fallbacks);
+    }
+
+    @Test
+    void testReplayedAddEventDoesNotMessageCustomer() throws Exception {
+        journal.append(ADD_EVENT);
+
+        CallbackReplayService.ReplayTask task = awaitFinished(replayService.submit(null, null, null, null, 1000));
+
+        assertEquals("COMPLETED", task.toMap().get("status"));
+        assertEquals(1L, task.toMap().get("replayed"));
+        // 重放的事件不发送欢迎语，也不转入补发
+        assertTrue(scheduled.isEmpty());
+        assertTrue(fallbacks.isEmpty());
+    }
+}
@@ -0,0 +1,192 @@
+package com.company.wechat.service;
+
+import com.company.wechat.config.AccessTokenConfig;
+import com.company.wechat.config.AdaptiveRateConfig;
+import com.company.wechat.config.RateLimitConfig;
+import com.company.wechat.config.ResilienceConfig;
+import com.company.wechat.config.WechatWorkConfig;
+import com.company.wechat.standin.LatencyModel;
+import com.company.wechat.standin.QyApiStandIn;
+import com.company.wechat.util.HttpUtil;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 企业微信API调用客户端测试（本地模拟企业微信API）
+ */
+class QyApiClientTest {
+
+    private static final String GET_CONTACT = "/cgi-bin/externalcontact/get?access_token=%s&external_userid=%s";
+    private static final String LIST_STAFF = "/cgi-bin/user/simplelist?access_token=%s&department_id=%s";
+    private static final String LIST_CUSTOMERS = "/cgi-bin/externalcontact/list?access_token=%s&userid=%s";
+    private static final String ADD_MSG_TEMPLATE = "/cgi-bin/externalcontact/add_msg_template?access_token=%s";
+    private static final String TEMPLATE_BODY =
+            "{\"chat_type\":\"single\",\"sender\":\"user-0-0\",\"external_userid\":[\"wm-0-0-0\"]}";
+
+    private QyApiStandIn standIn;
+    private ResilienceConfig resilienceConfig;
+    private AccessTokenManager tokenManager;
+    private ApiRateLimiter rateLimiter;
+    private QyApiClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        standIn = new QyApiStandIn(1, 1, 3).start();
+
+        WechatWorkConfig config = new WechatWorkConfig();
+        config.setApiBaseUrl(standIn.getBaseUrl());
+        config.setCorpId("ww");
+        config.setAppSecret("s");
+
+        // Redis未配置，Token和限流都只使用进程内缓存
+        tokenManager = new AccessTokenManager();
+        ReflectionTestUtils.setField(tokenManager, "config", config);
+        ReflectionTestUtils.setField(tokenManager, "tokenConfig", new AccessTokenConfig());
+        tokenManager.init();
+
+        RateLimitConfig rateLimitConfig = new RateLimitConfig();
+        rateLimiter = new ApiRateLimiter();
+        ReflectionTestUtils.setField(rateLimiter, "rateLimitConfig", rateLimitConfig);
+        ReflectionTestUtils.setField(rateLimiter, "adaptiveRateConfig", new AdaptiveRateConfig());
+        rateLimiter.init();
+
+        resilienceConfig = new ResilienceConfig();
+        resilienceConfig.setBaseDelayMillis(1);
+        resilienceConfig.setMaxDelayMillis(5);
+        ApiCircuitBreaker circuitBreaker = new ApiCircuitBreaker();
+        ReflectionTestUtils.setField(circuitBreaker, "resilienceConfig", resilienceConfig);
+
+        client = new QyApiClient();
+        ReflectionTestUtils.setField(client, "tokenManager", tokenManager);
+        ReflectionTestUtils.setField(client, "rateLimiter", rateLimiter);
+        ReflectionTestUtils.setField(client, "rateLimitConfig", rateLimitConfig);
+        ReflectionTestUtils.setField(client, "circuitBreaker", circuitBreaker);
+        ReflectionTestUtils.setField(client, "resilienceConfig", resilienceConfig);
+        ReflectionTestUtils.setField(client, "config", config);
+        client.init();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.shutdown();
+        rateLimiter.shutdown();
+        tokenManager.shutdown();
+        standIn.close();
+    }
+
+    private long stat(String name) {
+        return (Long) client.getStats().get(name);
+    }
+
+    @Test
+    void testTransientFailuresRetried() throws Exception {
+        standIn.faults("externalcontact-get", new QyApiStandIn.Faults().systemBusy(1.0).times(1));
+        String contact = client.get(GET_CONTACT, "wm-0-0-0");
+        assertEquals(0, QyApiClient.errcode(contact));
+        assertEquals(2, standIn.getRequestCount("externalcontact-get"));
+        assertEquals(1, stat("transientRetries"));
+        assertEquals(1, stat("transientRecovered"));
+
+        standIn.faults("externalcontact-list", new QyApiStandIn.Faults().httpError(1.0).times(1));
+        String customers = client.get(LIST_CUSTOMERS, "user-0-0");
+        assertEquals(0, QyApiClient.errcode(customers));
+        assertEquals(2, standIn.getRequestCount("externalcontact-list"));
+    }
+
+    @Test
+    void testReadTimeoutOnAddMsgTemplateNotResent() throws Exception {
+        Map<HttpUtil.Profile, OkHttpClient> clients = new EnumMap<>(HttpUtil.Profile.class);
+        clients.put(HttpUtil.Profile.DEFAULT, HttpUtil.getClient());
+        int maxInFlight = HttpUtil.getMaxInFlight();
+        Map<HttpUtil.Profile, OkHttpClient> shortRead = new EnumMap<>(clients);
+        shortRead.put(HttpUtil.Profile.SEND, HttpUtil.getClient().newBuilder()
+                .readTimeout(200, TimeUnit.MILLISECONDS).build());
+        HttpUtil.configure(shortRead, maxInFlight);
+        standIn.latency("externalcontact-add-msg-template", LatencyModel.fixed(1000));
+        try {
+            // 群发任务可能已经创建，读超时后不能重发，否则客户会收到两次
+            assertThrows(SocketTimeoutException.class, () -> client.post(ADD_MSG_TEMPLATE, TEMPLATE_BODY));
+            assertEquals(1, standIn.getRequestCount("externalcontact-add-msg-template"));
+            assertEquals(1, stat("unsafeRetrySkipped"));
+        } finally {
+            HttpUtil.configure(clients, maxInFlight);
+        }
+    }
+
+    @Test
+    void testThrottleRequeuedAndRateLowered() throws Exception {
+        double initialRate = rateLimiter.bucket("user-simplelist").getRate();
+        standIn.faults("user-simplelist", new QyApiStandIn.Faults().throttle(1.0).times(1));
+
+        String staff = client.get(LIST_STAFF, 1);
+        assertEquals(0, QyApiClient.errcode(staff));
+        assertEquals(2, standIn.getRequestCount("user-simplelist"));
+        assertEquals(1, stat("requeued"));
+        assertTrue(rateLimiter.bucket("user-simplelist").getRate() < initialRate);
+    }
+
+    @Test
+    void testExpiredTokenRefreshedAndReplayedOnce() throws Exception {
+        client.get(GET_CONTACT, "wm-0-0-0");
+        assertEquals(1, standIn.getRequestCount("gettoken"));
+
+        standIn.expireToken();
+        String contact = client.get(GET_CONTACT, "wm-0-0-1");
+        assertEquals(0, QyApiClient.errcode(contact));
+        assertEquals(2, standIn.getRequestCount("gettoken"));
+        // 第一次调用 + 旧Token返回42001 + 新Token重放
+        assertEquals(3, standIn.getRequestCount("externalcontact-get"));
+        assertEquals(1, stat("tokenErrors"));
+        assertEquals(1, stat("retrySuccess"));
+        assertEquals(standIn.currentToken(), tokenManager.getToken());
+    }
+
+    @Test
+    void testBreakerOpensAndAdmitsOneProbe() throws Exception {
+        resilienceConfig.setFailureThreshold(3);
+        resilienceConfig.setMaxAttempts(5);
+        resilienceConfig.setOpenMillis(300);
+        standIn.faults("externalcontact-get", new QyApiStandIn.Faults().systemBusy(1.0));
+
+        // 连续失败达到阈值后熔断，不再用完剩余的尝试次数
+        assertEquals(-1, QyApiClient.errcode(client.get(GET_CONTACT, "wm-0-0-0")));
+        assertEquals(3, standIn.getRequestCount("externalcontact-get"));
+        assertThrows(CircuitOpenException.class, () -> client.get(GET_CONTACT, "wm-0-0-0"));
+        assertEquals(3, standIn.getRequestCount("externalcontact-get"));
+
+        // 熔断结束后只放行一个试探请求
+        standIn.faults("externalcontact-get", new QyApiStandIn.Faults());
+        standIn.latency("externalcontact-get", LatencyModel.fixed(500));
+        Thread.sleep(350);
+        CompletableFuture<String> probe = CompletableFuture.supplyAsync(() -> {
+            try {
+                return client.get(GET_CONTACT, "wm-0-0-1");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        long deadline = System.currentTimeMillis() + 5000;
+        while (standIn.getRequestCount("externalcontact-get") < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThrows(CircuitOpenException.class, () -> client.get(GET_CONTACT, "wm-0-0-2"));
+        assertEquals(0, QyApiClient.errcode(probe.get(5, TimeUnit.SECONDS)));
+        assertEquals(4, standIn.getRequestCount("externalcontact-get"));
+
+        // 试探成功后熔断关闭
+        standIn.latency("externalcontact-get", LatencyModel.none());
+        assertEquals(0, QyApiClient.errcode(client.get(GET_CONTACT, "wm-0-0-2")));
+    }
+}
@@ -0,0 +1,44 @@
+package com.company.wechat.standin;
+
+import java.util.Random;
+
+/**
+ * 模拟接口的响应延迟分布
+ */
+public interface LatencyModel {
+
+    /**
+     * 本次响应的延迟（毫秒）
+     */
+    long nextMillis(Random random);
+
+    /**
+     * 无延迟
+     */
+    static LatencyModel none() {
+        return random -> 0;
+    }
+
+    /**
+     * 固定延迟
+     */
+    static LatencyModel fixed(long millis) {
+        return random -> millis;
+    }
+
+    /**
+     * [min, max] 区间内均匀分布
+     */
+    static LatencyModel uniform(long minMillis, long maxMillis) {
+        return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+    }
+
+    /**
+     * 对数正态分布（长尾），中位数为medianMillis，sigma越大尾部越长，超过maxMillis截断
+     * 例如 logNormal(80, 0.6, 3000) 的P99约为320ms
+     */
+    static LatencyModel logNormal(double medianMillis, double sigma, long maxMillis) {
+        double mu = Math.log(medianMillis);
+        return random -> Math.min(maxMillis, Math.round(Math.exp(mu + sigma * random.nextGaussian())));
+    }
+}
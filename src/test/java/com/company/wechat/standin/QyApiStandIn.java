@@ -0,0 +1,516 @@
+package com.company.wechat.standin;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地模拟的企业微信API（基于OkHttp MockWebServer），用于压测和离线测试，不会访问真实的qyapi
+ *
+ * 支持的接口：gettoken、externalcontact/list、user/simplelist、externalcontact/add_msg_template、
+ * externalcontact/get_groupmsg_result、externalcontact/send_welcome_msg、externalcontact/get。
+ * 企业规模由部门数、每个部门的员工数、每个员工的客户数决定；每个接口可单独配置延迟分布和故障注入
+ * （errcode=-1系统繁忙、HTTP 503、45033频率限制、每秒调用上限）。接口名与限流配置一致，
+ * 为 /cgi-bin/ 之后的路径（斜杠、下划线替换为短横线），如 externalcontact-list。
+ *
+ * 应用指向模拟服务：wechat.work.api-base-url=http://localhost:18080
+ * 单独启动：mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.company.wechat.standin.QyApiStandIn -Dexec.args="18080 20 50 200"
+ * （端口、部门数、每个部门的员工数、每个员工的客户数）
+ */
+public class QyApiStandIn implements Closeable {
+
+    private static final String API_PATH_PREFIX = "/cgi-bin/";
+
+    private final MockWebServer server = new MockWebServer();
+    private final int departments;
+    private final int staffPerDepartment;
+    private final int customersPerStaff;
+
+    private volatile LatencyModel defaultLatency = LatencyModel.none();
+    private final Map<String, LatencyModel> latencies = new ConcurrentHashMap<>();
+    private final Map<String, Faults> faults = new ConcurrentHashMap<>();
+
+    /**
+     * 每隔多少个员工有一个员工未配置客户联系（externalcontact/list返回84061），0表示全部已配置
+     */
+    private volatile int unconfiguredStaffInterval;
+
+    private final AtomicInteger tokenVersion = new AtomicInteger(1);
+    private final AtomicLong msgIdSequence = new AtomicLong();
+    private final Map<String, GroupMsg> groupMsgs = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+    private final Map<String, long[]> qpsWindows = new ConcurrentHashMap<>();
+
+    /**
+     * @param departments 部门数（不含根部门1，子部门ID为2..departments+1）
+     * @param staffPerDepartment 每个部门的员工数
+     * @param customersPerStaff 每个员工的客户数
+     */
+    public QyApiStandIn(int departments, int staffPerDepartment, int customersPerStaff) {
+        this.departments = departments;
+        this.staffPerDepartment = staffPerDepartment;
+        this.customersPerStaff = customersPerStaff;
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return handle(request);
+            }
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 18080;
+        QyApiStandIn standIn = new QyApiStandIn(
+                args.length > 1 ? Integer.parseInt(args[1]) : 20,
+                args.length > 2 ? Integer.parseInt(args[2]) : 50,
+                args.length > 3 ? Integer.parseInt(args[3]) : 200);
+        standIn.defaultLatency(LatencyModel.logNormal(80, 0.6, 3000));
+        standIn.start(port);
+        System.out.println("企业微信模拟服务已启动: " + standIn.getBaseUrl()
+                + "，员工" + standIn.getStaffCount() + "人，客户" + standIn.getCustomerCount() + "个");
+        System.out.println("应用配置: wechat.work.api-base-url=" + standIn.getBaseUrl());
+        Thread.currentThread().join();
+    }
+
+    /**
+     * 在随机端口启动
+     */
+    public QyApiStandIn start() throws IOException {
+        return start(0);
+    }
+
+    public QyApiStandIn start(int port) throws IOException {
+        server.start(port);
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+
+    /**
+     * 基础地址（对应 wechat.work.api-base-url），不带结尾的斜杠
+     */
+    public String getBaseUrl() {
+        String url = server.url("/").toString();
+        return url.substring(0, url.length() - 1);
+    }
+
+    public QyApiStandIn defaultLatency(LatencyModel latency) {
+        this.defaultLatency = latency;
+        return this;
+    }
+
+    public QyApiStandIn latency(String api, LatencyModel latency) {
+        latencies.put(api, latency);
+        return this;
+    }
+
+    public QyApiStandIn faults(String api, Faults apiFaults) {
+        faults.put(api, apiFaults);
+        return this;
+    }
+
+    public QyApiStandIn unconfiguredStaffInterval(int interval) {
+        this.unconfiguredStaffInterval = interval;
+        return this;
+    }
+
+    /**
+     * 使当前Access Token失效，之后使用旧Token的调用返回42001
+     */
+    public void expireToken() {
+        tokenVersion.incrementAndGet();
+    }
+
+    public String currentToken() {
+        return "standin-token-" + tokenVersion.get();
+    }
+
+    /**
+     * 某个接口收到的请求数（包括注入了故障的请求）
+     */
+    public long getRequestCount(String api) {
+        AtomicLong count = requestCounts.get(api);
+        return count == null ? 0 : count.get();
+    }
+
+    public int getStaffCount() {
+        return departments * staffPerDepartment;
+    }
+
+    public long getCustomerCount() {
+        long configured = 0;
+        for (String userId : staffOf(1)) {
+            if (isConfigured(userId)) {
+                configured++;
+            }
+        }
+        return configured * customersPerStaff;
+    }
+
+    /**
+     * 第d个子部门（从0开始）的第s个员工
+     */
+    public static String staffId(int department, int staff) {
+        return "user-" + department + "-" + staff;
+    }
+
+    public static String customerId(String staffId, int customer) {
+        return "wm-" + staffId.substring("user-".length()) + "-" + customer;
+    }
+
+    private MockResponse handle(RecordedRequest request) {
+        HttpUrl url = request.getRequestUrl();
+        String path = url == null ? "" : url.encodedPath();
+        if (!path.startsWith(API_PATH_PREFIX)) {
+            return new MockResponse().setResponseCode(404);
+        }
+        String api = toApiName(path.substring(API_PATH_PREFIX.length()));
+        requestCounts.computeIfAbsent(api, k -> new AtomicLong()).incrementAndGet();
+
+        MockResponse response = respond(api, url, request);
+        long delay = latencies.getOrDefault(api, defaultLatency).nextMillis(ThreadLocalRandom.current());
+        if (delay > 0) {
+            response.setHeadersDelay(delay, TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+
+    private MockResponse respond(String api, HttpUrl url, RecordedRequest request) {
+        Faults apiFaults = faults.get(api);
+        if (apiFaults != null) {
+            if (apiFaults.maxQps > 0 && overQps(api, apiFaults.maxQps)) {
+                return json(error(45009, "api freq out of limit"));
+            }
+            MockResponse injected = apiFaults.inject(ThreadLocalRandom.current());
+            if (injected != null) {
+                return injected;
+            }
+        }
+        if ("gettoken".equals(api)) {
+            JsonObject json = ok();
+            json.addProperty("access_token", currentToken());
+            json.addProperty("expires_in", 7200);
+            return json(json);
+        }
+        String token = url.queryParameter("access_token");
+        if (token == null || !token.startsWith("standin-token-")) {
+            return json(error(40014, "invalid access_token"));
+        }
+        if (!currentToken().equals(token)) {
+            return json(error(42001, "access_token expired"));
+        }
+        switch (api) {
+            case "user-simplelist":
+                return simpleList(url);
+            case "externalcontact-list":
+                return externalContactList(url.queryParameter("userid"));
+            case "externalcontact-get":
+                return externalContact(url.queryParameter("external_userid"));
+            case "externalcontact-add-msg-template":
+                return addMsgTemplate(body(request));
+            case "externalcontact-get-groupmsg-result":
+                return groupMsgResult(body(request));
+            case "externalcontact-send-welcome-msg":
+                return json(ok());
+            default:
+                return new MockResponse().setResponseCode(404);
+        }
+    }
+
+    private MockResponse simpleList(HttpUrl url) {
+        int departmentId = parseInt(url.queryParameter("department_id"), 1);
+        JsonArray users = new JsonArray();
+        for (String userId : staffOf(departmentId)) {
+            JsonObject user = new JsonObject();
+            user.addProperty("userid", userId);
+            user.addProperty("name", userId);
+            JsonArray department = new JsonArray();
+            department.add(departmentId);
+            user.add("department", department);
+            users.add(user);
+        }
+        JsonObject json = ok();
+        json.add("userlist", users);
+        return json(json);
+    }
+
+    private MockResponse externalContactList(String userId) {
+        if (userId == null || !isStaff(userId)) {
+            return json(error(60111, "userid not found"));
+        }
+        if (!isConfigured(userId)) {
+            return json(error(84061, "not external contact"));
+        }
+        JsonArray ids = new JsonArray();
+        for (int i = 0; i < customersPerStaff; i++) {
+            ids.add(customerId(userId, i));
+        }
+        JsonObject json = ok();
+        json.add("external_userid", ids);
+        return json(json);
+    }
+
+    private MockResponse externalContact(String externalUserId) {
+        if (externalUserId == null || !externalUserId.startsWith("wm-")) {
+            return json(error(84014, "invalid external_userid"));
+        }
+        String staffId = "user-" + externalUserId.substring(3, externalUserId.lastIndexOf('-'));
+        JsonObject contact = new JsonObject();
+        contact.addProperty("external_userid", externalUserId);
+        contact.addProperty("name", "客户" + externalUserId);
+        contact.addProperty("type", 1);
+        JsonObject follow = new JsonObject();
+        follow.addProperty("userid", staffId);
+        JsonArray followUsers = new JsonArray();
+        followUsers.add(follow);
+        JsonObject json = ok();
+        json.add("external_contact", contact);
+        json.add("follow_user", followUsers);
+        return json(json);
+    }
+
+    private MockResponse addMsgTemplate(JsonObject request) {
+        List<String> recipients = new ArrayList<>();
+        JsonElement ids = request.get("external_userid");
+        if (ids != null && ids.isJsonArray()) {
+            for (JsonElement id : ids.getAsJsonArray()) {
+                recipients.add(id.getAsString());
+            }
+        }
+        JsonElement sender = request.get("sender");
+        String msgId = "standin-msg-" + msgIdSequence.incrementAndGet();
+        groupMsgs.put(msgId, new GroupMsg(sender != null && sender.isJsonPrimitive() ? sender.getAsString() : null,
+                recipients, System.currentTimeMillis() / 1000));
+        JsonObject json = ok();
+        json.add("fail_list", new JsonArray());
+        json.addProperty("msgid", msgId);
+        return json(json);
+    }
+
+    /**
+     * 群发结果：所有客户状态为已发送，按cursor分页（cursor为下一页的起始下标）
+     */
+    private MockResponse groupMsgResult(JsonObject request) {
+        JsonElement msgId = request.get("msgid");
+        GroupMsg msg = msgId == null ? null : groupMsgs.get(msgId.getAsString());
+        if (msg == null) {
+            return json(error(41063, "msgid not found"));
+        }
+        int limit = request.has("limit") ? Math.min(1000, request.get("limit").getAsInt()) : 500;
+        int from = request.has("cursor") ? parseInt(request.get("cursor").getAsString(), 0) : 0;
+        int to = Math.min(msg.recipients.size(), from + limit);
+        JsonArray details = new JsonArray();
+        for (int i = from; i < to; i++) {
+            JsonObject detail = new JsonObject();
+            detail.addProperty("external_userid", msg.recipients.get(i));
+            detail.addProperty("userid", msg.sender);
+            detail.addProperty("status", 1);
+            detail.addProperty("send_time", msg.sendTime);
+            details.add(detail);
+        }
+        JsonObject json = ok();
+        json.add("detail_list", details);
+        json.addProperty("next_cursor", to < msg.recipients.size() ? String.valueOf(to) : "");
+        return json(json);
+    }
+
+    private List<String> staffOf(int departmentId) {
+        if (departmentId == 1) {
+            List<String> all = new ArrayList<>(getStaffCount());
+            for (int d = 0; d < departments; d++) {
+                all.addAll(staffOf(d + 2));
+            }
+            return all;
+        }
+        int d = departmentId - 2;
+        if (d < 0 || d >= departments) {
+            return Collections.emptyList();
+        }
+        List<String> staff = new ArrayList<>(staffPerDepartment);
+        for (int s = 0; s < staffPerDepartment; s++) {
+            staff.add(staffId(d, s));
+        }
+        return staff;
+    }
+
+    private boolean isStaff(String userId) {
+        if (!userId.startsWith("user-")) {
+            return false;
+        }
+        String[] parts = userId.split("-");
+        if (parts.length != 3) {
+            return false;
+        }
+        int d = parseInt(parts[1], -1);
+        int s = parseInt(parts[2], -1);
+        return d >= 0 && d < departments && s >= 0 && s < staffPerDepartment;
+    }
+
+    private boolean isConfigured(String userId) {
+        int interval = unconfiguredStaffInterval;
+        return interval <= 0 || (userId.hashCode() & Integer.MAX_VALUE) % interval != 0;
+    }
+
+    /**
+     * 每秒调用上限：从窗口内首次调用起计1秒，超过时返回45009
+     * （不按整秒边界计数，避免相邻两次调用恰好跨秒时漏判）
+     */
+    private boolean overQps(String api, int maxQps) {
+        long now = System.currentTimeMillis();
+        long[] window = qpsWindows.computeIfAbsent(api, k -> new long[2]);
+        synchronized (window) {
+            if (now - window[0] >= 1000) {
+                window[0] = now;
+                window[1] = 0;
+            }
+            return ++window[1] > maxQps;
+        }
+    }
+
+    private static String toApiName(String path) {
+        return path.replace('/', '-').replace('_', '-');
+    }
+
+    private static JsonObject body(RecordedRequest request) {
+        String body = request.getBody().readUtf8();
+        JsonElement json = body.isEmpty() ? null : JsonParser.parseString(body);
+        return json != null && json.isJsonObject() ? json.getAsJsonObject() : new JsonObject();
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static JsonObject ok() {
+        return error(0, "ok");
+    }
+
+    private static JsonObject error(int errcode, String errmsg) {
+        JsonObject json = new JsonObject();
+        json.addProperty("errcode", errcode);
+        json.addProperty("errmsg", errmsg);
+        return json;
+    }
+
+    private static MockResponse json(JsonObject json) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json; charset=utf-8")
+                .setBody(json.toString());
+    }
+
+    /**
+     * 故障注入（概率按每个请求独立计算，依次判断）
+     */
+    public static final class Faults {
+
+        private double systemBusyRate;
+        private double httpErrorRate;
+        private double throttleRate;
+        private int maxQps;
+        private final AtomicInteger remaining = new AtomicInteger(Integer.MAX_VALUE);
+
+        /**
+         * errcode=-1（系统繁忙）的比例
+         */
+        public Faults systemBusy(double rate) {
+            this.systemBusyRate = rate;
+            return this;
+        }
+
+        /**
+         * HTTP 503的比例
+         */
+        public Faults httpError(double rate) {
+            this.httpErrorRate = rate;
+            return this;
+        }
+
+        /**
+         * errcode=45033（接口并发调用超过限制）的比例
+         */
+        public Faults throttle(double rate) {
+            this.throttleRate = rate;
+            return this;
+        }
+
+        /**
+         * 每秒调用上限，超过时返回45009，0表示不限制
+         */
+        public Faults maxQps(int qps) {
+            this.maxQps = qps;
+            return this;
+        }
+
+        /**
+         * 最多注入的故障次数（不含maxQps），用完后正常响应
+         */
+        public Faults times(int count) {
+            this.remaining.set(count);
+            return this;
+        }
+
+        MockResponse inject(Random random) {
+            if (remaining.get() <= 0) {
+                return null;
+            }
+            MockResponse response = pick(random);
+            if (response != null) {
+                remaining.decrementAndGet();
+            }
+            return response;
+        }
+
+        private MockResponse pick(Random random) {
+            if (random.nextDouble() < systemBusyRate) {
+                return json(error(-1, "system busy"));
+            }
+            if (random.nextDouble() < httpErrorRate) {
+                return new MockResponse().setResponseCode(503);
+            }
+            if (random.nextDouble() < throttleRate) {
+                return json(error(45033, "api concurrent out of limit"));
+            }
+            return null;
+        }
+    }
+
+    private static final class GroupMsg {
+
+        private final String sender;
+        private final List<String> recipients;
+        private final long sendTime;
+
+        GroupMsg(String sender, List<String> recipients, long sendTime) {
+            this.sender = sender;
+            this.recipients = recipients;
+            this.sendTime = sendTime;
+        }
+    }
+}
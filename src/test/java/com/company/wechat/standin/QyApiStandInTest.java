@@ -0,0 +1,119 @@
+package com.company.wechat.standin;
+
+import com.company.wechat.util.AesUtil;
+import com.company.wechat.util.HttpUtil;
+import com.company.wechat.util.WechatSignUtil;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 本地模拟企业微信API测试
+ */
+class QyApiStandInTest {
+
+    private QyApiStandIn standIn;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        standIn = new QyApiStandIn(2, 3, 5).start();
+        baseUrl = standIn.getBaseUrl();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        standIn.close();
+    }
+
+    private JsonObject get(String path) throws Exception {
+        return JsonParser.parseString(HttpUtil.doGet(baseUrl + path)).getAsJsonObject();
+    }
+
+    private JsonObject post(String path, String body) throws Exception {
+        return JsonParser.parseString(HttpUtil.doPostString(baseUrl + path, body)).getAsJsonObject();
+    }
+
+    private String token() throws Exception {
+        return get("/cgi-bin/gettoken?corpid=ww&corpsecret=s").get("access_token").getAsString();
+    }
+
+    @Test
+    void testCorpDirectory() throws Exception {
+        String token = token();
+
+        JsonObject root = get("/cgi-bin/user/simplelist?access_token=" + token + "&department_id=1");
+        assertEquals(0, root.get("errcode").getAsInt());
+        assertEquals(6, root.getAsJsonArray("userlist").size());
+        JsonObject department = get("/cgi-bin/user/simplelist?access_token=" + token + "&department_id=3");
+        assertEquals(3, department.getAsJsonArray("userlist").size());
+
+        String staff = QyApiStandIn.staffId(1, 2);
+        JsonObject customers = get("/cgi-bin/externalcontact/list?access_token=" + token + "&userid=" + staff);
+        assertEquals(5, customers.getAsJsonArray("external_userid").size());
+        assertEquals(30, standIn.getCustomerCount());
+
+        JsonObject contact = get("/cgi-bin/externalcontact/get?access_token=" + token
+                + "&external_userid=" + QyApiStandIn.customerId(staff, 0));
+        assertEquals(staff, contact.getAsJsonArray("follow_user").get(0).getAsJsonObject()
+                .get("userid").getAsString());
+    }
+
+    @Test
+    void testGroupMsgResultPaging() throws Exception {
+        String token = token();
+        JsonObject created = post("/cgi-bin/externalcontact/add_msg_template?access_token=" + token,
+                "{\"chat_type\":\"single\",\"sender\":\"user-0-0\",\"external_userid\":[\"wm-0-0-0\",\"wm-0-0-1\","
+                        + "\"wm-0-0-2\"]}");
+        String msgId = created.get("msgid").getAsString();
+
+        String url = "/cgi-bin/externalcontact/get_groupmsg_result?access_token=" + token;
+        JsonObject first = post(url, "{\"msgid\":\"" + msgId + "\",\"limit\":2}");
+        assertEquals(2, first.getAsJsonArray("detail_list").size());
+        String cursor = first.get("next_cursor").getAsString();
+        JsonObject second = post(url, "{\"msgid\":\"" + msgId + "\",\"limit\":2,\"cursor\":\"" + cursor + "\"}");
+        assertEquals(1, second.getAsJsonArray("detail_list").size());
+        assertEquals("", second.get("next_cursor").getAsString());
+        assertEquals(1, second.getAsJsonArray("detail_list").get(0).getAsJsonObject().get("status").getAsInt());
+    }
+
+    @Test
+    void testFaultsAndTokenExpiry() throws Exception {
+        String token = token();
+        standIn.faults("user-simplelist", new QyApiStandIn.Faults().throttle(1.0));
+        assertEquals(45033, get("/cgi-bin/user/simplelist?access_token=" + token + "&department_id=1")
+                .get("errcode").getAsInt());
+        assertEquals(1, standIn.getRequestCount("user-simplelist"));
+
+        standIn.faults("externalcontact-list", new QyApiStandIn.Faults().maxQps(1));
+        String listUrl = "/cgi-bin/externalcontact/list?access_token=" + token + "&userid=user-0-0";
+        assertEquals(0, get(listUrl).get("errcode").getAsInt());
+        assertEquals(45009, get(listUrl).get("errcode").getAsInt());
+
+        standIn.expireToken();
+        assertEquals(42001, get("/cgi-bin/externalcontact/get?access_token=" + token
+                + "&external_userid=wm-0-0-0").get("errcode").getAsInt());
+    }
+
+    @Test
+    void testSyntheticCallback() throws Exception {
+        String token = "JKBYwA8yEwhjKEyKWRQe";
+        String aesKey = "abcdefghijklmnopqrstuvwxyz0123456789ABCDEFG";
+        SyntheticCallbacks callbacks = new SyntheticCallbacks(token, aesKey, "ww_corp");
+
+        SyntheticCallbacks.SignedCallback callback = callbacks.addExternalContact("user-0-0", "wm-0-0-0", "CODE");
+        String body = callback.getBody();
+        String encrypt = body.substring(body.indexOf("<Encrypt><![CDATA[") + 18, body.indexOf("]]></Encrypt>"));
+
+        assertTrue(WechatSignUtil.verifySignature(token, callback.getTimestamp(), callback.getNonce(), encrypt,
+                callback.getMsgSignature()));
+        String xml = new AesUtil(aesKey, "ww_corp").decrypt(encrypt);
+        assertTrue(xml.contains("<WelcomeCode><![CDATA[CODE]]></WelcomeCode>"));
+        assertEquals(callback.getNonce(), callback.toRequest("http://localhost:8080/api/wechat/callback").url()
+                .queryParameter("nonce"));
+    }
+}
@@ -0,0 +1,114 @@
+package com.company.wechat.standin;
+
+import com.company.wechat.util.AesUtil;
+import com.company.wechat.util.WechatSignUtil;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 生成签名、加密后的模拟回调，用于压测回调接口 /api/wechat/callback
+ * 使用与应用相同的Token、EncodingAESKey和CorpId（wechat.work.*）
+ */
+public class SyntheticCallbacks {
+
+    private static final MediaType XML = MediaType.parse("text/xml; charset=utf-8");
+
+    private final String token;
+    private final String corpId;
+    private final AesUtil aesUtil;
+
+    public SyntheticCallbacks(String token, String encodingAesKey, String corpId) {
+        this.token = token;
+        this.corpId = corpId;
+        this.aesUtil = new AesUtil(encodingAesKey, corpId);
+    }
+
+    /**
+     * 添加客户事件（add_external_contact，带WelcomeCode）
+     */
+    public SignedCallback addExternalContact(String userId, String externalUserId, String welcomeCode) throws Exception {
+        long createTime = System.currentTimeMillis() / 1000;
+        String xml = "<xml>"
+                + "<ToUserName><![CDATA[" + corpId + "]]></ToUserName>"
+                + "<FromUserName><![CDATA[sys]]></FromUserName>"
+                + "<CreateTime>" + createTime + "</CreateTime>"
+                + "<MsgType><![CDATA[event]]></MsgType>"
+                + "<Event><![CDATA[change_external_contact]]></Event>"
+                + "<ChangeType><![CDATA[add_external_contact]]></ChangeType>"
+                + "<UserID><![CDATA[" + userId + "]]></UserID>"
+                + "<ExternalUserID><![CDATA[" + externalUserId + "]]></ExternalUserID>"
+                + "<State><![CDATA[standin]]></State>"
+                + "<WelcomeCode><![CDATA[" + welcomeCode + "]]></WelcomeCode>"
+                + "</xml>";
+        return sign(xml);
+    }
+
+    /**
+     * 加密任意事件XML并签名
+     */
+    public SignedCallback sign(String eventXml) throws Exception {
+        String encrypt = aesUtil.encrypt(AesUtil.getRandomStr(), eventXml);
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        String nonce = String.valueOf(ThreadLocalRandom.current().nextInt(100000000, 999999999));
+        String signature = WechatSignUtil.computeSignature(token, timestamp, nonce, encrypt);
+        String body = "<xml><ToUserName><![CDATA[" + corpId + "]]></ToUserName>"
+                + "<Encrypt><![CDATA[" + encrypt + "]]></Encrypt>"
+                + "<AgentID><![CDATA[]]></AgentID></xml>";
+        return new SignedCallback(signature, timestamp, nonce, body);
+    }
+
+    /**
+     * 签名后的回调请求
+     */
+    public static final class SignedCallback {
+
+        private final String msgSignature;
+        private final String timestamp;
+        private final String nonce;
+        private final String body;
+
+        SignedCallback(String msgSignature, String timestamp, String nonce, String body) {
+            this.msgSignature = msgSignature;
+            this.timestamp = timestamp;
+            this.nonce = nonce;
+            this.body = body;
+        }
+
+        public String getMsgSignature() {
+            return msgSignature;
+        }
+
+        public String getTimestamp() {
+            return timestamp;
+        }
+
+        public String getNonce() {
+            return nonce;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        /**
+         * 构建POST请求
+         *
+         * @param callbackUrl 回调地址，如 http://localhost:8080/api/wechat/callback
+         */
+        public Request toRequest(String callbackUrl) {
+            HttpUrl url = HttpUrl.get(callbackUrl).newBuilder()
+                    .addQueryParameter("msg_signature", msgSignature)
+                    .addQueryParameter("timestamp", timestamp)
+                    .addQueryParameter("nonce", nonce)
+                    .build();
+            return new Request.Builder()
+                    .url(url)
+                    .post(RequestBody.create(body, XML))
+                    .build();
+        }
+    }
+}
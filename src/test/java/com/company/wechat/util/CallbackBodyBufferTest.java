@@ -0,0 +1,63 @@
+package com.company.wechat.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 回调请求体缓冲区测试
+ */
+class CallbackBodyBufferTest {
+
+    private static String encryptOf(CallbackBodyBuffer body) {
+        return new String(body.getBytes(), body.getEncryptOffset(), body.getEncryptLength(), StandardCharsets.US_ASCII);
+    }
+
+    private static CallbackBodyBuffer read(String xml, boolean withContentLength) throws Exception {
+        byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+        return CallbackBodyBuffer.read(new ByteArrayInputStream(bytes), withContentLength ? bytes.length : -1);
+    }
+
+    @Test
+    void testLocateCdataEncrypt() throws Exception {
+        CallbackBodyBuffer body = read("<xml><ToUserName><![CDATA[corp]]></ToUserName>"
+                + "<Encrypt><![CDATA[abc+/==]]></Encrypt><AgentID><![CDATA[1]]></AgentID></xml>", true);
+
+        assertTrue(body.locateEncrypt());
+        assertEquals("abc+/==", encryptOf(body));
+        body.release();
+    }
+
+    @Test
+    void testLocatePlainEncrypt() throws Exception {
+        CallbackBodyBuffer body = read("<xml><Encrypt>abc123</Encrypt></xml>", false);
+
+        assertTrue(body.locateEncrypt());
+        assertEquals("abc123", encryptOf(body));
+        body.release();
+    }
+
+    @Test
+    void testMissingEncrypt() throws Exception {
+        CallbackBodyBuffer body = read("<xml><Encrypt>abc123</xml>", true);
+
+        assertFalse(body.locateEncrypt());
+        body.release();
+    }
+
+    @Test
+    void testLargeBodyWithoutContentLength() throws Exception {
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            payload.append('A');
+        }
+        CallbackBodyBuffer body = read("<xml><Encrypt><![CDATA[" + payload + "]]></Encrypt></xml>", false);
+
+        assertTrue(body.locateEncrypt());
+        assertEquals(payload.toString(), encryptOf(body));
+        body.release();
+    }
+}
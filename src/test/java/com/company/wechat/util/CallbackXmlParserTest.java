@@ -0,0 +1,86 @@
+package com.company.wechat.util;
+
+import com.company.wechat.model.dto.CallbackEvent;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 回调XML流式解析测试
+ */
+class CallbackXmlParserTest {
+
+    @Test
+    void testParseAddExternalContact() {
+        String xml = "<xml><ToUserName><![CDATA[wwcorp]]></ToUserName>"
+                + "<FromUserName><![CDATA[sys]]></FromUserName>"
+                + "<CreateTime>1403610513</CreateTime>"
+                + "<MsgType><![CDATA[event]]></MsgType>"
+                + "<Event><![CDATA[change_external_contact]]></Event>"
+                + "<ChangeType><![CDATA[add_external_contact]]></ChangeType>"
+                + "<UserID><![CDATA[zhangsan]]></UserID>"
+                + "<ExternalUserID><![CDATA[woAJ2GCAAAXtWyujaWJHDDGi0mACAAA]]></ExternalUserID>"
+                + "<State><![CDATA[teststate]]></State>"
+                + "<WelcomeCode><![CDATA[WELCOMECODE]]></WelcomeCode>"
+                + "</xml>";
+
+        CallbackEvent event = CallbackXmlParser.parse(xml);
+
+        assertEquals("wwcorp", event.getToUserName());
+        assertEquals("sys", event.getFromUserName());
+        assertEquals(1403610513L, event.getCreateTime());
+        assertEquals("event", event.getMsgType());
+        assertEquals("change_external_contact", event.getEvent());
+        assertEquals("add_external_contact", event.getChangeType());
+        assertEquals("zhangsan", event.getUserId());
+        assertEquals("woAJ2GCAAAXtWyujaWJHDDGi0mACAAA", event.getExternalUserId());
+        assertEquals("teststate", event.getState());
+        assertEquals("WELCOMECODE", event.getWelcomeCode());
+        assertSame(xml, event.getOriginalXml());
+    }
+
+    @Test
+    void testParseTagChangeAndSkipNestedElements() {
+        String xml = "<xml><ToUserName><![CDATA[wwcorp]]></ToUserName>"
+                + "<CreateTime>1403610513</CreateTime>"
+                + "<MsgType><![CDATA[event]]></MsgType>"
+                + "<Event><![CDATA[change_external_tag]]></Event>"
+                + "<Id><![CDATA[TAG_ID]]></Id>"
+                + "<TagType><![CDATA[tag]]></TagType>"
+                + "<ChangeType><![CDATA[update]]></ChangeType>"
+                + "<MemChangeList><Item><UserID>lisi</UserID></Item></MemChangeList>"
+                + "<StrategyId>1</StrategyId>"
+                + "</xml>";
+
+        CallbackEvent event = CallbackXmlParser.parse(xml);
+
+        assertEquals("change_external_tag", event.getEvent());
+        assertEquals("update", event.getChangeType());
+        assertEquals("TAG_ID", event.getTagId());
+        assertEquals("tag", event.getTagType());
+        assertEquals("1", event.getStrategyId());
+        // 嵌套元素中的UserID不应被当作事件字段
+        assertNull(event.getUserId());
+    }
+
+    @Test
+    void testParseEscapedText() {
+        CallbackEvent event = CallbackXmlParser.parse("<xml><State>a&amp;b</State><CreateTime>abc</CreateTime></xml>");
+
+        assertEquals("a&b", event.getState());
+        assertNull(event.getCreateTime());
+    }
+
+    @Test
+    void testRejectExternalEntity() {
+        String xml = "<?xml version=\"1.0\"?>"
+                + "<!DOCTYPE xml [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>"
+                + "<xml><UserID>&xxe;</UserID></xml>";
+
+        assertThrows(IllegalArgumentException.class, () -> CallbackXmlParser.parse(xml));
+    }
+
+    @Test
+    void testRejectMalformedXml() {
+        assertThrows(IllegalArgumentException.class, () -> CallbackXmlParser.parse("<xml><UserID>abc</xml>"));
+    }
+}
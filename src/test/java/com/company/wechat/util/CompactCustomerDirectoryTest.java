@@ -0,0 +1,118 @@
+package com.company.wechat.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 紧凑客户目录测试
+ */
+class CompactCustomerDirectoryTest {
+
+    @Test
+    void testLookupAndFirstStaffWins() {
+        CompactCustomerDirectory directory = CompactCustomerDirectory.builder(Arrays.asList("zhangsan", "lisi"))
+                .add("wm-b", "lisi")
+                .add("wm-a", 1)
+                .add("wm-a", 0)
+                .add("wm-c", "lisi")
+                .add("wm-b", "lisi")
+                .build();
+
+        assertEquals(3, directory.size());
+        assertEquals(2, directory.getStaffCount());
+        assertEquals("zhangsan", directory.getStaff("wm-a"));
+        assertEquals("lisi", directory.getStaff("wm-b"));
+        assertTrue(directory.contains("wm-c"));
+        assertFalse(directory.contains("wm-d"));
+        assertFalse(directory.contains("wm-"));
+        assertNull(directory.getStaff("wm-d"));
+        assertNull(directory.getStaff(null));
+
+        assertEquals(Arrays.asList("wm-a", "wm-b", "wm-c"), directory.customerIds());
+        assertEquals("lisi", directory.getStaffAt(2));
+        assertEquals(1, directory.getStaffIndexAt(2));
+
+        int[][] byStaff = directory.customerIndexesByStaff();
+        assertEquals(2, byStaff.length);
+        assertArrayEquals(new int[] {0}, byStaff[0]);
+        assertArrayEquals(new int[] {1, 2}, byStaff[1]);
+    }
+
+    @Test
+    void testMapViewMatchesHashMap() {
+        List<String> staff = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            staff.add("staff-" + i);
+        }
+        Random random = new Random(42);
+        Map<String, String> expected = new HashMap<>();
+        CompactCustomerDirectory.Builder builder = CompactCustomerDirectory.builder(staff);
+        for (int i = 0; i < 20000; i++) {
+            // 部分客户被多个员工添加，含非ASCII字符
+            String customer = "wm" + random.nextInt(15000) + (i % 7 == 0 ? "客户" : "");
+            int staffIndex = random.nextInt(staff.size());
+            builder.add(customer, staffIndex);
+            expected.merge(customer, staff.get(staffIndex),
+                    (a, b) -> staff.indexOf(a) <= staff.indexOf(b) ? a : b);
+        }
+        CompactCustomerDirectory directory = builder.build();
+
+        assertEquals(expected, directory.asMap());
+        assertEquals(expected.size(), directory.asMap().size());
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), directory.asMap().get(entry.getKey()));
+        }
+        List<String> sorted = new ArrayList<>(expected.keySet());
+        // 按UTF-8字节序排序与按String排序在BMP字符范围内一致
+        Collections.sort(sorted);
+        assertEquals(sorted, directory.customerIds());
+    }
+
+    @Test
+    void testConcurrentAdd() throws Exception {
+        List<String> staff = Arrays.asList("s0", "s1", "s2", "s3");
+        CompactCustomerDirectory.Builder builder = CompactCustomerDirectory.builder(staff);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int s = 0; s < staff.size(); s++) {
+            int staffIndex = s;
+            executor.execute(() -> {
+                for (int c = 0; c < 5000; c++) {
+                    builder.add("wm" + c, staffIndex);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(20000, builder.getAddedCount());
+        CompactCustomerDirectory directory = builder.build();
+        assertEquals(5000, directory.size());
+        for (int i = 0; i < directory.size(); i++) {
+            assertEquals("s0", directory.getStaffAt(i));
+        }
+    }
+
+    @Test
+    void testEmptyAndUnknownStaff() {
+        CompactCustomerDirectory empty = CompactCustomerDirectory.builder(Collections.emptyList()).build();
+        assertTrue(empty.isEmpty());
+        assertTrue(empty.asMap().isEmpty());
+        assertFalse(empty.contains("wm1"));
+
+        CompactCustomerDirectory.Builder builder = CompactCustomerDirectory.builder(Collections.singletonList("s0"));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("wm1", "s1"));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("wm1", 1));
+    }
+}
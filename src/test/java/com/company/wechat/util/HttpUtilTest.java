@@ -0,0 +1,253 @@
+package com.company.wechat.util;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HTTP请求工具测试（本地HTTP服务）
+ */
+class HttpUtilTest {
+
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/echo", exchange -> {
+            byte[] body = readAll(exchange.getRequestBody());
+            byte[] response = ("{\"errcode\":0,\"body\":\"" + new String(body, StandardCharsets.UTF_8).replace("\"", "'") + "\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.createContext("/list", exchange -> {
+            StringBuilder json = new StringBuilder("{\"errcode\":0,\"errmsg\":\"ok\",\"external_userid\":[");
+            for (int i = 0; i < 1000; i++) {
+                json.append(i > 0 ? "," : "").append("\"wm").append(i).append('"');
+            }
+            byte[] response = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.createContext("/error", exchange -> {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void testSyncWrappers() throws Exception {
+        assertEquals("{\"errcode\":0,\"body\":\"\"}", HttpUtil.doGet(baseUrl + "/echo"));
+        assertTrue(HttpUtil.doPostString(baseUrl + "/echo", "hello").contains("hello"));
+        HttpStatusException e = assertThrows(HttpStatusException.class, () -> HttpUtil.doGet(baseUrl + "/error"));
+        assertEquals(500, e.getStatusCode());
+        assertTrue(e.isThrottled());
+        assertEquals(0, HttpUtil.getInFlightCount());
+    }
+
+    @Test
+    void testAsyncFanOut() throws Exception {
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(HttpUtil.doPostStringAsync(baseUrl + "/echo", "n" + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(futures.get(i).get(10, TimeUnit.SECONDS).contains("n" + i));
+        }
+        assertEquals(0, HttpUtil.getInFlightCount());
+    }
+
+    @Test
+    void testTypedResult() throws Exception {
+        Map<String, Object> result = HttpUtil.<Map<String, Object>>doGetAsync(baseUrl + "/echo", Map.class).get();
+        assertEquals(0, ((Number) result.get("errcode")).intValue());
+    }
+
+    @Test
+    void testCallTimeout() {
+        CompletableFuture<String> future = HttpUtil.doGetAsync(baseUrl + "/slow", 200);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IOException);
+    }
+
+    @Test
+    void testCancelReleasesSlot() throws Exception {
+        CompletableFuture<String> future = HttpUtil.doGetAsync(baseUrl + "/slow");
+        assertTrue(future.cancel(true));
+        assertEquals(0, HttpUtil.getInFlightCount());
+    }
+
+    @Test
+    void testSaturatedInFlightQueuesWithoutBlocking() throws Exception {
+        Map<HttpUtil.Profile, OkHttpClient> clients = new EnumMap<>(HttpUtil.Profile.class);
+        clients.put(HttpUtil.Profile.DEFAULT, HttpUtil.getClient());
+        HttpUtil.configure(clients, 2);
+        try {
+            long start = System.nanoTime();
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(HttpUtil.doGetAsync(baseUrl + "/slow"));
+            }
+            // 名额用完后提交线程不等待，请求进入队列
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+            assertEquals(2, HttpUtil.getInFlightCount());
+            assertEquals(3, HttpUtil.getQueuedCount());
+
+            // 排队中的请求取消后移出队列
+            assertTrue(futures.get(4).cancel(true));
+            assertEquals(2, HttpUtil.getQueuedCount());
+            assertEquals(2, HttpUtil.getInFlightCount());
+
+            // 在途请求完成（取消）后名额转交给队首
+            assertTrue(futures.get(0).cancel(true));
+            assertEquals(1, HttpUtil.getQueuedCount());
+            assertEquals(2, HttpUtil.getInFlightCount());
+
+            for (CompletableFuture<String> future : futures.subList(1, 4)) {
+                future.cancel(true);
+            }
+            assertEquals(0, HttpUtil.getInFlightCount());
+            assertEquals(0, HttpUtil.getQueuedCount());
+        } finally {
+            HttpUtil.configure(clients, 64);
+        }
+    }
+
+    @Test
+    void testReservedInFlightNotUsedByOrdinaryRequests() throws Exception {
+        Map<HttpUtil.Profile, OkHttpClient> clients = new EnumMap<>(HttpUtil.Profile.class);
+        clients.put(HttpUtil.Profile.DEFAULT, HttpUtil.getClient());
+        HttpUtil.configure(clients, 3, 1);
+        try {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(HttpUtil.doGetAsync(baseUrl + "/slow"));
+            }
+            // 普通请求只能占用预留之外的2个名额
+            assertEquals(2, HttpUtil.getInFlightCount());
+            assertEquals(2, HttpUtil.getQueuedCount());
+
+            // 预留名额上的请求不用排队
+            long start = System.nanoTime();
+            String response = HttpUtil.doPostStringReserved(baseUrl + "/echo", "welcome", HttpUtil.Profile.SEND, 1000);
+            assertTrue(response.contains("welcome"));
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1000));
+
+            // 预留名额释放后仍不能被排队的普通请求占用
+            assertEquals(2, HttpUtil.getInFlightCount());
+            assertEquals(2, HttpUtil.getQueuedCount());
+
+            for (CompletableFuture<String> future : futures) {
+                future.cancel(true);
+            }
+            assertEquals(0, HttpUtil.getInFlightCount());
+            assertEquals(0, HttpUtil.getQueuedCount());
+        } finally {
+            HttpUtil.configure(clients, 64);
+        }
+    }
+
+    @Test
+    void testReservedWaitBoundedByTimeout() throws Exception {
+        Map<HttpUtil.Profile, OkHttpClient> clients = new EnumMap<>(HttpUtil.Profile.class);
+        clients.put(HttpUtil.Profile.DEFAULT, HttpUtil.getClient());
+        HttpUtil.configure(clients, 2, 1);
+        try {
+            // 普通名额和预留名额都被慢请求占用
+            CompletableFuture<String> ordinary = HttpUtil.doGetAsync(baseUrl + "/slow");
+            CompletableFuture<String> reserved = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return HttpUtil.doPostStringReserved(baseUrl + "/slow", "first", HttpUtil.Profile.SEND, 5000);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            long deadline = System.currentTimeMillis() + 2000;
+            while (HttpUtil.getInFlightCount() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(2, HttpUtil.getInFlightCount());
+
+            // 等待名额的时间计入超时，超时后移出队列
+            long start = System.nanoTime();
+            assertThrows(InterruptedIOException.class, () ->
+                    HttpUtil.doPostStringReserved(baseUrl + "/echo", "welcome", HttpUtil.Profile.SEND, 300));
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1500));
+            assertEquals(0, HttpUtil.getQueuedCount());
+
+            ordinary.cancel(true);
+            reserved.get(5, TimeUnit.SECONDS);
+            assertEquals(0, HttpUtil.getInFlightCount());
+        } finally {
+            HttpUtil.configure(clients, 64);
+        }
+    }
+
+    @Test
+    void testStreamReader() throws Exception {
+        List<String> ids = new ArrayList<>();
+        JsonStreamDecoder.Result result = HttpUtil.doGetStream(baseUrl + "/list", HttpUtil.Profile.LIST,
+                in -> JsonStreamDecoder.readArray(in, "external_userid", JsonStreamDecoder.strings(ids::add)));
+        assertEquals(0, result.getErrcode());
+        assertEquals(1000, result.getCount());
+        assertEquals(1000, ids.size());
+        assertEquals("wm999", ids.get(999));
+
+        assertThrows(HttpStatusException.class, () -> HttpUtil.doGetStream(baseUrl + "/error", HttpUtil.Profile.LIST,
+                in -> JsonStreamDecoder.readArray(in, "external_userid", JsonStreamDecoder.strings(ids::add))));
+        assertEquals(0, HttpUtil.getInFlightCount());
+    }
+}
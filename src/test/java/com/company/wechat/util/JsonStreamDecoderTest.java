@@ -0,0 +1,71 @@
+package com.company.wechat.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 列表响应流式解码测试
+ */
+class JsonStreamDecoderTest {
+
+    private static InputStream json(String value) {
+        return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testExternalUserIds() throws Exception {
+        List<String> ids = new ArrayList<>();
+        JsonStreamDecoder.Result result = JsonStreamDecoder.readArray(
+                json("{\"errcode\":0,\"errmsg\":\"ok\",\"external_userid\":[\"wm1\",null,\"wm2\"],\"next_cursor\":\"\"}"),
+                "external_userid", JsonStreamDecoder.strings(ids::add));
+
+        assertEquals(0, result.getErrcode());
+        assertEquals("ok", result.getErrmsg());
+        assertEquals(3, result.getCount());
+        assertEquals(2, ids.size());
+        assertEquals("wm2", ids.get(1));
+    }
+
+    @Test
+    void testUserListField() throws Exception {
+        List<String> ids = new ArrayList<>();
+        JsonStreamDecoder.Result result = JsonStreamDecoder.readArray(
+                json("{\"errcode\":0,\"errmsg\":\"ok\",\"userlist\":["
+                        + "{\"userid\":\"zhangsan\",\"name\":\"张三\",\"department\":[1,2],\"open_userid\":\"x\"},"
+                        + "{\"name\":\"无ID\"},"
+                        + "{\"department\":[3],\"userid\":\"lisi\"}]}"),
+                "userlist", JsonStreamDecoder.stringField("userid", ids::add));
+
+        assertEquals(3, result.getCount());
+        assertEquals(2, ids.size());
+        assertEquals("zhangsan", ids.get(0));
+        assertEquals("lisi", ids.get(1));
+    }
+
+    @Test
+    void testErrorResponse() throws Exception {
+        List<String> ids = new ArrayList<>();
+        JsonStreamDecoder.Result result = JsonStreamDecoder.readArray(
+                json("{\"errcode\":84061,\"errmsg\":\"not external contact\"}"),
+                "external_userid", JsonStreamDecoder.strings(ids::add));
+
+        assertEquals(84061, result.getErrcode());
+        assertEquals("not external contact", result.getErrmsg());
+        assertEquals(0, result.getCount());
+        assertTrue(ids.isEmpty());
+    }
+
+    @Test
+    void testMalformed() {
+        assertThrows(Exception.class, () -> JsonStreamDecoder.readArray(
+                json("{\"errcode\":0,\"external_userid\":[\"wm1\""), "external_userid",
+                JsonStreamDecoder.strings(id -> { })));
+    }
+}
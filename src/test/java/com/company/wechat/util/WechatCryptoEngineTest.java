@@ -0,0 +1,83 @@
+package com.company.wechat.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 加解密引擎测试（与AesUtil互相校验）
+ */
+class WechatCryptoEngineTest {
+
+    private WechatCryptoEngine engine;
+    private AesUtil aesUtil;
+    private String corpId = "test_corp_id";
+    private String encodingAesKey = "abcdefghijklmnopqrstuvwxyz0123456789ABCDEFG";
+
+    @BeforeEach
+    void setUp() {
+        engine = new WechatCryptoEngine(encodingAesKey, corpId);
+        aesUtil = new AesUtil(encodingAesKey, corpId);
+    }
+
+    @Test
+    void testDecryptAesUtilOutput() throws Exception {
+        String originalText = "<xml><ToUserName><![CDATA[test]]></ToUserName></xml>";
+        String encrypted = aesUtil.encrypt(AesUtil.getRandomStr(), originalText);
+
+        assertEquals(originalText, engine.decrypt(encrypted));
+    }
+
+    @Test
+    void testEncryptMatchesAesUtil() throws Exception {
+        String originalText = "<xml><Content><![CDATA[中文内容]]></Content></xml>";
+        String randomStr = AesUtil.getRandomStr();
+
+        // 相同随机串下密文应完全一致
+        assertEquals(aesUtil.encrypt(randomStr, originalText), engine.encrypt(randomStr, originalText));
+        assertEquals(originalText, aesUtil.decrypt(engine.encrypt(originalText)));
+    }
+
+    @Test
+    void testBufferReuseAcrossMessages() throws Exception {
+        // 先处理超长消息再处理短消息，缓冲区复用不应影响结果
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            longText.append("This is a test message. ");
+        }
+        String shortText = "<xml><test>data</test></xml>";
+
+        assertEquals(longText.toString(), engine.decrypt(engine.encrypt(longText.toString())));
+        assertEquals(shortText, engine.decrypt(engine.encrypt(shortText)));
+        assertEquals("", engine.decrypt(engine.encrypt("")));
+    }
+
+    @Test
+    void testDecryptWithWrongCorpId() throws Exception {
+        WechatCryptoEngine wrongEngine = new WechatCryptoEngine(encodingAesKey, "wrong_corp_id");
+        String encrypted = engine.encrypt("<xml><test>data</test></xml>");
+
+        assertThrows(IllegalArgumentException.class, () -> wrongEngine.decrypt(encrypted));
+    }
+
+    @Test
+    void testDecryptInvalidCiphertext() {
+        assertThrows(IllegalArgumentException.class, () -> engine.decrypt("YWJj"));
+        assertThrows(IllegalArgumentException.class, () -> engine.decrypt("@@@@"));
+    }
+
+    @Test
+    void testInvalidEncodingAesKey() {
+        assertThrows(IllegalArgumentException.class, () -> new WechatCryptoEngine("short_key", corpId));
+    }
+
+    @Test
+    void testDecryptFromBytes() throws Exception {
+        String originalText = "<xml><Content><![CDATA[中文内容]]></Content></xml>";
+        String encrypted = aesUtil.encrypt(AesUtil.getRandomStr(), originalText);
+        byte[] body = ("<xml><Encrypt><![CDATA[" + encrypted + "]]></Encrypt></xml>")
+                .getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+
+        assertEquals(originalText, engine.decrypt(body, 23, encrypted.length()));
+    }
+}
@@ -1,6 +1,11 @@
 package com.company.wechat.util;
 
 import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -63,5 +68,68 @@ class WechatSignUtilTest {
         
         assertEquals(signature1, signature2);
     }
-}
 
+    @Test
+    void testSignatureMatchesReferenceImplementation() throws Exception {
+        String[][] cases = {
+                {"test_token", "1234567890", "test_nonce", "test_encrypt"},
+                {"zzz", "aaa", "mmm", "AAA"},
+                {"令牌", "1409659813", "nonce", "加密内容+/="}
+        };
+        for (String[] params : cases) {
+            String expected = referenceSignature(params[0], params[1], params[2], params[3]);
+            assertEquals(expected, WechatSignUtil.computeSignature(params[0], params[1], params[2], params[3]));
+            assertTrue(WechatSignUtil.verifySignature(params[0], params[1], params[2], params[3], expected));
+        }
+    }
+
+    @Test
+    void testVerifySignatureCaseInsensitive() {
+        String signature = WechatSignUtil.computeSignature("test_token", "1234567890", "test_nonce", "test_encrypt");
+
+        assertTrue(WechatSignUtil.verifySignature("test_token", "1234567890", "test_nonce", "test_encrypt",
+                signature.toUpperCase()));
+    }
+
+    @Test
+    void testVerifySignatureRejectsMalformedSignature() {
+        String signature = WechatSignUtil.computeSignature("test_token", "1234567890", "test_nonce", "test_encrypt");
+
+        assertFalse(WechatSignUtil.verifySignature("test_token", "1234567890", "test_nonce", "test_encrypt", null));
+        assertFalse(WechatSignUtil.verifySignature("test_token", "1234567890", "test_nonce", "test_encrypt",
+                signature.substring(1)));
+        assertFalse(WechatSignUtil.verifySignature("test_token", "1234567890", "test_nonce", "test_encrypt",
+                "zz" + signature.substring(2)));
+        assertFalse(WechatSignUtil.verifySignature(null, "1234567890", "test_nonce", "test_encrypt", signature));
+    }
+
+    /**
+     * 参考实现：排序、拼接后计算SHA-1
+     */
+    private String referenceSignature(String token, String timestamp, String nonce, String encrypt) throws Exception {
+        String[] params = {token, timestamp, nonce, encrypt};
+        Arrays.sort(params);
+        byte[] digest = MessageDigest.getInstance("SHA-1")
+                .digest(String.join("", params).getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest) {
+            hex.append(String.format("%02x", b & 0xFF));
+        }
+        return hex.toString();
+    }
+
+    @Test
+    void testVerifySignatureFromBytes() {
+        // 覆盖加密内容在排序结果中处于不同位置的情况
+        String[] encrypts = {"0000", "AAAA", "test_encrypt", "zzzz", "test_nonce"};
+        for (String encrypt : encrypts) {
+            String signature = WechatSignUtil.computeSignature("test_token", "1234567890", "test_nonce", encrypt);
+            byte[] body = ("<Encrypt>" + encrypt + "</Encrypt>").getBytes(StandardCharsets.US_ASCII);
+
+            assertTrue(WechatSignUtil.verifySignature("test_token", "1234567890", "test_nonce",
+                    body, 9, encrypt.length(), signature), encrypt);
+            assertFalse(WechatSignUtil.verifySignature("test_token", "1234567890", "test_nonce",
+                    body, 9, encrypt.length() - 1, signature), encrypt);
+        }
+    }
+}